@@ -1,19 +1,44 @@
 package com.example.audiochirpapp;
 
-import android.media.AudioAttributes;
 import android.media.AudioFormat;
-import android.media.AudioManager;
 import android.media.AudioTrack;
-import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Class for playing audio chirps
  */
 public class AudioPlayer {
+    private static final String TAG = "AudioPlayer";
     private static final int SAMPLE_RATE = 44100; // 44.1kHz
-    private AudioTrack audioTrack;
-    private boolean isPlaying = false;
+    private static final long CACHE_MAX_BYTES = 32L * 1024 * 1024;
+    // Chirps up to this length are played from a static buffer for the lowest start latency
+    private static final int STATIC_MAX_DURATION_MS = 5000;
+    private static final int STREAM_CHUNK_FRAMES = 4096;
+    // How long to wait for the track to report when its first frame was presented
+    private static final long START_TIMESTAMP_POLL_MS = 10;
+    private static final long START_TIMESTAMP_TIMEOUT_MS = 2000;
+
+    // Tracks kept open between chirps until release()
+    private PlaybackSession playbackSession;
+    private volatile boolean isPlaying = false;
     private DataManager dataManager;
+    private Thread feederThread;
+    // Reports the start of the last single chirp, see reportChirpStart
+    private Thread clockThread;
+    // Runs the logging of repeated chirps so the feeder never waits on file I/O
+    private ExecutorService eventExecutor;
+    // Generates upcoming chirps ahead of time, see prepareChirp
+    private ExecutorService prepareExecutor;
+    private final ChirpCache chirpCache = new ChirpCache(CACHE_MAX_BYTES);
+    // Time from the play request to the first presented frame of the last chirp
+    private volatile long lastStartLatencyNanos = -1;
 
     /**
      * Sets the DataManager for saving transmitted signals
@@ -31,107 +56,361 @@ public class AudioPlayer {
      * @param rightParams Parameters for right channel chirp
      */
     public void playChirp(ChirpParams leftParams, ChirpParams rightParams) {
+        playChirp(leftParams, rightParams, MonotonicClock.SYSTEM.nanoTime());
+    }
+
+    /**
+     * Plays a chirp with different parameters for left and right channels
+     *
+     * @param leftParams Parameters for left channel chirp
+     * @param rightParams Parameters for right channel chirp
+     * @param requestNanos Monotonic time the chirp was requested, for the start latency
+     */
+    public void playChirp(ChirpParams leftParams, ChirpParams rightParams, long requestNanos) {
         if (isPlaying) {
             stopPlaying();
         }
 
-        // Generate chirp signals for each channel
-        short[] leftSamples = AudioUtils.generateChirp(
-                leftParams.getStartFrequency(),
-                leftParams.getEndFrequency(),
-                leftParams.getDuration());
+        if (Math.max(leftParams.getDuration(), rightParams.getDuration()) > STATIC_MAX_DURATION_MS) {
+            playChirpStreaming(leftParams, rightParams, requestNanos);
+        } else {
+            playChirpStatic(leftParams, rightParams, requestNanos);
+        }
+    }
 
-        short[] rightSamples = AudioUtils.generateChirp(
-                rightParams.getStartFrequency(),
-                rightParams.getEndFrequency(),
-                rightParams.getDuration());
+    /**
+     * Plays a chirp from a static buffer holding the whole signal
+     *
+     * @param leftParams Parameters for left channel chirp
+     * @param rightParams Parameters for right channel chirp
+     */
+    private void playChirpStatic(ChirpParams leftParams, ChirpParams rightParams, long requestNanos) {
+        // Look up the ready-to-play chirp, generating it on a cache miss
+        long prepareStart = SystemClock.elapsedRealtime();
+        PreparedChirp chirp = chirpCache.get(leftParams, rightParams);
+        Log.d(TAG, "Chirp prepared in " + (SystemClock.elapsedRealtime() - prepareStart)
+                + "ms, " + chirpCache);
 
-        // Save the transmitted signal if DataManager is available
-        if (dataManager != null) {
-            dataManager.saveTransmittedData(leftSamples, rightSamples);
-        }
+        // Start playback, reusing the static track when the chirp fits it
+        AudioTrack track = getPlaybackSession().startStatic(chirp);
+        isPlaying = true;
+
+        reportChirpStart(track, leftParams, rightParams, requestNanos);
+    }
+
+    /**
+     * Plays a chirp through a streaming AudioTrack. A feeder thread generates
+     * the signal in fixed-size chunks, so memory use does not depend on the duration.
+     *
+     * @param leftParams Parameters for left channel chirp
+     * @param rightParams Parameters for right channel chirp
+     */
+    private void playChirpStreaming(ChirpParams leftParams, ChirpParams rightParams, long requestNanos) {
+        final ChirpGenerator leftGenerator = new ChirpGenerator(leftParams);
+        final ChirpGenerator rightGenerator = new ChirpGenerator(rightParams);
+
+        final AudioTrack track = getPlaybackSession().startStream();
+        isPlaying = true;
+
+        reportChirpStart(track, leftParams, rightParams, requestNanos);
+
+        feederThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                short[] left = new short[STREAM_CHUNK_FRAMES];
+                short[] right = new short[STREAM_CHUNK_FRAMES];
+                short[] stereo = new short[STREAM_CHUNK_FRAMES * 2];
+
+                while (isPlaying) {
+                    int leftCount = leftGenerator.fill(left, 0, STREAM_CHUNK_FRAMES);
+                    int rightCount = rightGenerator.fill(right, 0, STREAM_CHUNK_FRAMES);
+                    int frames = Math.min(leftCount, rightCount);
+                    if (frames == 0) {
+                        break;
+                    }
 
-        // Interleave samples for stereo output
-        short[] stereoSamples = AudioUtils.interleave(leftSamples, rightSamples);
+                    AudioUtils.interleave(left, right, frames, stereo);
 
-        // Convert to bytes for AudioTrack
-        byte[] audioData = AudioUtils.shortsToBytes(stereoSamples);
+                    // Blocks until the track has room for the chunk
+                    if (track.write(stereo, 0, frames * 2) < 0) {
+                        Log.e(TAG, "Error writing to streaming AudioTrack");
+                        break;
+                    }
+                }
+            }
+        }, "AudioPlayerFeeder");
+        feederThread.start();
+    }
 
-        // Calculate buffer size based on duration
-        int bufferSize = audioData.length;
+    /**
+     * Plays the chirp repeatedly at a fixed interval until {@link #stopPlaying()}.
+     * All chirps go through one streaming AudioTrack at exact frame offsets,
+     * see {@link ChirpScheduler}. Each chirp is logged once it has been presented.
+     *
+     * @param leftParams Parameters for left channel chirp
+     * @param rightParams Parameters for right channel chirp
+     * @param intervalMs Time from the start of one chirp to the next
+     * @param requestNanos Monotonic time the chirps were requested, for the start latency
+     */
+    public void playChirpRepeated(final ChirpParams leftParams, final ChirpParams rightParams,
+                                  int intervalMs, final long requestNanos) {
+        if (isPlaying) {
+            stopPlaying();
+        }
 
-        // Initialize AudioTrack
-        initializeAudioTrack(bufferSize);
+        final ArrayDeque<Long> pendingChirps = new ArrayDeque<>();
+        final ChirpScheduler scheduler = new ChirpScheduler(leftParams, rightParams,
+                (int) ((long) intervalMs * SAMPLE_RATE / 1000), new ChirpScheduler.Listener() {
+                    @Override
+                    public void onChirpScheduled(long chirpIndex, long startFrame) {
+                        pendingChirps.add(startFrame);
+                    }
+                });
 
-        // Write audio data to AudioTrack
-        audioTrack.write(audioData, 0, audioData.length);
+        final AudioTrack track = getPlaybackSession().startStream();
+        final boolean reused = playbackSession.wasLastStartReused();
+        final DataManager manager = dataManager;
+        final StreamClock clock = manager != null && manager.getSessionClock() != null
+                ? new StreamClock(manager.getSessionClock(), AudioTimestampSources.forTrack(track), SAMPLE_RATE)
+                : null;
+        eventExecutor = Executors.newSingleThreadExecutor();
+        final ExecutorService events = eventExecutor;
 
-        // Start playback
-        audioTrack.play();
         isPlaying = true;
+
+        feederThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                short[] stereo = new short[STREAM_CHUNK_FRAMES * 2];
+
+                while (isPlaying) {
+                    scheduler.render(stereo, STREAM_CHUNK_FRAMES);
+
+                    // Blocks until the track has room for the chunk
+                    if (track.write(stereo, 0, STREAM_CHUNK_FRAMES * 2) < 0) {
+                        Log.e(TAG, "Error writing to streaming AudioTrack");
+                        break;
+                    }
+
+                    if (clock != null) {
+                        clock.update(scheduler.getFramesRendered());
+                        reportPresentedChirps(clock, pendingChirps, events, manager, leftParams, rightParams,
+                                requestNanos, reused);
+                    }
+                }
+            }
+        }, "AudioPlayerFeeder");
+        feederThread.start();
+    }
+
+    /**
+     * Logs the scheduled chirps whose first frame has been presented by now
+     */
+    private void reportPresentedChirps(StreamClock clock, ArrayDeque<Long> pendingChirps,
+                                       ExecutorService events, final DataManager manager,
+                                       final ChirpParams leftParams, final ChirpParams rightParams,
+                                       long requestNanos, boolean reused) {
+        long now = clock.getSessionClock().nanoTime();
+        while (!pendingChirps.isEmpty()) {
+            final long startFrame = pendingChirps.peek();
+            final long startNanos = clock.frameToNanos(startFrame);
+            if (startNanos > now) {
+                return;
+            }
+            pendingChirps.poll();
+
+            if (startFrame == 0) {
+                recordStartLatency(requestNanos, startNanos, reused);
+            }
+
+            events.execute(new Runnable() {
+                @Override
+                public void run() {
+                    // Interrupted by stopPlaying when logging falls too far behind
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    manager.logChirpParameters(leftParams, rightParams, startFrame);
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    manager.onChirpStarted(leftParams, rightParams, startNanos);
+                }
+            });
+        }
     }
 
     /**
-     * Initializes the AudioTrack with proper configuration
+     * Tells the DataManager when the first frame of the chirp is presented.
+     * The track's timestamps only become available shortly after play(), so
+     * a short-lived thread polls them. If none arrive, the time of play() is used.
+     * {@link #stopPlaying()} ends the polling and waits for the report.
      *
-     * @param bufferSize Size of the audio buffer
+     * @param track Track that is playing the chirp from frame 0
+     * @param leftParams Parameters for left channel chirp
+     * @param rightParams Parameters for right channel chirp
+     * @param requestNanos Monotonic time the chirp was requested
      */
-    private void initializeAudioTrack(int bufferSize) {
-        int minBufferSize = AudioTrack.getMinBufferSize(
-                SAMPLE_RATE,
-                AudioFormat.CHANNEL_OUT_STEREO,
-                AudioFormat.ENCODING_PCM_16BIT);
-
-        // Ensure buffer size is adequate
-        bufferSize = Math.max(bufferSize, minBufferSize);
-
-        // Create AudioTrack instance
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            // For modern Android versions
-            AudioAttributes audioAttributes = new AudioAttributes.Builder()
-                    .setUsage(AudioAttributes.USAGE_MEDIA)
-                    .setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
-                    .build();
-
-            AudioFormat audioFormat = new AudioFormat.Builder()
-                    .setSampleRate(SAMPLE_RATE)
-                    .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
-                    .setChannelMask(AudioFormat.CHANNEL_OUT_STEREO)
-                    .build();
-
-            audioTrack = new AudioTrack.Builder()
-                    .setAudioAttributes(audioAttributes)
-                    .setAudioFormat(audioFormat)
-                    .setBufferSizeInBytes(bufferSize)
-                    .setTransferMode(AudioTrack.MODE_STATIC)
-                    .build();
-        } else {
-            // For older Android versions
-            audioTrack = new AudioTrack(
-                    AudioManager.STREAM_MUSIC,
+    private void reportChirpStart(AudioTrack track, final ChirpParams leftParams,
+                                  final ChirpParams rightParams, final long requestNanos) {
+        final DataManager manager = dataManager;
+        if (manager == null || manager.getSessionClock() == null) {
+            return;
+        }
+
+        final StreamClock clock = new StreamClock(manager.getSessionClock(),
+                AudioTimestampSources.forTrack(track), SAMPLE_RATE);
+        final boolean reused = playbackSession.wasLastStartReused();
+
+        clockThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long deadline = SystemClock.elapsedRealtime() + START_TIMESTAMP_TIMEOUT_MS;
+                clock.update(0);
+                while (!clock.hasHardwareTimestamps() && isPlaying
+                        && SystemClock.elapsedRealtime() < deadline) {
+                    SystemClock.sleep(START_TIMESTAMP_POLL_MS);
+                    clock.update(0);
+                }
+                if (!clock.hasHardwareTimestamps()) {
+                    Log.w(TAG, "No playback timestamp, using the time of play()");
+                }
+
+                long startNanos = clock.frameToNanos(0);
+                recordStartLatency(requestNanos, startNanos, reused);
+
+                // Save the transmitted signal in the background
+                manager.onChirpStarted(leftParams, rightParams, startNanos);
+            }
+        }, "AudioPlayerClock");
+        clockThread.start();
+    }
+
+    private void recordStartLatency(long requestNanos, long startNanos, boolean reused) {
+        lastStartLatencyNanos = startNanos - requestNanos;
+        Log.i(TAG, String.format(Locale.US, "First sample %.1fms after request (%s track)",
+                lastStartLatencyNanos / 1e6, reused ? "reused" : "new"));
+    }
+
+    /**
+     * Returns the time from the play request to the first presented frame of
+     * the last chirp, measured with the track's timestamps
+     *
+     * @return Latency in ms, or -1 if not measured yet
+     */
+    public double getLastStartLatencyMs() {
+        long latency = lastStartLatencyNanos;
+        return latency < 0 ? -1 : latency / 1e6;
+    }
+
+    /**
+     * Generates a chirp in the background so a later playChirp with the same
+     * parameters finds it in the cache. Streamed chirps need no preparation.
+     *
+     * @param leftParams Parameters for left channel chirp
+     * @param rightParams Parameters for right channel chirp
+     */
+    public synchronized void prepareChirp(final ChirpParams leftParams, final ChirpParams rightParams) {
+        if (Math.max(leftParams.getDuration(), rightParams.getDuration()) > STATIC_MAX_DURATION_MS) {
+            return;
+        }
+        if (prepareExecutor == null) {
+            prepareExecutor = Executors.newSingleThreadExecutor();
+        }
+        prepareExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                chirpCache.get(leftParams, rightParams);
+            }
+        });
+    }
+
+    /**
+     * Returns the cache of prepared chirps, for its hit/miss statistics
+     *
+     * @return The chirp cache
+     */
+    public ChirpCache getChirpCache() {
+        return chirpCache;
+    }
+
+    private PlaybackSession getPlaybackSession() {
+        if (playbackSession == null) {
+            int minBufferSize = AudioTrack.getMinBufferSize(
                     SAMPLE_RATE,
                     AudioFormat.CHANNEL_OUT_STEREO,
-                    AudioFormat.ENCODING_PCM_16BIT,
-                    bufferSize,
-                    AudioTrack.MODE_STATIC);
+                    AudioFormat.ENCODING_PCM_16BIT);
+            playbackSession = new PlaybackSession(SAMPLE_RATE,
+                    Math.max(minBufferSize * 2, STREAM_CHUNK_FRAMES * 4));
         }
+        return playbackSession;
     }
 
     /**
-     * Stops audio playback and releases resources
+     * Stops audio playback. The tracks stay open for the next chirp until {@link #release()}.
      */
     public void stopPlaying() {
-        if (audioTrack != null) {
+        isPlaying = false;
+
+        if (feederThread != null) {
             try {
-                if (isPlaying) {
-                    audioTrack.stop();
+                // Unblock a feeder waiting in write()
+                if (playbackSession != null) {
+                    playbackSession.stop();
                 }
-                audioTrack.release();
+                feederThread.join(1000);
             } catch (Exception e) {
                 e.printStackTrace();
             }
-            audioTrack = null;
-            isPlaying = false;
+            feederThread = null;
+        }
+
+        if (clockThread != null) {
+            // Stops polling once isPlaying is false, so the chirp is reported before the session ends
+            try {
+                clockThread.join(1000);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+            clockThread = null;
+        }
+
+        if (eventExecutor != null) {
+            // Let the chirps that were already presented finish logging, but not after
+            // the caller has gone on to finalize the session
+            eventExecutor.shutdown();
+            try {
+                if (!eventExecutor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    Log.w(TAG, "Chirp logging did not finish in time, dropping the rest");
+                    eventExecutor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                eventExecutor.shutdownNow();
+                e.printStackTrace();
+            }
+            eventExecutor = null;
+        }
+
+        if (playbackSession != null) {
+            // Also drops anything the feeder wrote after the first stop
+            playbackSession.stop();
+        }
+    }
+
+    /**
+     * Stops audio playback and releases the tracks, at the end of a session
+     */
+    public void release() {
+        stopPlaying();
+        synchronized (this) {
+            if (prepareExecutor != null) {
+                prepareExecutor.shutdownNow();
+                prepareExecutor = null;
+            }
+        }
+        if (playbackSession != null) {
+            playbackSession.close();
+            playbackSession = null;
         }
     }
 }
\ No newline at end of file
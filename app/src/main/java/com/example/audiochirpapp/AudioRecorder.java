@@ -3,18 +3,24 @@ package com.example.audiochirpapp;
 import android.media.AudioFormat;
 import android.media.AudioRecord;
 import android.media.MediaRecorder;
+import android.util.Log;
 
 /**
  * Class for recording audio from the microphone
  */
 public class AudioRecorder {
+    private static final String TAG = "AudioRecorder";
     private static final int SAMPLE_RATE = 44100; // 44.1kHz
     private static final int CHANNEL_CONFIG = AudioFormat.CHANNEL_IN_MONO;
     private static final int AUDIO_FORMAT = AudioFormat.ENCODING_PCM_16BIT;
+    private static final int RING_CAPACITY = 64; // blocks, several seconds of audio
 
     private AudioRecord audioRecord;
-    private boolean isRecording = false;
+    private volatile boolean isRecording = false;
     private Thread recordingThread;
+    private SampleRingBuffer ringBuffer;
+    private RecordingWriter recordingWriter;
+    private StreamClock clock;
 
     /**
      * Starts recording audio from the microphone
@@ -44,27 +50,35 @@ public class AudioRecorder {
                     AUDIO_FORMAT,
                     bufferSize);
 
+            // Frame positions are mapped onto the session timebase shared with the player
+            clock = new StreamClock(dataManager.getSessionClock(),
+                    AudioTimestampSources.forRecord(audioRecord), SAMPLE_RATE);
+            dataManager.setRecordingClock(clock);
+
+            // Disk writes happen on their own thread, fed through the ring
+            ringBuffer = new SampleRingBuffer(RING_CAPACITY, bufferSize / 2);
+            recordingWriter = new RecordingWriter(ringBuffer, dataManager, clock);
+            recordingWriter.start();
+
             // Start recording
             audioRecord.startRecording();
             isRecording = true;
 
-            // Start a thread to read and save recorded data
-            recordingThread = new Thread(() -> {
-                byte[] buffer = new byte[bufferSize];
+            // Start a thread to read recorded data into the ring
+            final AudioRecord record = audioRecord;
+            final CaptureLoop captureLoop = new CaptureLoop(new PcmSource() {
+                @Override
+                public int read(short[] data, int offset, int length) {
+                    return record.read(data, offset, length);
+                }
+            }, ringBuffer, clock);
 
+            recordingThread = new Thread(() -> {
                 while (isRecording) {
-                    // Read audio data
-                    int bytesRead = audioRecord.read(buffer, 0, buffer.length);
-
-                    if (bytesRead > 0) {
-                        // Convert to shorts for easier processing
-                        short[] audioData = AudioUtils.bytesToShorts(buffer);
-
-                        // Save data with timestamp
-                        dataManager.saveRecordedData(audioData, bytesRead / 2);
-                    }
+                    // Read audio data directly into a pooled block
+                    captureLoop.readOnce();
                 }
-            });
+            }, "AudioRecorder");
 
             recordingThread.start();
 
@@ -74,6 +88,26 @@ public class AudioRecorder {
         }
     }
 
+    /**
+     * Returns the ring between the capture and writer threads, for its
+     * overrun and high-water-mark metrics
+     *
+     * @return Ring of the current or last recording, or null
+     */
+    public SampleRingBuffer getRingBuffer() {
+        return ringBuffer;
+    }
+
+    /**
+     * Returns the clock mapping recorder frames to the session timebase,
+     * including the measured drift of the microphone clock
+     *
+     * @return Clock of the current or last recording, or null
+     */
+    public StreamClock getClock() {
+        return clock;
+    }
+
     /**
      * Stops recording and releases resources
      */
@@ -89,6 +123,13 @@ public class AudioRecorder {
             recordingThread = null;
         }
 
+        if (recordingWriter != null) {
+            recordingWriter.stop();
+            recordingWriter = null;
+            Log.i(TAG, "Recording finished: " + ringBuffer + ", drift " + clock.getDriftPpm() + "ppm"
+                    + (clock.hasHardwareTimestamps() ? "" : " (no hardware timestamps)"));
+        }
+
         if (audioRecord != null) {
             try {
                 audioRecord.stop();
@@ -0,0 +1,71 @@
+package com.example.audiochirpapp;
+
+import android.media.AudioRecord;
+import android.media.AudioTimestamp;
+import android.media.AudioTrack;
+import android.os.Build;
+
+/**
+ * {@link FrameTimestampSource} adapters for AudioRecord and AudioTrack
+ */
+public final class AudioTimestampSources {
+
+    private AudioTimestampSources() {
+    }
+
+    /**
+     * Timestamps of captured frames, available from Android 7.0 (API 24)
+     *
+     * @param record Recording stream
+     * @return Timestamp source, returning no timestamps on older versions
+     */
+    public static FrameTimestampSource forRecord(final AudioRecord record) {
+        return new FrameTimestampSource() {
+            private final AudioTimestamp timestamp = new AudioTimestamp();
+
+            @Override
+            public boolean read(FrameTimestamp out) {
+                try {
+                    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N
+                            || record.getTimestamp(timestamp, AudioTimestamp.TIMEBASE_MONOTONIC)
+                            != AudioRecord.SUCCESS) {
+                        return false;
+                    }
+                } catch (IllegalStateException e) {
+                    // Recording was already released
+                    return false;
+                }
+                out.framePosition = timestamp.framePosition;
+                out.nanoTime = timestamp.nanoTime;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Timestamps of presented frames
+     *
+     * @param track Playback stream
+     * @return Timestamp source
+     */
+    public static FrameTimestampSource forTrack(final AudioTrack track) {
+        return new FrameTimestampSource() {
+            private final AudioTimestamp timestamp = new AudioTimestamp();
+
+            @Override
+            public boolean read(FrameTimestamp out) {
+                try {
+                    if (!track.getTimestamp(timestamp)) {
+                        return false;
+                    }
+                } catch (IllegalStateException e) {
+                    // Track was already released
+                    return false;
+                }
+                out.framePosition = timestamp.framePosition;
+                out.nanoTime = timestamp.nanoTime;
+                return true;
+            }
+        };
+    }
+}
@@ -58,14 +58,24 @@ public class AudioUtils {
 
         // Create interleaved output buffer
         short[] interleavedSamples = new short[length * 2];
+        interleave(leftSamples, rightSamples, length, interleavedSamples);
+        return interleavedSamples;
+    }
 
+    /**
+     * Interleaves left and right channel samples into an existing stereo buffer
+     *
+     * @param leftSamples Left channel samples
+     * @param rightSamples Right channel samples
+     * @param length Number of frames to interleave
+     * @param out Destination, at least 2 * length samples
+     */
+    public static void interleave(short[] leftSamples, short[] rightSamples, int length, short[] out) {
         // Interleave samples (Left Right Left Right...)
         for (int i = 0; i < length; i++) {
-            interleavedSamples[i * 2] = leftSamples[i];        // Left sample
-            interleavedSamples[i * 2 + 1] = rightSamples[i];   // Right sample
+            out[i * 2] = leftSamples[i];        // Left sample
+            out[i * 2 + 1] = rightSamples[i];   // Right sample
         }
-
-        return interleavedSamples;
     }
 
     /**
@@ -0,0 +1,338 @@
+package com.example.audiochirpapp;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Analyses every chirp of a directory of sessions in parallel
+ *
+ * The chirps of all sessions form one list that a ForkJoinPool splits
+ * across its workers, so the work spreads over the cores even when the
+ * sessions differ in length. Each chirp is matched against the transmitted
+ * signal of both channels and its energy in each chirp band is measured.
+ * Recordings are memory-mapped, see {@link SessionReader}. Runs headless:
+ * <pre>java com.example.audiochirpapp.BatchAnalyzer AudioChirpData [threads] [results.csv]</pre>
+ */
+public class BatchAnalyzer {
+    private static final String RECORDING_TAG = "_recording_";
+
+    /**
+     * Recordings and chirps left out of an analysis, called on the worker
+     * threads, so implementations must be thread safe
+     */
+    public interface ErrorListener {
+        /**
+         * @param recording Recording that could not be read
+         * @param chirp Chirp that could not be analysed, or -1 for the whole recording
+         * @param error The error
+         */
+        void onSkipped(File recording, int chirp, IOException error);
+    }
+
+    /**
+     * One chirp of one session
+     */
+    private static final class Job {
+        final SessionReader reader;
+        final int chirp;
+
+        Job(SessionReader reader, int chirp) {
+            this.reader = reader;
+            this.chirp = chirp;
+        }
+    }
+
+    /**
+     * Analyses a range of jobs, halving it until a single chirp is left
+     */
+    private final class AnalysisTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Job> jobs;
+        private final ChirpAnalysis[] results;
+        private final ErrorListener errorListener;
+        private final int from;
+        private final int to;
+
+        AnalysisTask(List<Job> jobs, ChirpAnalysis[] results, ErrorListener errorListener, int from, int to) {
+            this.jobs = jobs;
+            this.results = results;
+            this.errorListener = errorListener;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                Job job = jobs.get(from);
+                try {
+                    results[from] = analyzeChirp(job.reader, job.chirp);
+                } catch (IOException e) {
+                    if (errorListener != null) {
+                        errorListener.onSkipped(job.reader.getRecordingFile(), job.chirp, e);
+                    }
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new AnalysisTask(jobs, results, errorListener, from, middle),
+                    new AnalysisTask(jobs, results, errorListener, middle, to));
+        }
+    }
+
+    private final int parallelism;
+    private final int noiseMs;
+    private final int tailMs;
+
+    /**
+     * @param parallelism Number of worker threads
+     * @param noiseMs Length of the noise window before each chirp
+     * @param tailMs Time after each chirp end searched for its arrivals
+     */
+    public BatchAnalyzer(int parallelism, int noiseMs, int tailMs) {
+        this.parallelism = parallelism;
+        this.noiseMs = noiseMs;
+        this.tailMs = tailMs;
+    }
+
+    /**
+     * Lists the recordings of a directory written by DataManager
+     *
+     * @param directory Directory of sessions
+     * @return The "_recording_*.bin" files, sorted by name
+     */
+    public static List<File> findRecordings(File directory) {
+        List<File> recordings = new ArrayList<>();
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return recordings;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            String name = file.getName();
+            if (name.contains(RECORDING_TAG) && name.endsWith(BinarySessionFormat.FILE_EXTENSION)) {
+                recordings.add(file);
+            }
+        }
+        return recordings;
+    }
+
+    /**
+     * Analyses all chirps of the recordings. Recordings or chirps that
+     * cannot be read are left out.
+     *
+     * @param recordings Recordings to analyse
+     * @return One result per chirp, by recording and then chirp order
+     */
+    public List<ChirpAnalysis> analyze(List<File> recordings) {
+        return analyze(recordings, null);
+    }
+
+    /**
+     * Analyses all chirps of the recordings. Recordings or chirps that
+     * cannot be read are reported to the listener and left out.
+     *
+     * @param recordings Recordings to analyse
+     * @param errorListener Listener of the skipped recordings and chirps, or null
+     * @return One result per chirp, by recording and then chirp order
+     */
+    public List<ChirpAnalysis> analyze(List<File> recordings, ErrorListener errorListener) {
+        List<SessionReader> readers = new ArrayList<>();
+        List<Job> jobs = new ArrayList<>();
+        try {
+            for (File recording : recordings) {
+                try {
+                    SessionReader reader = new SessionReader(recording);
+                    readers.add(reader);
+                    for (int chirp = 0; chirp < reader.getChirpCount(); chirp++) {
+                        jobs.add(new Job(reader, chirp));
+                    }
+                } catch (IOException e) {
+                    if (errorListener != null) {
+                        errorListener.onSkipped(recording, -1, e);
+                    }
+                }
+            }
+
+            ChirpAnalysis[] results = new ChirpAnalysis[jobs.size()];
+            if (!jobs.isEmpty()) {
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                try {
+                    pool.invoke(new AnalysisTask(jobs, results, errorListener, 0, jobs.size()));
+                } finally {
+                    pool.shutdown();
+                }
+            }
+
+            List<ChirpAnalysis> analyses = new ArrayList<>(results.length);
+            for (ChirpAnalysis analysis : results) {
+                if (analysis != null) {
+                    analyses.add(analysis);
+                }
+            }
+            return analyses;
+        } finally {
+            for (SessionReader reader : readers) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Analyses one chirp: its levels, the strongest matched filter output of
+     * each channel's chirp within the window, and its level in each chirp band
+     *
+     * @param reader Session of the chirp
+     * @param chirp Chirp number
+     * @return The results
+     * @throws IOException If the recording cannot be read
+     */
+    public ChirpAnalysis analyzeChirp(SessionReader reader, int chirp) throws IOException {
+        ChirpWindow window = reader.getChirpWindow(chirp, noiseMs, tailMs);
+        ShortBuffer signalBuffer = window.getSignal();
+        short[] signal = new short[signalBuffer.remaining()];
+        signalBuffer.get(signal);
+
+        double[] left = matchChirp(signal, window.getLeftParams());
+        double[] right = matchChirp(signal, window.getRightParams());
+
+        double[] spectrum = powerSpectrum(signal);
+        int sampleRate = reader.getSampleRate();
+        return new ChirpAnalysis(reader.getRecordingFile().getName(), window,
+                left[0], (int) left[1], right[0], (int) right[1],
+                bandRms(spectrum, signal.length, sampleRate, window.getLeftParams()),
+                bandRms(spectrum, signal.length, sampleRate, window.getRightParams()));
+    }
+
+    /**
+     * @return The matched filter output with the largest magnitude and its frame
+     */
+    private static double[] matchChirp(short[] signal, ChirpParams params) {
+        ChirpGenerator generator = new ChirpGenerator(params);
+        short[] template = new short[generator.getTotalSamples()];
+        generator.fill(template, 0, template.length);
+
+        final double[] best = {0, -1};
+        final int lastFrame = signal.length - template.length;
+        if (lastFrame < 0) {
+            return best;
+        }
+
+        MatchedFilter filter = new MatchedFilter(template, template.length);
+        MatchedFilter.Output output = new MatchedFilter.Output() {
+            @Override
+            public void onCorrelation(double[] values, int count, long firstFrame) {
+                for (int i = 0; i < count && firstFrame + i <= lastFrame; i++) {
+                    if (Math.abs(values[i]) > Math.abs(best[0])) {
+                        best[0] = values[i];
+                        best[1] = firstFrame + i;
+                    }
+                }
+            }
+        };
+        filter.process(signal, 0, signal.length, output);
+
+        // Zeros push out the outputs that were waiting for a full segment
+        short[] padding = new short[template.length];
+        while (filter.getNextOutputFrame() <= lastFrame) {
+            filter.process(padding, 0, padding.length, output);
+        }
+        return best;
+    }
+
+    /**
+     * @return |X[k]|^2 for k = 0..N/2 of the zero-padded signal
+     */
+    private static double[] powerSpectrum(short[] signal) {
+        int size = Math.max(2, Integer.highestOneBit(Math.max(signal.length - 1, 1)) << 1);
+        double[] data = new double[size];
+        for (int i = 0; i < signal.length; i++) {
+            data[i] = signal[i];
+        }
+        new Fft(size).realForward(data);
+
+        double[] power = new double[size / 2 + 1];
+        power[0] = data[0] * data[0];
+        power[size / 2] = data[1] * data[1];
+        for (int k = 1; k < size / 2; k++) {
+            power[k] = data[2 * k] * data[2 * k] + data[2 * k + 1] * data[2 * k + 1];
+        }
+        return power;
+    }
+
+    /**
+     * RMS level, relative to full scale, of the part of the signal within a chirp's band
+     */
+    private static double bandRms(double[] power, int length, int sampleRate, ChirpParams params) {
+        int size = (power.length - 1) * 2;
+        int first = Math.max(0, (int) Math.floor((double) params.getStartFrequency() * size / sampleRate));
+        int last = Math.min(size / 2, (int) Math.ceil((double) params.getEndFrequency() * size / sampleRate));
+
+        // Parseval: sum x^2 = (1/N) sum |X|^2, bins above 0 and below N/2 count twice
+        double sum = 0;
+        for (int k = first; k <= last; k++) {
+            sum += (k == 0 || k == size / 2) ? power[k] : 2 * power[k];
+        }
+        return Math.sqrt(sum / size / length) / 32768.0;
+    }
+
+    /**
+     * Writes the results table
+     *
+     * @param analyses Results to write
+     * @param writer Destination, not closed
+     * @throws IOException If writing fails
+     */
+    public static void writeTable(List<ChirpAnalysis> analyses, Writer writer) throws IOException {
+        writer.write(ChirpAnalysis.CSV_HEADER);
+        for (ChirpAnalysis analysis : analyses) {
+            writer.write(analysis.toCsvRow());
+        }
+        writer.flush();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 3) {
+            System.err.println("Usage: BatchAnalyzer <sessionDirectory> [threads] [results.csv]");
+            System.exit(1);
+        }
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        List<File> recordings = findRecordings(new File(args[0]));
+
+        long start = System.nanoTime();
+        List<ChirpAnalysis> analyses = new BatchAnalyzer(threads, 200, 200).analyze(recordings,
+                new ErrorListener() {
+                    @Override
+                    public synchronized void onSkipped(File recording, int chirp, IOException error) {
+                        System.err.println("Skipping " + (chirp < 0 ? "" : "chirp " + chirp + " of ")
+                                + recording + ": " + error);
+                    }
+                });
+        long elapsedMs = (System.nanoTime() - start) / 1000000;
+
+        if (args.length > 2) {
+            try (Writer writer = new BufferedWriter(new FileWriter(args[2]))) {
+                writeTable(analyses, writer);
+            }
+        } else {
+            writeTable(analyses, new OutputStreamWriter(System.out));
+        }
+        System.err.println(analyses.size() + " chirps from " + recordings.size() + " sessions in "
+                + elapsedMs + "ms on " + threads + " threads");
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.audiochirpapp;
+
+/**
+ * Constants describing the binary recording session format.
+ *
+ * Layout (all values little-endian):
+ * <pre>
+ * header : int magic, short version, short channelCount, int sampleRate, long startEpochNanos
+ * record : int tag, int payloadLength, payload...
+ *   BLOCK payload : long blockStartEpochNanos, long frameIndex, short[] pcm
+ *   CHIRP payload : long epochNanos, long frameIndex,
+ *                   int leftCenter, int leftBandwidth, int leftDuration,
+ *                   int rightCenter, int rightBandwidth, int rightDuration
+ *   RICE payload  : long blockStartEpochNanos, long frameIndex, byte[] block encoded by {@link RiceCodec}
+ * </pre>
+ */
+public final class BinarySessionFormat {
+    public static final int MAGIC = 0x53524341;     // "ACRS"
+    public static final short VERSION = 1;
+    public static final int HEADER_SIZE = 4 + 2 + 2 + 4 + 8;
+
+    public static final int TAG_BLOCK = 1;
+    public static final int TAG_CHIRP = 2;
+    public static final int TAG_RICE_BLOCK = 3;
+
+    public static final int RECORD_HEADER_SIZE = 4 + 4;
+    public static final int BLOCK_HEADER_SIZE = 8 + 8;
+    public static final int CHIRP_PAYLOAD_SIZE = 8 + 8 + 6 * 4;
+
+    public static final String FILE_EXTENSION = ".bin";
+
+    private BinarySessionFormat() {
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.audiochirpapp;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Class for reading files written by {@link BinarySessionWriter}. Blocks
+ * encoded by {@link RiceCodec} are passed on decoded, like plain blocks.
+ */
+public class BinarySessionReader implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Receives the records of a session in file order
+     */
+    public interface Listener {
+        /**
+         * Called for every block of samples
+         *
+         * @param samples Sample buffer, only valid until the method returns
+         * @param length Number of valid samples in the buffer
+         * @param blockStartEpochNanos Capture time of the first sample
+         * @param frameIndex Frame index of the first sample
+         */
+        void onBlock(short[] samples, int length, long blockStartEpochNanos, long frameIndex);
+
+        /**
+         * Called for every chirp event
+         *
+         * @param epochNanos Time of the event
+         * @param frameIndex Frame index the event refers to
+         * @param leftParams Left channel parameters
+         * @param rightParams Right channel parameters
+         */
+        void onChirp(long epochNanos, long frameIndex, ChirpParams leftParams, ChirpParams rightParams);
+    }
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final int channelCount;
+    private final int sampleRate;
+    private final long startEpochNanos;
+    private short[] samples = new short[0];
+    // Only for sessions with encoded blocks
+    private byte[] encoded = new byte[0];
+    private RiceCodec riceCodec;
+
+    /**
+     * Opens a session file and reads its header
+     *
+     * @param file Session file
+     * @throws IOException If the file cannot be read or is not a session file
+     */
+    public BinarySessionReader(File file) throws IOException {
+        this(new FileInputStream(file).getChannel(), file.toString());
+    }
+
+    /**
+     * Reads a session from a channel, such as a decompressing stream, and reads its header
+     *
+     * @param channel Source, closed with this reader
+     * @param name Name of the source for error messages
+     * @throws IOException If the source cannot be read or is not a session
+     */
+    public BinarySessionReader(ReadableByteChannel channel, String name) throws IOException {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.flip();
+
+        try {
+            require(BinarySessionFormat.HEADER_SIZE);
+            if (buffer.getInt() != BinarySessionFormat.MAGIC) {
+                throw new IOException("Not a session file: " + name);
+            }
+            short version = buffer.getShort();
+            if (version != BinarySessionFormat.VERSION) {
+                throw new IOException("Unsupported session version " + version);
+            }
+            this.channelCount = buffer.getShort();
+            this.sampleRate = buffer.getInt();
+            this.startEpochNanos = buffer.getLong();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int getChannelCount() {
+        return channelCount;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public long getStartEpochNanos() {
+        return startEpochNanos;
+    }
+
+    /**
+     * Reads all remaining records and passes them to the listener
+     *
+     * @param listener Listener for the records
+     * @throws IOException If reading fails or the file is corrupt
+     */
+    public void readAll(Listener listener) throws IOException {
+        while (fill(BinarySessionFormat.RECORD_HEADER_SIZE)) {
+            int tag = buffer.getInt();
+            int payloadLength = buffer.getInt();
+
+            if (tag == BinarySessionFormat.TAG_BLOCK) {
+                readBlock(payloadLength, listener);
+            } else if (tag == BinarySessionFormat.TAG_CHIRP) {
+                readChirp(payloadLength, listener);
+            } else if (tag == BinarySessionFormat.TAG_RICE_BLOCK) {
+                readRiceBlock(payloadLength, listener);
+            } else {
+                skip(payloadLength);
+            }
+        }
+    }
+
+    private void readBlock(int payloadLength, Listener listener) throws IOException {
+        require(BinarySessionFormat.BLOCK_HEADER_SIZE);
+        long blockStartEpochNanos = buffer.getLong();
+        long frameIndex = buffer.getLong();
+
+        int length = (payloadLength - BinarySessionFormat.BLOCK_HEADER_SIZE) / 2;
+        if (samples.length < length) {
+            samples = new short[length];
+        }
+        // Bulk copies through a little-endian view of the buffer, as much as is buffered each time
+        int read = 0;
+        while (read < length) {
+            if (buffer.remaining() < 2) {
+                require(2);
+            }
+            int count = Math.min(length - read, buffer.remaining() / 2);
+            buffer.asShortBuffer().get(samples, read, count);
+            buffer.position(buffer.position() + count * 2);
+            read += count;
+        }
+
+        listener.onBlock(samples, length, blockStartEpochNanos, frameIndex);
+    }
+
+    private void readRiceBlock(int payloadLength, Listener listener) throws IOException {
+        require(BinarySessionFormat.BLOCK_HEADER_SIZE);
+        long blockStartEpochNanos = buffer.getLong();
+        long frameIndex = buffer.getLong();
+
+        int length = payloadLength - BinarySessionFormat.BLOCK_HEADER_SIZE;
+        if (encoded.length < length) {
+            encoded = new byte[length];
+        }
+        int read = 0;
+        while (read < length) {
+            require(1);
+            int count = Math.min(length - read, buffer.remaining());
+            buffer.get(encoded, read, count);
+            read += count;
+        }
+        if (riceCodec == null) {
+            riceCodec = new RiceCodec();
+            samples = new short[Math.max(samples.length, RiceCodec.MAX_BLOCK_SAMPLES)];
+        }
+        int count = riceCodec.decode(encoded, 0, length, samples, 0);
+
+        listener.onBlock(samples, count, blockStartEpochNanos, frameIndex);
+    }
+
+    private void readChirp(int payloadLength, Listener listener) throws IOException {
+        require(BinarySessionFormat.CHIRP_PAYLOAD_SIZE);
+        long epochNanos = buffer.getLong();
+        long frameIndex = buffer.getLong();
+        ChirpParams left = new ChirpParams(buffer.getInt(), buffer.getInt(), buffer.getInt());
+        ChirpParams right = new ChirpParams(buffer.getInt(), buffer.getInt(), buffer.getInt());
+        skip(payloadLength - BinarySessionFormat.CHIRP_PAYLOAD_SIZE);
+
+        listener.onChirp(epochNanos, frameIndex, left, right);
+    }
+
+    private void skip(int bytes) throws IOException {
+        while (bytes > 0) {
+            require(1);
+            int step = Math.min(bytes, buffer.remaining());
+            buffer.position(buffer.position() + step);
+            bytes -= step;
+        }
+    }
+
+    private void require(int bytes) throws IOException {
+        if (!fill(bytes)) {
+            throw new EOFException("Truncated session file");
+        }
+    }
+
+    /**
+     * Makes sure at least the given number of bytes is buffered
+     *
+     * @return false if the end of the file was reached before any byte was read
+     */
+    private boolean fill(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return true;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                boolean empty = buffer.position() == 0;
+                buffer.flip();
+                if (empty) {
+                    return false;
+                }
+                throw new EOFException("Truncated session file");
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,299 @@
+package com.example.audiochirpapp;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Class for writing recorded audio in the binary session format
+ *
+ * Samples are staged in a direct buffer and written to a FileChannel only
+ * when the buffer fills up, so no per-sample objects are created. An index
+ * of the records can be written alongside, see {@link SessionIndexFormat}.
+ * After a failed write the file no longer matches what was buffered, so
+ * the writer fails every later call instead of writing at wrong offsets.
+ */
+public class BinarySessionWriter implements SampleSink {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final WritableByteChannel channel;
+    // Only set when writing straight to a file, for sync
+    private final FileChannel fileChannel;
+    private final ByteBuffer buffer;
+    private final int channelCount;
+    private final SessionIndexWriter indexWriter;
+    private long framesWritten = 0;
+    // Bytes already written to the channel, the buffer holds the ones after them
+    private long drainedBytes = 0;
+    // First write error, fails every later call
+    private IOException failure = null;
+
+    /**
+     * Creates the file and writes the session header
+     *
+     * @param file Output file
+     * @param sampleRate Sample rate in Hz
+     * @param channelCount Number of interleaved channels per frame
+     * @param startEpochNanos Session start time in nanoseconds since the epoch
+     * @throws IOException If the file cannot be created
+     */
+    public BinarySessionWriter(File file, int sampleRate, int channelCount, long startEpochNanos)
+            throws IOException {
+        this(file, sampleRate, channelCount, startEpochNanos, null);
+    }
+
+    /**
+     * Creates the file and its index and writes the session header
+     *
+     * @param file Output file
+     * @param sampleRate Sample rate in Hz
+     * @param channelCount Number of interleaved channels per frame
+     * @param startEpochNanos Session start time in nanoseconds since the epoch
+     * @param indexFile Index file to write, or null for none
+     * @throws IOException If a file cannot be created
+     */
+    public BinarySessionWriter(File file, int sampleRate, int channelCount, long startEpochNanos,
+                               File indexFile) throws IOException {
+        this.fileChannel = new FileOutputStream(file).getChannel();
+        this.channel = fileChannel;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        this.channelCount = channelCount;
+        if (indexFile != null) {
+            try {
+                this.indexWriter = new SessionIndexWriter(indexFile, sampleRate, channelCount, startEpochNanos);
+            } catch (IOException e) {
+                fileChannel.close();
+                throw e;
+            }
+        } else {
+            this.indexWriter = null;
+        }
+        writeHeader(sampleRate, channelCount, startEpochNanos);
+    }
+
+    /**
+     * Writes the session to a channel, such as a compressing stream, without
+     * an index. {@link #sync()} only flushes, the owner of the channel must
+     * make it durable.
+     *
+     * @param channel Destination, closed with this writer
+     * @param sampleRate Sample rate in Hz
+     * @param channelCount Number of interleaved channels per frame
+     * @param startEpochNanos Session start time in nanoseconds since the epoch
+     */
+    public BinarySessionWriter(WritableByteChannel channel, int sampleRate, int channelCount,
+                               long startEpochNanos) {
+        this.fileChannel = null;
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        this.channelCount = channelCount;
+        this.indexWriter = null;
+        writeHeader(sampleRate, channelCount, startEpochNanos);
+    }
+
+    private void writeHeader(int sampleRate, int channelCount, long startEpochNanos) {
+        buffer.putInt(BinarySessionFormat.MAGIC);
+        buffer.putShort(BinarySessionFormat.VERSION);
+        buffer.putShort((short) channelCount);
+        buffer.putInt(sampleRate);
+        buffer.putLong(startEpochNanos);
+    }
+
+    /**
+     * Appends a block of PCM samples
+     *
+     * @param samples Interleaved samples
+     * @param offset Index of the first sample to write
+     * @param length Number of samples to write
+     * @param blockStartEpochNanos Capture time of the first sample in nanoseconds since the epoch
+     * @param frameIndex Stream frame index of the first sample
+     * @throws IOException If writing fails
+     */
+    @Override
+    public void writeBlock(short[] samples, int offset, int length, long blockStartEpochNanos,
+                           long frameIndex) throws IOException {
+        checkFailed();
+        ensureSpace(BinarySessionFormat.RECORD_HEADER_SIZE + BinarySessionFormat.BLOCK_HEADER_SIZE);
+        buffer.putInt(BinarySessionFormat.TAG_BLOCK);
+        buffer.putInt(BinarySessionFormat.BLOCK_HEADER_SIZE + length * 2);
+        buffer.putLong(blockStartEpochNanos);
+        buffer.putLong(frameIndex);
+        if (indexWriter != null) {
+            indexWriter.addEntry(BinarySessionFormat.TAG_BLOCK, length, frameIndex, getPosition(),
+                    blockStartEpochNanos);
+        }
+
+        // Bulk copies through a little-endian view of the buffer, as much as fits each time
+        int written = 0;
+        while (written < length) {
+            if (buffer.remaining() < 2) {
+                drain();
+            }
+            int count = Math.min(length - written, buffer.remaining() / 2);
+            buffer.asShortBuffer().put(samples, offset + written, count);
+            buffer.position(buffer.position() + count * 2);
+            written += count;
+        }
+
+        framesWritten += length / channelCount;
+    }
+
+    /**
+     * Appends a block of samples already encoded by {@link RiceCodec}. It is
+     * not indexed, offsets into encoded data cannot be mapped.
+     *
+     * @param encoded Encoded block
+     * @param length Number of bytes of the block
+     * @param sampleCount Number of samples the block decodes to
+     * @param blockStartEpochNanos Capture time of the first sample in nanoseconds since the epoch
+     * @param frameIndex Stream frame index of the first sample
+     * @throws IOException If writing fails
+     */
+    public void writeRiceBlock(byte[] encoded, int length, int sampleCount, long blockStartEpochNanos,
+                               long frameIndex) throws IOException {
+        checkFailed();
+        ensureSpace(BinarySessionFormat.RECORD_HEADER_SIZE + BinarySessionFormat.BLOCK_HEADER_SIZE);
+        buffer.putInt(BinarySessionFormat.TAG_RICE_BLOCK);
+        buffer.putInt(BinarySessionFormat.BLOCK_HEADER_SIZE + length);
+        buffer.putLong(blockStartEpochNanos);
+        buffer.putLong(frameIndex);
+
+        int written = 0;
+        while (written < length) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            int count = Math.min(length - written, buffer.remaining());
+            buffer.put(encoded, written, count);
+            written += count;
+        }
+
+        framesWritten += sampleCount / channelCount;
+    }
+
+    /**
+     * Appends a chirp event
+     *
+     * @param epochNanos Time of the event in nanoseconds since the epoch
+     * @param frameIndex Frame index the event refers to
+     * @param leftParams Left channel parameters
+     * @param rightParams Right channel parameters
+     * @throws IOException If writing fails
+     */
+    @Override
+    public void writeChirp(long epochNanos, long frameIndex, ChirpParams leftParams, ChirpParams rightParams)
+            throws IOException {
+        checkFailed();
+        ensureSpace(BinarySessionFormat.RECORD_HEADER_SIZE + BinarySessionFormat.CHIRP_PAYLOAD_SIZE);
+        if (indexWriter != null) {
+            indexWriter.addEntry(BinarySessionFormat.TAG_CHIRP, 0, frameIndex, getPosition(), epochNanos);
+        }
+        buffer.putInt(BinarySessionFormat.TAG_CHIRP);
+        buffer.putInt(BinarySessionFormat.CHIRP_PAYLOAD_SIZE);
+        buffer.putLong(epochNanos);
+        buffer.putLong(frameIndex);
+        buffer.putInt(leftParams.getCenterFrequency());
+        buffer.putInt(leftParams.getBandwidth());
+        buffer.putInt(leftParams.getDuration());
+        buffer.putInt(rightParams.getCenterFrequency());
+        buffer.putInt(rightParams.getBandwidth());
+        buffer.putInt(rightParams.getDuration());
+    }
+
+    @Override
+    public int getChannelCount() {
+        return channelCount;
+    }
+
+    /**
+     * @return Number of frames written so far
+     */
+    @Override
+    public long getFramesWritten() {
+        return framesWritten;
+    }
+
+    /**
+     * @return Size of the file once buffered bytes are written
+     */
+    public long getPosition() {
+        return drainedBytes + buffer.position();
+    }
+
+    /**
+     * Writes any buffered bytes to the file
+     *
+     * @throws IOException If writing fails
+     */
+    @Override
+    public void flush() throws IOException {
+        checkFailed();
+        drain();
+        if (indexWriter != null) {
+            indexWriter.flush();
+        }
+    }
+
+    /**
+     * Writes any buffered bytes and forces the file to the storage device.
+     * The index is flushed but not forced, it can be rebuilt from the file.
+     *
+     * @throws IOException If writing fails
+     */
+    @Override
+    public void sync() throws IOException {
+        flush();
+        if (fileChannel != null) {
+            fileChannel.force(false);
+        }
+    }
+
+    /**
+     * Writes any buffered bytes and closes the file and its index. A writer
+     * that failed only releases them, its error was thrown already.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (failure == null) {
+                drain();
+            }
+        } finally {
+            channel.close();
+            if (indexWriter != null) {
+                indexWriter.close();
+            }
+        }
+    }
+
+    private void ensureSpace(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain();
+        }
+    }
+
+    private void checkFailed() throws IOException {
+        if (failure != null) {
+            throw new IOException("Session writer failed", failure);
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                drainedBytes += channel.write(buffer);
+            }
+        } catch (IOException e) {
+            // What did not reach the channel is lost, the position stays at the end of the file
+            buffer.clear();
+            failure = e;
+            throw e;
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.audiochirpapp;
+
+/**
+ * One step of the capture thread: reads from the source straight into a
+ * block claimed from the ring, publishes exactly the samples read and lets
+ * the stream clock take a timestamp. Nothing is allocated per iteration.
+ */
+public class CaptureLoop {
+    private final PcmSource source;
+    private final SampleRingBuffer ringBuffer;
+    private final StreamClock clock;
+
+    /**
+     * @param source Source to read samples from
+     * @param ringBuffer Ring that owns the blocks
+     * @param clock Clock of the recording stream, or null
+     */
+    public CaptureLoop(PcmSource source, SampleRingBuffer ringBuffer, StreamClock clock) {
+        this.source = source;
+        this.ringBuffer = ringBuffer;
+        this.clock = clock;
+    }
+
+    /**
+     * Reads one block from the source into the ring
+     *
+     * @return Number of samples read, or the source's negative error code
+     */
+    public int readOnce() {
+        short[] block = ringBuffer.claim();
+        int samplesRead = source.read(block, 0, block.length);
+
+        if (samplesRead > 0) {
+            ringBuffer.publish(samplesRead);
+            if (clock != null) {
+                clock.update(ringBuffer.getOfferedSamples());
+            }
+        }
+        return samplesRead;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.audiochirpapp;
+
+import java.util.Locale;
+
+/**
+ * Analysis results of one chirp of a session, a row of the batch results table
+ */
+public class ChirpAnalysis {
+    public static final String CSV_HEADER = "session,chirp,startFrame,leftFreq,leftBw,rightFreq,rightBw,duration,"
+            + "rms,peak,noiseRms,snrDb,leftCorrelation,leftDelayFrames,rightCorrelation,rightDelayFrames,"
+            + "leftBandRms,rightBandRms\n";
+
+    private final String session;
+    private final int chirp;
+    private final long startFrame;
+    private final ChirpParams leftParams;
+    private final ChirpParams rightParams;
+    private final double rms;
+    private final double peak;
+    private final double noiseRms;
+    private final double leftCorrelation;
+    private final int leftDelayFrames;
+    private final double rightCorrelation;
+    private final int rightDelayFrames;
+    private final double leftBandRms;
+    private final double rightBandRms;
+
+    /**
+     * @param session Name of the recording file
+     * @param window The analysed chirp window, only its levels are kept
+     * @param leftCorrelation Strongest matched filter output of the left chirp
+     * @param leftDelayFrames Frames from the chirp start to that output
+     * @param rightCorrelation Strongest matched filter output of the right chirp
+     * @param rightDelayFrames Frames from the chirp start to that output
+     * @param leftBandRms RMS level of the signal within the left chirp's band
+     * @param rightBandRms RMS level of the signal within the right chirp's band
+     */
+    public ChirpAnalysis(String session, ChirpWindow window, double leftCorrelation, int leftDelayFrames,
+                         double rightCorrelation, int rightDelayFrames, double leftBandRms, double rightBandRms) {
+        this.session = session;
+        this.chirp = window.getChirp();
+        this.startFrame = window.getStartFrame();
+        this.leftParams = window.getLeftParams();
+        this.rightParams = window.getRightParams();
+        this.rms = window.getRms();
+        this.peak = window.getPeak();
+        this.noiseRms = window.getNoiseRms();
+        this.leftCorrelation = leftCorrelation;
+        this.leftDelayFrames = leftDelayFrames;
+        this.rightCorrelation = rightCorrelation;
+        this.rightDelayFrames = rightDelayFrames;
+        this.leftBandRms = leftBandRms;
+        this.rightBandRms = rightBandRms;
+    }
+
+    public String getSession() {
+        return session;
+    }
+
+    public int getChirp() {
+        return chirp;
+    }
+
+    public long getStartFrame() {
+        return startFrame;
+    }
+
+    public ChirpParams getLeftParams() {
+        return leftParams;
+    }
+
+    public ChirpParams getRightParams() {
+        return rightParams;
+    }
+
+    public double getRms() {
+        return rms;
+    }
+
+    public double getPeak() {
+        return peak;
+    }
+
+    public double getNoiseRms() {
+        return noiseRms;
+    }
+
+    public double getSnrDb() {
+        return SignalStats.snrDb(rms, noiseRms);
+    }
+
+    public double getLeftCorrelation() {
+        return leftCorrelation;
+    }
+
+    public int getLeftDelayFrames() {
+        return leftDelayFrames;
+    }
+
+    public double getRightCorrelation() {
+        return rightCorrelation;
+    }
+
+    public int getRightDelayFrames() {
+        return rightDelayFrames;
+    }
+
+    public double getLeftBandRms() {
+        return leftBandRms;
+    }
+
+    public double getRightBandRms() {
+        return rightBandRms;
+    }
+
+    /**
+     * @return The results as a row matching {@link #CSV_HEADER}
+     */
+    public String toCsvRow() {
+        ChirpParams left = leftParams;
+        ChirpParams right = rightParams;
+        return String.format(Locale.US, "%s,%d,%d,%d,%d,%d,%d,%d,%.6f,%.6f,%.6f,%.2f,%.6f,%d,%.6f,%d,%.6f,%.6f\n",
+                session,
+                chirp,
+                startFrame,
+                left.getCenterFrequency(),
+                left.getBandwidth(),
+                right.getCenterFrequency(),
+                right.getBandwidth(),
+                Math.max(left.getDuration(), right.getDuration()),
+                rms,
+                peak,
+                noiseRms,
+                getSnrDb(),
+                leftCorrelation,
+                leftDelayFrames,
+                rightCorrelation,
+                rightDelayFrames,
+                leftBandRms,
+                rightBandRms);
+    }
+}
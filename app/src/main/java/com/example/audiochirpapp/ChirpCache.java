@@ -0,0 +1,151 @@
+package com.example.audiochirpapp;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of prepared chirps keyed by the (left, right) parameter pair
+ *
+ * Eviction is size aware: entries are dropped least recently used first
+ * until the total sample data fits in the configured number of bytes.
+ * Chirps larger than the whole budget are generated but never cached.
+ */
+public class ChirpCache {
+
+    /**
+     * Cache key for a pair of channel parameters
+     */
+    private static final class Key {
+        private final ChirpParams left;
+        private final ChirpParams right;
+
+        Key(ChirpParams left, ChirpParams right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return left.equals(other.left) && right.equals(other.right);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * left.hashCode() + right.hashCode();
+        }
+    }
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, PreparedChirp> entries =
+            new LinkedHashMap<>(16, 0.75f, true);
+    private long sizeBytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * @param maxBytes Memory budget for cached sample data
+     */
+    public ChirpCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the prepared chirp for the given parameters, generating it on a miss
+     *
+     * @param leftParams Parameters for left channel chirp
+     * @param rightParams Parameters for right channel chirp
+     * @return The prepared chirp
+     */
+    public PreparedChirp get(ChirpParams leftParams, ChirpParams rightParams) {
+        Key key = new Key(leftParams, rightParams);
+
+        synchronized (this) {
+            PreparedChirp cached = entries.get(key);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+        }
+
+        // Generate outside the lock so lookups for other chirps are not held up
+        PreparedChirp chirp = PreparedChirp.generate(leftParams, rightParams);
+        put(key, chirp);
+        return chirp;
+    }
+
+    private synchronized void put(Key key, PreparedChirp chirp) {
+        long size = chirp.getSizeBytes();
+        if (size > maxBytes) {
+            return;
+        }
+
+        PreparedChirp previous = entries.put(key, chirp);
+        if (previous != null) {
+            sizeBytes -= previous.getSizeBytes();
+        }
+        sizeBytes += size;
+
+        // Evict least recently used entries until the budget is met
+        Iterator<Map.Entry<Key, PreparedChirp>> it = entries.entrySet().iterator();
+        while (sizeBytes > maxBytes && it.hasNext()) {
+            Map.Entry<Key, PreparedChirp> eldest = it.next();
+            if (eldest.getValue() == chirp) {
+                continue;
+            }
+            sizeBytes -= eldest.getValue().getSizeBytes();
+            it.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Removes all entries, keeping the statistics
+     */
+    public synchronized void clear() {
+        entries.clear();
+        sizeBytes = 0;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ChirpCache{" +
+                "entries=" + entries.size() +
+                ", sizeBytes=" + sizeBytes +
+                ", maxBytes=" + maxBytes +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", evictions=" + evictions +
+                "}";
+    }
+}
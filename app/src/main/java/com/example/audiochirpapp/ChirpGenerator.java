@@ -0,0 +1,176 @@
+package com.example.audiochirpapp;
+
+/**
+ * Stateful linear chirp generator that produces the signal of
+ * {@link AudioUtils#generateChirp} block by block, so long chirps can be
+ * streamed without holding the whole signal in memory
+ *
+ * The phase of a linear chirp is quadratic in the sample index, so its
+ * per-sample increment grows by a constant amount. Both the carrier and the
+ * Hann window are therefore advanced with complex rotations (a few
+ * multiplications per sample) instead of calling Math.sin/Math.cos.
+ * Every {@link #RESYNC_INTERVAL} samples the oscillators are reset to the
+ * exact closed-form values, which keeps rounding drift far below one LSB.
+ */
+public class ChirpGenerator {
+    private static final int SAMPLE_RATE = 44100;
+    private static final int RESYNC_INTERVAL = 256;
+
+    private final double samplingInterval = 1.0 / SAMPLE_RATE;
+    private final double startFreq;
+    private final double frequencySlope;
+    private final int totalSamples;
+
+    // Rotation applied to the phase increment every sample
+    private final double chirpRateCos;
+    private final double chirpRateSin;
+    // Rotation applied to the window oscillator every sample
+    private final double windowStepCos;
+    private final double windowStepSin;
+    private final double windowStep;
+
+    private int position = 0;
+
+    // Carrier phasor e^(j*phase) after the previous sample
+    private double phaseCos;
+    private double phaseSin;
+    // Phase increment phasor for the next sample
+    private double stepCos;
+    private double stepSin;
+    // Window phasor for the next sample
+    private double windowCos;
+    private double windowSin;
+
+    /**
+     * @param startFreq Start frequency in Hz
+     * @param endFreq End frequency in Hz
+     * @param durationMs Duration in milliseconds
+     */
+    public ChirpGenerator(int startFreq, int endFreq, int durationMs) {
+        this.startFreq = startFreq;
+        this.totalSamples = (int) (SAMPLE_RATE * (durationMs / 1000.0));
+        this.frequencySlope = (endFreq - startFreq) / (durationMs / 1000.0);
+
+        double chirpRate = 2 * Math.PI * frequencySlope * samplingInterval * samplingInterval;
+        this.chirpRateCos = Math.cos(chirpRate);
+        this.chirpRateSin = Math.sin(chirpRate);
+
+        this.windowStep = 2 * Math.PI / (totalSamples - 1);
+        this.windowStepCos = Math.cos(windowStep);
+        this.windowStepSin = Math.sin(windowStep);
+
+        resync();
+    }
+
+    /**
+     * @param params Chirp parameters
+     */
+    public ChirpGenerator(ChirpParams params) {
+        this(params.getStartFrequency(), params.getEndFrequency(), params.getDuration());
+    }
+
+    /**
+     * Writes the next samples of the chirp
+     *
+     * @param out Destination
+     * @param off Index of the first sample to fill
+     * @param len Maximum number of samples to generate
+     * @return Number of samples generated, 0 once the chirp is complete
+     */
+    public int fill(short[] out, int off, int len) {
+        int count = Math.min(len, totalSamples - position);
+        int end = off + count;
+
+        int index = off;
+        while (index < end) {
+            // Run the recurrence up to the next resync point
+            int untilResync = RESYNC_INTERVAL - (position % RESYNC_INTERVAL);
+            int stop = Math.min(end, index + untilResync);
+
+            double pc = phaseCos;
+            double ps = phaseSin;
+            double sc = stepCos;
+            double ss = stepSin;
+            double wc = windowCos;
+            double ws = windowSin;
+
+            for (int i = index; i < stop; i++) {
+                // Advance the carrier by the current increment
+                double npc = pc * sc - ps * ss;
+                ps = pc * ss + ps * sc;
+                pc = npc;
+
+                // Grow the increment for the next sample
+                double nsc = sc * chirpRateCos - ss * chirpRateSin;
+                ss = sc * chirpRateSin + ss * chirpRateCos;
+                sc = nsc;
+
+                // Apply window (Hanning window) to reduce clicks at start/end
+                double amplitude = 0.5 * (1 - wc);
+                double nwc = wc * windowStepCos - ws * windowStepSin;
+                ws = wc * windowStepSin + ws * windowStepCos;
+                wc = nwc;
+
+                out[i] = (short) (Short.MAX_VALUE * amplitude * ps);
+            }
+
+            phaseCos = pc;
+            phaseSin = ps;
+            stepCos = sc;
+            stepSin = ss;
+            windowCos = wc;
+            windowSin = ws;
+
+            position += stop - index;
+            index = stop;
+
+            if (position % RESYNC_INTERVAL == 0) {
+                resync();
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * @return Total length of the chirp in samples
+     */
+    public int getTotalSamples() {
+        return totalSamples;
+    }
+
+    /**
+     * @return Number of samples not generated yet
+     */
+    public int getRemaining() {
+        return totalSamples - position;
+    }
+
+    /**
+     * Rewinds the generator to the start of the chirp
+     */
+    public void reset() {
+        position = 0;
+        resync();
+    }
+
+    /**
+     * Sets the oscillators to their exact values for the current position
+     */
+    private void resync() {
+        double i = position;
+
+        // Phase after sample i-1 is the sum of all previous increments
+        double phase = 2 * Math.PI * samplingInterval
+                * (startFreq * i + frequencySlope * samplingInterval * (i - 1) * i / 2);
+        phaseCos = Math.cos(phase);
+        phaseSin = Math.sin(phase);
+
+        double step = 2 * Math.PI * samplingInterval * (startFreq + frequencySlope * i * samplingInterval);
+        stepCos = Math.cos(step);
+        stepSin = Math.sin(step);
+
+        windowCos = Math.cos(windowStep * i);
+        windowSin = Math.sin(windowStep * i);
+    }
+}
@@ -36,6 +36,28 @@ public class ChirpParams {
         return centerFrequency + (bandwidth / 2);
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ChirpParams)) {
+            return false;
+        }
+        ChirpParams other = (ChirpParams) o;
+        return centerFrequency == other.centerFrequency
+                && bandwidth == other.bandwidth
+                && duration == other.duration;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = centerFrequency;
+        result = 31 * result + bandwidth;
+        result = 31 * result + duration;
+        return result;
+    }
+
     @Override
     public String toString() {
         return "ChirpParams{" +
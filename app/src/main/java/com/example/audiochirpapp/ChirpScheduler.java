@@ -0,0 +1,112 @@
+package com.example.audiochirpapp;
+
+/**
+ * Renders a chirp repeated at a fixed interval into a continuous stereo stream
+ *
+ * Chirp k starts exactly at frame k * intervalFrames of the stream, with
+ * silence in between, so the repetition rate is set by the audio sample
+ * clock rather than by thread timing. The caller writes the rendered frames
+ * to one streaming AudioTrack. Not thread safe.
+ */
+public class ChirpScheduler {
+
+    /**
+     * Notified when a chirp is rendered
+     */
+    public interface Listener {
+        /**
+         * Called when the first frame of a chirp is rendered, before it is played
+         *
+         * @param chirpIndex Number of the chirp, starting at 0
+         * @param startFrame Stream frame index of the first chirp frame
+         */
+        void onChirpScheduled(long chirpIndex, long startFrame);
+    }
+
+    private final ChirpGenerator leftGenerator;
+    private final ChirpGenerator rightGenerator;
+    private final int intervalFrames;
+    private final Listener listener;
+
+    private short[] left = new short[0];
+    private short[] right = new short[0];
+    private long position = 0;
+    private long nextChirpFrame = 0;
+    private long chirpCount = 0;
+
+    /**
+     * @param leftParams Left channel parameters
+     * @param rightParams Right channel parameters
+     * @param intervalFrames Frames from the start of one chirp to the next,
+     *                       raised to the chirp length if shorter
+     * @param listener Listener for rendered chirps, or null
+     */
+    public ChirpScheduler(ChirpParams leftParams, ChirpParams rightParams, int intervalFrames,
+                          Listener listener) {
+        this.leftGenerator = new ChirpGenerator(leftParams);
+        this.rightGenerator = new ChirpGenerator(rightParams);
+        int chirpFrames = Math.max(leftGenerator.getTotalSamples(), rightGenerator.getTotalSamples());
+        this.intervalFrames = Math.max(Math.max(intervalFrames, chirpFrames), 1);
+        this.listener = listener;
+    }
+
+    /**
+     * Renders the next frames of the stream
+     *
+     * @param stereo Receives interleaved left/right samples
+     * @param frames Number of frames to render
+     */
+    public void render(short[] stereo, int frames) {
+        if (left.length < frames) {
+            left = new short[frames];
+            right = new short[frames];
+        }
+
+        int done = 0;
+        while (done < frames) {
+            if (position == nextChirpFrame) {
+                leftGenerator.reset();
+                rightGenerator.reset();
+                if (listener != null) {
+                    listener.onChirpScheduled(chirpCount, position);
+                }
+                chirpCount++;
+                nextChirpFrame += intervalFrames;
+            }
+
+            // Render up to the next chirp start; finished generators leave silence
+            int count = (int) Math.min(frames - done, nextChirpFrame - position);
+            int leftCount = leftGenerator.fill(left, 0, count);
+            int rightCount = rightGenerator.fill(right, 0, count);
+            for (int i = 0; i < count; i++) {
+                int index = (done + i) * 2;
+                stereo[index] = i < leftCount ? left[i] : 0;
+                stereo[index + 1] = i < rightCount ? right[i] : 0;
+            }
+
+            done += count;
+            position += count;
+        }
+    }
+
+    /**
+     * @return Frames from the start of one chirp to the next
+     */
+    public int getIntervalFrames() {
+        return intervalFrames;
+    }
+
+    /**
+     * @return Total frames rendered so far
+     */
+    public long getFramesRendered() {
+        return position;
+    }
+
+    /**
+     * @return Number of chirps started so far
+     */
+    public long getChirpCount() {
+        return chirpCount;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.audiochirpapp;
+
+import java.nio.ShortBuffer;
+
+/**
+ * The recording around one chirp: the noise just before it, and the chirp
+ * with its echoes
+ */
+public class ChirpWindow {
+    private final int chirp;
+    private final long startFrame;
+    private final long epochNanos;
+    private final ChirpParams leftParams;
+    private final ChirpParams rightParams;
+    private final ShortBuffer noise;
+    private final ShortBuffer signal;
+
+    public ChirpWindow(int chirp, long startFrame, long epochNanos, ChirpParams leftParams,
+                       ChirpParams rightParams, ShortBuffer noise, ShortBuffer signal) {
+        this.chirp = chirp;
+        this.startFrame = startFrame;
+        this.epochNanos = epochNanos;
+        this.leftParams = leftParams;
+        this.rightParams = rightParams;
+        this.noise = noise;
+        this.signal = signal;
+    }
+
+    /**
+     * @return Chirp number, in the order the chirps were played
+     */
+    public int getChirp() {
+        return chirp;
+    }
+
+    /**
+     * @return Recorder frame at which the chirp starts
+     */
+    public long getStartFrame() {
+        return startFrame;
+    }
+
+    /**
+     * @return Time the chirp started in nanoseconds since the epoch
+     */
+    public long getEpochNanos() {
+        return epochNanos;
+    }
+
+    public ChirpParams getLeftParams() {
+        return leftParams;
+    }
+
+    public ChirpParams getRightParams() {
+        return rightParams;
+    }
+
+    /**
+     * @return Recording before the chirp start
+     */
+    public ShortBuffer getNoise() {
+        return noise.duplicate();
+    }
+
+    /**
+     * @return Recording from the chirp start
+     */
+    public ShortBuffer getSignal() {
+        return signal.duplicate();
+    }
+
+    /**
+     * @return RMS level of the signal relative to full scale
+     */
+    public double getRms() {
+        return SignalStats.rms(signal);
+    }
+
+    /**
+     * @return Peak level of the signal relative to full scale
+     */
+    public double getPeak() {
+        return SignalStats.peak(signal);
+    }
+
+    /**
+     * @return RMS level of the noise relative to full scale
+     */
+    public double getNoiseRms() {
+        return SignalStats.rms(noise);
+    }
+
+    /**
+     * @return Signal to noise ratio in dB
+     */
+    public double getSnrDb() {
+        return SignalStats.snrDb(getRms(), getNoiseRms());
+    }
+}
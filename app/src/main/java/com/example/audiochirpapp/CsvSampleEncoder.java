@@ -0,0 +1,194 @@
+package com.example.audiochirpapp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes the recording and transmitted CSV rows as ASCII straight into a
+ * fixed-size direct buffer, which is written to the channel whenever it fills
+ *
+ * Numbers are converted to digits by hand and timestamps come from a
+ * {@link TimestampFormatter}, so no objects are created per row and memory
+ * use does not depend on how many rows are written. Not thread safe.
+ */
+public class CsvSampleEncoder implements Closeable {
+    public static final String RECORDED_HEADER = "absoluteTime,relativeTimeMs,audioValue\n";
+    public static final String TRANSMITTED_HEADER = "absoluteTime,relativeTimeMs,leftValue,rightValue\n";
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final int SAMPLE_RATE = 44100;
+    // Longest possible row: timestamp, relative time and two sample values
+    private static final int MAX_ROW_LENGTH = 128;
+
+    private final WritableByteChannel channel;
+    private final TimestampFormatter timestampFormatter;
+    private final ByteBuffer buffer;
+    private final byte[] row = new byte[MAX_ROW_LENGTH];
+
+    /**
+     * @param channel Destination channel
+     * @param timestampFormatter Formatter for the absolute time column
+     * @param bufferSize Size of the staging buffer in bytes
+     */
+    public CsvSampleEncoder(WritableByteChannel channel, TimestampFormatter timestampFormatter,
+                            int bufferSize) {
+        this.channel = channel;
+        this.timestampFormatter = timestampFormatter;
+        this.buffer = ByteBuffer.allocateDirect(Math.max(bufferSize, MAX_ROW_LENGTH));
+    }
+
+    /**
+     * Writes a header line such as {@link #RECORDED_HEADER}
+     *
+     * @param header ASCII text to write
+     * @throws IOException If writing fails
+     */
+    public void writeHeader(String header) throws IOException {
+        for (int i = 0; i < header.length(); i++) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            buffer.put((byte) header.charAt(i));
+        }
+    }
+
+    /**
+     * Writes one "absoluteTime,relativeTimeMs,audioValue" row per sample
+     *
+     * @param data Audio samples
+     * @param length Number of samples to write
+     * @param blockTimeMs Absolute time of the first sample
+     * @param relativeTimeMs Time of the first sample relative to the session start
+     * @throws IOException If writing fails
+     */
+    public void writeRecordedRows(short[] data, int length, long blockTimeMs, long relativeTimeMs)
+            throws IOException {
+        writeRecordedRows(data, 0, length, blockTimeMs, relativeTimeMs);
+    }
+
+    /**
+     * Writes one "absoluteTime,relativeTimeMs,audioValue" row per sample
+     *
+     * @param data Audio samples
+     * @param offset Index of the first sample to write
+     * @param length Number of samples to write
+     * @param blockTimeMs Absolute time of the first sample
+     * @param relativeTimeMs Time of the first sample relative to the session start
+     * @throws IOException If writing fails
+     */
+    public void writeRecordedRows(short[] data, int offset, int length, long blockTimeMs,
+                                  long relativeTimeMs) throws IOException {
+        for (int i = 0; i < length; i++) {
+            // Calculate precise timestamp for each sample
+            long offsetMs = i * 1000L / SAMPLE_RATE;
+
+            int n = timestampFormatter.format(blockTimeMs + offsetMs, row, 0);
+            row[n++] = ',';
+            n = putLong(relativeTimeMs + offsetMs, n);
+            row[n++] = ',';
+            n = putLong(data[offset + i], n);
+            row[n++] = '\n';
+
+            putRow(n);
+        }
+    }
+
+    /**
+     * Writes one "absoluteTime,relativeTimeMs,leftValue,rightValue" row per frame
+     *
+     * @param leftChannel Left channel samples
+     * @param rightChannel Right channel samples
+     * @param length Number of frames to write
+     * @param firstFrame Index of the first frame within the chirp
+     * @param chirpTimeMs Absolute time of frame 0 of the chirp
+     * @param relativeTimeMs Time of frame 0 of the chirp relative to the session start
+     * @throws IOException If writing fails
+     */
+    public void writeTransmittedRows(short[] leftChannel, short[] rightChannel, int length,
+                                     long firstFrame, long chirpTimeMs, long relativeTimeMs)
+            throws IOException {
+        for (int i = 0; i < length; i++) {
+            // Calculate precise timestamp for each sample
+            long offsetMs = (firstFrame + i) * 1000L / SAMPLE_RATE;
+
+            int n = timestampFormatter.format(chirpTimeMs + offsetMs, row, 0);
+            row[n++] = ',';
+            n = putLong(relativeTimeMs + offsetMs, n);
+            row[n++] = ',';
+            n = putLong(leftChannel[i], n);
+            row[n++] = ',';
+            n = putLong(rightChannel[i], n);
+            row[n++] = '\n';
+
+            putRow(n);
+        }
+    }
+
+    /**
+     * Writes any buffered bytes to the channel
+     *
+     * @throws IOException If writing fails
+     */
+    public void flush() throws IOException {
+        drain();
+    }
+
+    /**
+     * Flushes the buffer and closes the channel
+     *
+     * @throws IOException If writing fails
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void putRow(int length) throws IOException {
+        if (buffer.remaining() < length) {
+            drain();
+        }
+        buffer.put(row, 0, length);
+    }
+
+    /**
+     * Writes the decimal digits of a value into the row scratch buffer
+     *
+     * @return Index after the last digit
+     */
+    private int putLong(long value, int offset) {
+        // Work with the negative value so Long.MIN_VALUE needs no special case
+        long v = value;
+        if (v < 0) {
+            row[offset++] = '-';
+        } else {
+            v = -v;
+        }
+
+        int digits = 1;
+        for (long t = v / 10; t != 0; t /= 10) {
+            digits++;
+        }
+
+        int end = offset + digits;
+        for (int i = end - 1; i >= offset; i--) {
+            row[i] = (byte) ('0' - (v % 10));
+            v /= 10;
+        }
+        return end;
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
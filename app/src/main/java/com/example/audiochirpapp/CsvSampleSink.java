@@ -0,0 +1,76 @@
+package com.example.audiochirpapp;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writes a mono recording in the "_recording_*.csv" text format, one row per sample
+ *
+ * The CSV format has no rows for chirp events, so they are dropped; the
+ * params CSV still lists them. Rows are encoded by a {@link CsvSampleEncoder}.
+ */
+public class CsvSampleSink implements SampleSink {
+    public static final String FILE_EXTENSION = ".csv";
+
+    private final FileChannel channel;
+    private final CsvSampleEncoder encoder;
+    private final long sessionStartMs;
+    private long framesWritten = 0;
+
+    /**
+     * Creates the file and writes the header
+     *
+     * @param file Output file
+     * @param sessionStartMs Session start time, for the relative time column
+     * @throws IOException If the file cannot be created
+     */
+    public CsvSampleSink(File file, long sessionStartMs) throws IOException {
+        this.channel = new FileOutputStream(file).getChannel();
+        this.encoder = new CsvSampleEncoder(channel, new TimestampFormatter(),
+                CsvSampleEncoder.DEFAULT_BUFFER_SIZE);
+        this.sessionStartMs = sessionStartMs;
+        encoder.writeHeader(CsvSampleEncoder.RECORDED_HEADER);
+    }
+
+    @Override
+    public void writeBlock(short[] samples, int offset, int length, long epochNanos, long frameIndex)
+            throws IOException {
+        long blockTimeMs = epochNanos / 1000000L;
+        encoder.writeRecordedRows(samples, offset, length, blockTimeMs, blockTimeMs - sessionStartMs);
+        framesWritten += length;
+    }
+
+    @Override
+    public void writeChirp(long epochNanos, long frameIndex, ChirpParams leftParams, ChirpParams rightParams) {
+        // Not part of the CSV format
+    }
+
+    @Override
+    public int getChannelCount() {
+        return 1;
+    }
+
+    @Override
+    public long getFramesWritten() {
+        return framesWritten;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        encoder.flush();
+    }
+
+    @Override
+    public void sync() throws IOException {
+        encoder.flush();
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Also closes the channel
+        encoder.close();
+    }
+}
@@ -3,11 +3,16 @@ package com.example.audiochirpapp;
 import android.content.Context;
 import android.util.Log;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 
 /**
@@ -16,17 +21,64 @@ import java.util.Locale;
 public class DataManager {
     private static final String TAG = "DataManager";
     private static final String DIRECTORY_NAME = "AudioChirpData";
+    private static final int SAMPLE_RATE = 44100;
+    private static final long NANOS_PER_MS = 1000000L;
+    // Echo search: arrivals up to 200ms after the chirp start, at least 1ms apart
+    private static final int ECHO_MAX_DELAY_FRAMES = SAMPLE_RATE / 5;
+    private static final int ECHO_PEAKS_PER_CHANNEL = 4;
+    private static final int ECHO_MIN_SEPARATION_FRAMES = SAMPLE_RATE / 1000;
+    // Spectrogram: 23ms windows every 11.6ms, 43Hz bins
+    private static final int STFT_WINDOW_SIZE = 1024;
+    private static final int STFT_HOP = 512;
+    // Recording commits: every 500ms of audio, at most 10s queued before blocks are dropped
+    private static final int COMMIT_SAMPLES = SAMPLE_RATE / 2;
+    private static final int DEFAULT_COMMIT_INTERVAL_MS = 500;
+    private static final int MAX_PENDING_SAMPLES = SAMPLE_RATE * 10;
+
+    /**
+     * A trial waiting for its chirp to start
+     */
+    private static final class PendingTrial {
+        final Trial trial;
+        final long segmentFrames;
+
+        PendingTrial(Trial trial, long segmentFrames) {
+            this.trial = trial;
+            this.segmentFrames = segmentFrames;
+        }
+    }
 
     private Context context;
     private String baseFilename;
     private File chirpParamsFile;
     private File recordedDataFile;
     private File transmittedDataFile;
+    private File echoesFile;
+    private File spectrogramFile;
+    private File trialsFile;
     private FileWriter chirpParamsWriter;
-    private FileWriter recordedDataWriter;
-    private FileWriter transmittedDataWriter;
+    private FileWriter trialsWriter;
+    private final ArrayDeque<PendingTrial> pendingTrials = new ArrayDeque<>();
+    private FileWriter echoesWriter;
+    private SpectrogramWriter spectrogramWriter;
+    // Read by the playback threads, which may still report a chirp during finalize()
+    private volatile GroupCommitSink recordedDataSink;
+    private GroupCommitSink recordedWavSink;
+    private volatile TransmittedDataWriter transmittedDataWriter;
     private long startTimeMs;
     private SimpleDateFormat timestampFormat;
+    // Echoes are logged from the recording thread, so they get their own formatter
+    private final TimestampFormatter echoTimestampFormatter = new TimestampFormatter();
+    private SessionClock sessionClock;
+    private volatile StreamClock recordingClock;
+    private boolean rawRecordingEnabled = true;
+    private RecordingFormat recordingFormat = RecordingFormat.BINARY;
+    private boolean wavOutputEnabled = false;
+    private DurabilityPolicy durabilityPolicy = DurabilityPolicy.FLUSH;
+    private int commitIntervalMs = DEFAULT_COMMIT_INTERVAL_MS;
+    private EchoDetector echoDetector;
+    private StftStage stftStage;
+    private final List<RecordingStage> recordingStages = new ArrayList<>();
 
     /**
      * Constructor with context
@@ -45,7 +97,10 @@ public class DataManager {
      */
     public void initialize(String baseFilename) {
         this.baseFilename = baseFilename;
-        this.startTimeMs = System.currentTimeMillis();
+        // Every timestamp of the session is derived from this clock
+        this.sessionClock = new SessionClock(MonotonicClock.SYSTEM);
+        this.startTimeMs = sessionClock.getStartEpochNanos() / NANOS_PER_MS;
+        this.recordingClock = null;
 
         // Use internal storage instead of external storage
         File directory = new File(context.getFilesDir(), DIRECTORY_NAME);
@@ -61,19 +116,73 @@ public class DataManager {
 
         // Create output files
         chirpParamsFile = new File(directory, baseFilename + "_params_" + timestamp + ".csv");
-        recordedDataFile = new File(directory, baseFilename + "_recording_" + timestamp + ".csv");
+        recordedDataFile = new File(directory, baseFilename + "_recording_" + timestamp
+                + recordingFormat.getFileExtension());
         transmittedDataFile = new File(directory, baseFilename + "_transmitted_" + timestamp + ".csv");
+        echoesFile = new File(directory, baseFilename + "_echoes_" + timestamp + ".csv");
+        spectrogramFile = new File(directory, baseFilename + "_spectrogram_" + timestamp
+                + SpectrogramFormat.FILE_EXTENSION);
+        // Only created when an experiment runs, see beginTrial
+        trialsFile = new File(directory, baseFilename + "_trials_" + timestamp + ".csv");
+        pendingTrials.clear();
 
         try {
             // Initialize writers
             chirpParamsWriter = new FileWriter(chirpParamsFile);
-            recordedDataWriter = new FileWriter(recordedDataFile);
-            transmittedDataWriter = new FileWriter(transmittedDataFile);
+            // Only BINARY recordings get a seek index, the others must be read from the start
+            SampleSink recordingWriter = recordingFormat.open(recordedDataFile, SAMPLE_RATE,
+                    sessionClock.getStartEpochNanos());
+            // Blocks are committed, and compressed, in groups on their own thread; the recording
+            // thread only queues them
+            recordedDataSink = new GroupCommitSink(recordingWriter, COMMIT_SAMPLES, commitIntervalMs,
+                    MAX_PENDING_SAMPLES, durabilityPolicy);
+            // WAV copies for external audio tools, their headers are patched when closed
+            WavWriter transmittedWav = null;
+            recordedWavSink = null;
+            if (wavOutputEnabled) {
+                transmittedWav = new WavWriter(new File(directory, baseFilename + "_transmitted_" + timestamp
+                        + WavWriter.FILE_EXTENSION), SAMPLE_RATE, 2);
+                if (rawRecordingEnabled) {
+                    recordedWavSink = new GroupCommitSink(new WavWriter(new File(directory,
+                            baseFilename + "_recording_" + timestamp + WavWriter.FILE_EXTENSION), SAMPLE_RATE, 1),
+                            COMMIT_SAMPLES, commitIntervalMs, MAX_PENDING_SAMPLES, durabilityPolicy);
+                }
+            }
+            CsvSampleEncoder transmittedEncoder = new CsvSampleEncoder(
+                    new FileOutputStream(transmittedDataFile).getChannel(),
+                    new TimestampFormatter(),
+                    CsvSampleEncoder.DEFAULT_BUFFER_SIZE);
 
             // Write headers with absolute timestamp columns
-            chirpParamsWriter.write("timestamp,eventType,leftFreq,leftBw,rightFreq,rightBw,duration\n");
-            recordedDataWriter.write("absoluteTime,relativeTimeMs,audioValue\n");
-            transmittedDataWriter.write("absoluteTime,relativeTimeMs,leftValue,rightValue\n");
+            chirpParamsWriter.write("timestamp,eventType,leftFreq,leftBw,rightFreq,rightBw,duration,frameIndex\n");
+            transmittedEncoder.writeHeader(CsvSampleEncoder.TRANSMITTED_HEADER);
+            transmittedDataWriter = new TransmittedDataWriter(transmittedEncoder, transmittedWav, startTimeMs);
+
+            // Echo detection runs on every recorded block
+            echoesWriter = new FileWriter(echoesFile);
+            echoesWriter.write("chirpTime,chirpFrame,channel,rank,delayFrames,delayMs,amplitude\n");
+            echoDetector = new EchoDetector(ECHO_MAX_DELAY_FRAMES, ECHO_PEAKS_PER_CHANNEL,
+                    ECHO_MIN_SEPARATION_FRAMES, new EchoDetector.Listener() {
+                        @Override
+                        public void onEcho(long chirpFrame, int channel, int rank, long delayFrames,
+                                           double amplitude) {
+                            logEcho(chirpFrame, channel, rank, delayFrames, amplitude);
+                        }
+                    });
+
+            // Chirp-band spectrogram of the recording
+            spectrogramWriter = new SpectrogramWriter(spectrogramFile, SAMPLE_RATE, STFT_WINDOW_SIZE,
+                    STFT_HOP, sessionClock.getStartEpochNanos());
+            stftStage = new StftStage(STFT_WINDOW_SIZE, STFT_HOP, SAMPLE_RATE, new StftStage.Output() {
+                @Override
+                public void onFrame(long frameIndex, int firstBin, float[] magnitudes, int count) {
+                    saveSpectrogramFrame(frameIndex, firstBin, magnitudes, count);
+                }
+            });
+
+            recordingStages.clear();
+            recordingStages.add(echoDetector);
+            recordingStages.add(stftStage);
 
             Log.i(TAG, "Files created in: " + directory.getAbsolutePath());
 
@@ -83,25 +192,45 @@ public class DataManager {
     }
 
     /**
-     * Logs chirp parameters to CSV
+     * Logs chirp parameters to CSV for a single chirp, which starts at frame 0 of its track
      *
      * @param leftParams Left channel parameters
      * @param rightParams Right channel parameters
      */
     public void logChirpParameters(ChirpParams leftParams, ChirpParams rightParams) {
+        logChirpParameters(leftParams, rightParams, 0);
+    }
+
+    /**
+     * Logs chirp parameters to CSV
+     *
+     * @param leftParams Left channel parameters
+     * @param rightParams Right channel parameters
+     * @param frameIndex Frame of the playback stream at which the chirp starts
+     */
+    public synchronized void logChirpParameters(ChirpParams leftParams, ChirpParams rightParams,
+                                                long frameIndex) {
         if (chirpParamsWriter == null) {
             return;
         }
 
+        // The spectrogram follows the bands of the latest chirp
+        StftStage stft = stftStage;
+        if (stft != null) {
+            stft.setBands(leftParams, rightParams);
+        }
+
         try {
-            String timestamp = timestampFormat.format(new Date());
-            String line = String.format(Locale.US, "%s,CHIRP,%d,%d,%d,%d,%d\n",
+            long currentTimeMs = System.currentTimeMillis();
+            String timestamp = timestampFormat.format(new Date(currentTimeMs));
+            String line = String.format(Locale.US, "%s,CHIRP,%d,%d,%d,%d,%d,%d\n",
                     timestamp,
                     leftParams.getCenterFrequency(),
                     leftParams.getBandwidth(),
                     rightParams.getCenterFrequency(),
                     rightParams.getBandwidth(),
-                    leftParams.getDuration());
+                    leftParams.getDuration(),
+                    frameIndex);
 
             chirpParamsWriter.write(line);
             chirpParamsWriter.flush();
@@ -112,113 +241,336 @@ public class DataManager {
     }
 
     /**
-     * Saves transmitted audio data to CSV
+     * Records the moment the first frame of a chirp left the speaker. The
+     * chirp is marked in the recording at the recorder frame captured at that
+     * instant, and its transmitted samples are saved with the same start time.
      *
-     * @param leftChannel Left channel audio data
-     * @param rightChannel Right channel audio data
+     * @param leftParams Left channel parameters
+     * @param rightParams Right channel parameters
+     * @param startNanos Monotonic time of the first chirp frame, see {@link #getSessionClock()}
      */
-    public void saveTransmittedData(short[] leftChannel, short[] rightChannel) {
-        if (transmittedDataWriter == null) {
+    public void onChirpStarted(ChirpParams leftParams, ChirpParams rightParams, long startNanos) {
+        SessionClock clock = sessionClock;
+        if (clock == null) {
             return;
         }
+        long epochNanos = clock.toEpochNanos(startNanos);
+
+        // Mark the chirp in the recording as well so it can be located without the params CSV
+        SampleSink sink = recordedDataSink;
+        StreamClock recording = recordingClock;
+        long frameIndex = recording != null ? recording.nanosToFrame(startNanos) : -1;
+        if (sink != null) {
+            try {
+                if (frameIndex < 0) {
+                    frameIndex = sink.getFramesWritten();
+                }
+                sink.writeChirp(epochNanos, frameIndex, leftParams, rightParams);
+            } catch (IOException e) {
+                Log.e(TAG, "Error writing chirp event", e);
+            }
+        }
 
-        try {
-            long currentTimeMs = System.currentTimeMillis();
-            long relativeTimeMs = currentTimeMs - startTimeMs;
-
-            StringBuilder sb = new StringBuilder();
-
-            // Save all samples
-            int length = Math.min(leftChannel.length, rightChannel.length);
-            for (int i = 0; i < length; i++) {
-                // Calculate precise timestamp for each sample
-                long sampleTimeMs = relativeTimeMs + i * 1000 / 44100;
-                long absoluteTimeMs = startTimeMs + sampleTimeMs;
-                String absoluteTime = timestampFormat.format(new Date(absoluteTimeMs));
-
-                sb.append(absoluteTime)
-                        .append(",")
-                        .append(sampleTimeMs)
-                        .append(",")
-                        .append(leftChannel[i])
-                        .append(",")
-                        .append(rightChannel[i])
-                        .append("\n");
+        logTrialStart(epochNanos, frameIndex);
+
+        // Echoes can only be located once the chirp is placed on the recorder's frames
+        EchoDetector detector = echoDetector;
+        if (detector != null && recording != null) {
+            detector.addChirp(leftParams, rightParams, recording.nanosToFrame(startNanos));
+        }
+
+        saveTransmittedChirp(leftParams, rightParams, epochNanos / NANOS_PER_MS);
+    }
+
+    /**
+     * Announces the trial whose chirp is played next. When the chirp starts,
+     * the trial and its segment of the recording are added to the "_trials_"
+     * index, which is opened by the first trial of the session.
+     *
+     * @param trial Trial about to be played
+     * @param segmentMs Length of the trial's recording segment from the chirp start
+     */
+    public synchronized void beginTrial(Trial trial, int segmentMs) {
+        if (trialsFile == null) {
+            return;
+        }
+
+        if (trialsWriter == null) {
+            try {
+                trialsWriter = new FileWriter(trialsFile);
+                trialsWriter.write("trial,leftFreq,leftBw,rightFreq,rightBw,duration,chirpTime,startFrame,endFrame\n");
+            } catch (IOException e) {
+                Log.e(TAG, "Error creating trials file", e);
+                return;
             }
+        }
 
-            transmittedDataWriter.write(sb.toString());
-            transmittedDataWriter.flush();
+        pendingTrials.add(new PendingTrial(trial, (long) segmentMs * SAMPLE_RATE / 1000));
+    }
+
+    private synchronized void logTrialStart(long epochNanos, long frameIndex) {
+        PendingTrial pending = pendingTrials.poll();
+        if (pending == null || trialsWriter == null) {
+            return;
+        }
+
+        try {
+            Trial trial = pending.trial;
+            String line = String.format(Locale.US, "%d,%d,%d,%d,%d,%d,%s,%d,%d\n",
+                    trial.getIndex(),
+                    trial.getLeftParams().getCenterFrequency(),
+                    trial.getLeftParams().getBandwidth(),
+                    trial.getRightParams().getCenterFrequency(),
+                    trial.getRightParams().getBandwidth(),
+                    trial.getDuration(),
+                    timestampFormat.format(new Date(epochNanos / NANOS_PER_MS)),
+                    frameIndex,
+                    frameIndex + pending.segmentFrames);
+
+            trialsWriter.write(line);
+            trialsWriter.flush();
 
         } catch (IOException e) {
-            Log.e(TAG, "Error writing transmitted data", e);
+            Log.e(TAG, "Error writing trial", e);
         }
     }
 
     /**
-     * Saves recorded audio data to CSV
+     * Saves a transmitted chirp to CSV. The rows are generated and written
+     * in chunks on a background thread, so this returns almost immediately.
+     *
+     * @param leftParams Left channel parameters
+     * @param rightParams Right channel parameters
+     * @param chirpStartMs Absolute time at which the chirp started
+     */
+    public void saveTransmittedChirp(ChirpParams leftParams, ChirpParams rightParams, long chirpStartMs) {
+        TransmittedDataWriter writer = transmittedDataWriter;
+        if (writer == null) {
+            return;
+        }
+
+        writer.submit(leftParams, rightParams, chirpStartMs);
+    }
+
+    /**
+     * Saves recorded audio data as a block of the binary recording and
+     * passes it through the recording stages, such as the echo detector
      *
      * @param data Audio data as short array
      * @param length Number of samples to save
+     * @param firstFrame Recorder frame index of the first sample
+     * @param epochNanos Capture time of the first sample in nanoseconds since the epoch
      */
-    public void saveRecordedData(short[] data, int length) {
-        if (recordedDataWriter == null) {
+    public void saveRecordedData(short[] data, int length, long firstFrame, long epochNanos) {
+        SampleSink sink = recordedDataSink;
+        if (sink == null) {
             return;
         }
+        length = Math.min(length, data.length);
 
-        try {
-            long currentTimeMs = System.currentTimeMillis();
-            long relativeTimeMs = currentTimeMs - startTimeMs;
-
-            // For efficiency, use StringBuilder to batch writes
-            StringBuilder sb = new StringBuilder();
-
-            // Save every sample
-            for (int i = 0; i < length; i++) {
-                if (i < data.length) {
-                    // Calculate precise timestamp for each sample
-                    long sampleTimeMs = relativeTimeMs + i * 1000 / 44100;
-                    long absoluteTimeMs = currentTimeMs + (i * 1000 / 44100);
-                    String absoluteTime = timestampFormat.format(new Date(absoluteTimeMs));
-
-                    sb.append(absoluteTime)
-                            .append(",")
-                            .append(sampleTimeMs)
-                            .append(",")
-                            .append(data[i])
-                            .append("\n");
+        if (rawRecordingEnabled) {
+            try {
+                sink.writeBlock(data, 0, length, epochNanos, firstFrame);
+
+            } catch (IOException e) {
+                Log.e(TAG, "Error writing recorded data", e);
+            }
+
+            SampleSink wav = recordedWavSink;
+            if (wav != null) {
+                try {
+                    wav.writeBlock(data, 0, length, epochNanos, firstFrame);
+                } catch (IOException e) {
+                    Log.e(TAG, "Error writing recorded WAV", e);
                 }
             }
+        }
 
-            recordedDataWriter.write(sb.toString());
-            recordedDataWriter.flush(); // Ensure data is written immediately
+        for (int i = 0; i < recordingStages.size(); i++) {
+            recordingStages.get(i).onBlock(data, length, firstFrame);
+        }
+    }
 
+    /**
+     * Chooses whether recorded samples are persisted. Without them the
+     * recording file only holds the chirp events, and the results of the
+     * recording stages are the only output. Must be called before {@link #initialize(String)}.
+     *
+     * @param enabled false to keep only the analysis results
+     */
+    public void setRawRecordingEnabled(boolean enabled) {
+        this.rawRecordingEnabled = enabled;
+    }
+
+    /**
+     * Sets the file format of the recording. Must be called before
+     * {@link #initialize(String)}.
+     *
+     * @param format RICE and DEFLATE are compressed, CSV is the old text format
+     */
+    public void setRecordingFormat(RecordingFormat format) {
+        this.recordingFormat = format;
+    }
+
+    /**
+     * Chooses whether the recording and the transmitted signal are also
+     * written as "_recording_*.wav" (mono) and "_transmitted_*.wav" (stereo)
+     * files. Must be called before {@link #initialize(String)}.
+     *
+     * @param enabled true to write WAV files
+     */
+    public void setWavOutputEnabled(boolean enabled) {
+        this.wavOutputEnabled = enabled;
+    }
+
+    /**
+     * Sets how durable each commit of the recording is. Must be called before
+     * {@link #initialize(String)}.
+     *
+     * @param policy FSYNC survives power loss but costs the most per commit
+     */
+    public void setDurabilityPolicy(DurabilityPolicy policy) {
+        this.durabilityPolicy = policy;
+    }
+
+    /**
+     * Sets the longest time recorded blocks are queued before being written.
+     * Longer intervals mean fewer, larger writes. Must be called before
+     * {@link #initialize(String)}.
+     *
+     * @param intervalMs Commit interval in milliseconds
+     */
+    public void setCommitIntervalMs(int intervalMs) {
+        this.commitIntervalMs = intervalMs;
+    }
+
+    /**
+     * Writes one magnitude frame of the STFT stage to the spectrogram file
+     */
+    private void saveSpectrogramFrame(long frameIndex, int firstBin, float[] magnitudes, int count) {
+        if (spectrogramWriter == null) {
+            return;
+        }
+
+        try {
+            spectrogramWriter.writeFrame(frameIndex, firstBin, magnitudes, count);
         } catch (IOException e) {
-            Log.e(TAG, "Error writing recorded data", e);
+            Log.e(TAG, "Error writing spectrogram", e);
         }
     }
 
     /**
-     * Finalizes and closes all file writers
+     * Writes one arrival found by the echo detector to the echoes CSV
      */
-    public void finalize() {
+    private void logEcho(long chirpFrame, int channel, int rank, long delayFrames, double amplitude) {
+        if (echoesWriter == null) {
+            return;
+        }
+
         try {
-            if (chirpParamsWriter != null) {
-                chirpParamsWriter.close();
-                chirpParamsWriter = null;
-            }
+            StreamClock clock = recordingClock;
+            long chirpTimeMs = clock != null
+                    ? clock.frameToEpochNanos(chirpFrame) / NANOS_PER_MS
+                    : System.currentTimeMillis();
+            String line = String.format(Locale.US, "%s,%d,%s,%d,%d,%.3f,%.6f\n",
+                    echoTimestampFormatter.format(chirpTimeMs),
+                    chirpFrame,
+                    channel == EchoDetector.LEFT ? "left" : "right",
+                    rank,
+                    delayFrames,
+                    delayFrames * 1000.0 / SAMPLE_RATE,
+                    amplitude);
+            echoesWriter.write(line);
 
-            if (recordedDataWriter != null) {
-                recordedDataWriter.close();
-                recordedDataWriter = null;
-            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing echo", e);
+        }
+    }
 
-            if (transmittedDataWriter != null) {
-                transmittedDataWriter.close();
-                transmittedDataWriter = null;
+    /**
+     * @return Timebase of the current session, or null before {@link #initialize(String)}
+     */
+    public SessionClock getSessionClock() {
+        return sessionClock;
+    }
+
+    /**
+     * Sets the clock of the recording stream, used to place chirp events on recorder frames
+     *
+     * @param clock Clock of the current recording
+     */
+    public void setRecordingClock(StreamClock clock) {
+        this.recordingClock = clock;
+    }
+
+    /**
+     * Finalizes and closes all file writers. Each writer is closed even if
+     * closing another one failed, so the recording is always committed.
+     */
+    public void finalize() {
+        closeQuietly(chirpParamsWriter, "chirp parameters");
+        chirpParamsWriter = null;
+        synchronized (this) {
+            closeQuietly(trialsWriter, "trials");
+            trialsWriter = null;
+            pendingTrials.clear();
+        }
+
+        // The recording thread has stopped, so pending results can be written here
+        for (int i = 0; i < recordingStages.size(); i++) {
+            try {
+                recordingStages.get(i).close();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error closing recording stage", e);
+            }
+        }
+        recordingStages.clear();
+        if (echoDetector != null) {
+            Log.i(TAG, "Echo detection: " + echoDetector.getDetectedChirps() + " chirps, "
+                    + echoDetector.getMissedChirps() + " missed");
+            echoDetector = null;
+        }
+        closeQuietly(echoesWriter, "echoes");
+        echoesWriter = null;
+        stftStage = null;
+        closeQuietly(spectrogramWriter, "spectrogram");
+        spectrogramWriter = null;
+
+        if (recordedDataSink != null) {
+            GroupCommitSink sink = recordedDataSink;
+            recordedDataSink = null;
+            // Commits the queued blocks first
+            closeQuietly(sink, "recorded data");
+            if (sink.getDroppedBlocks() > 0) {
+                Log.w(TAG, "Storage fell behind or failed, dropped " + sink.getDroppedSamples()
+                        + " recorded samples");
             }
+        }
+        closeQuietly(recordedWavSink, "recorded WAV");
+        recordedWavSink = null;
+
+        if (transmittedDataWriter != null) {
+            TransmittedDataWriter writer = transmittedDataWriter;
+            transmittedDataWriter = null;
+            // Completes in the background after any queued chirps
+            writer.close();
+        }
+    }
 
-        } catch (IOException e) {
-            Log.e(TAG, "Error closing file writers", e);
+    /**
+     * Closes a writer, logging instead of throwing so the next one is still closed
+     *
+     * @param closeable Writer to close, or null
+     * @param name Name of the file for the log
+     */
+    private static void closeQuietly(Closeable closeable, String name) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Error closing " + name, e);
         }
     }
 
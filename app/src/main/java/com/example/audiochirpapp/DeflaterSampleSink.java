@@ -0,0 +1,114 @@
+package com.example.audiochirpapp;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Writes the binary session format through a Deflater
+ *
+ * Every {@link #flush()} is a sync flush of the compressor, so a file cut off
+ * by a crash can be decompressed up to the last commit. There is no index,
+ * offsets into compressed data would be meaningless; read the file back
+ * with {@link #openReader(File)}.
+ */
+public class DeflaterSampleSink implements SampleSink {
+    public static final String FILE_EXTENSION = ".bin.deflate";
+
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    private final FileOutputStream fileStream;
+    private final Deflater deflater;
+    private final DeflaterOutputStream deflaterStream;
+    private final BinarySessionWriter writer;
+
+    /**
+     * Creates the file and writes the session header
+     *
+     * @param file Output file
+     * @param sampleRate Sample rate in Hz
+     * @param channelCount Number of interleaved channels per frame
+     * @param startEpochNanos Session start time in nanoseconds since the epoch
+     * @param level Deflater compression level, 1 (fastest) to 9 (smallest)
+     * @throws IOException If the file cannot be created
+     */
+    public DeflaterSampleSink(File file, int sampleRate, int channelCount, long startEpochNanos, int level)
+            throws IOException {
+        this.fileStream = new FileOutputStream(file);
+        this.deflater = new Deflater(level);
+        this.deflaterStream = new DeflaterOutputStream(fileStream, deflater, STREAM_BUFFER_SIZE, true);
+        this.writer = new BinarySessionWriter(Channels.newChannel(deflaterStream), sampleRate, channelCount,
+                startEpochNanos);
+    }
+
+    /**
+     * Opens a file written by this sink
+     *
+     * @param file Compressed session file
+     * @return Reader of the decompressed session
+     * @throws IOException If the file cannot be read or is not a session
+     */
+    public static BinarySessionReader openReader(File file) throws IOException {
+        InflaterInputStream stream = new InflaterInputStream(new FileInputStream(file), new Inflater(),
+                STREAM_BUFFER_SIZE);
+        return new BinarySessionReader(Channels.newChannel(stream), file.toString());
+    }
+
+    @Override
+    public void writeBlock(short[] samples, int offset, int length, long epochNanos, long frameIndex)
+            throws IOException {
+        writer.writeBlock(samples, offset, length, epochNanos, frameIndex);
+    }
+
+    @Override
+    public void writeChirp(long epochNanos, long frameIndex, ChirpParams leftParams, ChirpParams rightParams)
+            throws IOException {
+        writer.writeChirp(epochNanos, frameIndex, leftParams, rightParams);
+    }
+
+    @Override
+    public int getChannelCount() {
+        return writer.getChannelCount();
+    }
+
+    @Override
+    public long getFramesWritten() {
+        return writer.getFramesWritten();
+    }
+
+    /**
+     * @return Compressed bytes written so far
+     */
+    public long getCompressedBytes() {
+        return deflater.getBytesWritten();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+        // Sync flush: ends the compressed data at a byte boundary the inflater can stop at
+        deflaterStream.flush();
+    }
+
+    @Override
+    public void sync() throws IOException {
+        flush();
+        fileStream.getChannel().force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            // Finishes the compressed stream and closes the file
+            writer.close();
+        } finally {
+            deflater.end();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.audiochirpapp;
+
+/**
+ * How far each group commit of a {@link GroupCommitSink} pushes the data
+ */
+public enum DurabilityPolicy {
+    /** Leave the data in the sink's own buffers, lost if the app dies */
+    NONE,
+    /** Hand the data to the operating system, lost only if the device loses power */
+    FLUSH,
+    /** Wait until the data is on the storage device */
+    FSYNC
+}
@@ -0,0 +1,288 @@
+package com.example.audiochirpapp;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Recording stage that finds the arrivals of each transmitted chirp in the
+ * microphone signal
+ *
+ * Every chirp is announced with {@link #addChirp} once its start frame on the
+ * recorder is known. The detector then correlates the recording from that
+ * frame on against the left and right chirps with a {@link MatchedFilter}
+ * each and reports the strongest peaks within the search window as delays
+ * from the chirp start. Recent audio is kept in a history ring because the
+ * start frame is only known some time after the chirp was played.
+ */
+public class EchoDetector implements RecordingStage {
+    public static final int LEFT = 0;
+    public static final int RIGHT = 1;
+
+    // Longer chirps are matched against their first part only
+    public static final int MAX_TEMPLATE_FRAMES = 1 << 16;
+    // About 5.9 seconds at 44.1kHz
+    private static final int HISTORY_FRAMES = 1 << 18;
+
+    /**
+     * Receives the detected arrivals
+     */
+    public interface Listener {
+        /**
+         * @param chirpFrame Recorder frame at which the chirp started playing
+         * @param channel {@link #LEFT} or {@link #RIGHT}
+         * @param rank 0 for the strongest arrival of the channel, 1 for the next, ...
+         * @param delayFrames Delay of the arrival after the chirp start, in frames
+         * @param amplitude Gain of the arrival relative to the transmitted chirp
+         */
+        void onEcho(long chirpFrame, int channel, int rank, long delayFrames, double amplitude);
+    }
+
+    private static class Chirp {
+        final ChirpParams leftParams;
+        final ChirpParams rightParams;
+        final long startFrame;
+
+        Chirp(ChirpParams leftParams, ChirpParams rightParams, long startFrame) {
+            this.leftParams = leftParams;
+            this.rightParams = rightParams;
+            this.startFrame = startFrame;
+        }
+    }
+
+    /**
+     * Matched filter of one channel with the strongest peaks found so far
+     */
+    private class Channel implements MatchedFilter.Output {
+        final int channel;
+        final long[] peakDelays = new long[peaksPerChannel];
+        final double[] peakValues = new double[peaksPerChannel];
+        int peakCount;
+        ChirpParams params;
+        MatchedFilter filter;
+
+        Channel(int channel) {
+            this.channel = channel;
+        }
+
+        void start(ChirpParams chirpParams, long startFrame) {
+            if (!chirpParams.equals(params)) {
+                params = chirpParams;
+                filter = createFilter(chirpParams);
+            }
+            filter.reset(startFrame);
+            peakCount = 0;
+        }
+
+        boolean isDone() {
+            return filter.getNextOutputFrame() > active.startFrame + maxDelayFrames;
+        }
+
+        @Override
+        public void onCorrelation(double[] values, int count, long firstFrame) {
+            long firstDelay = firstFrame - active.startFrame;
+            int end = (int) Math.min(count, maxDelayFrames + 1 - firstDelay);
+            for (int i = 0; i < end; i++) {
+                offerPeak(firstDelay + i, values[i]);
+            }
+        }
+
+        /**
+         * Keeps the strongest values that are at least minPeakSeparation apart
+         */
+        private void offerPeak(long delay, double value) {
+            double magnitude = Math.abs(value);
+            if (peakCount == peaksPerChannel && magnitude <= Math.abs(peakValues[weakestPeak()])) {
+                return;
+            }
+
+            int near = -1;
+            for (int i = 0; i < peakCount; i++) {
+                if (Math.abs(peakDelays[i] - delay) < minPeakSeparation) {
+                    near = i;
+                    break;
+                }
+            }
+
+            if (near >= 0) {
+                // Same arrival: keep whichever sample is stronger
+                if (magnitude > Math.abs(peakValues[near])) {
+                    peakDelays[near] = delay;
+                    peakValues[near] = value;
+                }
+            } else if (peakCount < peaksPerChannel) {
+                peakDelays[peakCount] = delay;
+                peakValues[peakCount] = value;
+                peakCount++;
+            } else {
+                int weakest = weakestPeak();
+                peakDelays[weakest] = delay;
+                peakValues[weakest] = value;
+            }
+        }
+
+        private int weakestPeak() {
+            int weakest = 0;
+            for (int i = 1; i < peakCount; i++) {
+                if (Math.abs(peakValues[i]) < Math.abs(peakValues[weakest])) {
+                    weakest = i;
+                }
+            }
+            return weakest;
+        }
+
+        void report(long chirpFrame) {
+            // Strongest first
+            for (int rank = 0; rank < peakCount; rank++) {
+                int best = rank;
+                for (int i = rank + 1; i < peakCount; i++) {
+                    if (Math.abs(peakValues[i]) > Math.abs(peakValues[best])) {
+                        best = i;
+                    }
+                }
+                long delay = peakDelays[best];
+                double value = peakValues[best];
+                peakDelays[best] = peakDelays[rank];
+                peakValues[best] = peakValues[rank];
+                peakDelays[rank] = delay;
+                peakValues[rank] = value;
+
+                listener.onEcho(chirpFrame, channel, rank, delay, value);
+            }
+        }
+    }
+
+    private final int maxDelayFrames;
+    private final int peaksPerChannel;
+    private final int minPeakSeparation;
+    private final Listener listener;
+    private final ConcurrentLinkedQueue<Chirp> pendingChirps = new ConcurrentLinkedQueue<>();
+
+    // Everything below is only touched by the recording thread
+    private final short[] history = new short[HISTORY_FRAMES];
+    private long historyStart = 0;
+    private long historyEnd = 0;
+    private final Channel left;
+    private final Channel right;
+    private Chirp active;
+    private long detectedChirps = 0;
+    private long missedChirps = 0;
+
+    /**
+     * @param maxDelayFrames Longest delay to search after the chirp start, in frames
+     * @param peaksPerChannel Number of arrivals to report per channel
+     * @param minPeakSeparation Minimum distance between reported arrivals, in frames
+     * @param listener Receiver of the detected arrivals, called on the recording thread
+     */
+    public EchoDetector(int maxDelayFrames, int peaksPerChannel, int minPeakSeparation, Listener listener) {
+        this.maxDelayFrames = maxDelayFrames;
+        this.peaksPerChannel = peaksPerChannel;
+        this.minPeakSeparation = minPeakSeparation;
+        this.listener = listener;
+        this.left = new Channel(LEFT);
+        this.right = new Channel(RIGHT);
+    }
+
+    /**
+     * Announces a chirp. May be called from any thread.
+     *
+     * @param leftParams Left channel parameters
+     * @param rightParams Right channel parameters
+     * @param startFrame Recorder frame at which the chirp started playing
+     */
+    public void addChirp(ChirpParams leftParams, ChirpParams rightParams, long startFrame) {
+        pendingChirps.add(new Chirp(leftParams, rightParams, startFrame));
+    }
+
+    @Override
+    public void onBlock(short[] data, int length, long firstFrame) {
+        if (firstFrame != historyEnd) {
+            // Blocks were dropped, correlation across the gap would be meaningless
+            if (active != null) {
+                finishChirp();
+            }
+            historyStart = firstFrame;
+            historyEnd = firstFrame;
+        }
+
+        for (int i = 0; i < length; i++) {
+            history[(int) (historyEnd + i) & (HISTORY_FRAMES - 1)] = data[i];
+        }
+        historyEnd += length;
+
+        while (true) {
+            if (active == null && !activateNextChirp()) {
+                return;
+            }
+            feed(left);
+            feed(right);
+            if (!left.isDone() || !right.isDone()) {
+                return;
+            }
+            finishChirp();
+        }
+    }
+
+    /**
+     * Reports the chirp in progress with the part of its window seen so far
+     */
+    @Override
+    public void close() {
+        if (active != null) {
+            finishChirp();
+        }
+    }
+
+    /**
+     * @return Number of chirps whose arrivals were reported
+     */
+    public long getDetectedChirps() {
+        return detectedChirps;
+    }
+
+    /**
+     * @return Number of chirps skipped because their audio was no longer available
+     */
+    public long getMissedChirps() {
+        return missedChirps;
+    }
+
+    private boolean activateNextChirp() {
+        long oldest = Math.max(historyStart, historyEnd - HISTORY_FRAMES);
+        Chirp chirp;
+        while ((chirp = pendingChirps.poll()) != null) {
+            if (chirp.startFrame < oldest) {
+                missedChirps++;
+                continue;
+            }
+            active = chirp;
+            left.start(chirp.leftParams, chirp.startFrame);
+            right.start(chirp.rightParams, chirp.startFrame);
+            return true;
+        }
+        return false;
+    }
+
+    private void feed(Channel channel) {
+        MatchedFilter filter = channel.filter;
+        long frame = filter.getNextInputFrame();
+        while (frame < historyEnd && !channel.isDone()) {
+            int index = (int) frame & (HISTORY_FRAMES - 1);
+            int count = (int) Math.min(historyEnd - frame, HISTORY_FRAMES - index);
+            filter.process(history, index, count, channel);
+            frame += count;
+        }
+    }
+
+    private void finishChirp() {
+        left.report(active.startFrame);
+        right.report(active.startFrame);
+        detectedChirps++;
+        active = null;
+    }
+
+    private static MatchedFilter createFilter(ChirpParams params) {
+        ChirpGenerator generator = new ChirpGenerator(params);
+        short[] template = new short[Math.max(1, Math.min(generator.getTotalSamples(), MAX_TEMPLATE_FRAMES))];
+        generator.fill(template, 0, template.length);
+        return new MatchedFilter(template, template.length);
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.audiochirpapp;
+
+import android.util.Log;
+
+import java.util.List;
+
+/**
+ * Plays a list of trials back to back in one recording session
+ *
+ * The recorder, the player's tracks and the output files stay open for the
+ * whole run. While one trial plays, the chirps of the next trials are
+ * generated in the background, and each trial's chirp start is written to
+ * the session's "_trials_" index with its segment of the recording.
+ */
+public class ExperimentRunner implements Runnable {
+    private static final String TAG = "ExperimentRunner";
+    // Ambient sound recorded before the first trial
+    private static final long LEAD_IN_MS = 500;
+    // Recording kept after each chirp for its echoes, as for a single chirp
+    private static final int TRIAL_TAIL_MS = 1000;
+    // Trials generated ahead of the one playing
+    private static final int PREPARE_AHEAD = 2;
+
+    /**
+     * Progress of a run, called on the runner thread
+     */
+    public interface Listener {
+        /**
+         * @param trial Trial whose chirp was just started
+         * @param trialCount Number of trials in the run
+         */
+        void onTrialStarted(Trial trial, int trialCount);
+
+        /**
+         * @param completedTrials Number of trials played to the end
+         * @param cancelled True if the run was stopped early
+         */
+        void onFinished(int completedTrials, boolean cancelled);
+    }
+
+    private final List<Trial> trials;
+    private final AudioPlayer audioPlayer;
+    private final DataManager dataManager;
+    private final Listener listener;
+    private volatile boolean cancelled = false;
+    private volatile Thread runnerThread;
+
+    /**
+     * @param trials Trials in playing order
+     * @param audioPlayer Player, already attached to the DataManager
+     * @param dataManager Initialized DataManager of the recording session
+     * @param listener Progress listener, or null
+     */
+    public ExperimentRunner(List<Trial> trials, AudioPlayer audioPlayer, DataManager dataManager,
+                            Listener listener) {
+        this.trials = trials;
+        this.audioPlayer = audioPlayer;
+        this.dataManager = dataManager;
+        this.listener = listener;
+    }
+
+    @Override
+    public void run() {
+        runnerThread = Thread.currentThread();
+        int completed = 0;
+        long runStart = System.currentTimeMillis();
+
+        try {
+            for (int i = 0; i < PREPARE_AHEAD && i < trials.size(); i++) {
+                audioPlayer.prepareChirp(trials.get(i).getLeftParams(), trials.get(i).getRightParams());
+            }
+            Thread.sleep(LEAD_IN_MS);
+
+            for (int i = 0; i < trials.size() && !cancelled; i++) {
+                Trial trial = trials.get(i);
+                if (i + PREPARE_AHEAD < trials.size()) {
+                    Trial next = trials.get(i + PREPARE_AHEAD);
+                    audioPlayer.prepareChirp(next.getLeftParams(), next.getRightParams());
+                }
+
+                int segmentMs = trial.getDuration() + TRIAL_TAIL_MS;
+                dataManager.beginTrial(trial, segmentMs);
+                dataManager.logChirpParameters(trial.getLeftParams(), trial.getRightParams());
+                audioPlayer.playChirp(trial.getLeftParams(), trial.getRightParams());
+                if (listener != null) {
+                    listener.onTrialStarted(trial, trials.size());
+                }
+
+                Thread.sleep(segmentMs);
+                completed++;
+            }
+        } catch (InterruptedException e) {
+            cancelled = true;
+        }
+
+        Log.i(TAG, completed + "/" + trials.size() + " trials in "
+                + (System.currentTimeMillis() - runStart) + "ms, " + audioPlayer.getChirpCache());
+        if (listener != null) {
+            listener.onFinished(completed, cancelled);
+        }
+    }
+
+    /**
+     * Stops the run at once by interrupting the runner. A chirp being started
+     * is still handed to the player, but the lead-in or the current trial's
+     * tail is cut short, and no further trial starts. Used by Stop, which
+     * releases the player right after. May be called from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+        Thread thread = runnerThread;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * @return Number of trials in the run
+     */
+    public int getTrialCount() {
+        return trials.size();
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.audiochirpapp;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Remembers the size and modification time of every exported file, so an
+ * export can skip the files that did not change since
+ *
+ * Stored as one "name\tsize\tlastModified" line per file and replaced
+ * through a temporary file, so a crash leaves the previous manifest. A
+ * missing or unreadable manifest only means every file is exported again.
+ * Thread safe.
+ */
+public class ExportManifest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Size and modification time of an exported file
+     */
+    private static final class Entry {
+        final long size;
+        final long lastModified;
+
+        Entry(long size, long lastModified) {
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private final File file;
+    private final Map<String, Entry> entries = new TreeMap<>();
+
+    /**
+     * Reads the manifest if it exists
+     *
+     * @param file Manifest file, outside of the exported directory
+     */
+    public ExportManifest(File file) {
+        this.file = file;
+        if (!file.exists()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t");
+                if (fields.length != 3) {
+                    continue;
+                }
+                entries.put(fields[0], new Entry(Long.parseLong(fields[1]), Long.parseLong(fields[2])));
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Export everything again rather than trust part of it
+            e.printStackTrace();
+            entries.clear();
+        }
+    }
+
+    /**
+     * @param name Name of the exported copy
+     * @param size Current size of the file
+     * @param lastModified Current modification time of the file
+     * @return True if the file was exported with this size and modification time
+     */
+    public synchronized boolean isUnchanged(String name, long size, long lastModified) {
+        Entry entry = entries.get(name);
+        return entry != null && entry.size == size && entry.lastModified == lastModified;
+    }
+
+    /**
+     * Records a completed export
+     *
+     * @param name Name of the exported copy
+     * @param size Size of the file when it was copied
+     * @param lastModified Modification time of the file when it was copied
+     */
+    public synchronized void record(String name, long size, long lastModified) {
+        entries.put(name, new Entry(size, lastModified));
+    }
+
+    /**
+     * Forgets a file, so the next export copies it again
+     *
+     * @param name Name of the exported copy
+     */
+    public synchronized void remove(String name) {
+        entries.remove(name);
+    }
+
+    /**
+     * @return Number of files recorded
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Writes the manifest to its file
+     *
+     * @throws IOException If the manifest could not be written
+     */
+    public synchronized void save() throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), UTF_8))) {
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                writer.write(entry.getKey() + "\t" + entry.getValue().size + "\t"
+                        + entry.getValue().lastModified + "\n");
+            }
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Could not replace " + file);
+        }
+    }
+}
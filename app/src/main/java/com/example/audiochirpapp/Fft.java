@@ -0,0 +1,226 @@
+package com.example.audiochirpapp;
+
+/**
+ * In-place radix-2 FFT for power-of-two sizes
+ *
+ * Complex data is interleaved (re, im, re, im, ...). Real input of N samples
+ * is transformed through a complex FFT of N/2 points and returned packed in
+ * the same array:
+ * data[0] = Re X[0], data[1] = Re X[N/2], data[2k] = Re X[k], data[2k+1] = Im X[k].
+ *
+ * Twiddle and bit-reversal tables are built once per size and shared by all
+ * instances. Transforms work in the caller's array and keep no other state,
+ * so they never allocate and an instance can be used from any thread.
+ */
+public class Fft {
+
+    /**
+     * Bit-reversal permutation and twiddle factors e^(-2 pi i k / n), k < n/2
+     */
+    private static final class Tables {
+        final int[] bitReverse;
+        final double[] cos;
+        final double[] sin;
+
+        Tables(int n) {
+            int bits = Integer.numberOfTrailingZeros(n);
+            bitReverse = new int[n];
+            for (int i = 1; i < n; i++) {
+                bitReverse[i] = Integer.reverse(i) >>> (32 - bits);
+            }
+
+            cos = new double[n / 2];
+            sin = new double[n / 2];
+            for (int i = 0; i < n / 2; i++) {
+                double angle = 2 * Math.PI * i / n;
+                cos[i] = Math.cos(angle);
+                sin[i] = Math.sin(angle);
+            }
+        }
+    }
+
+    // Indexed by log2 of the size
+    private static final Tables[] TABLES = new Tables[31];
+
+    private final int size;
+    // Tables for the complex transform of the full size and of half the size
+    private final Tables full;
+    private final Tables half;
+
+    /**
+     * @param size Transform size, a power of two of at least 2
+     */
+    public Fft(int size) {
+        if (size < 2 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("FFT size must be a power of two: " + size);
+        }
+        this.size = size;
+        this.full = tables(size);
+        this.half = tables(size / 2);
+    }
+
+    /**
+     * @return Transform size
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Forward complex transform, X[k] = sum x[n] e^(-2 pi i k n / N)
+     *
+     * @param data N interleaved complex values, replaced by the spectrum
+     */
+    public void complexForward(double[] data) {
+        transform(data, size, full, -1);
+    }
+
+    /**
+     * Inverse complex transform including the 1/N scaling
+     *
+     * @param data N interleaved complex values, replaced by the signal
+     */
+    public void complexInverse(double[] data) {
+        transform(data, size, full, 1);
+        scale(data, 2 * size, 1.0 / size);
+    }
+
+    /**
+     * Forward transform of real input
+     *
+     * @param data N real samples, replaced by the packed spectrum
+     */
+    public void realForward(double[] data) {
+        int m = size / 2;
+        transform(data, m, half, -1);
+
+        // Separate the spectra of the even and odd samples and combine them
+        double z0 = data[0];
+        double z1 = data[1];
+        data[0] = z0 + z1;
+        data[1] = z0 - z1;
+
+        for (int k = 1, j = m - 1; k <= j; k++, j--) {
+            double ar = data[2 * k];
+            double ai = data[2 * k + 1];
+            double br = data[2 * j];
+            double bi = data[2 * j + 1];
+
+            double er = (ar + br) * 0.5;
+            double ei = (ai - bi) * 0.5;
+            double or = (ai + bi) * 0.5;
+            double oi = (br - ar) * 0.5;
+
+            double c = full.cos[k];
+            double s = full.sin[k];
+            double tr = c * or + s * oi;
+            double ti = c * oi - s * or;
+
+            data[2 * k] = er + tr;
+            data[2 * k + 1] = ei + ti;
+            data[2 * j] = er - tr;
+            data[2 * j + 1] = ti - ei;
+        }
+    }
+
+    /**
+     * Inverse of {@link #realForward} including the scaling, so the round
+     * trip returns the original samples
+     *
+     * @param data Packed spectrum, replaced by N real samples
+     */
+    public void realInverse(double[] data) {
+        int m = size / 2;
+
+        double x0 = data[0];
+        double xm = data[1];
+        data[0] = (x0 + xm) * 0.5;
+        data[1] = (x0 - xm) * 0.5;
+
+        for (int k = 1, j = m - 1; k <= j; k++, j--) {
+            double ar = data[2 * k];
+            double ai = data[2 * k + 1];
+            double br = data[2 * j];
+            double bi = data[2 * j + 1];
+
+            double er = (ar + br) * 0.5;
+            double ei = (ai - bi) * 0.5;
+            double tr = (ar - br) * 0.5;
+            double ti = (ai + bi) * 0.5;
+
+            double c = full.cos[k];
+            double s = full.sin[k];
+            double or = c * tr - s * ti;
+            double oi = c * ti + s * tr;
+
+            data[2 * k] = er - oi;
+            data[2 * k + 1] = ei + or;
+            data[2 * j] = er + oi;
+            data[2 * j + 1] = or - ei;
+        }
+
+        transform(data, m, half, 1);
+        scale(data, size, 1.0 / m);
+    }
+
+    private static void transform(double[] data, int n, Tables tables, int sign) {
+        int[] bitReverse = tables.bitReverse;
+        for (int i = 1; i < n; i++) {
+            int j = bitReverse[i];
+            if (j > i) {
+                double t = data[2 * i];
+                data[2 * i] = data[2 * j];
+                data[2 * j] = t;
+                t = data[2 * i + 1];
+                data[2 * i + 1] = data[2 * j + 1];
+                data[2 * j + 1] = t;
+            }
+        }
+
+        // First stage: all twiddle factors are 1
+        for (int a = 0; a < 2 * n - 2; a += 4) {
+            double br = data[a + 2];
+            double bi = data[a + 3];
+            data[a + 2] = data[a] - br;
+            data[a + 3] = data[a + 1] - bi;
+            data[a] += br;
+            data[a + 1] += bi;
+        }
+
+        double[] cos = tables.cos;
+        double[] sin = tables.sin;
+        for (int half = 2; half < n; half <<= 1) {
+            int step = n / (half * 2);
+            for (int start = 0; start < 2 * n; start += 4 * half) {
+                for (int k = 0, t = 0; k < half; k++, t += step) {
+                    double wr = cos[t];
+                    double wi = sign * sin[t];
+                    int a = start + 2 * k;
+                    int b = a + 2 * half;
+                    double br = data[b];
+                    double bi = data[b + 1];
+                    double tr = br * wr - bi * wi;
+                    double ti = br * wi + bi * wr;
+                    data[b] = data[a] - tr;
+                    data[b + 1] = data[a + 1] - ti;
+                    data[a] += tr;
+                    data[a + 1] += ti;
+                }
+            }
+        }
+    }
+
+    private static void scale(double[] data, int length, double factor) {
+        for (int i = 0; i < length; i++) {
+            data[i] *= factor;
+        }
+    }
+
+    private static synchronized Tables tables(int n) {
+        int log = Integer.numberOfTrailingZeros(n);
+        if (TABLES[log] == null) {
+            TABLES[log] = new Tables(n);
+        }
+        return TABLES[log];
+    }
+}
@@ -0,0 +1,310 @@
+package com.example.audiochirpapp;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Copies session files to another location on a pool of threads
+ *
+ * Each file is copied with {@link FileChannel#transferTo}, which the kernel
+ * does without going through the Java heap when the destination is also a
+ * file, as for a MediaStore ParcelFileDescriptor. Files whose size and
+ * modification time match the {@link ExportManifest} are skipped, and the
+ * largest files start first so that the copies finish close together.
+ * {@link #export(File[])} blocks, call it off the UI thread.
+ */
+public class FileExporter {
+    // Bytes per transferTo call, between two progress reports
+    private static final long CHUNK_BYTES = 8 * 1024 * 1024;
+
+    /**
+     * Where the copies go
+     */
+    public interface Destination {
+        /**
+         * @param name File name
+         * @return True if a copy of that name is still at the destination
+         * @throws IOException If the destination could not be checked
+         */
+        boolean exists(String name) throws IOException;
+
+        /**
+         * Creates the copy of a file, replacing an older copy of the same name
+         *
+         * @param name File name
+         * @return Channel the copy is written to, closed by the exporter
+         * @throws IOException If the copy could not be created
+         */
+        WritableByteChannel open(String name) throws IOException;
+
+        /**
+         * Removes a copy, such as an incomplete archive
+         *
+         * @param name File name
+         * @throws IOException If the copy could not be removed
+         */
+        void delete(String name) throws IOException;
+    }
+
+    /**
+     * Progress of an export, called on the copying threads
+     */
+    public interface Listener {
+        /**
+         * @param bytesDone Bytes copied so far
+         * @param bytesTotal Bytes of all files to copy
+         * @param filesDone Files copied or failed so far
+         * @param filesTotal Number of files to copy
+         */
+        void onProgress(long bytesDone, long bytesTotal, int filesDone, int filesTotal);
+    }
+
+    /**
+     * Outcome of an export
+     */
+    public static final class Result {
+        private final int copied;
+        private final int skipped;
+        private final int failed;
+        private final long bytesCopied;
+        private final boolean cancelled;
+
+        Result(int copied, int skipped, int failed, long bytesCopied, boolean cancelled) {
+            this.copied = copied;
+            this.skipped = skipped;
+            this.failed = failed;
+            this.bytesCopied = bytesCopied;
+            this.cancelled = cancelled;
+        }
+
+        public int getCopied() {
+            return copied;
+        }
+
+        public int getSkipped() {
+            return skipped;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        public long getBytesCopied() {
+            return bytesCopied;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    /**
+     * Copies into a directory of the file system
+     */
+    public static class DirectoryDestination implements Destination {
+        private final File directory;
+
+        /**
+         * @param directory Directory of the copies, created on the first copy
+         */
+        public DirectoryDestination(File directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        public boolean exists(String name) {
+            return new File(directory, name).exists();
+        }
+
+        @Override
+        public WritableByteChannel open(String name) throws IOException {
+            if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+                throw new IOException("Could not create " + directory);
+            }
+            return new FileOutputStream(new File(directory, name)).getChannel();
+        }
+
+        @Override
+        public void delete(String name) throws IOException {
+            File file = new File(directory, name);
+            if (file.exists() && !file.delete()) {
+                throw new IOException("Could not delete " + file);
+            }
+        }
+    }
+
+    private final Destination destination;
+    private final ExportManifest manifest;
+    private final int parallelism;
+    private final Listener listener;
+    private volatile boolean cancelled = false;
+
+    /**
+     * @param destination Where the copies go
+     * @param manifest Files exported before, updated and saved by each export
+     * @param parallelism Number of files copied at the same time
+     * @param listener Progress listener, or null
+     */
+    public FileExporter(Destination destination, ExportManifest manifest, int parallelism, Listener listener) {
+        this.destination = destination;
+        this.manifest = manifest;
+        this.parallelism = parallelism;
+        this.listener = listener;
+    }
+
+    /**
+     * Stops the export after the chunks being copied. Files not copied
+     * completely are left out of the manifest.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Copies the files that changed since their last export
+     *
+     * @param files Files to export, directories are ignored
+     * @return Outcome of the export
+     */
+    public Result export(File[] files) {
+        final List<File> toCopy = new ArrayList<>();
+        long bytesTotal = 0;
+        int skipped = 0;
+        for (File file : files) {
+            if (!file.isFile()) {
+                continue;
+            }
+            if (isExported(file)) {
+                skipped++;
+            } else {
+                toCopy.add(file);
+                bytesTotal += file.length();
+            }
+        }
+        File[] sorted = toCopy.toArray(new File[0]);
+        Arrays.sort(sorted, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Long.compare(b.length(), a.length());
+            }
+        });
+
+        final AtomicLong bytesDone = new AtomicLong();
+        final AtomicInteger filesDone = new AtomicInteger();
+        final long total = bytesTotal;
+        final int fileCount = sorted.length;
+        int copied = 0;
+        int failed = 0;
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, fileCount)));
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (final File file : sorted) {
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        boolean done = copy(file, bytesDone, total, filesDone, fileCount);
+                        filesDone.incrementAndGet();
+                        reportProgress(bytesDone.get(), total, filesDone.get(), fileCount);
+                        return done;
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                try {
+                    if (result.get()) {
+                        copied++;
+                    } else if (!cancelled) {
+                        failed++;
+                    }
+                } catch (ExecutionException e) {
+                    e.printStackTrace();
+                    failed++;
+                } catch (InterruptedException e) {
+                    cancelled = true;
+                    Thread.currentThread().interrupt();
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        try {
+            manifest.save();
+        } catch (IOException e) {
+            // The next export copies the files again
+            e.printStackTrace();
+        }
+        return new Result(copied, skipped, failed, bytesDone.get(), cancelled);
+    }
+
+    private boolean isExported(File file) {
+        if (!manifest.isUnchanged(file.getName(), file.length(), file.lastModified())) {
+            return false;
+        }
+        try {
+            return destination.exists(file.getName());
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Copies one file and records it in the manifest
+     *
+     * @return True if the file was copied completely
+     */
+    private boolean copy(File file, AtomicLong bytesDone, long bytesTotal, AtomicInteger filesDone,
+                         int filesTotal) {
+        String name = file.getName();
+        // A file still growing is copied up to this size, and again by the next export
+        long lastModified = file.lastModified();
+        manifest.remove(name);
+        if (cancelled) {
+            return false;
+        }
+        try (FileChannel in = new FileInputStream(file).getChannel();
+             WritableByteChannel out = destination.open(name)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                if (cancelled) {
+                    return false;
+                }
+                long count = in.transferTo(position, Math.min(CHUNK_BYTES, size - position), out);
+                if (count <= 0) {
+                    throw new IOException(name + " was truncated during the export");
+                }
+                position += count;
+                reportProgress(bytesDone.addAndGet(count), bytesTotal, filesDone.get(), filesTotal);
+            }
+            manifest.record(name, size, lastModified);
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private void reportProgress(long bytesDone, long bytesTotal, int filesDone, int filesTotal) {
+        if (listener != null) {
+            listener.onProgress(bytesDone, bytesTotal, filesDone, filesTotal);
+        }
+    }
+}
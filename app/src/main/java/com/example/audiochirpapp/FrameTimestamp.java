@@ -0,0 +1,10 @@
+package com.example.audiochirpapp;
+
+/**
+ * Mutable pairing of an audio frame position with the monotonic time at
+ * which that frame passed the hardware, reused to avoid allocations
+ */
+public class FrameTimestamp {
+    public long framePosition;
+    public long nanoTime;
+}
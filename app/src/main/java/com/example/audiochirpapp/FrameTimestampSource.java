@@ -0,0 +1,13 @@
+package com.example.audiochirpapp;
+
+/**
+ * Reports where an audio stream is on the monotonic clock, such as
+ * AudioRecord.getTimestamp or AudioTrack.getTimestamp
+ */
+public interface FrameTimestampSource {
+    /**
+     * @param out Receives the latest frame position and its monotonic time
+     * @return false if no timestamp is available yet
+     */
+    boolean read(FrameTimestamp out);
+}
@@ -0,0 +1,405 @@
+package com.example.audiochirpapp;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+
+/**
+ * Queues writes in memory and commits them to another sink in groups, on its own thread
+ *
+ * A group is committed once it holds {@code commitSamples} samples or its
+ * oldest record is {@code commitIntervalMs} old, and is then made as durable
+ * as the {@link DurabilityPolicy} asks. Writers only copy into the queue and
+ * never wait for storage: when {@code maxPendingSamples} are already queued
+ * a block is dropped and counted, like an overrun of the capture ring.
+ * Chirp events are never dropped. Records are recycled, so steady-state
+ * writing does not allocate.
+ *
+ * The first error of the delegate fails the sink: nothing more is sent to
+ * the delegate, and later blocks, along with the group that failed, are
+ * dropped and counted. The error is thrown once by the next write or
+ * {@link #close()}, and by every {@link #flush()} and {@link #sync()}.
+ * Thread safe.
+ */
+public class GroupCommitSink implements SampleSink {
+    private static final int TYPE_BLOCK = 0;
+    private static final int TYPE_CHIRP = 1;
+
+    /**
+     * A queued block or chirp event
+     */
+    private static final class Record {
+        int type;
+        short[] samples = new short[0];
+        int length;
+        long epochNanos;
+        long frameIndex;
+        ChirpParams leftParams;
+        ChirpParams rightParams;
+    }
+
+    private final SampleSink delegate;
+    private final int commitSamples;
+    private final long commitIntervalNanos;
+    private final int maxPendingSamples;
+    private final DurabilityPolicy policy;
+    private final int channelCount;
+    private final Thread committerThread;
+
+    // Guarded by lock
+    private final Object lock = new Object();
+    private ArrayDeque<Record> pending = new ArrayDeque<>();
+    private ArrayDeque<Record> committing = new ArrayDeque<>();
+    private final ArrayDeque<Record> free = new ArrayDeque<>();
+    private int pendingSamples = 0;
+    private long oldestPendingNanos = 0;
+    private DurabilityPolicy requestedPolicy = null;
+    private long commitsStarted = 0;
+    private long commitsDone = 0;
+    private boolean closing = false;
+    private IOException failure = null;
+    private boolean failureReported = false;
+    private long framesWritten = 0;
+
+    // Metrics
+    private volatile long droppedBlocks = 0;
+    private volatile long droppedSamples = 0;
+    private volatile long commitCount = 0;
+
+    /**
+     * Starts the committer thread
+     *
+     * @param delegate Sink the groups are committed to, owned by this sink from now on
+     * @param commitSamples Queued samples that trigger a commit
+     * @param commitIntervalMs Longest time a record waits for its commit
+     * @param maxPendingSamples Queued samples beyond which blocks are dropped
+     * @param policy Durability of each commit
+     */
+    public GroupCommitSink(SampleSink delegate, int commitSamples, int commitIntervalMs,
+                           int maxPendingSamples, DurabilityPolicy policy) {
+        this.delegate = delegate;
+        this.commitSamples = commitSamples;
+        this.commitIntervalNanos = commitIntervalMs * 1000000L;
+        this.maxPendingSamples = Math.max(maxPendingSamples, commitSamples);
+        this.policy = policy;
+        this.channelCount = delegate.getChannelCount();
+
+        committerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runCommitter();
+            }
+        }, "GroupCommitSink");
+        committerThread.start();
+    }
+
+    @Override
+    public void writeBlock(short[] samples, int offset, int length, long epochNanos, long frameIndex)
+            throws IOException {
+        synchronized (lock) {
+            checkOpen();
+            if (failure != null) {
+                droppedBlocks++;
+                droppedSamples += length;
+                reportFailure();
+                return;
+            }
+            if (pendingSamples + length > maxPendingSamples) {
+                droppedBlocks++;
+                droppedSamples += length;
+                return;
+            }
+            Record record = obtainRecord(TYPE_BLOCK);
+            if (record.samples.length < length) {
+                record.samples = new short[length];
+            }
+            System.arraycopy(samples, offset, record.samples, 0, length);
+            record.length = length;
+            record.epochNanos = epochNanos;
+            record.frameIndex = frameIndex;
+            pendingSamples += length;
+            framesWritten += length / channelCount;
+            enqueue(record);
+        }
+    }
+
+    @Override
+    public void writeChirp(long epochNanos, long frameIndex, ChirpParams leftParams, ChirpParams rightParams)
+            throws IOException {
+        synchronized (lock) {
+            checkOpen();
+            if (failure != null) {
+                reportFailure();
+                return;
+            }
+            Record record = obtainRecord(TYPE_CHIRP);
+            record.epochNanos = epochNanos;
+            record.frameIndex = frameIndex;
+            record.leftParams = leftParams;
+            record.rightParams = rightParams;
+            enqueue(record);
+        }
+    }
+
+    @Override
+    public int getChannelCount() {
+        return channelCount;
+    }
+
+    /**
+     * @return Number of frames queued so far, without the dropped ones
+     */
+    @Override
+    public long getFramesWritten() {
+        synchronized (lock) {
+            return framesWritten;
+        }
+    }
+
+    /**
+     * Commits everything queued so far and waits until it has been handed
+     * to the operating system
+     *
+     * @throws IOException If a commit failed, now or before
+     */
+    @Override
+    public void flush() throws IOException {
+        commitAndWait(DurabilityPolicy.FLUSH);
+    }
+
+    /**
+     * Commits everything queued so far and waits until it is on the storage device
+     *
+     * @throws IOException If a commit failed, now or before
+     */
+    @Override
+    public void sync() throws IOException {
+        commitAndWait(DurabilityPolicy.FSYNC);
+    }
+
+    /**
+     * Commits what is still queued, stops the committer thread and closes the delegate
+     *
+     * @throws IOException If a commit failed and was not reported yet, or closing the delegate failed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closing) {
+                return;
+            }
+            closing = true;
+            lock.notifyAll();
+        }
+
+        boolean interrupted = false;
+        while (committerThread.isAlive()) {
+            try {
+                committerThread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        IOException unreported;
+        synchronized (lock) {
+            unreported = failureReported ? null : failure;
+            failureReported = true;
+        }
+        try {
+            delegate.close();
+        } catch (IOException e) {
+            if (unreported == null) {
+                unreported = e;
+            }
+        }
+        if (unreported != null) {
+            throw unreported;
+        }
+    }
+
+    /**
+     * @return Blocks dropped because too many samples were queued or the delegate failed
+     */
+    public long getDroppedBlocks() {
+        return droppedBlocks;
+    }
+
+    /**
+     * @return Samples dropped because too many samples were queued or the delegate failed
+     */
+    public long getDroppedSamples() {
+        return droppedSamples;
+    }
+
+    /**
+     * @return Number of groups committed so far
+     */
+    public long getCommitCount() {
+        return commitCount;
+    }
+
+    private void checkOpen() throws IOException {
+        if (closing) {
+            throw new IOException("Sink is closed");
+        }
+    }
+
+    /**
+     * Throws the failure of the delegate the first time it is asked
+     */
+    private void reportFailure() throws IOException {
+        if (!failureReported) {
+            failureReported = true;
+            throw failure;
+        }
+    }
+
+    private Record obtainRecord(int type) {
+        Record record = free.poll();
+        if (record == null) {
+            record = new Record();
+        }
+        record.type = type;
+        return record;
+    }
+
+    private void enqueue(Record record) {
+        boolean first = pending.isEmpty();
+        if (first) {
+            oldestPendingNanos = System.nanoTime();
+        }
+        pending.add(record);
+        // The committer sleeps without a deadline while the queue is empty
+        if (first || pendingSamples >= commitSamples) {
+            lock.notifyAll();
+        }
+    }
+
+    private void commitAndWait(DurabilityPolicy level) throws IOException {
+        synchronized (lock) {
+            checkOpen();
+            if (requestedPolicy == null || level.ordinal() > requestedPolicy.ordinal()) {
+                requestedPolicy = level;
+            }
+            // The next commit to start takes everything queued before this point
+            long ticket = commitsStarted + 1;
+            lock.notifyAll();
+
+            boolean interrupted = false;
+            while (commitsDone < ticket && !closing) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (failure != null) {
+                failureReported = true;
+                throw failure;
+            }
+        }
+    }
+
+    private void runCommitter() {
+        while (true) {
+            boolean last;
+            boolean requested;
+            boolean failed;
+            DurabilityPolicy level;
+            synchronized (lock) {
+                while (!closing && requestedPolicy == null && !isGroupDue()) {
+                    try {
+                        if (pending.isEmpty()) {
+                            lock.wait();
+                        } else {
+                            long remainingNanos = oldestPendingNanos + commitIntervalNanos - System.nanoTime();
+                            lock.wait(Math.max(1, remainingNanos / 1000000L));
+                        }
+                    } catch (InterruptedException e) {
+                        // Only close stops the committer
+                    }
+                }
+                last = closing;
+                failed = failure != null;
+                level = policy;
+                requested = requestedPolicy != null;
+                if (requested && requestedPolicy.ordinal() > level.ordinal()) {
+                    level = requestedPolicy;
+                }
+                requestedPolicy = null;
+
+                ArrayDeque<Record> group = pending;
+                pending = committing;
+                committing = group;
+                pendingSamples = 0;
+                commitsStarted++;
+            }
+
+            IOException commitFailure = null;
+            // A failed delegate gets nothing more, its groups are dropped below
+            if (!failed && (requested || !committing.isEmpty())) {
+                // An empty group on close has nothing left to make durable
+                try {
+                    commit(level);
+                } catch (IOException e) {
+                    commitFailure = e;
+                } catch (RuntimeException e) {
+                    commitFailure = new IOException("Commit failed", e);
+                }
+            }
+
+            synchronized (lock) {
+                boolean dropped = failed || commitFailure != null;
+                Record record;
+                while ((record = committing.poll()) != null) {
+                    if (dropped && record.type == TYPE_BLOCK) {
+                        // Blocks of the failed group may be partly in storage, count them all
+                        droppedBlocks++;
+                        droppedSamples += record.length;
+                    }
+                    record.leftParams = null;
+                    record.rightParams = null;
+                    free.add(record);
+                }
+                if (commitFailure != null && failure == null) {
+                    failure = commitFailure;
+                }
+                commitsDone++;
+                commitCount = commitsDone;
+                lock.notifyAll();
+            }
+            if (last) {
+                return;
+            }
+        }
+    }
+
+    private boolean isGroupDue() {
+        return pendingSamples >= commitSamples
+                || (!pending.isEmpty() && System.nanoTime() - oldestPendingNanos >= commitIntervalNanos);
+    }
+
+    /**
+     * Writes the taken group to the delegate, on the committer thread without the lock
+     */
+    private void commit(DurabilityPolicy level) throws IOException {
+        for (Record record : committing) {
+            if (record.type == TYPE_BLOCK) {
+                delegate.writeBlock(record.samples, 0, record.length, record.epochNanos, record.frameIndex);
+            } else {
+                delegate.writeChirp(record.epochNanos, record.frameIndex, record.leftParams, record.rightParams);
+            }
+        }
+        if (level == DurabilityPolicy.FLUSH) {
+            delegate.flush();
+        } else if (level == DurabilityPolicy.FSYNC) {
+            delegate.sync();
+        }
+    }
+}
@@ -1,35 +1,32 @@
 package com.example.audiochirpapp;
 
 import android.Manifest;
-import android.net.Uri;
-import android.content.ContentResolver;
-import android.content.ContentValues;
 import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Environment;
-import android.provider.MediaStore;
 import android.text.Editable;
 import android.text.TextWatcher;
 import android.util.Log;
 import android.view.View;
 import android.widget.Button;
+import android.widget.CheckBox;
 import android.widget.EditText;
 import android.widget.SeekBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import androidx.annotation.RequiresApi;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
 
 public class MainActivity extends AppCompatActivity {
 
@@ -39,6 +36,14 @@ public class MainActivity extends AppCompatActivity {
             Manifest.permission.WRITE_EXTERNAL_STORAGE,
             Manifest.permission.READ_EXTERNAL_STORAGE
     };
+    // Directory of the session files, and of their copies in Downloads
+    private static final String EXPORT_DIRECTORY = "AudioChirpData";
+    // Size and mtime of the exported files, kept outside of the exported directory
+    private static final String EXPORT_MANIFEST = "export_manifest.txt";
+    // Files copied at the same time
+    private static final int EXPORT_THREADS = 3;
+    // Deflate level of ZIP exports, 9 shrinks recording CSVs a fifth more in seven times as long
+    private static final int ARCHIVE_LEVEL = 6;
 
     // UI elements
     private SeekBar leftFreqSeekBar, leftBwSeekBar;
@@ -48,9 +53,16 @@ public class MainActivity extends AppCompatActivity {
     private EditText leftFreqValue, leftBwValue;
     private EditText rightFreqValue, rightBwValue;
     private EditText durationValue;
+    private EditText repeatIntervalValue;
+    private EditText sweepSpecValue;
     private EditText outputFilename;
+    private CheckBox saveRawCheckBox;
+    private CheckBox compressRecordingCheckBox;
+    private CheckBox saveWavCheckBox;
+    private CheckBox zipExportCheckBox;
 
-    private Button startButton, stopButton;
+    private Button startButton, stopButton, runSweepButton;
+    private Button exportButton;
     private TextView statusText;
 
     // Audio control objects
@@ -64,11 +76,15 @@ public class MainActivity extends AppCompatActivity {
     private int rightFrequency = 2000;
     private int rightBandwidth = 500;
     private int duration = 1000;
+    private int repeatInterval = 0;
     private String filename = "chirp_test";
 
     // State variables
     private boolean isRunning = false;
     private Thread processingThread;
+    private ExperimentRunner experimentRunner;
+    private FileExporter fileExporter;
+    private SessionArchiver sessionArchiver;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -107,11 +123,18 @@ public class MainActivity extends AppCompatActivity {
         rightFreqValue = findViewById(R.id.rightFreqValue);
         rightBwValue = findViewById(R.id.rightBwValue);
         durationValue = findViewById(R.id.durationValue);
+        repeatIntervalValue = findViewById(R.id.repeatIntervalValue);
+        sweepSpecValue = findViewById(R.id.sweepSpecValue);
         outputFilename = findViewById(R.id.outputFilename);
+        saveRawCheckBox = findViewById(R.id.saveRawCheckBox);
+        compressRecordingCheckBox = findViewById(R.id.compressRecordingCheckBox);
+        saveWavCheckBox = findViewById(R.id.saveWavCheckBox);
+        zipExportCheckBox = findViewById(R.id.zipExportCheckBox);
 
         // Buttons
         startButton = findViewById(R.id.startButton);
         stopButton = findViewById(R.id.stopButton);
+        runSweepButton = findViewById(R.id.runSweepButton);
 
         // TextView
         statusText = findViewById(R.id.statusText);
@@ -133,8 +156,15 @@ public class MainActivity extends AppCompatActivity {
             }
         });
 
+        runSweepButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                runExperiment();
+            }
+        });
+
         // Export button listener
-        Button exportButton = findViewById(R.id.exportButton);
+        exportButton = findViewById(R.id.exportButton);
         exportButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
@@ -227,6 +257,13 @@ public class MainActivity extends AppCompatActivity {
         } catch (NumberFormatException e) {
             e.printStackTrace();
         }
+
+        // An empty or invalid interval means single chirps, never the interval of an earlier run
+        try {
+            repeatInterval = Integer.parseInt(repeatIntervalValue.getText().toString().trim());
+        } catch (NumberFormatException e) {
+            repeatInterval = 0;
+        }
     }
 
     private void checkPermissions() {
@@ -266,22 +303,33 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
-    private void startChirp() {
-        // Check permissions first
+    private boolean hasPermissions() {
         for (String permission : PERMISSIONS) {
             if (ContextCompat.checkSelfPermission(MainActivity.this, permission)
                     != PackageManager.PERMISSION_GRANTED) {
                 Toast.makeText(this, "Permissions required", Toast.LENGTH_SHORT).show();
-                return;
+                return false;
             }
         }
+        return true;
+    }
+
+    private void startChirp() {
+        // Check permissions first
+        if (!hasPermissions()) {
+            return;
+        }
 
         if (isRunning) {
             return;
         }
 
+        // Start of the press-to-first-sample latency
+        final long pressNanos = MonotonicClock.SYSTEM.nanoTime();
+
         isRunning = true;
         startButton.setEnabled(false);
+        runSweepButton.setEnabled(false);
         stopButton.setEnabled(true);
         statusText.setText("Recording...");
 
@@ -289,6 +337,10 @@ public class MainActivity extends AppCompatActivity {
         updateParameters();
 
         // Initialize DataManager with current timestamp and filename
+        dataManager.setRawRecordingEnabled(saveRawCheckBox.isChecked());
+        dataManager.setRecordingFormat(compressRecordingCheckBox.isChecked()
+                ? RecordingFormat.RICE : RecordingFormat.BINARY);
+        dataManager.setWavOutputEnabled(saveWavCheckBox.isChecked());
         dataManager.initialize(filename);
 
         // Start recording audio
@@ -306,13 +358,19 @@ public class MainActivity extends AppCompatActivity {
                     final ChirpParams leftParams = new ChirpParams(leftFrequency, leftBandwidth, duration);
                     final ChirpParams rightParams = new ChirpParams(rightFrequency, rightBandwidth, duration);
 
+                    audioPlayer.setDataManager(dataManager);
+
+                    if (repeatInterval > 0) {
+                        // Each chirp is logged as it is played, runs until Stop is pressed
+                        audioPlayer.playChirpRepeated(leftParams, rightParams, repeatInterval, pressNanos);
+                        return;
+                    }
+
                     // Log chirp parameters to CSV
                     dataManager.logChirpParameters(leftParams, rightParams);
 
-                    audioPlayer.setDataManager(dataManager);
-
                     // Play the chirp
-                    audioPlayer.playChirp(leftParams, rightParams);
+                    audioPlayer.playChirp(leftParams, rightParams, pressNanos);
 
                     // Continue recording for a bit after chirp
                     Thread.sleep(duration + 1000);
@@ -321,8 +379,11 @@ public class MainActivity extends AppCompatActivity {
                     runOnUiThread(new Runnable() {
                         @Override
                         public void run() {
+                            double latencyMs = audioPlayer.getLastStartLatencyMs();
                             stopChirp();
-                            Toast.makeText(MainActivity.this, "Chirp completed", Toast.LENGTH_SHORT).show();
+                            String message = latencyMs < 0 ? "Chirp completed" : String.format(Locale.US,
+                                    "Chirp completed, first sample %.0fms after Start", latencyMs);
+                            Toast.makeText(MainActivity.this, message, Toast.LENGTH_SHORT).show();
                         }
                     });
                 } catch (final Exception e) {
@@ -342,6 +403,74 @@ public class MainActivity extends AppCompatActivity {
         Toast.makeText(this, "Recording and chirp started", Toast.LENGTH_SHORT).show();
     }
 
+    /**
+     * Plays every trial of the experiment grid in one recording session
+     */
+    private void runExperiment() {
+        if (!hasPermissions() || isRunning) {
+            return;
+        }
+
+        updateParameters();
+
+        final List<Trial> trials;
+        try {
+            trials = ParameterGrid.parseTrials(sweepSpecValue.getText().toString(),
+                    new ChirpParams(leftFrequency, leftBandwidth, duration),
+                    new ChirpParams(rightFrequency, rightBandwidth, duration));
+        } catch (IllegalArgumentException e) {
+            Toast.makeText(this, "Invalid grid: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            return;
+        }
+
+        isRunning = true;
+        startButton.setEnabled(false);
+        runSweepButton.setEnabled(false);
+        stopButton.setEnabled(true);
+        statusText.setText("Trial 0/" + trials.size());
+
+        // One session for all trials
+        dataManager.setRawRecordingEnabled(saveRawCheckBox.isChecked());
+        dataManager.setRecordingFormat(compressRecordingCheckBox.isChecked()
+                ? RecordingFormat.RICE : RecordingFormat.BINARY);
+        dataManager.setWavOutputEnabled(saveWavCheckBox.isChecked());
+        dataManager.initialize(filename);
+        audioRecorder.startRecording(dataManager);
+        audioPlayer.setDataManager(dataManager);
+
+        experimentRunner = new ExperimentRunner(trials, audioPlayer, dataManager, new ExperimentRunner.Listener() {
+            @Override
+            public void onTrialStarted(final Trial trial, final int trialCount) {
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        statusText.setText("Trial " + (trial.getIndex() + 1) + "/" + trialCount);
+                    }
+                });
+            }
+
+            @Override
+            public void onFinished(final int completedTrials, boolean cancelled) {
+                if (cancelled) {
+                    // Stopped from stopChirp, which cleans up
+                    return;
+                }
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        stopChirp();
+                        Toast.makeText(MainActivity.this, completedTrials + " trials completed",
+                                Toast.LENGTH_SHORT).show();
+                    }
+                });
+            }
+        });
+
+        processingThread = new Thread(experimentRunner, "ExperimentRunner");
+        processingThread.start();
+        Toast.makeText(this, "Experiment of " + trials.size() + " trials started", Toast.LENGTH_SHORT).show();
+    }
+
     private void stopChirp() {
         if (!isRunning) {
             return;
@@ -349,13 +478,25 @@ public class MainActivity extends AppCompatActivity {
 
         isRunning = false;
         startButton.setEnabled(true);
+        runSweepButton.setEnabled(true);
         stopButton.setEnabled(false);
 
+        if (experimentRunner != null) {
+            // Let the runner leave playChirp before the player is released
+            experimentRunner.cancel();
+            try {
+                processingThread.join(1000);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+            experimentRunner = null;
+        }
+
         // Stop recording
         audioRecorder.stopRecording();
 
-        // Stop audio playback
-        audioPlayer.stopPlaying();
+        // Stop audio playback and close the session's tracks
+        audioPlayer.release();
 
         // Finalize data saving
         dataManager.finalize();
@@ -369,78 +510,155 @@ public class MainActivity extends AppCompatActivity {
         Log.i("MainActivity", "Files location: " + directory);
     }
 
+    /**
+     * Copies the session files to Downloads/AudioChirpData in the background,
+     * skipping the files exported before that did not change since, or packs
+     * them all into one ZIP archive there
+     */
     private void exportToDownloads() {
-        File sourceDir = new File(getFilesDir(), "AudioChirpData");
-        File[] files = sourceDir.listFiles();
+        if (fileExporter != null || sessionArchiver != null) {
+            Toast.makeText(this, "Export already running", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        File sourceDir = new File(getFilesDir(), EXPORT_DIRECTORY);
+        final File[] files = sourceDir.listFiles();
 
         if (files == null || files.length == 0) {
             Toast.makeText(this, "No files to export", Toast.LENGTH_SHORT).show();
             return;
         }
 
+        FileExporter.Destination destination;
         // For Android 10+ (API 29+)
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-            exportWithMediaStore(files);
+            destination = new MediaStoreDestination(getContentResolver(),
+                    Environment.DIRECTORY_DOWNLOADS + "/" + EXPORT_DIRECTORY);
         } else {
             // For older Android versions
-            exportDirectly(files);
+            destination = new FileExporter.DirectoryDestination(new File(
+                    Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS),
+                    EXPORT_DIRECTORY));
         }
-    }
 
-    @RequiresApi(api = Build.VERSION_CODES.Q)
-    private void exportWithMediaStore(File[] files) {
-        ContentResolver resolver = getContentResolver();
-
-        for (File file : files) {
-            ContentValues values = new ContentValues();
-            values.put(MediaStore.Downloads.DISPLAY_NAME, file.getName());
-            values.put(MediaStore.Downloads.MIME_TYPE, "text/csv");
-            values.put(MediaStore.Downloads.RELATIVE_PATH,
-                    Environment.DIRECTORY_DOWNLOADS + "/AudioChirpData");
-
-            Uri uri = resolver.insert(MediaStore.Downloads.EXTERNAL_CONTENT_URI, values);
+        final CharSequence exportLabel = exportButton.getText();
+        exportButton.setEnabled(false);
+        if (zipExportCheckBox.isChecked()) {
+            exportArchive(files, destination, exportLabel);
+        } else {
+            exportFiles(files, destination, exportLabel);
+        }
+    }
 
-            try (InputStream in = new FileInputStream(file);
-                 OutputStream out = resolver.openOutputStream(uri)) {
+    private void exportFiles(final File[] files, FileExporter.Destination destination,
+                             final CharSequence exportLabel) {
+        final ExportManifest manifest = new ExportManifest(new File(getFilesDir(), EXPORT_MANIFEST));
+        final FileExporter exporter = new FileExporter(destination, manifest, EXPORT_THREADS,
+                createExportListener("Exporting"));
+        fileExporter = exporter;
 
-                byte[] buffer = new byte[1024];
-                int length;
-                while ((length = in.read(buffer)) > 0) {
-                    out.write(buffer, 0, length);
+        Thread exportThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                FileExporter.Result result = exporter.export(files);
+                final String message;
+                if (result.isCancelled()) {
+                    message = "Export cancelled";
+                } else if (result.getFailed() > 0) {
+                    message = result.getFailed() + " files could not be exported";
+                } else {
+                    message = String.format(Locale.US, "%d files exported to Downloads/%s, %d unchanged",
+                            result.getCopied(), EXPORT_DIRECTORY, result.getSkipped());
                 }
-
-            } catch (IOException e) {
-                e.printStackTrace();
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        fileExporter = null;
+                        finishExport(exportLabel, message);
+                    }
+                });
             }
-        }
-        Toast.makeText(this, "Files exported to Downloads/AudioChirpData",
-                Toast.LENGTH_LONG).show();
+        }, "FileExporter");
+        exportThread.start();
     }
 
-    private void exportDirectly(File[] files) {
-        File destDir = new File(Environment.getExternalStoragePublicDirectory(
-                Environment.DIRECTORY_DOWNLOADS), "AudioChirpData");
+    private void exportArchive(final File[] files, final FileExporter.Destination destination,
+                               final CharSequence exportLabel) {
+        final String archiveName = EXPORT_DIRECTORY + "_"
+                + new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date())
+                + SessionArchiver.FILE_EXTENSION;
+        final SessionArchiver archiver = new SessionArchiver(getCacheDir(), EXPORT_THREADS,
+                ARCHIVE_LEVEL, createExportListener("Compressing"));
+        sessionArchiver = archiver;
 
-        if (!destDir.exists()) {
-            destDir.mkdirs();
-        }
+        Thread exportThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                String message;
+                try {
+                    try (WritableByteChannel out = destination.open(archiveName)) {
+                        archiver.archive(files, out);
+                    }
+                    message = String.format(Locale.US, "%d files archived to Downloads/%s/%s, %.1fx smaller",
+                            archiver.getEntryCount(), EXPORT_DIRECTORY, archiveName,
+                            archiver.getInputBytes() / (double) Math.max(1, archiver.getArchiveBytes()));
+                } catch (IOException e) {
+                    Log.e("MainActivity", "Archive failed", e);
+                    message = "Archive failed: " + e.getMessage();
+                    // An incomplete archive is of no use
+                    try {
+                        destination.delete(archiveName);
+                    } catch (IOException deleteError) {
+                        deleteError.printStackTrace();
+                    }
+                }
+                final String result = message;
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        sessionArchiver = null;
+                        finishExport(exportLabel, result);
+                    }
+                });
+            }
+        }, "SessionArchiver");
+        exportThread.start();
+    }
 
-        for (File file : files) {
-            File destFile = new File(destDir, file.getName());
-            try (FileInputStream in = new FileInputStream(file);
-                 FileOutputStream out = new FileOutputStream(destFile)) {
+    /**
+     * @param action Verb shown on the export button with the progress
+     * @return Listener showing the progress of an export on the export button
+     */
+    private FileExporter.Listener createExportListener(final String action) {
+        return new FileExporter.Listener() {
+            private int lastPercent = -1;
 
-                byte[] buffer = new byte[1024];
-                int length;
-                while ((length = in.read(buffer)) > 0) {
-                    out.write(buffer, 0, length);
+            @Override
+            public void onProgress(long bytesDone, long bytesTotal, int filesDone, int filesTotal) {
+                final int percent = bytesTotal > 0 ? (int) Math.min(100, bytesDone * 100 / bytesTotal) : 100;
+                // Called per chunk by several threads, only post visible changes
+                synchronized (this) {
+                    if (percent == lastPercent) {
+                        return;
+                    }
+                    lastPercent = percent;
                 }
-            } catch (IOException e) {
-                e.printStackTrace();
+                final String text = String.format(Locale.US, "%s %d/%d files, %d%%",
+                        action, filesDone, filesTotal, percent);
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        exportButton.setText(text);
+                    }
+                });
             }
-        }
-        Toast.makeText(this, "Files exported to Downloads/AudioChirpData",
-                Toast.LENGTH_LONG).show();
+        };
+    }
+
+    private void finishExport(CharSequence exportLabel, String message) {
+        exportButton.setText(exportLabel);
+        exportButton.setEnabled(true);
+        Toast.makeText(this, message, Toast.LENGTH_LONG).show();
     }
 
     @Override
@@ -456,5 +674,13 @@ public class MainActivity extends AppCompatActivity {
         if (processingThread != null && processingThread.isAlive()) {
             processingThread.interrupt();
         }
+
+        // Files not copied yet are exported again next time
+        if (fileExporter != null) {
+            fileExporter.cancel();
+        }
+        if (sessionArchiver != null) {
+            sessionArchiver.cancel();
+        }
     }
 }
\ No newline at end of file
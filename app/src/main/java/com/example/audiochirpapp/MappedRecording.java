@@ -0,0 +1,167 @@
+package com.example.audiochirpapp;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Random access to the samples of a finished binary recording
+ *
+ * The file is memory-mapped and located through its {@link SessionIndex},
+ * so any window is found without reading the samples before it. A window
+ * inside one block is returned as a view of the mapping; one spanning
+ * several blocks is copied, as the blocks are separated by record headers.
+ * Frames that were not recorded read as 0. Safe for concurrent reads.
+ */
+public class MappedRecording implements Closeable {
+    private final FileInputStream inputStream;
+    private final FileChannel channel;
+    private final SessionIndex index;
+    // Null if the file is too large to map at once, windows are then mapped one by one
+    private final MappedByteBuffer mapping;
+
+    /**
+     * Opens a recording and loads its index
+     *
+     * @param recordingFile Binary recording
+     * @throws IOException If the recording cannot be read or is corrupt
+     */
+    public MappedRecording(File recordingFile) throws IOException {
+        this.index = SessionIndex.load(recordingFile);
+        this.inputStream = new FileInputStream(recordingFile);
+        this.channel = inputStream.getChannel();
+
+        try {
+            long size = channel.size();
+            mapping = size <= Integer.MAX_VALUE ? channel.map(FileChannel.MapMode.READ_ONLY, 0, size) : null;
+        } catch (IOException e) {
+            inputStream.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The index of the recording
+     */
+    public SessionIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the samples of a range of frames
+     *
+     * @param firstFrame Frame index of the first frame
+     * @param frameCount Number of frames
+     * @return Read-only buffer of frameCount interleaved frames, positioned at 0
+     * @throws IOException If a window cannot be mapped
+     */
+    public ShortBuffer getFrames(long firstFrame, int frameCount) throws IOException {
+        int channels = index.getChannelCount();
+        long endFrame = firstFrame + frameCount;
+
+        int block = index.findBlock(firstFrame);
+        if (block >= 0 && endFrame <= index.getBlockFrame(block) + index.getBlockFrameCount(block)) {
+            long offset = index.getBlockOffset(block) + (firstFrame - index.getBlockFrame(block)) * channels * 2;
+            return map(offset, frameCount * channels);
+        }
+
+        ShortBuffer frames = ShortBuffer.allocate(frameCount * channels);
+        for (block = Math.max(index.findBlockBefore(firstFrame), 0);
+             block < index.getBlockCount() && index.getBlockFrame(block) < endFrame; block++) {
+            long blockFrame = index.getBlockFrame(block);
+            long from = Math.max(firstFrame, blockFrame);
+            long to = Math.min(endFrame, blockFrame + index.getBlockFrameCount(block));
+            if (from >= to) {
+                continue;
+            }
+
+            ShortBuffer source = map(index.getBlockOffset(block) + (from - blockFrame) * channels * 2,
+                    (int) (to - from) * channels);
+            frames.position((int) (from - firstFrame) * channels);
+            frames.put(source);
+        }
+        frames.clear();
+        return frames.asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the samples captured during a time window
+     *
+     * @param relativeNanos Start of the window since the session start
+     * @param frameCount Number of frames
+     * @return Read-only buffer of frameCount interleaved frames, positioned at 0
+     * @throws IOException If a window cannot be mapped
+     */
+    public ShortBuffer getWindowAt(long relativeNanos, int frameCount) throws IOException {
+        return getFrames(index.frameAtTime(relativeNanos), frameCount);
+    }
+
+    /**
+     * Returns the samples around a chirp
+     *
+     * @param chirp Chirp number, in the order the chirps were played
+     * @param framesBefore Frames to include before the chirp start
+     * @param frameCount Number of frames
+     * @return Read-only buffer of frameCount interleaved frames, positioned at 0
+     * @throws IOException If a window cannot be mapped
+     */
+    public ShortBuffer getChirpWindow(int chirp, int framesBefore, int frameCount) throws IOException {
+        return getFrames(index.getChirpFrame(chirp) - framesBefore, frameCount);
+    }
+
+    /**
+     * @param chirp Chirp number, in the order the chirps were played
+     * @return Left channel parameters of the chirp
+     * @throws IOException If the chirp record cannot be read
+     */
+    public ChirpParams getChirpLeftParams(int chirp) throws IOException {
+        return readChirpParams(chirp, 0);
+    }
+
+    /**
+     * @param chirp Chirp number, in the order the chirps were played
+     * @return Right channel parameters of the chirp
+     * @throws IOException If the chirp record cannot be read
+     */
+    public ChirpParams getChirpRightParams(int chirp) throws IOException {
+        return readChirpParams(chirp, 1);
+    }
+
+    private ChirpParams readChirpParams(int chirp, int channelNumber) throws IOException {
+        // Skip the record header, the time and the frame index
+        long offset = index.getChirpOffset(chirp) + BinarySessionFormat.RECORD_HEADER_SIZE + 8 + 8
+                + channelNumber * 3 * 4;
+        ByteBuffer params = ByteBuffer.allocate(3 * 4).order(ByteOrder.LITTLE_ENDIAN);
+        while (params.hasRemaining()) {
+            if (channel.read(params, offset + params.position()) < 0) {
+                throw new IOException("Truncated chirp record");
+            }
+        }
+        params.flip();
+        return new ChirpParams(params.getInt(), params.getInt(), params.getInt());
+    }
+
+    private ShortBuffer map(long offset, int sampleCount) throws IOException {
+        ByteBuffer bytes;
+        if (mapping != null) {
+            bytes = mapping.duplicate();
+            bytes.position((int) offset);
+            bytes.limit((int) offset + sampleCount * 2);
+            bytes = bytes.slice();
+        } else {
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, offset, sampleCount * 2L);
+        }
+        return bytes.order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.audiochirpapp;
+
+/**
+ * Streaming cross-correlation of a signal against a fixed template, computed
+ * with FFT overlap-save
+ *
+ * Output value n is sum(x[n + k] * h[k]) / sum(h[k]^2), so a copy of the
+ * template starting at frame n scaled by a gives a peak of a at n. Each FFT
+ * of size N yields N - M + 1 outputs for a template of length M. Not thread safe.
+ */
+public class MatchedFilter {
+
+    /**
+     * Receives correlation values as they become available
+     */
+    public interface Output {
+        /**
+         * @param values Correlation values, only valid until the method returns
+         * @param count Number of valid values
+         * @param firstFrame Frame index of the first value
+         */
+        void onCorrelation(double[] values, int count, long firstFrame);
+    }
+
+    private final int templateLength;
+    private final int hop;
+    private final Fft fft;
+    // Packed spectrum of the zero-padded template, divided by its energy
+    private final double[] templateSpectrum;
+
+    private final double[] segment;
+    private final double[] work;
+    private final double[] output;
+    private int fill = 0;
+    private long segmentStartFrame = 0;
+
+    /**
+     * @param template Template samples
+     * @param length Number of template samples to use
+     */
+    public MatchedFilter(short[] template, int length) {
+        if (length < 1 || length > template.length) {
+            throw new IllegalArgumentException("Invalid template length: " + length);
+        }
+        this.templateLength = length;
+        int fftSize = Math.max(2, Integer.highestOneBit(2 * length - 1) << 1);
+        this.hop = fftSize - length + 1;
+        this.fft = new Fft(fftSize);
+
+        double energy = 0;
+        templateSpectrum = new double[fftSize];
+        for (int i = 0; i < length; i++) {
+            templateSpectrum[i] = template[i];
+            energy += (double) template[i] * template[i];
+        }
+        fft.realForward(templateSpectrum);
+        double scale = energy > 0 ? 1.0 / energy : 0;
+        for (int i = 0; i < fftSize; i++) {
+            templateSpectrum[i] *= scale;
+        }
+
+        segment = new double[fftSize];
+        work = new double[fftSize];
+        output = new double[hop];
+    }
+
+    /**
+     * Discards any buffered input and restarts the stream
+     *
+     * @param startFrame Frame index of the next input sample
+     */
+    public void reset(long startFrame) {
+        fill = 0;
+        segmentStartFrame = startFrame;
+    }
+
+    /**
+     * Appends input samples, emitting the correlation for every completed segment
+     *
+     * @param data Input samples
+     * @param offset Index of the first sample
+     * @param length Number of samples
+     * @param out Receiver of the correlation values
+     */
+    public void process(short[] data, int offset, int length, Output out) {
+        int end = offset + length;
+        while (offset < end) {
+            int count = Math.min(end - offset, segment.length - fill);
+            for (int i = 0; i < count; i++) {
+                segment[fill + i] = data[offset + i];
+            }
+            fill += count;
+            offset += count;
+
+            if (fill == segment.length) {
+                correlateSegment(out);
+            }
+        }
+    }
+
+    /**
+     * @return Frame index of the next input sample
+     */
+    public long getNextInputFrame() {
+        return segmentStartFrame + fill;
+    }
+
+    /**
+     * @return Frame index of the next correlation value to be emitted
+     */
+    public long getNextOutputFrame() {
+        return segmentStartFrame;
+    }
+
+    /**
+     * @return Number of template samples
+     */
+    public int getTemplateLength() {
+        return templateLength;
+    }
+
+    private void correlateSegment(Output out) {
+        int n = segment.length;
+        System.arraycopy(segment, 0, work, 0, n);
+        fft.realForward(work);
+
+        // Multiply by the conjugated template spectrum; bins 0 and N/2 are real
+        work[0] *= templateSpectrum[0];
+        work[1] *= templateSpectrum[1];
+        for (int i = 2; i < n; i += 2) {
+            double xr = work[i];
+            double xi = work[i + 1];
+            double hr = templateSpectrum[i];
+            double hi = templateSpectrum[i + 1];
+            work[i] = xr * hr + xi * hi;
+            work[i + 1] = xi * hr - xr * hi;
+        }
+        fft.realInverse(work);
+
+        // The first N - M + 1 values are free of circular wrap-around
+        System.arraycopy(work, 0, output, 0, hop);
+        out.onCorrelation(output, hop, segmentStartFrame);
+
+        // Keep the last M - 1 samples, they start the next segment
+        System.arraycopy(segment, hop, segment, 0, templateLength - 1);
+        fill = templateLength - 1;
+        segmentStartFrame += hop;
+    }
+}
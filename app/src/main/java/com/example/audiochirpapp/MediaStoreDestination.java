@@ -0,0 +1,105 @@
+package com.example.audiochirpapp;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.os.ParcelFileDescriptor;
+import android.provider.MediaStore;
+
+import androidx.annotation.RequiresApi;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Export destination in the shared Downloads collection, for Android 10+
+ *
+ * A copy is written through the ParcelFileDescriptor of its MediaStore
+ * entry, so {@link FileExporter} copies file to file. An existing entry of
+ * the same name is overwritten rather than duplicated.
+ */
+@RequiresApi(api = Build.VERSION_CODES.Q)
+public class MediaStoreDestination implements FileExporter.Destination {
+    private final ContentResolver resolver;
+    private final String relativePath;
+
+    /**
+     * @param resolver Content resolver of the app
+     * @param relativePath Directory of the copies, e.g. "Download/AudioChirpData"
+     */
+    public MediaStoreDestination(ContentResolver resolver, String relativePath) {
+        this.resolver = resolver;
+        // MediaStore stores directories with a trailing slash
+        this.relativePath = relativePath.endsWith("/") ? relativePath : relativePath + "/";
+    }
+
+    @Override
+    public boolean exists(String name) throws IOException {
+        return find(name) != null;
+    }
+
+    @Override
+    public WritableByteChannel open(String name) throws IOException {
+        Uri uri = find(name);
+        String mode = "wt";
+        if (uri == null) {
+            ContentValues values = new ContentValues();
+            values.put(MediaStore.Downloads.DISPLAY_NAME, name);
+            values.put(MediaStore.Downloads.MIME_TYPE, mimeType(name));
+            values.put(MediaStore.Downloads.RELATIVE_PATH, relativePath);
+            uri = resolver.insert(MediaStore.Downloads.EXTERNAL_CONTENT_URI, values);
+            mode = "w";
+        }
+        if (uri == null) {
+            throw new IOException("Could not create " + relativePath + name);
+        }
+        ParcelFileDescriptor descriptor = resolver.openFileDescriptor(uri, mode);
+        if (descriptor == null) {
+            throw new IOException("Could not open " + uri);
+        }
+        // Closing the channel closes the descriptor
+        return new ParcelFileDescriptor.AutoCloseOutputStream(descriptor).getChannel();
+    }
+
+    @Override
+    public void delete(String name) throws IOException {
+        Uri uri = find(name);
+        if (uri != null) {
+            resolver.delete(uri, null, null);
+        }
+    }
+
+    /**
+     * @return Entry of the app's copy of that name, or null if there is none
+     */
+    private Uri find(String name) throws IOException {
+        String selection = MediaStore.Downloads.DISPLAY_NAME + "=? AND "
+                + MediaStore.Downloads.RELATIVE_PATH + "=?";
+        try (Cursor cursor = resolver.query(MediaStore.Downloads.EXTERNAL_CONTENT_URI,
+                new String[]{MediaStore.Downloads._ID}, selection, new String[]{name, relativePath}, null)) {
+            if (cursor == null) {
+                throw new IOException("Could not query the Downloads collection");
+            }
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            return ContentUris.withAppendedId(MediaStore.Downloads.EXTERNAL_CONTENT_URI, cursor.getLong(0));
+        }
+    }
+
+    private static String mimeType(String name) {
+        if (name.endsWith(".csv")) {
+            return "text/csv";
+        }
+        if (name.endsWith(WavWriter.FILE_EXTENSION)) {
+            return "audio/wav";
+        }
+        if (name.endsWith(SessionArchiver.FILE_EXTENSION)) {
+            return "application/zip";
+        }
+        return "application/octet-stream";
+    }
+}
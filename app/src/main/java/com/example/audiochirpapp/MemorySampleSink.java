@@ -0,0 +1,165 @@
+package com.example.audiochirpapp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps a recording in memory, for tests and short captures. Not thread safe.
+ */
+public class MemorySampleSink implements SampleSink {
+
+    /**
+     * A block as it was written
+     */
+    public static class Block {
+        private final short[] samples;
+        private final long epochNanos;
+        private final long frameIndex;
+
+        Block(short[] samples, long epochNanos, long frameIndex) {
+            this.samples = samples;
+            this.epochNanos = epochNanos;
+            this.frameIndex = frameIndex;
+        }
+
+        public short[] getSamples() {
+            return samples;
+        }
+
+        public long getEpochNanos() {
+            return epochNanos;
+        }
+
+        public long getFrameIndex() {
+            return frameIndex;
+        }
+    }
+
+    /**
+     * A chirp event as it was written
+     */
+    public static class Chirp {
+        private final long epochNanos;
+        private final long frameIndex;
+        private final ChirpParams leftParams;
+        private final ChirpParams rightParams;
+
+        Chirp(long epochNanos, long frameIndex, ChirpParams leftParams, ChirpParams rightParams) {
+            this.epochNanos = epochNanos;
+            this.frameIndex = frameIndex;
+            this.leftParams = leftParams;
+            this.rightParams = rightParams;
+        }
+
+        public long getEpochNanos() {
+            return epochNanos;
+        }
+
+        public long getFrameIndex() {
+            return frameIndex;
+        }
+
+        public ChirpParams getLeftParams() {
+            return leftParams;
+        }
+
+        public ChirpParams getRightParams() {
+            return rightParams;
+        }
+    }
+
+    private final int channelCount;
+    private final List<Block> blocks = new ArrayList<>();
+    private final List<Chirp> chirps = new ArrayList<>();
+    private long framesWritten = 0;
+    private int flushCount = 0;
+    private int syncCount = 0;
+    private boolean closed = false;
+
+    /**
+     * @param channelCount Number of interleaved channels per frame
+     */
+    public MemorySampleSink(int channelCount) {
+        this.channelCount = channelCount;
+    }
+
+    @Override
+    public void writeBlock(short[] samples, int offset, int length, long epochNanos, long frameIndex) {
+        blocks.add(new Block(Arrays.copyOfRange(samples, offset, offset + length), epochNanos, frameIndex));
+        framesWritten += length / channelCount;
+    }
+
+    @Override
+    public void writeChirp(long epochNanos, long frameIndex, ChirpParams leftParams, ChirpParams rightParams) {
+        chirps.add(new Chirp(epochNanos, frameIndex, leftParams, rightParams));
+    }
+
+    @Override
+    public int getChannelCount() {
+        return channelCount;
+    }
+
+    @Override
+    public long getFramesWritten() {
+        return framesWritten;
+    }
+
+    @Override
+    public void flush() {
+        flushCount++;
+    }
+
+    @Override
+    public void sync() {
+        syncCount++;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    public List<Block> getBlocks() {
+        return blocks;
+    }
+
+    public List<Chirp> getChirps() {
+        return chirps;
+    }
+
+    /**
+     * @return All samples written, in order
+     */
+    public short[] getSamples() {
+        int total = 0;
+        for (Block block : blocks) {
+            total += block.samples.length;
+        }
+        short[] samples = new short[total];
+        int position = 0;
+        for (Block block : blocks) {
+            System.arraycopy(block.samples, 0, samples, position, block.samples.length);
+            position += block.samples.length;
+        }
+        return samples;
+    }
+
+    /**
+     * @return Number of {@link #flush()} calls
+     */
+    public int getFlushCount() {
+        return flushCount;
+    }
+
+    /**
+     * @return Number of {@link #sync()} calls
+     */
+    public int getSyncCount() {
+        return syncCount;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+}
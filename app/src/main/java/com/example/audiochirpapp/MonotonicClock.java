@@ -0,0 +1,32 @@
+package com.example.audiochirpapp;
+
+/**
+ * Source of the current time, so timing code can be tested with a fake clock
+ */
+public interface MonotonicClock {
+    /**
+     * The system clock. On Android System.nanoTime() reads CLOCK_MONOTONIC,
+     * the same timebase as AudioTimestamp.TIMEBASE_MONOTONIC.
+     */
+    MonotonicClock SYSTEM = new MonotonicClock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    /**
+     * @return Monotonic time in nanoseconds
+     */
+    long nanoTime();
+
+    /**
+     * @return Wall-clock time in milliseconds since the epoch
+     */
+    long currentTimeMillis();
+}
@@ -0,0 +1,210 @@
+package com.example.audiochirpapp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Grid of chirp parameters, expanded into one trial per combination
+ *
+ * A grid is written as axis=values pairs separated by ';', for example
+ * <pre>leftFreq=1000:4000:1000; rightBw=500,1000; duration=100; repeats=3</pre>
+ * Values are a comma separated list or an inclusive start:end:step range.
+ * Axes that are not given keep the value of the default parameters.
+ * Several grids, one per line, make a list of trials, see {@link #parseTrials}.
+ */
+public class ParameterGrid {
+    public static final String LEFT_FREQUENCY = "leftFreq";
+    public static final String LEFT_BANDWIDTH = "leftBw";
+    public static final String RIGHT_FREQUENCY = "rightFreq";
+    public static final String RIGHT_BANDWIDTH = "rightBw";
+    public static final String DURATION = "duration";
+    public static final String REPEATS = "repeats";
+
+    // Keeps a mistyped range from queuing days of trials
+    private static final int MAX_TRIALS = 10000;
+
+    private List<Integer> leftFrequencies;
+    private List<Integer> leftBandwidths;
+    private List<Integer> rightFrequencies;
+    private List<Integer> rightBandwidths;
+    private List<Integer> durations;
+    private int repeats = 1;
+
+    /**
+     * Creates a grid with a single point
+     *
+     * @param leftParams Left channel parameters
+     * @param rightParams Right channel parameters, the duration is taken from the left channel
+     */
+    public ParameterGrid(ChirpParams leftParams, ChirpParams rightParams) {
+        leftFrequencies = Collections.singletonList(leftParams.getCenterFrequency());
+        leftBandwidths = Collections.singletonList(leftParams.getBandwidth());
+        rightFrequencies = Collections.singletonList(rightParams.getCenterFrequency());
+        rightBandwidths = Collections.singletonList(rightParams.getBandwidth());
+        durations = Collections.singletonList(leftParams.getDuration());
+    }
+
+    /**
+     * Parses a grid description
+     *
+     * @param spec Grid description, see the class comment
+     * @param defaultLeft Left channel values for the axes that are not given
+     * @param defaultRight Right channel values for the axes that are not given
+     * @return The grid
+     * @throws IllegalArgumentException If the description is malformed
+     */
+    public static ParameterGrid parse(String spec, ChirpParams defaultLeft, ChirpParams defaultRight) {
+        ParameterGrid grid = new ParameterGrid(defaultLeft, defaultRight);
+
+        for (String entry : spec.split(";")) {
+            entry = entry.trim();
+            if (entry.isEmpty()) {
+                continue;
+            }
+            int equals = entry.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Expected axis=values: " + entry);
+            }
+            String axis = entry.substring(0, equals).trim();
+            List<Integer> values = parseValues(entry.substring(equals + 1));
+
+            if (axis.equals(LEFT_FREQUENCY)) {
+                grid.leftFrequencies = values;
+            } else if (axis.equals(LEFT_BANDWIDTH)) {
+                grid.leftBandwidths = values;
+            } else if (axis.equals(RIGHT_FREQUENCY)) {
+                grid.rightFrequencies = values;
+            } else if (axis.equals(RIGHT_BANDWIDTH)) {
+                grid.rightBandwidths = values;
+            } else if (axis.equals(DURATION)) {
+                grid.durations = values;
+            } else if (axis.equals(REPEATS)) {
+                if (values.size() != 1 || values.get(0) < 1) {
+                    throw new IllegalArgumentException("repeats takes one positive value");
+                }
+                grid.repeats = values.get(0);
+            } else {
+                throw new IllegalArgumentException("Unknown axis: " + axis);
+            }
+        }
+
+        if (grid.getTrialCount() > MAX_TRIALS) {
+            throw new IllegalArgumentException("Grid has " + grid.getTrialCount()
+                    + " trials, at most " + MAX_TRIALS + " allowed");
+        }
+        return grid;
+    }
+
+    /**
+     * Parses one grid per line and concatenates their trials
+     *
+     * @param spec Grid descriptions separated by newlines
+     * @param defaultLeft Left channel values for the axes that are not given
+     * @param defaultRight Right channel values for the axes that are not given
+     * @return Trials in playing order, numbered across all grids
+     * @throws IllegalArgumentException If a description is malformed
+     */
+    public static List<Trial> parseTrials(String spec, ChirpParams defaultLeft, ChirpParams defaultRight) {
+        List<Trial> trials = new ArrayList<>();
+        for (String line : spec.split("\n")) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            for (Trial trial : parse(line, defaultLeft, defaultRight).toTrials()) {
+                trials.add(new Trial(trials.size(), trial.getLeftParams(), trial.getRightParams()));
+            }
+            if (trials.size() > MAX_TRIALS) {
+                throw new IllegalArgumentException("More than " + MAX_TRIALS + " trials");
+            }
+        }
+        if (trials.isEmpty()) {
+            trials.add(new Trial(0, defaultLeft, defaultRight));
+        }
+        return trials;
+    }
+
+    private static List<Integer> parseValues(String text) {
+        List<Integer> values = new ArrayList<>();
+        try {
+            String[] range = text.split(":");
+            if (range.length == 3) {
+                int start = Integer.parseInt(range[0].trim());
+                int end = Integer.parseInt(range[1].trim());
+                int step = Integer.parseInt(range[2].trim());
+                if (step <= 0 || end < start) {
+                    throw new IllegalArgumentException("Invalid range: " + text.trim());
+                }
+                for (long value = start; value <= end && values.size() <= MAX_TRIALS; value += step) {
+                    values.add((int) value);
+                }
+            } else if (range.length == 1) {
+                for (String value : text.split(",")) {
+                    values.add(Integer.parseInt(value.trim()));
+                }
+            } else {
+                throw new IllegalArgumentException("Expected start:end:step: " + text.trim());
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number in: " + text.trim(), e);
+        }
+        return values;
+    }
+
+    /**
+     * @return Number of trials the grid expands to
+     */
+    public long getTrialCount() {
+        return (long) leftFrequencies.size() * leftBandwidths.size() * rightFrequencies.size()
+                * rightBandwidths.size() * durations.size() * repeats;
+    }
+
+    /**
+     * Expands the grid. The last axis varies fastest and repeats of the same
+     * point are played back to back, so consecutive trials share prepared chirps.
+     *
+     * @return Trials in playing order
+     */
+    public List<Trial> toTrials() {
+        List<Trial> trials = new ArrayList<>((int) getTrialCount());
+        for (int leftFrequency : leftFrequencies) {
+            for (int leftBandwidth : leftBandwidths) {
+                for (int rightFrequency : rightFrequencies) {
+                    for (int rightBandwidth : rightBandwidths) {
+                        for (int duration : durations) {
+                            ChirpParams left = new ChirpParams(leftFrequency, leftBandwidth, duration);
+                            ChirpParams right = new ChirpParams(rightFrequency, rightBandwidth, duration);
+                            for (int r = 0; r < repeats; r++) {
+                                trials.add(new Trial(trials.size(), left, right));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return trials;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s=%s; %s=%s; %s=%s; %s=%s; %s=%s; %s=%d",
+                LEFT_FREQUENCY, join(leftFrequencies),
+                LEFT_BANDWIDTH, join(leftBandwidths),
+                RIGHT_FREQUENCY, join(rightFrequencies),
+                RIGHT_BANDWIDTH, join(rightBandwidths),
+                DURATION, join(durations),
+                REPEATS, repeats);
+    }
+
+    private static String join(List<Integer> values) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(values.get(i));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.audiochirpapp;
+
+/**
+ * Source of 16-bit PCM samples, such as an AudioRecord
+ */
+public interface PcmSource {
+    /**
+     * Reads samples into the given array
+     *
+     * @param data Destination
+     * @param offset Index of the first sample to fill
+     * @param length Maximum number of samples to read
+     * @return Number of samples read, or a negative error code
+     */
+    int read(short[] data, int offset, int length);
+}
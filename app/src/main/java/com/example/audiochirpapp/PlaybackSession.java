@@ -0,0 +1,186 @@
+package com.example.audiochirpapp;
+
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioManager;
+import android.media.AudioTrack;
+import android.os.Build;
+import android.util.Log;
+
+/**
+ * The playback tracks of one recording session, kept open between chirps
+ *
+ * Building an AudioTrack sets up native resources and adds tens of ms before
+ * the first sample comes out, so each track is built once and reused. The
+ * static track is rewound with reloadStaticData() and only rebuilt when a
+ * chirp of a different length is loaded. The streaming track is paused and
+ * flushed between chirps, which restarts its frame position at 0. Not thread
+ * safe; call {@link #close()} when the session ends.
+ */
+public class PlaybackSession {
+    private static final String TAG = "PlaybackSession";
+
+    private final int sampleRate;
+    private final int streamBufferBytes;
+
+    private AudioTrack staticTrack;
+    private PreparedChirp staticChirp;
+    private int staticBytes;
+    private AudioTrack streamTrack;
+    private boolean lastStartReused;
+
+    /**
+     * @param sampleRate Sample rate in Hz
+     * @param streamBufferBytes Buffer size of the streaming track
+     */
+    public PlaybackSession(int sampleRate, int streamBufferBytes) {
+        this.sampleRate = sampleRate;
+        this.streamBufferBytes = streamBufferBytes;
+    }
+
+    /**
+     * Starts playing a chirp from the static track
+     *
+     * @param chirp Chirp to play from its first frame
+     * @return The playing track
+     */
+    public AudioTrack startStatic(PreparedChirp chirp) {
+        byte[] audioData = chirp.getPcmData();
+        lastStartReused = false;
+
+        if (staticTrack != null && staticBytes == audioData.length) {
+            staticTrack.stop();
+            if (chirp != staticChirp) {
+                // A stopped static track takes new data at the start of its buffer
+                staticTrack.write(audioData, 0, audioData.length);
+            }
+            if (staticTrack.reloadStaticData() == AudioTrack.SUCCESS) {
+                lastStartReused = true;
+            } else {
+                Log.w(TAG, "Could not rewind static track, building a new one");
+            }
+        }
+
+        if (!lastStartReused) {
+            releaseTrack(staticTrack);
+            staticTrack = createTrack(audioData.length, AudioTrack.MODE_STATIC);
+            staticTrack.write(audioData, 0, audioData.length);
+            staticBytes = audioData.length;
+        }
+        staticChirp = chirp;
+
+        staticTrack.play();
+        return staticTrack;
+    }
+
+    /**
+     * Starts the streaming track, the caller writes the frames to play
+     *
+     * @return The playing track, at frame position 0
+     */
+    public AudioTrack startStream() {
+        lastStartReused = streamTrack != null;
+        if (streamTrack == null) {
+            streamTrack = createTrack(streamBufferBytes, AudioTrack.MODE_STREAM);
+        }
+
+        streamTrack.play();
+        return streamTrack;
+    }
+
+    /**
+     * Stops playback on both tracks without releasing them. Unblocks a
+     * thread waiting in write() on the streaming track and drops the frames
+     * that were not played yet.
+     */
+    public void stop() {
+        try {
+            if (streamTrack != null) {
+                streamTrack.pause();
+                streamTrack.flush();
+            }
+            if (staticTrack != null) {
+                staticTrack.stop();
+            }
+        } catch (IllegalStateException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return True if the last start reused an existing track
+     */
+    public boolean wasLastStartReused() {
+        return lastStartReused;
+    }
+
+    /**
+     * Stops and releases both tracks
+     */
+    public void close() {
+        stop();
+        releaseTrack(staticTrack);
+        releaseTrack(streamTrack);
+        staticTrack = null;
+        staticChirp = null;
+        streamTrack = null;
+    }
+
+    private static void releaseTrack(AudioTrack track) {
+        if (track == null) {
+            return;
+        }
+        try {
+            track.release();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Builds an AudioTrack with proper configuration
+     *
+     * @param bufferSize Size of the audio buffer
+     * @param mode AudioTrack.MODE_STATIC or AudioTrack.MODE_STREAM
+     */
+    private AudioTrack createTrack(int bufferSize, int mode) {
+        int minBufferSize = AudioTrack.getMinBufferSize(
+                sampleRate,
+                AudioFormat.CHANNEL_OUT_STEREO,
+                AudioFormat.ENCODING_PCM_16BIT);
+
+        // Ensure buffer size is adequate
+        bufferSize = Math.max(bufferSize, minBufferSize);
+
+        // Create AudioTrack instance
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            // For modern Android versions
+            AudioAttributes audioAttributes = new AudioAttributes.Builder()
+                    .setUsage(AudioAttributes.USAGE_MEDIA)
+                    .setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
+                    .build();
+
+            AudioFormat audioFormat = new AudioFormat.Builder()
+                    .setSampleRate(sampleRate)
+                    .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                    .setChannelMask(AudioFormat.CHANNEL_OUT_STEREO)
+                    .build();
+
+            return new AudioTrack.Builder()
+                    .setAudioAttributes(audioAttributes)
+                    .setAudioFormat(audioFormat)
+                    .setBufferSizeInBytes(bufferSize)
+                    .setTransferMode(mode)
+                    .build();
+        } else {
+            // For older Android versions
+            return new AudioTrack(
+                    AudioManager.STREAM_MUSIC,
+                    sampleRate,
+                    AudioFormat.CHANNEL_OUT_STEREO,
+                    AudioFormat.ENCODING_PCM_16BIT,
+                    bufferSize,
+                    mode);
+        }
+    }
+}
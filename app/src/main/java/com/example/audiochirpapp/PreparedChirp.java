@@ -0,0 +1,62 @@
+package com.example.audiochirpapp;
+
+/**
+ * A stereo chirp as ready-to-play interleaved PCM
+ */
+public class PreparedChirp {
+    private final ChirpParams leftParams;
+    private final ChirpParams rightParams;
+    private final byte[] pcmData;
+
+    public PreparedChirp(ChirpParams leftParams, ChirpParams rightParams, byte[] pcmData) {
+        this.leftParams = leftParams;
+        this.rightParams = rightParams;
+        this.pcmData = pcmData;
+    }
+
+    /**
+     * Generates both channels, interleaves them and converts them to PCM bytes
+     *
+     * @param leftParams Parameters for left channel chirp
+     * @param rightParams Parameters for right channel chirp
+     * @return The prepared chirp
+     */
+    public static PreparedChirp generate(ChirpParams leftParams, ChirpParams rightParams) {
+        short[] leftSamples = generateSamples(leftParams);
+        short[] rightSamples = generateSamples(rightParams);
+
+        // Interleave samples for stereo output and convert to bytes for AudioTrack
+        byte[] pcmData = AudioUtils.shortsToBytes(AudioUtils.interleave(leftSamples, rightSamples));
+
+        return new PreparedChirp(leftParams, rightParams, pcmData);
+    }
+
+    private static short[] generateSamples(ChirpParams params) {
+        ChirpGenerator generator = new ChirpGenerator(params);
+        short[] samples = new short[generator.getTotalSamples()];
+        generator.fill(samples, 0, samples.length);
+        return samples;
+    }
+
+    public ChirpParams getLeftParams() {
+        return leftParams;
+    }
+
+    public ChirpParams getRightParams() {
+        return rightParams;
+    }
+
+    /**
+     * @return Interleaved 16-bit little-endian stereo PCM
+     */
+    public byte[] getPcmData() {
+        return pcmData;
+    }
+
+    /**
+     * @return Approximate heap footprint of the sample data in bytes
+     */
+    public long getSizeBytes() {
+        return pcmData.length;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.audiochirpapp;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * File format of the "_recording_*" file of a session
+ */
+public enum RecordingFormat {
+    /** Binary session format, with a seek index next to it */
+    BINARY(BinarySessionFormat.FILE_EXTENSION),
+    /** Binary session format with blocks losslessly compressed by {@link RiceCodec} */
+    RICE(RiceSampleSink.FILE_EXTENSION),
+    /** Binary session format through a Deflater, read back with {@link DeflaterSampleSink#openReader(File)} */
+    DEFLATE(DeflaterSampleSink.FILE_EXTENSION),
+    /** One text row per sample, the largest and slowest format */
+    CSV(CsvSampleSink.FILE_EXTENSION);
+
+    // Fastest level, the recording is compressed while it is captured
+    private static final int DEFLATE_LEVEL = 1;
+    private static final long NANOS_PER_MS = 1000000L;
+
+    private final String fileExtension;
+
+    RecordingFormat(String fileExtension) {
+        this.fileExtension = fileExtension;
+    }
+
+    /**
+     * @return Extension of the recording file, with the leading dot
+     */
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    /**
+     * Creates a mono recording file of this format
+     *
+     * @param file Output file, named with {@link #getFileExtension()}
+     * @param sampleRate Sample rate in Hz
+     * @param startEpochNanos Session start time in nanoseconds since the epoch
+     * @return Sink writing the file
+     * @throws IOException If the file cannot be created
+     */
+    public SampleSink open(File file, int sampleRate, long startEpochNanos) throws IOException {
+        switch (this) {
+            case RICE:
+                return new RiceSampleSink(file, sampleRate, startEpochNanos);
+            case DEFLATE:
+                return new DeflaterSampleSink(file, sampleRate, 1, startEpochNanos, DEFLATE_LEVEL);
+            case CSV:
+                return new CsvSampleSink(file, startEpochNanos / NANOS_PER_MS);
+            default:
+                // The index lets offline tools seek to any time or chirp without a scan
+                return new BinarySessionWriter(file, sampleRate, 1, startEpochNanos,
+                        SessionIndexFormat.indexFileFor(file));
+        }
+    }
+}
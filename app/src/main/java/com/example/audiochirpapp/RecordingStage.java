@@ -0,0 +1,19 @@
+package com.example.audiochirpapp;
+
+/**
+ * Processing step on the recording path. Stages run on the
+ * {@link RecordingWriter} thread, after the block has been persisted.
+ */
+public interface RecordingStage {
+    /**
+     * @param data Recorded samples, only valid until the method returns
+     * @param length Number of valid samples
+     * @param firstFrame Recorder frame index of the first sample
+     */
+    void onBlock(short[] data, int length, long firstFrame);
+
+    /**
+     * Called once after the last block, to write out any pending results
+     */
+    void close();
+}
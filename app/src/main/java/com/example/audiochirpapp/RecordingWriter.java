@@ -0,0 +1,73 @@
+package com.example.audiochirpapp;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Dedicated thread that drains recorded blocks from a {@link SampleRingBuffer}
+ * into the {@link DataManager}, keeping disk I/O off the capture thread
+ */
+public class RecordingWriter {
+    private static final long IDLE_WAIT_NS = 2000000L; // 2ms
+
+    private final SampleRingBuffer ringBuffer;
+    private final SampleRingBuffer.BlockHandler handler;
+    private volatile boolean isRunning = false;
+    private Thread writerThread;
+
+    /**
+     * @param ringBuffer Ring filled by the capture thread
+     * @param dataManager DataManager to save recorded data
+     * @param clock Clock of the recording stream, for block timestamps
+     */
+    public RecordingWriter(SampleRingBuffer ringBuffer, final DataManager dataManager,
+                           final StreamClock clock) {
+        this.ringBuffer = ringBuffer;
+        this.handler = new SampleRingBuffer.BlockHandler() {
+            @Override
+            public void onBlock(short[] data, int length, long firstFrame) {
+                dataManager.saveRecordedData(data, length, firstFrame, clock.frameToEpochNanos(firstFrame));
+            }
+        };
+    }
+
+    /**
+     * Starts the writer thread
+     */
+    public void start() {
+        if (isRunning) {
+            return;
+        }
+        isRunning = true;
+
+        writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (isRunning) {
+                    if (ringBuffer.drainTo(handler) == 0) {
+                        LockSupport.parkNanos(IDLE_WAIT_NS);
+                    }
+                }
+                // Write whatever the capture thread queued before it stopped
+                ringBuffer.drainTo(handler);
+            }
+        }, "RecordingWriter");
+        writerThread.start();
+    }
+
+    /**
+     * Stops the writer thread after all queued blocks have been written.
+     * The capture thread must already have stopped producing.
+     */
+    public void stop() {
+        isRunning = false;
+
+        if (writerThread != null) {
+            try {
+                writerThread.join();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+            writerThread = null;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.audiochirpapp;
+
+import java.io.IOException;
+
+/**
+ * Lossless codec for 16-bit PCM in the style of FLAC's fixed predictors
+ *
+ * Each block is predicted with the fixed polynomial predictor of order 0 to 3
+ * that leaves the smallest residuals, and the residuals are Rice coded in
+ * partitions of {@link #PARTITION_SIZE} samples, each with its own parameter.
+ * A block carries its own length and warm-up samples, so it decodes without
+ * any other block. Bit layout, most significant bit first:
+ * <pre>
+ * 16 sampleCount, 2 order, order x 16 warm-up samples,
+ * per partition: 5 k, per residual: zigzag(r) &gt;&gt; k in unary (zeros ending in a one), k low bits
+ * </pre>
+ * Scratch buffers are reused, so encoding and decoding do not allocate. Not thread safe.
+ */
+public class RiceCodec {
+    public static final int MAX_BLOCK_SAMPLES = 4096;
+    public static final int PARTITION_SIZE = 256;
+
+    private static final int MAX_ORDER = 3;
+    private static final int MAX_RICE_PARAMETER = 31;
+
+    private final int[] residuals = new int[MAX_BLOCK_SAMPLES];
+
+    // Bit writer state
+    private byte[] out;
+    private int outPosition;
+    private long bitBuffer;
+    private int bitCount;
+
+    // Bit reader state
+    private byte[] in;
+    private int inPosition;
+    private int inEnd;
+
+    /**
+     * @param sampleCount Number of samples of a block
+     * @return Largest possible encoded size of the block in bytes
+     */
+    public static int maxEncodedSize(int sampleCount) {
+        // Residuals take at most 24 bits with a k picked from their mean, see chooseParameter
+        int partitions = (sampleCount + PARTITION_SIZE - 1) / PARTITION_SIZE;
+        return 2 + 1 + MAX_ORDER * 2 + partitions + sampleCount * 3 + 8;
+    }
+
+    /**
+     * Encodes a block
+     *
+     * @param samples Samples to encode
+     * @param offset Index of the first sample
+     * @param length Number of samples, at most {@link #MAX_BLOCK_SAMPLES}
+     * @param dest Destination, at least {@link #maxEncodedSize(int)} bytes from destOffset
+     * @param destOffset Index of the first byte to write
+     * @return Number of bytes written
+     */
+    public int encode(short[] samples, int offset, int length, byte[] dest, int destOffset) {
+        if (length < 0 || length > MAX_BLOCK_SAMPLES) {
+            throw new IllegalArgumentException("Invalid block length: " + length);
+        }
+        out = dest;
+        outPosition = destOffset;
+        bitBuffer = 0;
+        bitCount = 0;
+
+        int order = chooseOrder(samples, offset, length);
+        writeBits(length, 16);
+        writeBits(order, 2);
+        for (int i = 0; i < order; i++) {
+            writeBits(samples[offset + i] & 0xFFFF, 16);
+        }
+
+        computeResiduals(samples, offset, length, order);
+        for (int start = order; start < length; start += PARTITION_SIZE) {
+            int end = Math.min(start + PARTITION_SIZE, length);
+            int k = chooseParameter(start, end);
+            writeBits(k, 5);
+            for (int i = start; i < end; i++) {
+                int r = residuals[i];
+                int u = (r << 1) ^ (r >> 31);
+                writeUnary(u >>> k);
+                if (k > 0) {
+                    writeBits(u & ((1 << k) - 1), k);
+                }
+            }
+        }
+
+        // Pad the last byte with zeros
+        if (bitCount > 0) {
+            writeBits(0, 8 - bitCount);
+        }
+        out = null;
+        return outPosition - destOffset;
+    }
+
+    /**
+     * Decodes a block
+     *
+     * @param source Encoded block
+     * @param offset Index of the first byte of the block
+     * @param length Number of bytes of the block
+     * @param samples Destination, at least {@link #MAX_BLOCK_SAMPLES} samples from samplesOffset
+     * @param samplesOffset Index of the first sample to write
+     * @return Number of samples decoded
+     * @throws IOException If the block is corrupt
+     */
+    public int decode(byte[] source, int offset, int length, short[] samples, int samplesOffset)
+            throws IOException {
+        in = source;
+        inPosition = offset;
+        inEnd = offset + length;
+        bitBuffer = 0;
+        bitCount = 0;
+
+        try {
+            int count = readBits(16);
+            int order = readBits(2);
+            if (count > MAX_BLOCK_SAMPLES || order > count) {
+                throw new IOException("Corrupt block header");
+            }
+            for (int i = 0; i < order; i++) {
+                samples[samplesOffset + i] = (short) readBits(16);
+            }
+
+            for (int start = order; start < count; start += PARTITION_SIZE) {
+                int end = Math.min(start + PARTITION_SIZE, count);
+                int k = readBits(5);
+                for (int i = start; i < end; i++) {
+                    int u = (readUnary() << k) | (k > 0 ? readBits(k) : 0);
+                    int r = (u >>> 1) ^ -(u & 1);
+                    int s = samplesOffset + i;
+                    int prediction;
+                    switch (order) {
+                        case 0:
+                            prediction = 0;
+                            break;
+                        case 1:
+                            prediction = samples[s - 1];
+                            break;
+                        case 2:
+                            prediction = 2 * samples[s - 1] - samples[s - 2];
+                            break;
+                        default:
+                            prediction = 3 * samples[s - 1] - 3 * samples[s - 2] + samples[s - 3];
+                            break;
+                    }
+                    samples[s] = (short) (prediction + r);
+                }
+            }
+            return count;
+        } finally {
+            in = null;
+        }
+    }
+
+    /**
+     * @return The predictor order with the smallest sum of absolute residuals
+     */
+    private static int chooseOrder(short[] samples, int offset, int length) {
+        long sum0 = 0;
+        long sum1 = 0;
+        long sum2 = 0;
+        long sum3 = 0;
+        int maxOrder = Math.min(MAX_ORDER, length);
+        for (int i = offset + MAX_ORDER; i < offset + length; i++) {
+            int x0 = samples[i];
+            int x1 = samples[i - 1];
+            int x2 = samples[i - 2];
+            int x3 = samples[i - 3];
+            sum0 += Math.abs(x0);
+            sum1 += Math.abs(x0 - x1);
+            sum2 += Math.abs(x0 - 2 * x1 + x2);
+            sum3 += Math.abs(x0 - 3 * x1 + 3 * x2 - x3);
+        }
+        if (maxOrder < MAX_ORDER) {
+            // Too short to predict, the samples are all warm-up
+            return maxOrder;
+        }
+        int best = 0;
+        long bestSum = sum0;
+        if (sum1 < bestSum) {
+            best = 1;
+            bestSum = sum1;
+        }
+        if (sum2 < bestSum) {
+            best = 2;
+            bestSum = sum2;
+        }
+        if (sum3 < bestSum) {
+            best = 3;
+        }
+        return best;
+    }
+
+    private void computeResiduals(short[] samples, int offset, int length, int order) {
+        for (int i = order; i < length; i++) {
+            int s = offset + i;
+            switch (order) {
+                case 0:
+                    residuals[i] = samples[s];
+                    break;
+                case 1:
+                    residuals[i] = samples[s] - samples[s - 1];
+                    break;
+                case 2:
+                    residuals[i] = samples[s] - 2 * samples[s - 1] + samples[s - 2];
+                    break;
+                default:
+                    residuals[i] = samples[s] - 3 * samples[s - 1] + 3 * samples[s - 2] - samples[s - 3];
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Picks the Rice parameter from the mean of the zigzagged residuals. With
+     * k = floor(log2(mean)) the unary parts add up to less than two bits per
+     * residual, which bounds {@link #maxEncodedSize(int)}.
+     */
+    private int chooseParameter(int start, int end) {
+        long sum = 0;
+        for (int i = start; i < end; i++) {
+            int r = residuals[i];
+            sum += ((r << 1) ^ (r >> 31)) & 0xFFFFFFFFL;
+        }
+        long mean = sum / (end - start);
+        int k = mean > 0 ? 63 - Long.numberOfLeadingZeros(mean) : 0;
+        return Math.min(k, MAX_RICE_PARAMETER);
+    }
+
+    private void writeBits(int value, int bits) {
+        bitBuffer = (bitBuffer << bits) | (value & ((1L << bits) - 1));
+        bitCount += bits;
+        while (bitCount >= 8) {
+            bitCount -= 8;
+            out[outPosition++] = (byte) (bitBuffer >>> bitCount);
+        }
+    }
+
+    private void writeUnary(int zeros) {
+        while (zeros >= 32) {
+            writeBits(0, 32);
+            zeros -= 32;
+        }
+        writeBits(1, zeros + 1);
+    }
+
+    private int readBits(int bits) throws IOException {
+        while (bitCount < bits) {
+            if (inPosition >= inEnd) {
+                throw new IOException("Truncated block");
+            }
+            bitBuffer = (bitBuffer << 8) | (in[inPosition++] & 0xFF);
+            bitCount += 8;
+        }
+        bitCount -= bits;
+        return (int) ((bitBuffer >>> bitCount) & ((1L << bits) - 1));
+    }
+
+    private int readUnary() throws IOException {
+        int zeros = 0;
+        while (readBits(1) == 0) {
+            zeros++;
+        }
+        return zeros;
+    }
+}
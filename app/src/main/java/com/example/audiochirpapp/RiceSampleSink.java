@@ -0,0 +1,86 @@
+package com.example.audiochirpapp;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Writes a mono recording in the binary session format with every block
+ * losslessly compressed by {@link RiceCodec}
+ *
+ * Blocks are split into codec blocks of at most {@link RiceCodec#MAX_BLOCK_SAMPLES},
+ * each decodable on its own, so a file cut off by a crash loses at most the
+ * last one. {@link BinarySessionReader} decodes the file. The codec runs on
+ * the caller's thread; behind a {@link GroupCommitSink} that is the commit thread.
+ */
+public class RiceSampleSink implements SampleSink {
+    public static final String FILE_EXTENSION = ".bin.rice";
+
+    private final BinarySessionWriter writer;
+    private final int sampleRate;
+    private final RiceCodec codec = new RiceCodec();
+    private final byte[] encoded = new byte[RiceCodec.maxEncodedSize(RiceCodec.MAX_BLOCK_SAMPLES)];
+    private long encodedBytes = 0;
+
+    /**
+     * Creates the file and writes the session header
+     *
+     * @param file Output file
+     * @param sampleRate Sample rate in Hz
+     * @param startEpochNanos Session start time in nanoseconds since the epoch
+     * @throws IOException If the file cannot be created
+     */
+    public RiceSampleSink(File file, int sampleRate, long startEpochNanos) throws IOException {
+        this.writer = new BinarySessionWriter(file, sampleRate, 1, startEpochNanos);
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public void writeBlock(short[] samples, int offset, int length, long epochNanos, long frameIndex)
+            throws IOException {
+        for (int done = 0; done < length; done += RiceCodec.MAX_BLOCK_SAMPLES) {
+            int count = Math.min(length - done, RiceCodec.MAX_BLOCK_SAMPLES);
+            int bytes = codec.encode(samples, offset + done, count, encoded, 0);
+            writer.writeRiceBlock(encoded, bytes, count, epochNanos + done * 1000000000L / sampleRate,
+                    frameIndex + done);
+            encodedBytes += bytes;
+        }
+    }
+
+    @Override
+    public void writeChirp(long epochNanos, long frameIndex, ChirpParams leftParams, ChirpParams rightParams)
+            throws IOException {
+        writer.writeChirp(epochNanos, frameIndex, leftParams, rightParams);
+    }
+
+    @Override
+    public int getChannelCount() {
+        return 1;
+    }
+
+    @Override
+    public long getFramesWritten() {
+        return writer.getFramesWritten();
+    }
+
+    /**
+     * @return Size of the samples so far as 16-bit PCM divided by their encoded size, 0 before any sample
+     */
+    public double getCompressionRatio() {
+        return encodedBytes > 0 ? writer.getFramesWritten() * 2.0 / encodedBytes : 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void sync() throws IOException {
+        writer.sync();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
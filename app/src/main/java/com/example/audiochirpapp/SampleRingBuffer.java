@@ -0,0 +1,209 @@
+package com.example.audiochirpapp;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free single-producer/single-consumer ring of preallocated sample blocks
+ *
+ * The capture thread is the only producer and the writer thread the only
+ * consumer. Neither side ever blocks: when the ring is full the producer
+ * drops the block and counts the overrun instead of waiting for storage.
+ *
+ * The ring doubles as the block-recycling pool. The producer claims a free
+ * block, fills it in place and publishes it; the consumer hands it back once
+ * drained. Blocks are allocated once, so steady-state capture is allocation free.
+ */
+public class SampleRingBuffer {
+
+    /**
+     * Receives blocks drained from the ring
+     */
+    public interface BlockHandler {
+        /**
+         * @param data Block samples, only valid until the method returns
+         * @param length Number of valid samples in the block
+         * @param firstFrame Stream frame index of the first sample, counting dropped blocks
+         */
+        void onBlock(short[] data, int length, long firstFrame);
+    }
+
+    private final short[][] blocks;
+    private final int[] lengths;
+    private final long[] firstFrames;
+    private final short[] overflowBlock;
+    private final int mask;
+    private final int blockSize;
+    private boolean claimedOverflow = false;
+
+    // Sequence numbers: tail is written by the producer only, head by the consumer only
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    // Metrics, written by the producer only
+    private volatile long overrunCount = 0;
+    private volatile long droppedSamples = 0;
+    private volatile long offeredSamples = 0;
+    private volatile int highWaterMark = 0;
+
+    /**
+     * @param capacity Number of blocks, rounded up to a power of two
+     * @param blockSize Maximum number of samples per block
+     */
+    public SampleRingBuffer(int capacity, int blockSize) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.blocks = new short[size][blockSize];
+        this.lengths = new int[size];
+        this.firstFrames = new long[size];
+        this.overflowBlock = new short[blockSize];
+        this.mask = size - 1;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Claims the next free block for the producer to fill in place. When the
+     * ring is full a scratch block is returned instead, so the caller can keep
+     * reading from the device; publishing it counts as an overrun.
+     * Called from the producer thread only.
+     *
+     * @return Block of {@link #getBlockSize()} samples owned by the producer until published
+     */
+    public short[] claim() {
+        long t = tail.get();
+        if (t - head.get() == blocks.length) {
+            claimedOverflow = true;
+            return overflowBlock;
+        }
+        claimedOverflow = false;
+        return blocks[(int) t & mask];
+    }
+
+    /**
+     * Hands the block returned by the last {@link #claim()} to the consumer.
+     * Called from the producer thread only.
+     *
+     * @param length Number of valid samples in the block
+     * @return false if the block was dropped because the ring was full
+     */
+    public boolean publish(int length) {
+        long firstFrame = offeredSamples;
+        offeredSamples = firstFrame + length;
+
+        if (claimedOverflow) {
+            overrunCount++;
+            droppedSamples += length;
+            return false;
+        }
+
+        long t = tail.get();
+        int used = (int) (t - head.get()) + 1;
+        lengths[(int) t & mask] = length;
+        firstFrames[(int) t & mask] = firstFrame;
+        if (used > highWaterMark) {
+            highWaterMark = used;
+        }
+        // Publish the block to the consumer
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Copies samples into the ring. Called from the producer thread only.
+     * Input longer than one block is split across several blocks.
+     *
+     * @param data Samples to copy
+     * @param length Number of samples to copy
+     * @return false if the ring was full and some samples were dropped
+     */
+    public boolean offer(short[] data, int length) {
+        boolean complete = true;
+        int offset = 0;
+        while (offset < length) {
+            int count = Math.min(length - offset, blockSize);
+            short[] block = claim();
+            if (!claimedOverflow) {
+                System.arraycopy(data, offset, block, 0, count);
+            }
+            complete &= publish(count);
+            offset += count;
+        }
+        return complete;
+    }
+
+    /**
+     * Passes every available block to the handler and frees it.
+     * Called from the consumer thread only.
+     *
+     * @param handler Handler for the blocks
+     * @return Number of blocks drained
+     */
+    public int drainTo(BlockHandler handler) {
+        long h = head.get();
+        long t = tail.get();
+        int drained = 0;
+
+        while (h < t) {
+            int index = (int) h & mask;
+            handler.onBlock(blocks[index], lengths[index], firstFrames[index]);
+            h++;
+            drained++;
+            // Hand the slot back to the producer
+            head.lazySet(h);
+        }
+        return drained;
+    }
+
+    /**
+     * @return Number of blocks waiting for the consumer
+     */
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    public int getCapacity() {
+        return blocks.length;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * @return Number of times the producer found the ring full
+     */
+    public long getOverrunCount() {
+        return overrunCount;
+    }
+
+    /**
+     * @return Number of samples that were dropped because the ring was full
+     */
+    public long getDroppedSamples() {
+        return droppedSamples;
+    }
+
+    /**
+     * @return Total number of samples offered by the producer, which is also
+     *         the frame index of the next block
+     */
+    public long getOfferedSamples() {
+        return offeredSamples;
+    }
+
+    /**
+     * @return Largest number of blocks that were queued at the same time
+     */
+    public int getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    @Override
+    public String toString() {
+        return "SampleRingBuffer{" +
+                "capacity=" + blocks.length +
+                ", highWaterMark=" + highWaterMark +
+                ", overruns=" + overrunCount +
+                ", droppedSamples=" + droppedSamples +
+                ", offeredSamples=" + offeredSamples +
+                "}";
+    }
+}
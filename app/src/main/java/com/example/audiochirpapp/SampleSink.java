@@ -0,0 +1,62 @@
+package com.example.audiochirpapp;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destination of a recording: blocks of samples and the chirp events between them
+ *
+ * Implementations buffer as they see fit; {@link #flush()} and {@link #sync()}
+ * set how far written data must have travelled. See {@link GroupCommitSink}
+ * for writing from the recording path without waiting for storage.
+ */
+public interface SampleSink extends Closeable {
+    /**
+     * Appends a block of PCM samples
+     *
+     * @param samples Interleaved samples, only read until the method returns
+     * @param offset Index of the first sample to write
+     * @param length Number of samples to write
+     * @param epochNanos Capture time of the first sample in nanoseconds since the epoch
+     * @param frameIndex Stream frame index of the first sample
+     * @throws IOException If writing fails
+     */
+    void writeBlock(short[] samples, int offset, int length, long epochNanos, long frameIndex)
+            throws IOException;
+
+    /**
+     * Appends a chirp event
+     *
+     * @param epochNanos Time of the event in nanoseconds since the epoch
+     * @param frameIndex Frame index the event refers to
+     * @param leftParams Left channel parameters
+     * @param rightParams Right channel parameters
+     * @throws IOException If writing fails
+     */
+    void writeChirp(long epochNanos, long frameIndex, ChirpParams leftParams, ChirpParams rightParams)
+            throws IOException;
+
+    /**
+     * @return Number of interleaved channels per frame
+     */
+    int getChannelCount();
+
+    /**
+     * @return Number of frames written so far
+     */
+    long getFramesWritten();
+
+    /**
+     * Hands everything written so far to the operating system
+     *
+     * @throws IOException If writing fails
+     */
+    void flush() throws IOException;
+
+    /**
+     * Flushes and waits until everything written so far is on the storage device
+     *
+     * @throws IOException If writing fails
+     */
+    void sync() throws IOException;
+}
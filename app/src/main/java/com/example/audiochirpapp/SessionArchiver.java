@@ -0,0 +1,460 @@
+package com.example.audiochirpapp;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Packs session files into one ZIP archive, compressing them in parallel
+ *
+ * Each file is deflated by a worker of a pool into a temporary file, with
+ * its CRC computed on the way. The calling thread appends the entries to
+ * the archive as they complete, with the sizes already in the local header,
+ * and deletes their temporary files. Only fixed buffers are held in memory,
+ * and only the files being compressed or waiting for the writer are on disk
+ * twice. Files that are compressed already, or that deflate would not
+ * shrink, are stored as they are. ZipOutputStream cannot take data that
+ * was deflated elsewhere, hence the writer of its own. Entry names are
+ * UTF-8, and archives beyond the ZIP32 limits of 4GB and 65535 entries
+ * are refused rather than written with ZIP64 records.
+ */
+public class SessionArchiver {
+    public static final String FILE_EXTENSION = ".zip";
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final long MAX_ZIP32_SIZE = 0xFFFFFFFFL;
+    private static final int MAX_ZIP32_ENTRIES = 0xFFFF;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int VERSION_NEEDED = 20;
+    // General purpose flag 11: names are UTF-8
+    private static final int FLAG_UTF8 = 0x0800;
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+
+    // Formats that deflate does not shrink
+    private static final String[] COMPRESSED_EXTENSIONS = {
+            RiceSampleSink.FILE_EXTENSION, DeflaterSampleSink.FILE_EXTENSION, FILE_EXTENSION, ".gz"
+    };
+
+    /**
+     * A compressed file, waiting to be appended to the archive
+     */
+    private static final class Entry {
+        byte[] name;
+        int dosTime;
+        int method;
+        long crc;
+        long size;
+        long compressedSize;
+        // Data of the entry, the source file itself when stored
+        File data;
+        boolean temporary;
+        long offset;
+    }
+
+    private final File tempDirectory;
+    private final int parallelism;
+    private final int level;
+    private final FileExporter.Listener listener;
+    private volatile boolean cancelled = false;
+    // Stops the workers once the archive has failed
+    private volatile boolean failed = false;
+
+    // Progress, updated by the workers and the writer
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicInteger entriesWritten = new AtomicInteger();
+    private volatile long bytesTotal = 0;
+    private volatile int fileCount = 0;
+
+    private int entryCount = 0;
+    private long inputBytes = 0;
+    private long archiveBytes = 0;
+
+    /**
+     * @param tempDirectory Directory of the compressed files until they are appended
+     * @param parallelism Number of files compressed at the same time
+     * @param level Deflate level, 1 to 9
+     * @param listener Progress listener in bytes read and entries written, or null
+     */
+    public SessionArchiver(File tempDirectory, int parallelism, int level, FileExporter.Listener listener) {
+        this.tempDirectory = tempDirectory;
+        this.parallelism = parallelism;
+        this.level = level;
+        this.listener = listener;
+    }
+
+    /**
+     * Makes a running {@link #archive} fail after the buffers being compressed
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Writes the archive
+     *
+     * @param files Files to archive, directories are ignored
+     * @param out Channel of the archive, left open
+     * @throws IOException If a file could not be read, the archive could not
+     *         be written or was cancelled, or it needs ZIP64
+     */
+    public void archive(File[] files, WritableByteChannel out) throws IOException {
+        List<File> sources = new ArrayList<>();
+        long total = 0;
+        for (File file : files) {
+            if (file.isFile()) {
+                sources.add(file);
+                total += file.length();
+            }
+        }
+        if (sources.size() > MAX_ZIP32_ENTRIES) {
+            throw new IOException("Too many files for a ZIP archive: " + sources.size());
+        }
+        entryCount = 0;
+        inputBytes = 0;
+        archiveBytes = 0;
+        failed = false;
+        bytesRead.set(0);
+        entriesWritten.set(0);
+        bytesTotal = total;
+        fileCount = sources.size();
+
+        List<Entry> entries = new ArrayList<>();
+        List<Future<Entry>> futures = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, fileCount)));
+        CompletionService<Entry> completion = new ExecutorCompletionService<>(executor);
+        try {
+            for (final File file : sources) {
+                futures.add(completion.submit(new Callable<Entry>() {
+                    @Override
+                    public Entry call() throws IOException {
+                        return compress(file);
+                    }
+                }));
+            }
+
+            // Entries go in the order they complete, which frees their temporary files soonest
+            for (int i = 0; i < fileCount; i++) {
+                Entry entry;
+                try {
+                    entry = completion.take().get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Archive interrupted");
+                }
+                try {
+                    writeEntry(entry, out);
+                } finally {
+                    if (entry.temporary) {
+                        entry.data.delete();
+                    }
+                }
+                entries.add(entry);
+                inputBytes += entry.size;
+                entriesWritten.incrementAndGet();
+                reportProgress();
+            }
+            writeCentralDirectory(entries, out);
+            entryCount = entries.size();
+        } finally {
+            // Stops the workers of a failed archive, and removes what they left behind
+            failed = entries.size() < fileCount;
+            executor.shutdownNow();
+            awaitTermination(executor);
+            for (Future<Entry> future : futures) {
+                deleteTemporary(future);
+            }
+        }
+    }
+
+    /**
+     * @return Number of entries of the last archive
+     */
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * @return Bytes of the files in the last archive
+     */
+    public long getInputBytes() {
+        return inputBytes;
+    }
+
+    /**
+     * @return Size of the last archive in bytes
+     */
+    public long getArchiveBytes() {
+        return archiveBytes;
+    }
+
+    /**
+     * Compresses one file on a worker
+     */
+    private Entry compress(File file) throws IOException {
+        Entry entry = new Entry();
+        entry.name = file.getName().getBytes(UTF_8);
+        entry.dosTime = toDosTime(file.lastModified());
+        entry.data = file;
+        entry.method = METHOD_STORED;
+        byte[] buffer = new byte[BUFFER_BYTES];
+        CRC32 crc = new CRC32();
+
+        if (isCompressed(file.getName())) {
+            // Only the CRC is needed, the writer copies the file itself
+            try (InputStream in = new FileInputStream(file)) {
+                entry.size = readAll(in, buffer, crc, null);
+            }
+            entry.crc = crc.getValue();
+            entry.compressedSize = entry.size;
+            return entry;
+        }
+
+        File temp = File.createTempFile("archive", ".deflate", tempDirectory);
+        Deflater deflater = new Deflater(level, true);
+        boolean done = false;
+        try {
+            try (InputStream in = new FileInputStream(file);
+                 DeflaterOutputStream deflated = new DeflaterOutputStream(new FileOutputStream(temp),
+                         deflater, BUFFER_BYTES)) {
+                entry.size = readAll(in, buffer, crc, deflated);
+                deflated.finish();
+            }
+            entry.crc = crc.getValue();
+            entry.compressedSize = temp.length();
+            if (entry.compressedSize < entry.size) {
+                entry.method = METHOD_DEFLATED;
+                entry.data = temp;
+                entry.temporary = true;
+                done = true;
+            } else {
+                entry.compressedSize = entry.size;
+            }
+            return entry;
+        } finally {
+            deflater.end();
+            if (!done) {
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * Reads a file to its end, updating the CRC and the progress
+     *
+     * @param deflated Stream the bytes are copied to, or null
+     * @return Number of bytes read
+     */
+    private long readAll(InputStream in, byte[] buffer, CRC32 crc, DeflaterOutputStream deflated)
+            throws IOException {
+        long size = 0;
+        int length;
+        while ((length = in.read(buffer)) > 0) {
+            checkCancelled();
+            crc.update(buffer, 0, length);
+            if (deflated != null) {
+                deflated.write(buffer, 0, length);
+            }
+            size += length;
+            bytesRead.addAndGet(length);
+            reportProgress();
+        }
+        if (size > MAX_ZIP32_SIZE) {
+            throw new IOException("File too large for a ZIP archive: " + size);
+        }
+        return size;
+    }
+
+    private void writeEntry(Entry entry, WritableByteChannel out) throws IOException {
+        if (archiveBytes + LOCAL_HEADER_SIZE + entry.name.length + entry.compressedSize > MAX_ZIP32_SIZE) {
+            throw new IOException("Archive would exceed the 4GB ZIP limit");
+        }
+        entry.offset = archiveBytes;
+
+        ByteBuffer header = ByteBuffer.allocate(LOCAL_HEADER_SIZE + entry.name.length)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(LOCAL_HEADER_SIGNATURE);
+        header.putShort((short) VERSION_NEEDED);
+        header.putShort((short) FLAG_UTF8);
+        header.putShort((short) entry.method);
+        header.putInt(entry.dosTime);
+        header.putInt((int) entry.crc);
+        header.putInt((int) entry.compressedSize);
+        header.putInt((int) entry.size);
+        header.putShort((short) entry.name.length);
+        header.putShort((short) 0);
+        header.put(entry.name);
+        header.flip();
+        write(header, out);
+
+        // Stored files may have grown since their CRC, copy the bytes it covers
+        try (FileChannel in = new FileInputStream(entry.data).getChannel()) {
+            long position = 0;
+            while (position < entry.compressedSize) {
+                checkCancelled();
+                long count = in.transferTo(position, entry.compressedSize - position, out);
+                if (count <= 0) {
+                    throw new IOException("File changed during the archive: " + new String(entry.name, UTF_8));
+                }
+                position += count;
+            }
+        }
+        archiveBytes += entry.compressedSize;
+    }
+
+    private void writeCentralDirectory(List<Entry> entries, WritableByteChannel out) throws IOException {
+        long start = archiveBytes;
+        for (Entry entry : entries) {
+            ByteBuffer header = ByteBuffer.allocate(CENTRAL_HEADER_SIZE + entry.name.length)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(CENTRAL_HEADER_SIGNATURE);
+            header.putShort((short) VERSION_NEEDED);
+            header.putShort((short) VERSION_NEEDED);
+            header.putShort((short) FLAG_UTF8);
+            header.putShort((short) entry.method);
+            header.putInt(entry.dosTime);
+            header.putInt((int) entry.crc);
+            header.putInt((int) entry.compressedSize);
+            header.putInt((int) entry.size);
+            header.putShort((short) entry.name.length);
+            // Extra field, comment, disk, internal and external attributes
+            header.putShort((short) 0);
+            header.putShort((short) 0);
+            header.putShort((short) 0);
+            header.putShort((short) 0);
+            header.putInt(0);
+            header.putInt((int) entry.offset);
+            header.put(entry.name);
+            header.flip();
+            write(header, out);
+        }
+        if (archiveBytes + END_OF_CENTRAL_DIRECTORY_SIZE > MAX_ZIP32_SIZE) {
+            throw new IOException("Archive would exceed the 4GB ZIP limit");
+        }
+
+        ByteBuffer end = ByteBuffer.allocate(END_OF_CENTRAL_DIRECTORY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        end.putInt(END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+        end.putShort((short) 0);
+        end.putShort((short) 0);
+        end.putShort((short) entries.size());
+        end.putShort((short) entries.size());
+        end.putInt((int) (archiveBytes - start));
+        end.putInt((int) start);
+        end.putShort((short) 0);
+        end.flip();
+        write(end, out);
+    }
+
+    private void write(ByteBuffer buffer, WritableByteChannel out) throws IOException {
+        archiveBytes += buffer.remaining();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    private void checkCancelled() throws IOException {
+        if (cancelled) {
+            throw new IOException("Archive cancelled");
+        }
+        if (failed) {
+            throw new IOException("Archive failed");
+        }
+    }
+
+    private void reportProgress() {
+        if (listener != null) {
+            listener.onProgress(bytesRead.get(), bytesTotal, entriesWritten.get(), fileCount);
+        }
+    }
+
+    private static boolean isCompressed(String name) {
+        for (String extension : COMPRESSED_EXTENSIONS) {
+            if (name.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return MS-DOS date and time of the local time, as ZIP headers store them
+     */
+    static int toDosTime(long epochMs) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(epochMs);
+        int year = calendar.get(Calendar.YEAR);
+        if (year < 1980) {
+            // 1980-01-01 00:00, the earliest DOS time
+            return (1 << 21) | (1 << 16);
+        }
+        return (year - 1980) << 25
+                | (calendar.get(Calendar.MONTH) + 1) << 21
+                | calendar.get(Calendar.DAY_OF_MONTH) << 16
+                | calendar.get(Calendar.HOUR_OF_DAY) << 11
+                | calendar.get(Calendar.MINUTE) << 5
+                | calendar.get(Calendar.SECOND) >> 1;
+    }
+
+    private static void awaitTermination(ExecutorService executor) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void deleteTemporary(Future<Entry> future) {
+        if (!future.isDone() || future.isCancelled()) {
+            return;
+        }
+        try {
+            Entry entry = future.get();
+            if (entry.temporary) {
+                entry.data.delete();
+            }
+        } catch (ExecutionException | InterruptedException e) {
+            // Workers delete their own temporary file when they fail
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.audiochirpapp;
+
+/**
+ * Common timebase of a recording session
+ *
+ * Captures the wall-clock time once at the start of the session and derives
+ * every later absolute time from the monotonic clock, so all streams of the
+ * session share one drift-free base.
+ */
+public class SessionClock {
+    private static final long NANOS_PER_MS = 1000000L;
+
+    private final MonotonicClock clock;
+    private final long startNanos;
+    private final long startEpochNanos;
+
+    /**
+     * @param clock Clock to read
+     */
+    public SessionClock(MonotonicClock clock) {
+        this.clock = clock;
+        this.startNanos = clock.nanoTime();
+        this.startEpochNanos = clock.currentTimeMillis() * NANOS_PER_MS;
+    }
+
+    /**
+     * @return Current monotonic time in nanoseconds
+     */
+    public long nanoTime() {
+        return clock.nanoTime();
+    }
+
+    /**
+     * Converts a monotonic time to nanoseconds since the epoch
+     *
+     * @param monotonicNanos Monotonic time in nanoseconds
+     * @return Nanoseconds since the epoch
+     */
+    public long toEpochNanos(long monotonicNanos) {
+        return startEpochNanos + (monotonicNanos - startNanos);
+    }
+
+    /**
+     * @return Monotonic time at which the session started
+     */
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * @return Wall-clock time at which the session started, in nanoseconds since the epoch
+     */
+    public long getStartEpochNanos() {
+        return startEpochNanos;
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.audiochirpapp;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ShortBuffer;
+
+/**
+ * Converts binary recording sessions back into the "_recording_*.csv" format,
+ * and spectrogram files into one CSV row per bin
+ *
+ * Has no Android dependencies so it can also run offline on a desktop JVM:
+ * <pre>java com.example.audiochirpapp.SessionCsvExporter session_recording_x.bin session_spectrogram_x.spec</pre>
+ * or, for the recording around one chirp, without reading the rest of the file:
+ * <pre>java com.example.audiochirpapp.SessionCsvExporter --chirp 3 100 500 session_recording_x.bin</pre>
+ */
+public class SessionCsvExporter {
+    private static final long NANOS_PER_MS = 1000000L;
+
+    /**
+     * Writes the CSV equivalent of a binary recording
+     *
+     * @param binFile Binary session file
+     * @param csvFile Destination CSV file
+     * @throws IOException If reading or writing fails
+     */
+    public static void exportRecording(File binFile, File csvFile) throws IOException {
+        try (BinarySessionReader reader = new BinarySessionReader(binFile);
+             final CsvSampleEncoder encoder = new CsvSampleEncoder(
+                     new FileOutputStream(csvFile).getChannel(),
+                     new TimestampFormatter(),
+                     CsvSampleEncoder.DEFAULT_BUFFER_SIZE)) {
+
+            final long startTimeMs = reader.getStartEpochNanos() / NANOS_PER_MS;
+            final IOException[] failure = new IOException[1];
+
+            encoder.writeHeader(CsvSampleEncoder.RECORDED_HEADER);
+
+            reader.readAll(new BinarySessionReader.Listener() {
+                @Override
+                public void onBlock(short[] samples, int length, long blockStartEpochNanos, long frameIndex) {
+                    if (failure[0] != null) {
+                        return;
+                    }
+                    long blockTimeMs = blockStartEpochNanos / NANOS_PER_MS;
+
+                    try {
+                        encoder.writeRecordedRows(samples, length, blockTimeMs, blockTimeMs - startTimeMs);
+                    } catch (IOException e) {
+                        failure[0] = e;
+                    }
+                }
+
+                @Override
+                public void onChirp(long epochNanos, long frameIndex, ChirpParams leftParams, ChirpParams rightParams) {
+                    // Chirp events are kept in the params CSV
+                }
+            });
+
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        }
+    }
+
+    /**
+     * Writes the CSV rows of the recording around one chirp
+     *
+     * @param binFile Binary session file
+     * @param chirp Chirp number, in the order the chirps were played
+     * @param msBefore Time to include before the chirp start
+     * @param durationMs Length of the window
+     * @param csvFile Destination CSV file
+     * @throws IOException If reading or writing fails
+     */
+    public static void exportChirpWindow(File binFile, int chirp, int msBefore, int durationMs, File csvFile)
+            throws IOException {
+        try (MappedRecording recording = new MappedRecording(binFile);
+             CsvSampleEncoder encoder = new CsvSampleEncoder(
+                     new FileOutputStream(csvFile).getChannel(),
+                     new TimestampFormatter(),
+                     CsvSampleEncoder.DEFAULT_BUFFER_SIZE)) {
+
+            SessionIndex index = recording.getIndex();
+            if (chirp < 0 || chirp >= index.getChirpCount()) {
+                throw new IOException("No chirp " + chirp + " in " + binFile + ", it has "
+                        + index.getChirpCount());
+            }
+            int framesBefore = (int) ((long) msBefore * index.getSampleRate() / 1000);
+            int frameCount = (int) ((long) durationMs * index.getSampleRate() / 1000);
+
+            ShortBuffer window = recording.getChirpWindow(chirp, framesBefore, frameCount);
+            short[] samples = new short[window.remaining()];
+            window.get(samples);
+
+            long firstEpochNanos = index.getChirpEpochNanos(chirp) - (long) msBefore * NANOS_PER_MS;
+            long firstTimeMs = firstEpochNanos / NANOS_PER_MS;
+            encoder.writeHeader(CsvSampleEncoder.RECORDED_HEADER);
+            encoder.writeRecordedRows(samples, samples.length, firstTimeMs,
+                    firstTimeMs - index.getStartEpochNanos() / NANOS_PER_MS);
+        }
+    }
+
+    /**
+     * Writes a spectrogram as "frameIndex,relativeTimeMs,frequencyHz,magnitude" rows
+     *
+     * @param specFile Spectrogram file
+     * @param csvFile Destination CSV file
+     * @throws IOException If reading or writing fails
+     */
+    public static void exportSpectrogram(File specFile, File csvFile) throws IOException {
+        try (final SpectrogramReader reader = new SpectrogramReader(specFile);
+             final Writer writer = new BufferedWriter(new FileWriter(csvFile))) {
+
+            final IOException[] failure = new IOException[1];
+            final StringBuilder row = new StringBuilder();
+
+            writer.write("frameIndex,relativeTimeMs,frequencyHz,magnitude\n");
+
+            reader.readAll(new SpectrogramReader.Listener() {
+                @Override
+                public void onFrame(long frameIndex, int firstBin, float[] magnitudes, int count) {
+                    if (failure[0] != null) {
+                        return;
+                    }
+                    long relativeTimeMs = frameIndex * 1000L / reader.getSampleRate();
+
+                    try {
+                        for (int i = 0; i < count; i++) {
+                            row.setLength(0);
+                            row.append(frameIndex).append(',')
+                                    .append(relativeTimeMs).append(',')
+                                    .append(reader.binFrequency(firstBin + i)).append(',')
+                                    .append(magnitudes[i]).append('\n');
+                            writer.append(row);
+                        }
+                    } catch (IOException e) {
+                        failure[0] = e;
+                    }
+                }
+            });
+
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        }
+    }
+
+    /**
+     * Returns the CSV file name that corresponds to a binary recording or spectrogram
+     *
+     * @param binFile Binary session or spectrogram file
+     * @return File next to it with the ".csv" extension
+     */
+    public static File csvFileFor(File binFile) {
+        String name = binFile.getName();
+        if (name.endsWith(BinarySessionFormat.FILE_EXTENSION)) {
+            name = name.substring(0, name.length() - BinarySessionFormat.FILE_EXTENSION.length());
+        } else if (name.endsWith(RiceSampleSink.FILE_EXTENSION)) {
+            name = name.substring(0, name.length() - RiceSampleSink.FILE_EXTENSION.length());
+        } else if (name.endsWith(SpectrogramFormat.FILE_EXTENSION)) {
+            name = name.substring(0, name.length() - SpectrogramFormat.FILE_EXTENSION.length());
+        }
+        return new File(binFile.getParentFile(), name + ".csv");
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: SessionCsvExporter <recording.bin|recording.bin.rice|spectrogram.spec>...");
+            System.err.println("       SessionCsvExporter --chirp <number> <msBefore> <durationMs> <recording.bin>");
+            System.exit(1);
+        }
+        if (args[0].equals("--chirp") && args.length == 5) {
+            int chirp = Integer.parseInt(args[1]);
+            File binFile = new File(args[4]);
+            File csvFile = new File(binFile.getParentFile(),
+                    csvFileFor(binFile).getName().replace(".csv", "_chirp" + chirp + ".csv"));
+            exportChirpWindow(binFile, chirp, Integer.parseInt(args[2]), Integer.parseInt(args[3]), csvFile);
+            System.out.println(binFile + " -> " + csvFile);
+            return;
+        }
+        for (String path : args) {
+            File binFile = new File(path);
+            File csvFile = csvFileFor(binFile);
+            if (path.endsWith(SpectrogramFormat.FILE_EXTENSION)) {
+                exportSpectrogram(binFile, csvFile);
+            } else {
+                exportRecording(binFile, csvFile);
+            }
+            System.out.println(binFile + " -> " + csvFile);
+        }
+    }
+}
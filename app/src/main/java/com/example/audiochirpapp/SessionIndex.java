@@ -0,0 +1,332 @@
+package com.example.audiochirpapp;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Index of a binary recording held in memory: where each block and chirp
+ * is in the file, by frame and by time
+ *
+ * Loaded from the ".idx" file written during recording. Recordings without
+ * a complete index are indexed by reading only their record headers.
+ * Lookups are binary searches over the block table.
+ */
+public class SessionIndex {
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final int sampleRate;
+    private final int channelCount;
+    private final long startEpochNanos;
+
+    private int blockCount = 0;
+    private long[] blockFrames = new long[INITIAL_CAPACITY];
+    private int[] blockFrameCounts = new int[INITIAL_CAPACITY];
+    private long[] blockOffsets = new long[INITIAL_CAPACITY];
+    private long[] blockEpochNanos = new long[INITIAL_CAPACITY];
+
+    private int chirpCount = 0;
+    private long[] chirpFrames = new long[INITIAL_CAPACITY];
+    private long[] chirpOffsets = new long[INITIAL_CAPACITY];
+    private long[] chirpEpochNanos = new long[INITIAL_CAPACITY];
+
+    // File size covered by the entries
+    private long endOffset;
+
+    private SessionIndex(int sampleRate, int channelCount, long startEpochNanos) {
+        this.sampleRate = sampleRate;
+        this.channelCount = channelCount;
+        this.startEpochNanos = startEpochNanos;
+        this.endOffset = BinarySessionFormat.HEADER_SIZE;
+    }
+
+    /**
+     * Loads the index of a recording, from its ".idx" file if that covers
+     * the whole recording and from the recording itself otherwise
+     *
+     * @param recordingFile Binary recording
+     * @return The index
+     * @throws IOException If the recording cannot be read or is corrupt
+     */
+    public static SessionIndex load(File recordingFile) throws IOException {
+        File indexFile = SessionIndexFormat.indexFileFor(recordingFile);
+        if (indexFile.exists()) {
+            try {
+                SessionIndex index = read(indexFile);
+                if (index.endOffset == recordingFile.length()) {
+                    return index;
+                }
+            } catch (IOException e) {
+                // A damaged index is rebuilt below
+                e.printStackTrace();
+            }
+        }
+        return scan(recordingFile);
+    }
+
+    /**
+     * Reads an ".idx" file
+     *
+     * @param indexFile Index file
+     * @return The index
+     * @throws IOException If the file cannot be read or is not an index file
+     */
+    public static SessionIndex read(File indexFile) throws IOException {
+        try (FileInputStream inputStream = new FileInputStream(indexFile)) {
+            FileChannel channel = inputStream.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Read the whole file, it holds 32 bytes per block
+            }
+            buffer.flip();
+
+            if (buffer.remaining() < SessionIndexFormat.HEADER_SIZE
+                    || buffer.getInt() != SessionIndexFormat.MAGIC) {
+                throw new IOException("Not an index file: " + indexFile);
+            }
+            short version = buffer.getShort();
+            if (version != SessionIndexFormat.VERSION) {
+                throw new IOException("Unsupported index version " + version);
+            }
+            int channelCount = buffer.getShort();
+            int sampleRate = buffer.getInt();
+            SessionIndex index = new SessionIndex(sampleRate, channelCount, buffer.getLong());
+
+            // A partial entry at the end is left out, the index is then incomplete
+            while (buffer.remaining() >= SessionIndexFormat.ENTRY_SIZE) {
+                int tag = buffer.getInt();
+                int sampleCount = buffer.getInt();
+                long frameIndex = buffer.getLong();
+                long fileOffset = buffer.getLong();
+                long epochNanos = buffer.getLong();
+                index.add(tag, sampleCount, frameIndex, fileOffset, epochNanos);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Builds the index of a recording by reading its record headers
+     *
+     * @param recordingFile Binary recording
+     * @return The index
+     * @throws IOException If the recording cannot be read or is corrupt
+     */
+    public static SessionIndex scan(File recordingFile) throws IOException {
+        try (BinarySessionReader reader = new BinarySessionReader(recordingFile);
+             FileInputStream inputStream = new FileInputStream(recordingFile)) {
+            SessionIndex index = new SessionIndex(reader.getSampleRate(), reader.getChannelCount(),
+                    reader.getStartEpochNanos());
+
+            FileChannel channel = inputStream.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(BinarySessionFormat.RECORD_HEADER_SIZE
+                    + BinarySessionFormat.BLOCK_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            long size = channel.size();
+            long offset = BinarySessionFormat.HEADER_SIZE;
+
+            while (offset + header.capacity() <= size) {
+                header.clear();
+                readFully(channel, header, offset);
+                header.flip();
+                int tag = header.getInt();
+                int payloadLength = header.getInt();
+                long epochNanos = header.getLong();
+                long frameIndex = header.getLong();
+
+                long next = offset + BinarySessionFormat.RECORD_HEADER_SIZE + payloadLength;
+                if (payloadLength < 0 || next > size) {
+                    // Cut off while recording, keep the complete records
+                    break;
+                }
+                if (tag == BinarySessionFormat.TAG_BLOCK) {
+                    index.add(tag, (payloadLength - BinarySessionFormat.BLOCK_HEADER_SIZE) / 2, frameIndex,
+                            offset + header.capacity(), epochNanos);
+                } else if (tag == BinarySessionFormat.TAG_CHIRP) {
+                    index.add(tag, 0, frameIndex, offset, epochNanos);
+                }
+                offset = next;
+            }
+            index.endOffset = offset;
+            return index;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Truncated session file");
+            }
+        }
+    }
+
+    private void add(int tag, int sampleCount, long frameIndex, long fileOffset, long epochNanos) {
+        if (tag == BinarySessionFormat.TAG_BLOCK) {
+            if (blockCount == blockFrames.length) {
+                int capacity = blockCount * 2;
+                blockFrames = Arrays.copyOf(blockFrames, capacity);
+                blockFrameCounts = Arrays.copyOf(blockFrameCounts, capacity);
+                blockOffsets = Arrays.copyOf(blockOffsets, capacity);
+                blockEpochNanos = Arrays.copyOf(blockEpochNanos, capacity);
+            }
+            blockFrames[blockCount] = frameIndex;
+            blockFrameCounts[blockCount] = sampleCount / channelCount;
+            blockOffsets[blockCount] = fileOffset;
+            blockEpochNanos[blockCount] = epochNanos;
+            blockCount++;
+            endOffset = Math.max(endOffset, fileOffset + sampleCount * 2L);
+        } else if (tag == BinarySessionFormat.TAG_CHIRP) {
+            if (chirpCount == chirpFrames.length) {
+                int capacity = chirpCount * 2;
+                chirpFrames = Arrays.copyOf(chirpFrames, capacity);
+                chirpOffsets = Arrays.copyOf(chirpOffsets, capacity);
+                chirpEpochNanos = Arrays.copyOf(chirpEpochNanos, capacity);
+            }
+            chirpFrames[chirpCount] = frameIndex;
+            chirpOffsets[chirpCount] = fileOffset;
+            chirpEpochNanos[chirpCount] = epochNanos;
+            chirpCount++;
+            endOffset = Math.max(endOffset, fileOffset + BinarySessionFormat.RECORD_HEADER_SIZE
+                    + BinarySessionFormat.CHIRP_PAYLOAD_SIZE);
+        }
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getChannelCount() {
+        return channelCount;
+    }
+
+    public long getStartEpochNanos() {
+        return startEpochNanos;
+    }
+
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    /**
+     * @return Frame index of the first sample of the block
+     */
+    public long getBlockFrame(int block) {
+        return blockFrames[block];
+    }
+
+    /**
+     * @return Number of frames in the block
+     */
+    public int getBlockFrameCount(int block) {
+        return blockFrameCounts[block];
+    }
+
+    /**
+     * @return File offset of the first sample of the block
+     */
+    public long getBlockOffset(int block) {
+        return blockOffsets[block];
+    }
+
+    /**
+     * @return Capture time of the first sample of the block
+     */
+    public long getBlockEpochNanos(int block) {
+        return blockEpochNanos[block];
+    }
+
+    public int getChirpCount() {
+        return chirpCount;
+    }
+
+    /**
+     * @return Recorder frame at which the chirp starts
+     */
+    public long getChirpFrame(int chirp) {
+        return chirpFrames[chirp];
+    }
+
+    /**
+     * @return File offset of the chirp record
+     */
+    public long getChirpOffset(int chirp) {
+        return chirpOffsets[chirp];
+    }
+
+    public long getChirpEpochNanos(int chirp) {
+        return chirpEpochNanos[chirp];
+    }
+
+    /**
+     * @return One past the last recorded frame, or 0 if nothing was recorded
+     */
+    public long getEndFrame() {
+        return blockCount == 0 ? 0 : blockFrames[blockCount - 1] + blockFrameCounts[blockCount - 1];
+    }
+
+    /**
+     * Finds the last block starting at or before a frame
+     *
+     * @param frame Frame index
+     * @return Block number, or -1 if the frame is before the first block
+     */
+    public int findBlockBefore(long frame) {
+        int low = 0;
+        int high = blockCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (blockFrames[mid] <= frame) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * Finds the block holding a frame
+     *
+     * @param frame Frame index
+     * @return Block number, or -1 if the frame was not recorded
+     */
+    public int findBlock(long frame) {
+        int block = findBlockBefore(frame);
+        if (block < 0 || frame >= blockFrames[block] + blockFrameCounts[block]) {
+            return -1;
+        }
+        return block;
+    }
+
+    /**
+     * Converts a time in the session to the frame captured at that time,
+     * using the capture time of the nearest preceding block
+     *
+     * @param relativeNanos Time since the session start
+     * @return Frame index, which may lie outside the recording
+     */
+    public long frameAtTime(long relativeNanos) {
+        long epochNanos = startEpochNanos + relativeNanos;
+        int low = 0;
+        int high = blockCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (blockEpochNanos[mid] <= epochNanos) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (blockCount == 0) {
+            return Math.round(relativeNanos * (double) sampleRate / 1e9);
+        }
+        int block = Math.max(high, 0);
+        return blockFrames[block]
+                + Math.round((epochNanos - blockEpochNanos[block]) * (double) sampleRate / 1e9);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.audiochirpapp;
+
+import java.io.File;
+
+/**
+ * Constants describing the index written next to a binary recording.
+ *
+ * Layout (all values little-endian):
+ * <pre>
+ * header : int magic, short version, short channelCount, int sampleRate, long startEpochNanos
+ * entry  : int tag, int sampleCount, long frameIndex, long fileOffset, long epochNanos
+ * </pre>
+ * There is one entry per record of the recording, in file order. For a
+ * BLOCK the offset is that of its first sample; for a CHIRP it is that of
+ * the record and the sample count is 0. Tags are those of {@link BinarySessionFormat}.
+ */
+public final class SessionIndexFormat {
+    public static final int MAGIC = 0x58494341;     // "ACIX"
+    public static final short VERSION = 1;
+    public static final int HEADER_SIZE = 4 + 2 + 2 + 4 + 8;
+    public static final int ENTRY_SIZE = 4 + 4 + 8 + 8 + 8;
+
+    public static final String FILE_EXTENSION = ".idx";
+
+    private SessionIndexFormat() {
+    }
+
+    /**
+     * Returns the index file that belongs to a recording
+     *
+     * @param recordingFile Binary recording
+     * @return File next to it with the ".idx" extension
+     */
+    public static File indexFileFor(File recordingFile) {
+        String name = recordingFile.getName();
+        if (name.endsWith(BinarySessionFormat.FILE_EXTENSION)) {
+            name = name.substring(0, name.length() - BinarySessionFormat.FILE_EXTENSION.length());
+        }
+        return new File(recordingFile.getParentFile(), name + FILE_EXTENSION);
+    }
+}
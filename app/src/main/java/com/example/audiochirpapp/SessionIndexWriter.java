@@ -0,0 +1,90 @@
+package com.example.audiochirpapp;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Class for writing the index of a binary recording, see {@link SessionIndexFormat}
+ */
+public class SessionIndexWriter implements Closeable {
+    private static final int BUFFER_SIZE = 4096;
+
+    private final FileOutputStream outputStream;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+
+    /**
+     * Creates the file and writes the index header
+     *
+     * @param file Output file
+     * @param sampleRate Sample rate in Hz
+     * @param channelCount Number of interleaved channels per frame
+     * @param startEpochNanos Session start time in nanoseconds since the epoch
+     * @throws IOException If the file cannot be created
+     */
+    public SessionIndexWriter(File file, int sampleRate, int channelCount, long startEpochNanos)
+            throws IOException {
+        this.outputStream = new FileOutputStream(file);
+        this.channel = outputStream.getChannel();
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(SessionIndexFormat.MAGIC);
+        buffer.putShort(SessionIndexFormat.VERSION);
+        buffer.putShort((short) channelCount);
+        buffer.putInt(sampleRate);
+        buffer.putLong(startEpochNanos);
+    }
+
+    /**
+     * Appends an entry
+     *
+     * @param tag BinarySessionFormat.TAG_BLOCK or TAG_CHIRP
+     * @param sampleCount Number of samples of a block, 0 for a chirp
+     * @param frameIndex Frame index of the record
+     * @param fileOffset Offset of the samples of a block, or of a chirp record
+     * @param epochNanos Time of the record in nanoseconds since the epoch
+     * @throws IOException If writing fails
+     */
+    public void addEntry(int tag, int sampleCount, long frameIndex, long fileOffset, long epochNanos)
+            throws IOException {
+        if (buffer.remaining() < SessionIndexFormat.ENTRY_SIZE) {
+            drain();
+        }
+        buffer.putInt(tag);
+        buffer.putInt(sampleCount);
+        buffer.putLong(frameIndex);
+        buffer.putLong(fileOffset);
+        buffer.putLong(epochNanos);
+    }
+
+    /**
+     * Writes any buffered entries to the file
+     *
+     * @throws IOException If writing fails
+     */
+    public void flush() throws IOException {
+        drain();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
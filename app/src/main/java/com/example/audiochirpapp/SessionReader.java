@@ -0,0 +1,294 @@
+package com.example.audiochirpapp;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads back a session written by DataManager, on the device or on a desktop JVM
+ *
+ * The recording is memory-mapped through {@link MappedRecording}, so the
+ * heap use does not grow with the session length. The transmitted CSV is
+ * not parsed: the transmitted samples are regenerated from the chirp
+ * parameters, exactly as they were written. Usage on a desktop:
+ * <pre>java com.example.audiochirpapp.SessionReader session_recording_x.bin [noiseMs tailMs]</pre>
+ */
+public class SessionReader implements Closeable {
+    private static final String RECORDING_TAG = "_recording_";
+    private static final String PARAMS_TAG = "_params_";
+    private static final String TRANSMITTED_TAG = "_transmitted_";
+
+    /**
+     * A CHIRP row of the params CSV
+     */
+    public static class LoggedChirp {
+        private final String timestamp;
+        private final ChirpParams leftParams;
+        private final ChirpParams rightParams;
+        private final long frameIndex;
+
+        public LoggedChirp(String timestamp, ChirpParams leftParams, ChirpParams rightParams, long frameIndex) {
+            this.timestamp = timestamp;
+            this.leftParams = leftParams;
+            this.rightParams = rightParams;
+            this.frameIndex = frameIndex;
+        }
+
+        /**
+         * @return Time the row was written, as formatted in the CSV
+         */
+        public String getTimestamp() {
+            return timestamp;
+        }
+
+        public ChirpParams getLeftParams() {
+            return leftParams;
+        }
+
+        public ChirpParams getRightParams() {
+            return rightParams;
+        }
+
+        /**
+         * @return Playback frame of the chirp start, or -1 in sessions that did not log it
+         */
+        public long getFrameIndex() {
+            return frameIndex;
+        }
+    }
+
+    private final File recordingFile;
+    private final File paramsFile;
+    private final File transmittedFile;
+    private final MappedRecording recording;
+    private final List<LoggedChirp> loggedChirps;
+
+    /**
+     * Opens a session from its recording. The params and transmitted files
+     * are looked up next to it and may be missing.
+     *
+     * @param recordingFile The "_recording_*.bin" file of the session
+     * @throws IOException If the recording or the params CSV cannot be read
+     */
+    public SessionReader(File recordingFile) throws IOException {
+        this.recordingFile = recordingFile;
+        this.paramsFile = siblingFile(recordingFile, PARAMS_TAG, ".csv");
+        this.transmittedFile = siblingFile(recordingFile, TRANSMITTED_TAG, ".csv");
+        this.recording = new MappedRecording(recordingFile);
+
+        try {
+            this.loggedChirps = paramsFile != null && paramsFile.exists()
+                    ? readParams(paramsFile)
+                    : Collections.<LoggedChirp>emptyList();
+        } catch (IOException e) {
+            recording.close();
+            throw e;
+        }
+    }
+
+    private static File siblingFile(File recordingFile, String tag, String extension) {
+        String name = recordingFile.getName();
+        int tagIndex = name.lastIndexOf(RECORDING_TAG);
+        if (tagIndex < 0) {
+            return null;
+        }
+        String suffix = name.substring(tagIndex + RECORDING_TAG.length());
+        if (suffix.endsWith(BinarySessionFormat.FILE_EXTENSION)) {
+            suffix = suffix.substring(0, suffix.length() - BinarySessionFormat.FILE_EXTENSION.length());
+        }
+        return new File(recordingFile.getParentFile(), name.substring(0, tagIndex) + tag + suffix + extension);
+    }
+
+    private static List<LoggedChirp> readParams(File file) throws IOException {
+        List<LoggedChirp> chirps = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            // timestamp,eventType,leftFreq,leftBw,rightFreq,rightBw,duration[,frameIndex]
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] columns = line.split(",");
+                if (columns.length < 7 || !columns[1].equals("CHIRP")) {
+                    continue;
+                }
+                try {
+                    int duration = Integer.parseInt(columns[6]);
+                    chirps.add(new LoggedChirp(columns[0],
+                            new ChirpParams(Integer.parseInt(columns[2]), Integer.parseInt(columns[3]), duration),
+                            new ChirpParams(Integer.parseInt(columns[4]), Integer.parseInt(columns[5]), duration),
+                            columns.length > 7 ? Long.parseLong(columns[7]) : -1));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid params row: " + line, e);
+                }
+            }
+        }
+        return chirps;
+    }
+
+    public File getRecordingFile() {
+        return recordingFile;
+    }
+
+    /**
+     * @return The params CSV, which may not exist
+     */
+    public File getParamsFile() {
+        return paramsFile;
+    }
+
+    /**
+     * @return The transmitted CSV, which may not exist
+     */
+    public File getTransmittedFile() {
+        return transmittedFile;
+    }
+
+    /**
+     * @return The memory-mapped recording
+     */
+    public MappedRecording getRecording() {
+        return recording;
+    }
+
+    /**
+     * @return Rows of the params CSV, in file order
+     */
+    public List<LoggedChirp> getLoggedChirps() {
+        return loggedChirps;
+    }
+
+    public int getSampleRate() {
+        return recording.getIndex().getSampleRate();
+    }
+
+    /**
+     * @return Number of chirps marked in the recording
+     */
+    public int getChirpCount() {
+        return recording.getIndex().getChirpCount();
+    }
+
+    /**
+     * Returns the recording around a chirp
+     *
+     * @param chirp Chirp number, in the order the chirps were played
+     * @param noiseMs Length of the noise window before the chirp
+     * @param tailMs Time after the chirp end to include for its echoes
+     * @return The chirp window
+     * @throws IOException If the recording cannot be read
+     */
+    public ChirpWindow getChirpWindow(int chirp, int noiseMs, int tailMs) throws IOException {
+        SessionIndex index = recording.getIndex();
+        ChirpParams left = recording.getChirpLeftParams(chirp);
+        ChirpParams right = recording.getChirpRightParams(chirp);
+        long startFrame = index.getChirpFrame(chirp);
+
+        int noiseFrames = msToFrames(noiseMs);
+        int signalFrames = msToFrames(Math.max(left.getDuration(), right.getDuration()) + tailMs);
+        return new ChirpWindow(chirp, startFrame, index.getChirpEpochNanos(chirp), left, right,
+                recording.getFrames(startFrame - noiseFrames, noiseFrames),
+                recording.getFrames(startFrame, signalFrames));
+    }
+
+    /**
+     * Iterates over the windows of all chirps, reading each one as it is reached.
+     * The iterator throws IllegalStateException if the recording cannot be read.
+     *
+     * @param noiseMs Length of the noise window before each chirp
+     * @param tailMs Time after each chirp end to include for its echoes
+     * @return The chirp windows in playing order
+     */
+    public Iterable<ChirpWindow> chirpWindows(final int noiseMs, final int tailMs) {
+        return new Iterable<ChirpWindow>() {
+            @Override
+            public Iterator<ChirpWindow> iterator() {
+                return new Iterator<ChirpWindow>() {
+                    private int next = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < getChirpCount();
+                    }
+
+                    @Override
+                    public ChirpWindow next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        try {
+                            return getChirpWindow(next++, noiseMs, tailMs);
+                        } catch (IOException e) {
+                            throw new IllegalStateException("Cannot read chirp " + (next - 1), e);
+                        }
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Regenerates the transmitted samples of a chirp
+     *
+     * @param chirp Chirp number, in the order the chirps were played
+     * @return Interleaved left/right frames
+     * @throws IOException If the chirp record cannot be read
+     */
+    public ShortBuffer getTransmittedSamples(int chirp) throws IOException {
+        ChirpGenerator left = new ChirpGenerator(recording.getChirpLeftParams(chirp));
+        ChirpGenerator right = new ChirpGenerator(recording.getChirpRightParams(chirp));
+        int frames = Math.max(left.getTotalSamples(), right.getTotalSamples());
+
+        short[] leftSamples = new short[frames];
+        short[] rightSamples = new short[frames];
+        left.fill(leftSamples, 0, frames);
+        right.fill(rightSamples, 0, frames);
+        return ShortBuffer.wrap(AudioUtils.interleave(leftSamples, rightSamples));
+    }
+
+    private int msToFrames(int ms) {
+        return (int) ((long) ms * getSampleRate() / 1000);
+    }
+
+    @Override
+    public void close() throws IOException {
+        recording.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1 && args.length != 3) {
+            System.err.println("Usage: SessionReader <recording.bin> [noiseMs tailMs]");
+            System.exit(1);
+        }
+        int noiseMs = args.length == 3 ? Integer.parseInt(args[1]) : 200;
+        int tailMs = args.length == 3 ? Integer.parseInt(args[2]) : 200;
+
+        try (SessionReader reader = new SessionReader(new File(args[0]))) {
+            System.out.println("chirp,frame,leftFreq,rightFreq,duration,rms,peak,noiseRms,snrDb");
+            for (ChirpWindow window : reader.chirpWindows(noiseMs, tailMs)) {
+                System.out.println(String.format(Locale.US, "%d,%d,%d,%d,%d,%.6f,%.6f,%.6f,%.2f",
+                        window.getChirp(),
+                        window.getStartFrame(),
+                        window.getLeftParams().getCenterFrequency(),
+                        window.getRightParams().getCenterFrequency(),
+                        window.getLeftParams().getDuration(),
+                        window.getRms(),
+                        window.getPeak(),
+                        window.getNoiseRms(),
+                        window.getSnrDb()));
+            }
+        }
+    }
+}
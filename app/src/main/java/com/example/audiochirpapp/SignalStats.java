@@ -0,0 +1,52 @@
+package com.example.audiochirpapp;
+
+import java.nio.ShortBuffer;
+
+/**
+ * Level statistics of 16-bit samples, relative to full scale
+ */
+public final class SignalStats {
+    private static final double FULL_SCALE = 32768.0;
+
+    private SignalStats() {
+    }
+
+    /**
+     * @param samples Samples from the buffer's position to its limit, which are not consumed
+     * @return Root mean square level, 1 for a full-scale square wave, 0 if empty
+     */
+    public static double rms(ShortBuffer samples) {
+        int start = samples.position();
+        int end = samples.limit();
+        if (end == start) {
+            return 0;
+        }
+        double sum = 0;
+        for (int i = start; i < end; i++) {
+            double value = samples.get(i);
+            sum += value * value;
+        }
+        return Math.sqrt(sum / (end - start)) / FULL_SCALE;
+    }
+
+    /**
+     * @param samples Samples from the buffer's position to its limit, which are not consumed
+     * @return Largest absolute sample value, 1 at full scale
+     */
+    public static double peak(ShortBuffer samples) {
+        int peak = 0;
+        for (int i = samples.position(); i < samples.limit(); i++) {
+            peak = Math.max(peak, Math.abs(samples.get(i)));
+        }
+        return peak / FULL_SCALE;
+    }
+
+    /**
+     * @param signalRms RMS level of the signal
+     * @param noiseRms RMS level of the noise
+     * @return Ratio in dB, infinite if there is no noise
+     */
+    public static double snrDb(double signalRms, double noiseRms) {
+        return 20 * Math.log10(signalRms / noiseRms);
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.audiochirpapp;
+
+/**
+ * Constants describing the binary spectrogram format.
+ *
+ * Layout (all values little-endian):
+ * <pre>
+ * header : int magic, short version, short reserved, int sampleRate,
+ *          int windowSize, int hop, long startEpochNanos
+ * frame  : long frameIndex, short firstBin, short binCount, float[] magnitudes
+ * </pre>
+ * A frame holds the magnitudes of one contiguous range of bins for the
+ * window starting at frameIndex. Windows covering several bands are written
+ * as one frame per band with the same frameIndex.
+ */
+public final class SpectrogramFormat {
+    public static final int MAGIC = 0x50534341;     // "ACSP"
+    public static final short VERSION = 1;
+    public static final int HEADER_SIZE = 4 + 2 + 2 + 4 + 4 + 4 + 8;
+
+    public static final int FRAME_HEADER_SIZE = 8 + 2 + 2;
+
+    public static final String FILE_EXTENSION = ".spec";
+
+    private SpectrogramFormat() {
+    }
+}
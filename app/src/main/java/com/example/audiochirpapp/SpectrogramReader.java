@@ -0,0 +1,156 @@
+package com.example.audiochirpapp;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Class for reading files written by {@link SpectrogramWriter}
+ */
+public class SpectrogramReader implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Receives the frames of a spectrogram in file order
+     */
+    public interface Listener {
+        /**
+         * @param frameIndex Recorder frame index of the first sample of the window
+         * @param firstBin Index of the first bin
+         * @param magnitudes Magnitudes, only valid until the method returns
+         * @param count Number of bins
+         */
+        void onFrame(long frameIndex, int firstBin, float[] magnitudes, int count);
+    }
+
+    private final FileInputStream inputStream;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final int sampleRate;
+    private final int windowSize;
+    private final int hop;
+    private final long startEpochNanos;
+    private float[] magnitudes = new float[0];
+
+    /**
+     * Opens a spectrogram file and reads its header
+     *
+     * @param file Spectrogram file
+     * @throws IOException If the file cannot be read or is not a spectrogram file
+     */
+    public SpectrogramReader(File file) throws IOException {
+        this.inputStream = new FileInputStream(file);
+        this.channel = inputStream.getChannel();
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.flip();
+
+        try {
+            require(SpectrogramFormat.HEADER_SIZE);
+            if (buffer.getInt() != SpectrogramFormat.MAGIC) {
+                throw new IOException("Not a spectrogram file: " + file);
+            }
+            short version = buffer.getShort();
+            if (version != SpectrogramFormat.VERSION) {
+                throw new IOException("Unsupported spectrogram version " + version);
+            }
+            buffer.getShort();
+            this.sampleRate = buffer.getInt();
+            this.windowSize = buffer.getInt();
+            this.hop = buffer.getInt();
+            this.startEpochNanos = buffer.getLong();
+        } catch (IOException e) {
+            inputStream.close();
+            throw e;
+        }
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public int getHop() {
+        return hop;
+    }
+
+    public long getStartEpochNanos() {
+        return startEpochNanos;
+    }
+
+    /**
+     * @param bin Bin index
+     * @return Center frequency of the bin in Hz
+     */
+    public double binFrequency(int bin) {
+        return (double) bin * sampleRate / windowSize;
+    }
+
+    /**
+     * Reads all remaining frames and passes them to the listener
+     *
+     * @param listener Listener for the frames
+     * @throws IOException If reading fails or the file is corrupt
+     */
+    public void readAll(Listener listener) throws IOException {
+        while (fill(SpectrogramFormat.FRAME_HEADER_SIZE)) {
+            long frameIndex = buffer.getLong();
+            int firstBin = buffer.getShort() & 0xFFFF;
+            int count = buffer.getShort() & 0xFFFF;
+
+            if (magnitudes.length < count) {
+                magnitudes = new float[count];
+            }
+            for (int i = 0; i < count; i++) {
+                if (buffer.remaining() < 4) {
+                    require(4);
+                }
+                magnitudes[i] = buffer.getFloat();
+            }
+
+            listener.onFrame(frameIndex, firstBin, magnitudes, count);
+        }
+    }
+
+    private void require(int bytes) throws IOException {
+        if (!fill(bytes)) {
+            throw new EOFException("Truncated spectrogram file");
+        }
+    }
+
+    /**
+     * Makes sure at least the given number of bytes is buffered
+     *
+     * @return false if the end of the file was reached before any byte was read
+     */
+    private boolean fill(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return true;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                boolean empty = buffer.position() == 0;
+                buffer.flip();
+                if (empty) {
+                    return false;
+                }
+                throw new EOFException("Truncated spectrogram file");
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+}
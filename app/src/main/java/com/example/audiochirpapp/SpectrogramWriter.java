@@ -0,0 +1,87 @@
+package com.example.audiochirpapp;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Class for writing magnitude frames in the binary spectrogram format
+ */
+public class SpectrogramWriter implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileOutputStream outputStream;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+
+    /**
+     * Creates the file and writes the header
+     *
+     * @param file Output file
+     * @param sampleRate Sample rate in Hz
+     * @param windowSize STFT window size in frames
+     * @param hop Distance between consecutive windows in frames
+     * @param startEpochNanos Session start time in nanoseconds since the epoch
+     * @throws IOException If the file cannot be created
+     */
+    public SpectrogramWriter(File file, int sampleRate, int windowSize, int hop, long startEpochNanos)
+            throws IOException {
+        this.outputStream = new FileOutputStream(file);
+        this.channel = outputStream.getChannel();
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(SpectrogramFormat.MAGIC);
+        buffer.putShort(SpectrogramFormat.VERSION);
+        buffer.putShort((short) 0);
+        buffer.putInt(sampleRate);
+        buffer.putInt(windowSize);
+        buffer.putInt(hop);
+        buffer.putLong(startEpochNanos);
+    }
+
+    /**
+     * Appends the magnitudes of one range of bins
+     *
+     * @param frameIndex Recorder frame index of the first sample of the window
+     * @param firstBin Index of the first bin
+     * @param magnitudes Magnitudes of consecutive bins
+     * @param count Number of bins
+     * @throws IOException If writing fails
+     */
+    public void writeFrame(long frameIndex, int firstBin, float[] magnitudes, int count) throws IOException {
+        if (buffer.remaining() < SpectrogramFormat.FRAME_HEADER_SIZE) {
+            drain();
+        }
+        buffer.putLong(frameIndex);
+        buffer.putShort((short) firstBin);
+        buffer.putShort((short) count);
+
+        for (int i = 0; i < count; i++) {
+            if (buffer.remaining() < 4) {
+                drain();
+            }
+            buffer.putFloat(magnitudes[i]);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
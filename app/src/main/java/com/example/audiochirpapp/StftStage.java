@@ -0,0 +1,181 @@
+package com.example.audiochirpapp;
+
+/**
+ * Recording stage computing a short-time Fourier transform of the recording,
+ * restricted to the frequency bands of the active chirps
+ *
+ * A Hann window of windowSize frames is applied every hop frames. Only the
+ * bins covering the bands set with {@link #setBands} are passed on, as
+ * amplitudes relative to full scale: a full-scale sine in the middle of a
+ * bin has magnitude 1. No objects are created per window.
+ */
+public class StftStage implements RecordingStage {
+
+    /**
+     * Receives the magnitudes of each window
+     */
+    public interface Output {
+        /**
+         * @param frameIndex Recorder frame index of the first sample of the window
+         * @param firstBin Index of the first bin
+         * @param magnitudes Magnitudes, only valid until the method returns
+         * @param count Number of bins
+         */
+        void onFrame(long frameIndex, int firstBin, float[] magnitudes, int count);
+    }
+
+    private final int windowSize;
+    private final int hop;
+    private final int sampleRate;
+    private final Output output;
+    private final Fft fft;
+    private final double[] window;
+    private final double magnitudeScale;
+
+    // Pairs of (first bin, bin count), replaced as a whole by setBands
+    private volatile int[] bands = new int[0];
+
+    // Only touched by the recording thread
+    private final short[] history;
+    private final double[] work;
+    private final float[] magnitudes;
+    private long nextFrame = 0;
+    private long windowStart = 0;
+
+    /**
+     * @param windowSize Window length in frames, a power of two
+     * @param hop Distance between consecutive windows in frames, at most windowSize
+     * @param sampleRate Sample rate in Hz
+     * @param output Receiver of the magnitude frames, called on the recording thread
+     */
+    public StftStage(int windowSize, int hop, int sampleRate, Output output) {
+        if (hop < 1 || hop > windowSize) {
+            throw new IllegalArgumentException("Invalid hop " + hop + " for window " + windowSize);
+        }
+        this.windowSize = windowSize;
+        this.hop = hop;
+        this.sampleRate = sampleRate;
+        this.output = output;
+        this.fft = new Fft(windowSize);
+
+        // Periodic Hann window, computed once
+        window = new double[windowSize];
+        double windowSum = 0;
+        for (int i = 0; i < windowSize; i++) {
+            window[i] = 0.5 * (1 - Math.cos(2 * Math.PI * i / windowSize));
+            windowSum += window[i];
+        }
+        magnitudeScale = 2 / (windowSum * 32768.0);
+
+        history = new short[windowSize];
+        work = new double[windowSize];
+        magnitudes = new float[windowSize / 2 + 1];
+    }
+
+    /**
+     * Restricts the output to the bands swept by the chirps. Overlapping
+     * bands are merged. May be called from any thread.
+     *
+     * @param leftParams Left channel parameters
+     * @param rightParams Right channel parameters
+     */
+    public void setBands(ChirpParams leftParams, ChirpParams rightParams) {
+        int leftFirst = frequencyToBin(leftParams.getStartFrequency(), false);
+        int leftLast = frequencyToBin(leftParams.getEndFrequency(), true);
+        int rightFirst = frequencyToBin(rightParams.getStartFrequency(), false);
+        int rightLast = frequencyToBin(rightParams.getEndFrequency(), true);
+
+        if (rightFirst < leftFirst) {
+            int t = leftFirst;
+            leftFirst = rightFirst;
+            rightFirst = t;
+            t = leftLast;
+            leftLast = rightLast;
+            rightLast = t;
+        }
+
+        if (rightFirst <= leftLast + 1) {
+            int last = Math.max(leftLast, rightLast);
+            bands = new int[]{leftFirst, last - leftFirst + 1};
+        } else {
+            bands = new int[]{leftFirst, leftLast - leftFirst + 1, rightFirst, rightLast - rightFirst + 1};
+        }
+    }
+
+    /**
+     * @return Frequency resolution in Hz
+     */
+    public double getBinWidth() {
+        return (double) sampleRate / windowSize;
+    }
+
+    @Override
+    public void onBlock(short[] data, int length, long firstFrame) {
+        if (firstFrame != nextFrame) {
+            // Blocks were dropped, start windowing again after the gap
+            nextFrame = firstFrame;
+            windowStart = firstFrame;
+        }
+
+        int mask = windowSize - 1;
+        int offset = 0;
+        while (offset < length) {
+            int count = (int) Math.min(length - offset, windowStart + windowSize - nextFrame);
+            for (int i = 0; i < count; i++) {
+                history[(int) (nextFrame + i) & mask] = data[offset + i];
+            }
+            offset += count;
+            nextFrame += count;
+
+            if (nextFrame == windowStart + windowSize) {
+                transformWindow();
+                windowStart += hop;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        // Partial windows are dropped
+    }
+
+    private void transformWindow() {
+        int[] currentBands = bands;
+        if (currentBands.length == 0) {
+            return;
+        }
+
+        int mask = windowSize - 1;
+        for (int i = 0; i < windowSize; i++) {
+            work[i] = history[(int) (windowStart + i) & mask] * window[i];
+        }
+        fft.realForward(work);
+
+        for (int b = 0; b < currentBands.length; b += 2) {
+            int firstBin = currentBands[b];
+            int count = currentBands[b + 1];
+            for (int i = 0; i < count; i++) {
+                magnitudes[i] = (float) (binMagnitude(firstBin + i) * magnitudeScale);
+            }
+            output.onFrame(windowStart, firstBin, magnitudes, count);
+        }
+    }
+
+    private double binMagnitude(int bin) {
+        if (bin == 0) {
+            return Math.abs(work[0]);
+        }
+        if (bin == windowSize / 2) {
+            return Math.abs(work[1]);
+        }
+        double re = work[2 * bin];
+        double im = work[2 * bin + 1];
+        return Math.sqrt(re * re + im * im);
+    }
+
+    private int frequencyToBin(int frequency, boolean roundUp) {
+        double bin = (double) frequency * windowSize / sampleRate;
+        int index = (int) (roundUp ? Math.ceil(bin) : Math.floor(bin));
+        return Math.max(0, Math.min(windowSize / 2, index));
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.audiochirpapp;
+
+/**
+ * Maps the frame indices of one audio stream to the session's monotonic clock
+ *
+ * The mapping is a line fitted by least squares through recent
+ * (frame position, monotonic time) observations from the stream's hardware
+ * timestamps, so it accounts for buffer latency and for the difference
+ * between the audio clock and the system clock (drift). Until the hardware
+ * reports timestamps, the time at which frames are delivered to the app is
+ * used instead. Thread safe.
+ */
+public class StreamClock {
+    private static final int MAX_OBSERVATIONS = 64;
+    // Observations closer together than this add noise rather than information
+    private static final long MIN_OBSERVATION_INTERVAL_NS = 250000000L;
+    // Fitted rates further than this from nominal come from bad timestamps
+    private static final double MAX_RATE_DEVIATION = 0.01;
+
+    private final SessionClock sessionClock;
+    private final FrameTimestampSource source;
+    private final double nominalNanosPerFrame;
+    private final FrameTimestamp timestamp = new FrameTimestamp();
+
+    // Ring of recent observations
+    private final long[] observedFrames = new long[MAX_OBSERVATIONS];
+    private final long[] observedNanos = new long[MAX_OBSERVATIONS];
+    private int observationCount = 0;
+    private int nextObservation = 0;
+    private long lastObservationNanos;
+    private boolean hasHardwareTimestamps = false;
+
+    // Current mapping: nanos = baseNanos + (frame - baseFrame) * nanosPerFrame
+    private long baseFrame;
+    private long baseNanos;
+    private double nanosPerFrame;
+
+    /**
+     * Creates a clock that maps frame 0 to the current time until observations arrive
+     *
+     * @param sessionClock Timebase of the session
+     * @param source Hardware timestamps of the stream, or null if there are none
+     * @param sampleRate Nominal sample rate in Hz
+     */
+    public StreamClock(SessionClock sessionClock, FrameTimestampSource source, int sampleRate) {
+        this.sessionClock = sessionClock;
+        this.source = source;
+        this.nominalNanosPerFrame = 1e9 / sampleRate;
+        this.baseFrame = 0;
+        this.baseNanos = sessionClock.nanoTime();
+        this.nanosPerFrame = nominalNanosPerFrame;
+    }
+
+    /**
+     * Polls the stream for a new timestamp and refines the mapping. Called
+     * by the thread that moves audio, after every read or write.
+     *
+     * @param framesDelivered Total frames transferred between the app and the stream so far
+     */
+    public synchronized void update(long framesDelivered) {
+        if (source != null && source.read(timestamp)) {
+            if (!hasHardwareTimestamps) {
+                // Hardware timestamps supersede the delivery-time estimates
+                hasHardwareTimestamps = true;
+                observationCount = 0;
+                nextObservation = 0;
+            }
+            if (isObservationDue(timestamp.nanoTime)) {
+                addObservation(timestamp.framePosition, timestamp.nanoTime);
+            }
+        } else if (!hasHardwareTimestamps && framesDelivered > 0) {
+            long now = sessionClock.nanoTime();
+            if (isObservationDue(now)) {
+                addObservation(framesDelivered, now);
+            }
+        }
+    }
+
+    /**
+     * @param frame Frame index in the stream
+     * @return Monotonic time of the frame in nanoseconds
+     */
+    public synchronized long frameToNanos(long frame) {
+        return baseNanos + Math.round((frame - baseFrame) * nanosPerFrame);
+    }
+
+    /**
+     * @param frame Frame index in the stream
+     * @return Time of the frame in nanoseconds since the epoch
+     */
+    public long frameToEpochNanos(long frame) {
+        return sessionClock.toEpochNanos(frameToNanos(frame));
+    }
+
+    /**
+     * @param monotonicNanos Monotonic time in nanoseconds
+     * @return Index of the stream frame at that time
+     */
+    public synchronized long nanosToFrame(long monotonicNanos) {
+        return baseFrame + Math.round((monotonicNanos - baseNanos) / nanosPerFrame);
+    }
+
+    /**
+     * @return Deviation of the measured from the nominal sample rate, in parts per million
+     */
+    public synchronized double getDriftPpm() {
+        return (nominalNanosPerFrame / nanosPerFrame - 1) * 1e6;
+    }
+
+    /**
+     * @return true once the stream has reported a hardware timestamp
+     */
+    public synchronized boolean hasHardwareTimestamps() {
+        return hasHardwareTimestamps;
+    }
+
+    public SessionClock getSessionClock() {
+        return sessionClock;
+    }
+
+    private boolean isObservationDue(long nanos) {
+        return observationCount == 0 || nanos - lastObservationNanos >= MIN_OBSERVATION_INTERVAL_NS;
+    }
+
+    private void addObservation(long frame, long nanos) {
+        observedFrames[nextObservation] = frame;
+        observedNanos[nextObservation] = nanos;
+        nextObservation = (nextObservation + 1) % MAX_OBSERVATIONS;
+        if (observationCount < MAX_OBSERVATIONS) {
+            observationCount++;
+        }
+        lastObservationNanos = nanos;
+        fit();
+    }
+
+    /**
+     * Least-squares line through the observations, anchored at their mean
+     */
+    private void fit() {
+        // Work relative to one observation to keep the sums small
+        long frame0 = observedFrames[0];
+        long nanos0 = observedNanos[0];
+
+        double meanFrame = 0;
+        double meanNanos = 0;
+        for (int i = 0; i < observationCount; i++) {
+            meanFrame += observedFrames[i] - frame0;
+            meanNanos += observedNanos[i] - nanos0;
+        }
+        meanFrame /= observationCount;
+        meanNanos /= observationCount;
+
+        double rate = nominalNanosPerFrame;
+        if (observationCount > 1) {
+            double sxy = 0;
+            double sxx = 0;
+            for (int i = 0; i < observationCount; i++) {
+                double dx = observedFrames[i] - frame0 - meanFrame;
+                double dy = observedNanos[i] - nanos0 - meanNanos;
+                sxy += dx * dy;
+                sxx += dx * dx;
+            }
+            if (sxx > 0) {
+                double fitted = sxy / sxx;
+                if (Math.abs(fitted / nominalNanosPerFrame - 1) <= MAX_RATE_DEVIATION) {
+                    rate = fitted;
+                }
+            }
+        }
+
+        long meanFrameRounded = Math.round(meanFrame);
+        baseFrame = frame0 + meanFrameRounded;
+        baseNanos = nanos0 + Math.round(meanNanos + (meanFrameRounded - meanFrame) * rate);
+        nanosPerFrame = rate;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.audiochirpapp;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Formats epoch milliseconds as "yyyy-MM-dd HH:mm:ss.SSS" without creating
+ * objects per call
+ *
+ * The "yyyy-MM-dd HH:mm:ss." prefix is formatted once per second with
+ * SimpleDateFormat and cached; within that second only the three millisecond
+ * digits are patched. Output is identical to SimpleDateFormat with the same
+ * pattern and time zone. Not thread safe.
+ */
+public class TimestampFormatter {
+    private static final int MS_DIGITS = 3;
+
+    private final SimpleDateFormat prefixFormat;
+    private final Date date = new Date();
+
+    // Cached "yyyy-MM-dd HH:mm:ss." followed by the millisecond digits
+    private char[] chars = new char[0];
+    private int prefixLength = 0;
+    private long cachedSecond = Long.MIN_VALUE;
+    private long cachedMs = Long.MIN_VALUE;
+    private String cachedString;
+
+    /**
+     * Creates a formatter for the default time zone
+     */
+    public TimestampFormatter() {
+        this(TimeZone.getDefault());
+    }
+
+    /**
+     * @param timeZone Time zone of the formatted timestamps
+     */
+    public TimestampFormatter(TimeZone timeZone) {
+        prefixFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.", Locale.US);
+        prefixFormat.setTimeZone(timeZone);
+    }
+
+    /**
+     * Appends the formatted timestamp to a StringBuilder
+     *
+     * @param sb Destination
+     * @param epochMs Milliseconds since the epoch
+     */
+    public void append(StringBuilder sb, long epochMs) {
+        update(epochMs);
+        sb.append(chars, 0, prefixLength + MS_DIGITS);
+    }
+
+    /**
+     * Writes the formatted timestamp as ASCII bytes
+     *
+     * @param epochMs Milliseconds since the epoch
+     * @param dst Destination
+     * @param offset Index of the first byte to write
+     * @return Number of bytes written
+     */
+    public int format(long epochMs, byte[] dst, int offset) {
+        update(epochMs);
+        int length = prefixLength + MS_DIGITS;
+        for (int i = 0; i < length; i++) {
+            dst[offset + i] = (byte) chars[i];
+        }
+        return length;
+    }
+
+    /**
+     * Returns the formatted timestamp, reusing the last String when the
+     * millisecond value has not changed
+     *
+     * @param epochMs Milliseconds since the epoch
+     * @return Formatted timestamp
+     */
+    public String format(long epochMs) {
+        if (epochMs != cachedMs || cachedString == null) {
+            update(epochMs);
+            cachedMs = epochMs;
+            cachedString = new String(chars, 0, prefixLength + MS_DIGITS);
+        }
+        return cachedString;
+    }
+
+    /**
+     * @return Length in characters of timestamps within the current second
+     */
+    public int length() {
+        return prefixLength + MS_DIGITS;
+    }
+
+    private void update(long epochMs) {
+        // Floor division, so times before 1970 round towards the earlier second
+        long second = epochMs / 1000;
+        if (epochMs % 1000 < 0) {
+            second--;
+        }
+        int ms = (int) (epochMs - second * 1000);
+
+        if (second != cachedSecond) {
+            date.setTime(second * 1000);
+            String prefix = prefixFormat.format(date);
+            prefixLength = prefix.length();
+            if (chars.length < prefixLength + MS_DIGITS) {
+                chars = new char[prefixLength + MS_DIGITS];
+            }
+            prefix.getChars(0, prefixLength, chars, 0);
+            cachedSecond = second;
+        }
+
+        chars[prefixLength] = (char) ('0' + ms / 100);
+        chars[prefixLength + 1] = (char) ('0' + (ms / 10) % 10);
+        chars[prefixLength + 2] = (char) ('0' + ms % 10);
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.audiochirpapp;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Writes the transmitted chirps to CSV on its own thread
+ *
+ * Callers only pass the chirp parameters and start time. The writer thread
+ * regenerates the signal with {@link ChirpGenerator} in fixed-size chunks and
+ * encodes each chunk, so neither the caller nor the writer ever holds a whole
+ * chirp in memory. At most {@link #MAX_PENDING_CHIRPS} chirps can be queued;
+ * beyond that {@link #submit} blocks until the writer catches up.
+ *
+ * Optionally the chirps are also written to a stereo WAV file, each at its
+ * start time on the session timeline with silence in between.
+ */
+public class TransmittedDataWriter {
+    private static final String TAG = "TransmittedDataWriter";
+    private static final int CHUNK_FRAMES = 4096;
+    private static final int MAX_PENDING_CHIRPS = 8;
+    private static final int SAMPLE_RATE = 44100;
+
+    private final CsvSampleEncoder encoder;
+    private final WavWriter wavWriter;
+    private final long sessionStartMs;
+    private final ExecutorService executor;
+    private final Semaphore pendingChirps = new Semaphore(MAX_PENDING_CHIRPS);
+    private volatile boolean closed = false;
+
+    // Chunk buffers, only touched by the writer thread
+    private final short[] leftChunk = new short[CHUNK_FRAMES];
+    private final short[] rightChunk = new short[CHUNK_FRAMES];
+    private final short[] stereoChunk = new short[CHUNK_FRAMES * 2];
+
+    /**
+     * @param encoder Encoder for the transmitted CSV, owned by this writer from now on
+     * @param sessionStartMs Session start time, for the relative time column
+     */
+    public TransmittedDataWriter(CsvSampleEncoder encoder, long sessionStartMs) {
+        this(encoder, null, sessionStartMs);
+    }
+
+    /**
+     * @param encoder Encoder for the transmitted CSV, owned by this writer from now on
+     * @param wavWriter Stereo WAV file of the transmitted signal, or null for none;
+     *                  owned by this writer from now on
+     * @param sessionStartMs Session start time, for the relative time column
+     */
+    public TransmittedDataWriter(CsvSampleEncoder encoder, WavWriter wavWriter, long sessionStartMs) {
+        this.encoder = encoder;
+        this.wavWriter = wavWriter;
+        this.sessionStartMs = sessionStartMs;
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, TAG);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Queues a transmitted chirp for writing. Chirps submitted after
+     * {@link #close()} are dropped.
+     *
+     * @param leftParams Left channel parameters
+     * @param rightParams Right channel parameters
+     * @param chirpStartMs Absolute time at which the chirp started
+     */
+    public void submit(final ChirpParams leftParams, final ChirpParams rightParams, final long chirpStartMs) {
+        if (closed) {
+            Log.w(TAG, "Transmitted data closed, chirp dropped");
+            return;
+        }
+        try {
+            // Back-pressure: wait while too many chirps are still being written
+            pendingChirps.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        writeChirp(leftParams, rightParams, chirpStartMs);
+                    } catch (IOException e) {
+                        Log.e(TAG, "Error writing transmitted data", e);
+                    } finally {
+                        pendingChirps.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Closed while this chirp was waiting
+            pendingChirps.release();
+            Log.w(TAG, "Transmitted data closed, chirp dropped");
+        }
+    }
+
+    /**
+     * Closes the CSV once every queued chirp has been written. Returns immediately.
+     */
+    public void close() {
+        closed = true;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    encoder.close();
+                } catch (IOException e) {
+                    Log.e(TAG, "Error closing transmitted data", e);
+                }
+                if (wavWriter != null) {
+                    try {
+                        // Patches the WAV header with the final size
+                        wavWriter.close();
+                    } catch (IOException e) {
+                        Log.e(TAG, "Error closing transmitted WAV", e);
+                    }
+                }
+            }
+        });
+        executor.shutdown();
+    }
+
+    private void writeChirp(ChirpParams leftParams, ChirpParams rightParams, long chirpStartMs)
+            throws IOException {
+        ChirpGenerator leftGenerator = new ChirpGenerator(leftParams);
+        ChirpGenerator rightGenerator = new ChirpGenerator(rightParams);
+        long relativeTimeMs = chirpStartMs - sessionStartMs;
+        long frame = 0;
+
+        // Chirps closer than their length are written back to back
+        if (wavWriter != null) {
+            long gap = relativeTimeMs * SAMPLE_RATE / 1000 - wavWriter.getFramesWritten();
+            if (gap > 0) {
+                wavWriter.writeSilence(gap);
+            }
+        }
+
+        while (true) {
+            int leftCount = leftGenerator.fill(leftChunk, 0, CHUNK_FRAMES);
+            int rightCount = rightGenerator.fill(rightChunk, 0, CHUNK_FRAMES);
+            int frames = Math.min(leftCount, rightCount);
+            if (frames == 0) {
+                break;
+            }
+
+            encoder.writeTransmittedRows(leftChunk, rightChunk, frames, frame, chirpStartMs, relativeTimeMs);
+            if (wavWriter != null) {
+                AudioUtils.interleave(leftChunk, rightChunk, frames, stereoChunk);
+                wavWriter.writeSamples(stereoChunk, 0, frames * 2);
+            }
+            frame += frames;
+        }
+        encoder.flush();
+        if (wavWriter != null) {
+            wavWriter.flush();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.audiochirpapp;
+
+/**
+ * One chirp of an experiment, with its position in the run
+ */
+public class Trial {
+    private final int index;
+    private final ChirpParams leftParams;
+    private final ChirpParams rightParams;
+
+    public Trial(int index, ChirpParams leftParams, ChirpParams rightParams) {
+        this.index = index;
+        this.leftParams = leftParams;
+        this.rightParams = rightParams;
+    }
+
+    /**
+     * @return Position of the trial in the run, starting at 0
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public ChirpParams getLeftParams() {
+        return leftParams;
+    }
+
+    public ChirpParams getRightParams() {
+        return rightParams;
+    }
+
+    /**
+     * @return Length of the longer channel in ms
+     */
+    public int getDuration() {
+        return Math.max(leftParams.getDuration(), rightParams.getDuration());
+    }
+
+    @Override
+    public String toString() {
+        return "Trial{" +
+                "index=" + index +
+                ", left=" + leftParams +
+                ", right=" + rightParams +
+                '}';
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.audiochirpapp;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writes 16-bit PCM as a standard RIFF/WAV file, incrementally
+ *
+ * The header is written up front with empty sizes and patched in place on
+ * {@link #sync()} and {@link #close()}, so the file plays in any audio tool
+ * once closed, and up to the last sync after a crash. Samples are staged in a
+ * direct buffer and written to the FileChannel when it fills. As a
+ * {@link SampleSink} it keeps the stream on its frame indices: frames lost
+ * before a block are filled with silence, and chirp events are dropped.
+ */
+public class WavWriter implements SampleSink {
+    public static final String FILE_EXTENSION = ".wav";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int HEADER_SIZE = 44;
+    // Largest data chunk whose RIFF size still fits in 32 bits
+    private static final long MAX_DATA_BYTES = 0xFFFFFFFFL - (HEADER_SIZE - 8);
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final int channelCount;
+    private long dataBytes = 0;
+
+    /**
+     * Creates the file and writes the header
+     *
+     * @param file Output file
+     * @param sampleRate Sample rate in Hz
+     * @param channelCount Number of interleaved channels per frame
+     * @throws IOException If the file cannot be created
+     */
+    public WavWriter(File file, int sampleRate, int channelCount) throws IOException {
+        this.channel = new FileOutputStream(file).getChannel();
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        this.channelCount = channelCount;
+
+        int blockAlign = channelCount * 2;
+        buffer.putInt(0x46464952);          // "RIFF"
+        buffer.putInt(0);                   // RIFF size, patched
+        buffer.putInt(0x45564157);          // "WAVE"
+        buffer.putInt(0x20746D66);          // "fmt "
+        buffer.putInt(16);
+        buffer.putShort((short) 1);         // PCM
+        buffer.putShort((short) channelCount);
+        buffer.putInt(sampleRate);
+        buffer.putInt(sampleRate * blockAlign);
+        buffer.putShort((short) blockAlign);
+        buffer.putShort((short) 16);        // Bits per sample
+        buffer.putInt(0x61746164);          // "data"
+        buffer.putInt(0);                   // Data size, patched
+    }
+
+    /**
+     * Appends interleaved samples
+     *
+     * @param samples Interleaved samples
+     * @param offset Index of the first sample to write
+     * @param length Number of samples to write
+     * @throws IOException If writing fails or the file would exceed the 4GB WAV limit
+     */
+    public void writeSamples(short[] samples, int offset, int length) throws IOException {
+        checkSize(length);
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            if (buffer.remaining() < 2) {
+                drain();
+            }
+            buffer.putShort(samples[i]);
+        }
+        dataBytes += length * 2L;
+    }
+
+    /**
+     * Appends silence
+     *
+     * @param frames Number of frames of silence
+     * @throws IOException If writing fails or the file would exceed the 4GB WAV limit
+     */
+    public void writeSilence(long frames) throws IOException {
+        long samples = frames * channelCount;
+        checkSize(samples);
+        for (long i = 0; i < samples; i++) {
+            if (buffer.remaining() < 2) {
+                drain();
+            }
+            buffer.putShort((short) 0);
+        }
+        dataBytes += samples * 2;
+    }
+
+    @Override
+    public void writeBlock(short[] samples, int offset, int length, long epochNanos, long frameIndex)
+            throws IOException {
+        long gap = frameIndex - getFramesWritten();
+        if (gap > 0) {
+            writeSilence(gap);
+        }
+        writeSamples(samples, offset, length);
+    }
+
+    @Override
+    public void writeChirp(long epochNanos, long frameIndex, ChirpParams leftParams, ChirpParams rightParams) {
+        // Not part of the WAV format
+    }
+
+    @Override
+    public int getChannelCount() {
+        return channelCount;
+    }
+
+    @Override
+    public long getFramesWritten() {
+        return dataBytes / (channelCount * 2);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+    }
+
+    /**
+     * Writes any buffered samples, patches the header and forces the file to the storage device
+     *
+     * @throws IOException If writing fails
+     */
+    @Override
+    public void sync() throws IOException {
+        drain();
+        patchHeader();
+        channel.force(false);
+    }
+
+    /**
+     * Writes any buffered samples, patches the header with the final sizes and closes the file
+     *
+     * @throws IOException If writing fails
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+            patchHeader();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void checkSize(long samples) throws IOException {
+        if (dataBytes + samples * 2 > MAX_DATA_BYTES) {
+            throw new IOException("WAV file full");
+        }
+    }
+
+    private void patchHeader() throws IOException {
+        ByteBuffer sizes = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        sizes.putInt(0, (int) (dataBytes + HEADER_SIZE - 8));
+        writeAt(sizes, 4);
+        sizes.putInt(0, (int) dataBytes);
+        writeAt(sizes, HEADER_SIZE - 4);
+    }
+
+    private void writeAt(ByteBuffer data, long position) throws IOException {
+        data.clear();
+        while (data.hasRemaining()) {
+            position += channel.write(data, position);
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
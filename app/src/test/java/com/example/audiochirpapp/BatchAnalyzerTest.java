@@ -0,0 +1,171 @@
+package com.example.audiochirpapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the parallel analysis of a directory of sessions
+ */
+public class BatchAnalyzerTest {
+    private static final int SAMPLE_RATE = 44100;
+    private static final int BLOCK_FRAMES = 1764;
+    private static final int TOTAL_FRAMES = BLOCK_FRAMES * 50;
+    private static final ChirpParams LEFT = new ChirpParams(4000, 1000, 50);
+    private static final ChirpParams RIGHT = new ChirpParams(12000, 2000, 50);
+    private static final long[] CHIRP_FRAMES = {10000, 30000, 50000, 70000};
+    // Acoustic delay from the chirp start to its arrival at the mic
+    private static final int DELAY_FRAMES = 300;
+    private static final double LEFT_GAIN = 0.5;
+    private static final double RIGHT_GAIN = 0.125;
+
+    private File directory;
+
+    private static short[] template(ChirpParams params) {
+        ChirpGenerator generator = new ChirpGenerator(params);
+        short[] samples = new short[generator.getTotalSamples()];
+        generator.fill(samples, 0, samples.length);
+        return samples;
+    }
+
+    private void writeSession(String name, int chirps) throws IOException {
+        short[] left = template(LEFT);
+        short[] right = template(RIGHT);
+        double[] signal = new double[TOTAL_FRAMES];
+        for (int c = 0; c < chirps; c++) {
+            int arrival = (int) CHIRP_FRAMES[c] + DELAY_FRAMES;
+            for (int i = 0; i < left.length; i++) {
+                signal[arrival + i] += LEFT_GAIN * left[i] + RIGHT_GAIN * right[i];
+            }
+        }
+
+        File recording = new File(directory, name + "_recording_20260101_120000.bin");
+        BinarySessionWriter writer = new BinarySessionWriter(recording, SAMPLE_RATE, 1, 0,
+                SessionIndexFormat.indexFileFor(recording));
+        short[] block = new short[BLOCK_FRAMES];
+        int chirp = 0;
+        for (int start = 0; start < TOTAL_FRAMES; start += BLOCK_FRAMES) {
+            for (int i = 0; i < BLOCK_FRAMES; i++) {
+                block[i] = (short) Math.round(signal[start + i]);
+            }
+            writer.writeBlock(block, 0, BLOCK_FRAMES, start * 1000000000L / SAMPLE_RATE, start);
+            if (chirp < chirps && CHIRP_FRAMES[chirp] < start + BLOCK_FRAMES) {
+                writer.writeChirp(CHIRP_FRAMES[chirp] * 1000000000L / SAMPLE_RATE, CHIRP_FRAMES[chirp],
+                        LEFT, RIGHT);
+                chirp++;
+            }
+        }
+        writer.close();
+    }
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = File.createTempFile("sessions", "");
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdir());
+    }
+
+    @After
+    public void deleteDirectory() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void findsRecordingsInNameOrder() throws IOException {
+        writeSession("b", 1);
+        writeSession("a", 1);
+
+        List<File> recordings = BatchAnalyzer.findRecordings(directory);
+        assertEquals(2, recordings.size());
+        assertEquals("a_recording_20260101_120000.bin", recordings.get(0).getName());
+        assertEquals("b_recording_20260101_120000.bin", recordings.get(1).getName());
+    }
+
+    @Test
+    public void findsDelayGainAndBandLevels() throws IOException {
+        writeSession("a", 2);
+        List<ChirpAnalysis> analyses = new BatchAnalyzer(2, 100, 50)
+                .analyze(BatchAnalyzer.findRecordings(directory));
+
+        assertEquals(2, analyses.size());
+        for (int i = 0; i < analyses.size(); i++) {
+            ChirpAnalysis analysis = analyses.get(i);
+            assertEquals(i, analysis.getChirp());
+            assertEquals(CHIRP_FRAMES[i], analysis.getStartFrame());
+            assertEquals(DELAY_FRAMES, analysis.getLeftDelayFrames());
+            assertEquals(DELAY_FRAMES, analysis.getRightDelayFrames());
+            assertEquals(LEFT_GAIN, analysis.getLeftCorrelation(), 0.02);
+            assertEquals(RIGHT_GAIN, analysis.getRightCorrelation(), 0.02);
+            // Each band holds one of the chirps, so the band levels keep their ratio
+            assertEquals(LEFT_GAIN / RIGHT_GAIN, analysis.getLeftBandRms() / analysis.getRightBandRms(), 0.5);
+            assertEquals(0, analysis.getNoiseRms(), 0);
+        }
+    }
+
+    @Test
+    public void parallelResultsMatchSerialResults() throws IOException {
+        writeSession("a", 4);
+        writeSession("b", 3);
+        writeSession("c", 1);
+        List<File> recordings = BatchAnalyzer.findRecordings(directory);
+
+        List<ChirpAnalysis> serial = new BatchAnalyzer(1, 100, 50).analyze(recordings);
+        List<ChirpAnalysis> parallel = new BatchAnalyzer(4, 100, 50).analyze(recordings);
+
+        assertEquals(8, serial.size());
+        List<String> serialRows = new ArrayList<>();
+        for (ChirpAnalysis analysis : serial) {
+            serialRows.add(analysis.toCsvRow());
+        }
+        List<String> parallelRows = new ArrayList<>();
+        for (ChirpAnalysis analysis : parallel) {
+            parallelRows.add(analysis.toCsvRow());
+        }
+        assertEquals(serialRows, parallelRows);
+        assertEquals("a_recording_20260101_120000.bin", serial.get(0).getSession());
+        assertEquals("c_recording_20260101_120000.bin", serial.get(7).getSession());
+    }
+
+    @Test
+    public void skipsUnreadableRecordings() throws IOException {
+        writeSession("a", 1);
+        File broken = new File(directory, "b_recording_20260101_120000.bin");
+        assertTrue(broken.createNewFile());
+
+        final List<File> skipped = new ArrayList<>();
+        final List<Integer> skippedChirps = new ArrayList<>();
+        List<ChirpAnalysis> analyses = new BatchAnalyzer(2, 100, 50)
+                .analyze(BatchAnalyzer.findRecordings(directory), new BatchAnalyzer.ErrorListener() {
+                    @Override
+                    public synchronized void onSkipped(File recording, int chirp, IOException error) {
+                        skipped.add(recording);
+                        skippedChirps.add(chirp);
+                    }
+                });
+        assertEquals(1, analyses.size());
+        assertEquals(Collections.singletonList(broken), skipped);
+        assertEquals(Collections.singletonList(-1), skippedChirps);
+
+        StringWriter table = new StringWriter();
+        BatchAnalyzer.writeTable(analyses, table);
+        String[] lines = table.toString().split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(ChirpAnalysis.CSV_HEADER.trim(), lines[0]);
+        assertTrue(lines[1].startsWith("a_recording_20260101_120000.bin,0,10000,4000,1000,12000,2000,50,"));
+    }
+}
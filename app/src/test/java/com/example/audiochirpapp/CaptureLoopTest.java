@@ -0,0 +1,140 @@
+package com.example.audiochirpapp;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Unit tests for the capture path between the audio source and the ring
+ */
+public class CaptureLoopTest {
+    private static final int BLOCK_SIZE = 1764;
+
+    /**
+     * Fake source returning a counting signal in reads of varying length
+     */
+    private static class RampSource implements PcmSource {
+        short next = 0;
+        int call = 0;
+
+        @Override
+        public int read(short[] data, int offset, int length) {
+            // Alternate between full and short reads like a real AudioRecord
+            int count = (call++ % 3 == 0) ? length / 2 : length;
+            for (int i = 0; i < count; i++) {
+                data[offset + i] = next++;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Consumer that checks the ramp and the frame indices continue across blocks
+     */
+    private static class RampChecker implements SampleRingBuffer.BlockHandler {
+        short expected = 0;
+        long samples = 0;
+        boolean broken = false;
+
+        @Override
+        public void onBlock(short[] data, int length, long firstFrame) {
+            if (firstFrame != samples) {
+                broken = true;
+            }
+            for (int i = 0; i < length; i++) {
+                if (data[i] != expected++) {
+                    broken = true;
+                }
+            }
+            samples += length;
+        }
+    }
+
+    @Test
+    public void publishesExactlyTheSamplesRead() {
+        SampleRingBuffer ring = new SampleRingBuffer(8, BLOCK_SIZE);
+        CaptureLoop loop = new CaptureLoop(new RampSource(), ring, null);
+        RampChecker checker = new RampChecker();
+
+        long read = 0;
+        for (int i = 0; i < 1000; i++) {
+            read += loop.readOnce();
+            if (i % 4 == 0) {
+                ring.drainTo(checker);
+            }
+        }
+        ring.drainTo(checker);
+
+        assertFalse("stale or reordered samples", checker.broken);
+        assertEquals(read, checker.samples);
+        assertEquals(0, ring.getOverrunCount());
+        assertEquals(0, ring.getDroppedSamples());
+    }
+
+    @Test
+    public void countsOverrunsWhenConsumerStalls() {
+        SampleRingBuffer ring = new SampleRingBuffer(4, BLOCK_SIZE);
+        CaptureLoop loop = new CaptureLoop(new RampSource(), ring, null);
+
+        long dropped = 0;
+        for (int i = 0; i < 10; i++) {
+            int read = loop.readOnce();
+            if (i >= 4) {
+                dropped += read;
+            }
+        }
+
+        assertEquals(4, ring.size());
+        assertEquals(4, ring.getHighWaterMark());
+        assertEquals(6, ring.getOverrunCount());
+        assertEquals(dropped, ring.getDroppedSamples());
+    }
+
+    @Test
+    public void steadyStateIsAllocationFree() {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        SampleRingBuffer ring = new SampleRingBuffer(8, BLOCK_SIZE);
+        // Clock that advances 10ms per read, so the stream clock refits regularly
+        MonotonicClock steppingClock = new MonotonicClock() {
+            long nanos = 0;
+
+            @Override
+            public long nanoTime() {
+                nanos += 10000000L;
+                return nanos;
+            }
+
+            @Override
+            public long currentTimeMillis() {
+                return nanos / 1000000L;
+            }
+        };
+        StreamClock clock = new StreamClock(new SessionClock(steppingClock), null, 44100);
+        CaptureLoop loop = new CaptureLoop(new RampSource(), ring, clock);
+        RampChecker checker = new RampChecker();
+
+        // Warm up so class loading and JIT compilation are out of the way
+        for (int i = 0; i < 20000; i++) {
+            loop.readOnce();
+            ring.drainTo(checker);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 10000; i++) {
+            loop.readOnce();
+            ring.drainTo(checker);
+        }
+        long after = threadBean.getThreadAllocatedBytes(threadId);
+
+        assertFalse(checker.broken);
+        assertEquals("bytes allocated by 10000 capture iterations", 0, after - before);
+    }
+}
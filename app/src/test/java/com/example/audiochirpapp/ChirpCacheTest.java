@@ -0,0 +1,82 @@
+package com.example.audiochirpapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the size-bounded LRU cache of prepared chirps
+ */
+public class ChirpCacheTest {
+    private static final ChirpParams LOW = new ChirpParams(1000, 500, 50);
+    private static final ChirpParams MID = new ChirpParams(2000, 500, 50);
+    private static final ChirpParams HIGH = new ChirpParams(3000, 500, 50);
+
+    // All chirps above are 50ms long, so they have the same size
+    private static final long CHIRP_BYTES = PreparedChirp.generate(LOW, LOW).getSizeBytes();
+
+    @Test
+    public void hitsByParameterPair() {
+        ChirpCache cache = new ChirpCache(10 * CHIRP_BYTES);
+
+        PreparedChirp first = cache.get(LOW, MID);
+        assertSame(first, cache.get(new ChirpParams(1000, 500, 50), new ChirpParams(2000, 500, 50)));
+        // The same parameters on swapped channels are another chirp
+        PreparedChirp swapped = cache.get(MID, LOW);
+        assertNotSame(first, swapped);
+        assertSame(LOW, swapped.getRightParams());
+
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.getEntryCount());
+        assertEquals(2 * CHIRP_BYTES, cache.getSizeBytes());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedPastTheByteLimit() {
+        ChirpCache cache = new ChirpCache(2 * CHIRP_BYTES);
+
+        PreparedChirp low = cache.get(LOW, LOW);
+        PreparedChirp mid = cache.get(MID, MID);
+        // Makes MID the least recently used
+        assertSame(low, cache.get(LOW, LOW));
+        cache.get(HIGH, HIGH);
+
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.getEntryCount());
+        assertEquals(2 * CHIRP_BYTES, cache.getSizeBytes());
+        assertSame(low, cache.get(LOW, LOW));
+        assertNotSame(mid, cache.get(MID, MID));
+        assertEquals(2, cache.getEvictions());
+        assertTrue(cache.getSizeBytes() <= cache.getMaxBytes());
+    }
+
+    @Test
+    public void doesNotCacheChirpsLargerThanTheCache() {
+        ChirpCache cache = new ChirpCache(CHIRP_BYTES - 1);
+
+        PreparedChirp chirp = cache.get(LOW, LOW);
+        assertEquals(CHIRP_BYTES, chirp.getSizeBytes());
+        assertNotSame(chirp, cache.get(LOW, LOW));
+
+        assertEquals(0, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(0, cache.getEvictions());
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getSizeBytes());
+    }
+
+    @Test
+    public void clearKeepsTheStatistics() {
+        ChirpCache cache = new ChirpCache(10 * CHIRP_BYTES);
+        cache.get(LOW, LOW);
+        cache.get(LOW, LOW);
+        cache.clear();
+
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getSizeBytes());
+        assertEquals(1, cache.getHits());
+        cache.get(LOW, LOW);
+        assertEquals(2, cache.getMisses());
+    }
+}
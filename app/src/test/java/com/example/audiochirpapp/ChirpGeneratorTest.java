@@ -0,0 +1,69 @@
+package com.example.audiochirpapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares ChirpGenerator against the reference AudioUtils.generateChirp
+ */
+public class ChirpGeneratorTest {
+    private static final int MAX_ERROR_LSB = 1;
+
+    private static int maxErrorLsb(int startFreq, int endFreq, int durationMs, int blockSize) {
+        short[] expected = AudioUtils.generateChirp(startFreq, endFreq, durationMs);
+
+        ChirpGenerator generator = new ChirpGenerator(startFreq, endFreq, durationMs);
+        assertEquals(expected.length, generator.getTotalSamples());
+
+        short[] actual = new short[expected.length];
+        int offset = 0;
+        int count;
+        while ((count = generator.fill(actual, offset, Math.min(blockSize, actual.length - offset))) > 0) {
+            offset += count;
+        }
+        assertEquals(expected.length, offset);
+        assertEquals(0, generator.getRemaining());
+
+        int maxError = 0;
+        for (int i = 0; i < expected.length; i++) {
+            maxError = Math.max(maxError, Math.abs(expected[i] - actual[i]));
+        }
+        return maxError;
+    }
+
+    @Test
+    public void matchesReferenceForTypicalChirps() {
+        assertTrue(maxErrorLsb(750, 1250, 1000, 4096) <= MAX_ERROR_LSB);
+        assertTrue(maxErrorLsb(1750, 2250, 1000, 4096) <= MAX_ERROR_LSB);
+        assertTrue(maxErrorLsb(20, 22500, 10, 4096) <= MAX_ERROR_LSB);
+    }
+
+    @Test
+    public void matchesReferenceForDownwardAndLongChirps() {
+        assertTrue(maxErrorLsb(18000, 2000, 250, 4096) <= MAX_ERROR_LSB);
+        assertTrue(maxErrorLsb(500, 20000, 30000, 4096) <= MAX_ERROR_LSB);
+    }
+
+    @Test
+    public void blockSizeDoesNotChangeOutput() {
+        // Odd block sizes cross resync points at arbitrary offsets
+        assertTrue(maxErrorLsb(1000, 3000, 500, 1) <= MAX_ERROR_LSB);
+        assertTrue(maxErrorLsb(1000, 3000, 500, 257) <= MAX_ERROR_LSB);
+        assertTrue(maxErrorLsb(1000, 3000, 500, 100000) <= MAX_ERROR_LSB);
+    }
+
+    @Test
+    public void resetRestartsTheChirp() {
+        ChirpGenerator generator = new ChirpGenerator(1000, 2000, 100);
+        short[] first = new short[generator.getTotalSamples()];
+        short[] second = new short[generator.getTotalSamples()];
+
+        generator.fill(first, 0, first.length);
+        assertEquals(0, generator.fill(second, 0, second.length));
+
+        generator.reset();
+        generator.fill(second, 0, second.length);
+        assertArrayEquals(first, second);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.audiochirpapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for rendering chirps at fixed frame intervals
+ */
+public class ChirpSchedulerTest {
+    private static final ChirpParams LEFT = new ChirpParams(4000, 2000, 20);
+    private static final ChirpParams RIGHT = new ChirpParams(9000, 2000, 30);
+
+    private static short[] chirp(ChirpParams params) {
+        ChirpGenerator generator = new ChirpGenerator(params);
+        short[] samples = new short[generator.getTotalSamples()];
+        generator.fill(samples, 0, samples.length);
+        return samples;
+    }
+
+    private static short expected(short[] chirp, long frame, int interval) {
+        int offset = (int) (frame % interval);
+        return offset < chirp.length ? chirp[offset] : 0;
+    }
+
+    @Test
+    public void chirpsStartAtExactIntervalsAcrossChunks() {
+        final int interval = 3001;
+        final List<Long> starts = new ArrayList<>();
+        ChirpScheduler scheduler = new ChirpScheduler(LEFT, RIGHT, interval, new ChirpScheduler.Listener() {
+            @Override
+            public void onChirpScheduled(long chirpIndex, long startFrame) {
+                assertEquals(starts.size(), chirpIndex);
+                starts.add(startFrame);
+            }
+        });
+
+        short[] left = chirp(LEFT);
+        short[] right = chirp(RIGHT);
+        int[] chunkSizes = {1, 777, 4096, 3001, 13, 2999, 5000};
+        short[] stereo = new short[5000 * 2];
+        long frame = 0;
+
+        for (int round = 0; round < 5; round++) {
+            for (int chunk : chunkSizes) {
+                scheduler.render(stereo, chunk);
+                for (int i = 0; i < chunk; i++) {
+                    assertEquals("left frame " + (frame + i), expected(left, frame + i, interval), stereo[2 * i]);
+                    assertEquals("right frame " + (frame + i), expected(right, frame + i, interval), stereo[2 * i + 1]);
+                }
+                frame += chunk;
+            }
+        }
+
+        assertEquals(frame, scheduler.getFramesRendered());
+        assertEquals((frame + interval - 1) / interval, scheduler.getChirpCount());
+        for (int k = 0; k < starts.size(); k++) {
+            assertEquals((long) k * interval, (long) starts.get(k));
+        }
+    }
+
+    @Test
+    public void intervalIsRaisedToChirpLength() {
+        ChirpScheduler scheduler = new ChirpScheduler(LEFT, RIGHT, 10, null);
+        assertEquals(chirp(RIGHT).length, scheduler.getIntervalFrames());
+    }
+}
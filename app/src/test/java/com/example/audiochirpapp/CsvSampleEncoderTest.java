@@ -0,0 +1,99 @@
+package com.example.audiochirpapp;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that CsvSampleEncoder writes exactly what the original
+ * SimpleDateFormat/StringBuilder code produced
+ */
+public class CsvSampleEncoderTest {
+    private static final long START_TIME_MS = 1700000000000L;
+
+    private final SimpleDateFormat timestampFormat =
+            new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+
+    private static short[] randomSamples(int length, long seed) {
+        Random random = new Random(seed);
+        short[] samples = new short[length];
+        for (int i = 0; i < length; i++) {
+            samples[i] = (short) random.nextInt();
+        }
+        samples[0] = Short.MIN_VALUE;
+        samples[1] = Short.MAX_VALUE;
+        samples[2] = 0;
+        samples[3] = -1;
+        return samples;
+    }
+
+    @Test
+    public void recordedRowsAreByteIdentical() throws IOException {
+        short[] data = randomSamples(50000, 1);
+        long blockTimeMs = START_TIME_MS + 1234;
+
+        StringBuilder expected = new StringBuilder("absoluteTime,relativeTimeMs,audioValue\n");
+        for (int i = 0; i < data.length; i++) {
+            long sampleTimeMs = 1234 + i * 1000L / 44100;
+            long absoluteTimeMs = blockTimeMs + (i * 1000L / 44100);
+            expected.append(timestampFormat.format(new Date(absoluteTimeMs)))
+                    .append(",").append(sampleTimeMs)
+                    .append(",").append(data[i])
+                    .append("\n");
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // A small buffer forces many drains in the middle of the data
+        CsvSampleEncoder encoder = new CsvSampleEncoder(Channels.newChannel(out),
+                new TimestampFormatter(), 300);
+        encoder.writeHeader(CsvSampleEncoder.RECORDED_HEADER);
+        encoder.writeRecordedRows(data, data.length, blockTimeMs, 1234);
+        encoder.close();
+
+        assertEquals(expected.toString(), out.toString("UTF-8"));
+    }
+
+    @Test
+    public void transmittedChunksAreByteIdenticalToSingleShot() throws IOException {
+        short[] left = randomSamples(100000, 2);
+        short[] right = randomSamples(100000, 3);
+        long chirpTimeMs = START_TIME_MS + 500;
+
+        StringBuilder expected = new StringBuilder("absoluteTime,relativeTimeMs,leftValue,rightValue\n");
+        for (int i = 0; i < left.length; i++) {
+            long sampleTimeMs = 500 + i * 1000L / 44100;
+            long absoluteTimeMs = START_TIME_MS + sampleTimeMs;
+            expected.append(timestampFormat.format(new Date(absoluteTimeMs)))
+                    .append(",").append(sampleTimeMs)
+                    .append(",").append(left[i])
+                    .append(",").append(right[i])
+                    .append("\n");
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CsvSampleEncoder encoder = new CsvSampleEncoder(Channels.newChannel(out),
+                new TimestampFormatter(), CsvSampleEncoder.DEFAULT_BUFFER_SIZE);
+        encoder.writeHeader(CsvSampleEncoder.TRANSMITTED_HEADER);
+
+        // Write in chunks the way streaming playback does
+        short[] leftChunk = new short[4096];
+        short[] rightChunk = new short[4096];
+        for (int frame = 0; frame < left.length; frame += 4096) {
+            int frames = Math.min(4096, left.length - frame);
+            System.arraycopy(left, frame, leftChunk, 0, frames);
+            System.arraycopy(right, frame, rightChunk, 0, frames);
+            encoder.writeTransmittedRows(leftChunk, rightChunk, frames, frame, chirpTimeMs, 500);
+        }
+        encoder.close();
+
+        assertEquals(expected.toString(), out.toString("UTF-8"));
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.audiochirpapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for echo detection on a simulated recording
+ */
+public class EchoDetectorTest {
+    private static final int BLOCK_SIZE = 1764;
+    private static final ChirpParams LEFT = new ChirpParams(4000, 2000, 100);
+    private static final ChirpParams RIGHT = new ChirpParams(9000, 2000, 100);
+
+    private static class Echo {
+        final int channel;
+        final int rank;
+        final long delay;
+        final double amplitude;
+
+        Echo(int channel, int rank, long delay, double amplitude) {
+            this.channel = channel;
+            this.rank = rank;
+            this.delay = delay;
+            this.amplitude = amplitude;
+        }
+    }
+
+    private static short[] chirp(ChirpParams params) {
+        ChirpGenerator generator = new ChirpGenerator(params);
+        short[] samples = new short[generator.getTotalSamples()];
+        generator.fill(samples, 0, samples.length);
+        return samples;
+    }
+
+    private static void addScaled(double[] signal, short[] chirp, int start, double gain) {
+        for (int i = 0; i < chirp.length; i++) {
+            signal[start + i] += chirp[i] * gain;
+        }
+    }
+
+    @Test
+    public void findsDirectPathAndEchoOfEachChannel() {
+        int chirpFrame = 20000;
+        short[] left = chirp(LEFT);
+        short[] right = chirp(RIGHT);
+
+        // Direct sound after 150 frames, a weaker echo 40ms later, plus noise
+        Random random = new Random(3);
+        double[] signal = new double[60000];
+        for (int i = 0; i < signal.length; i++) {
+            signal[i] = random.nextGaussian() * 300;
+        }
+        addScaled(signal, left, chirpFrame + 150, 0.3);
+        addScaled(signal, right, chirpFrame + 150, 0.2);
+        addScaled(signal, left, chirpFrame + 1914, 0.1);
+        addScaled(signal, right, chirpFrame + 1914, -0.05);
+        short[] recording = new short[signal.length];
+        for (int i = 0; i < signal.length; i++) {
+            recording[i] = (short) Math.round(signal[i]);
+        }
+
+        final List<Echo> echoes = new ArrayList<>();
+        EchoDetector detector = new EchoDetector(4410, 2, 44, new EchoDetector.Listener() {
+            @Override
+            public void onEcho(long frame, int channel, int rank, long delayFrames, double amplitude) {
+                assertEquals(20000, frame);
+                echoes.add(new Echo(channel, rank, delayFrames, amplitude));
+            }
+        });
+
+        short[] block = new short[BLOCK_SIZE];
+        for (int offset = 0; offset + BLOCK_SIZE <= recording.length; offset += BLOCK_SIZE) {
+            // The chirp is announced well after it was recorded, like on the device
+            if (offset == 40 * BLOCK_SIZE / 2) {
+                detector.addChirp(LEFT, RIGHT, chirpFrame);
+            }
+            System.arraycopy(recording, offset, block, 0, BLOCK_SIZE);
+            detector.onBlock(block, BLOCK_SIZE, offset);
+        }
+        detector.close();
+
+        assertEquals(1, detector.getDetectedChirps());
+        assertEquals(4, echoes.size());
+        assertEcho(echoes.get(0), EchoDetector.LEFT, 0, 150, 0.3);
+        assertEcho(echoes.get(1), EchoDetector.LEFT, 1, 1914, 0.1);
+        assertEcho(echoes.get(2), EchoDetector.RIGHT, 0, 150, 0.2);
+        assertEcho(echoes.get(3), EchoDetector.RIGHT, 1, 1914, -0.05);
+    }
+
+    @Test
+    public void skipsChirpsOlderThanTheHistory() {
+        EchoDetector detector = new EchoDetector(4410, 2, 44, new EchoDetector.Listener() {
+            @Override
+            public void onEcho(long frame, int channel, int rank, long delayFrames, double amplitude) {
+                fail("no echo expected");
+            }
+        });
+
+        short[] block = new short[BLOCK_SIZE];
+        long frame = 0;
+        for (int i = 0; i < 200; i++) {
+            detector.onBlock(block, BLOCK_SIZE, frame);
+            frame += BLOCK_SIZE;
+        }
+        detector.addChirp(LEFT, RIGHT, 0);
+        detector.onBlock(block, BLOCK_SIZE, frame);
+
+        assertEquals(0, detector.getDetectedChirps());
+        assertEquals(1, detector.getMissedChirps());
+    }
+
+    private static void assertEcho(Echo echo, int channel, int rank, long delay, double amplitude) {
+        assertEquals(channel, echo.channel);
+        assertEquals(rank, echo.rank);
+        assertEquals(delay, echo.delay);
+        assertEquals(amplitude, echo.amplitude, 0.01);
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.audiochirpapp;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Unit tests for the FFT against a naive DFT
+ */
+public class FftTest {
+    private static final int MAX_SIZE = 4096;
+
+    /**
+     * Direct O(N^2) evaluation of X[k] = sum x[n] e^(-2 pi i k n / N)
+     */
+    private static double[] naiveDft(double[] re, double[] im) {
+        int n = re.length;
+        double[] out = new double[2 * n];
+        for (int k = 0; k < n; k++) {
+            double sumRe = 0;
+            double sumIm = 0;
+            for (int t = 0; t < n; t++) {
+                double angle = -2 * Math.PI * (((long) k * t) % n) / n;
+                sumRe += re[t] * Math.cos(angle) - im[t] * Math.sin(angle);
+                sumIm += re[t] * Math.sin(angle) + im[t] * Math.cos(angle);
+            }
+            out[2 * k] = sumRe;
+            out[2 * k + 1] = sumIm;
+        }
+        return out;
+    }
+
+    private static double[] randomSignal(Random random, int n) {
+        double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = random.nextGaussian() * 1000;
+        }
+        return x;
+    }
+
+    @Test
+    public void complexForwardMatchesDft() {
+        Random random = new Random(1);
+        for (int n = 2; n <= MAX_SIZE; n *= 2) {
+            double[] re = randomSignal(random, n);
+            double[] im = randomSignal(random, n);
+            double[] data = new double[2 * n];
+            for (int i = 0; i < n; i++) {
+                data[2 * i] = re[i];
+                data[2 * i + 1] = im[i];
+            }
+
+            new Fft(n).complexForward(data);
+
+            double[] expected = naiveDft(re, im);
+            double tolerance = 1e-9 * n * 1000;
+            for (int i = 0; i < 2 * n; i++) {
+                assertEquals("size " + n + " index " + i, expected[i], data[i], tolerance);
+            }
+        }
+    }
+
+    @Test
+    public void realForwardMatchesDft() {
+        Random random = new Random(2);
+        for (int n = 2; n <= MAX_SIZE; n *= 2) {
+            double[] x = randomSignal(random, n);
+            double[] data = x.clone();
+
+            new Fft(n).realForward(data);
+
+            double[] expected = naiveDft(x, new double[n]);
+            double tolerance = 1e-9 * n * 1000;
+            assertEquals("size " + n + " DC", expected[0], data[0], tolerance);
+            assertEquals("size " + n + " Nyquist", expected[n], data[1], tolerance);
+            for (int k = 1; k < n / 2; k++) {
+                assertEquals("size " + n + " bin " + k, expected[2 * k], data[2 * k], tolerance);
+                assertEquals("size " + n + " bin " + k, expected[2 * k + 1], data[2 * k + 1], tolerance);
+            }
+        }
+    }
+
+    @Test
+    public void inverseRestoresSignal() {
+        Random random = new Random(3);
+        for (int n = 2; n <= 65536; n *= 2) {
+            Fft fft = new Fft(n);
+
+            double[] x = randomSignal(random, n);
+            double[] data = x.clone();
+            fft.realForward(data);
+            fft.realInverse(data);
+            assertArrayEquals("real size " + n, x, data, 1e-6);
+
+            double[] z = randomSignal(random, 2 * n);
+            data = z.clone();
+            fft.complexForward(data);
+            fft.complexInverse(data);
+            assertArrayEquals("complex size " + n, z, data, 1e-6);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsSizeThatIsNotAPowerOfTwo() {
+        new Fft(1000);
+    }
+
+    @Test
+    public void transformsAreAllocationFree() {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        Fft fft = new Fft(1024);
+        double[] data = randomSignal(new Random(4), 2048);
+        for (int i = 0; i < 20000; i++) {
+            fft.realForward(data);
+            fft.realInverse(data);
+            fft.complexForward(data);
+            fft.complexInverse(data);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 1000; i++) {
+            fft.realForward(data);
+            fft.realInverse(data);
+            fft.complexForward(data);
+            fft.complexInverse(data);
+        }
+        long after = threadBean.getThreadAllocatedBytes(threadId);
+
+        assertEquals("bytes allocated by 1000 transforms", 0, after - before);
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.audiochirpapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the background export of session files
+ */
+public class FileExporterTest {
+    private File root;
+    private File source;
+    private File target;
+    private File manifestFile;
+
+    @Before
+    public void createDirectories() throws IOException {
+        root = File.createTempFile("export", "");
+        root.delete();
+        source = new File(root, "AudioChirpData");
+        target = new File(root, "Downloads");
+        manifestFile = new File(root, "export_manifest.txt");
+        assertTrue(source.mkdirs());
+    }
+
+    @After
+    public void deleteDirectories() {
+        delete(root);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private File createFile(String name, int size, long seed) throws IOException {
+        byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        File file = new File(source, name);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(bytes);
+        }
+        return file;
+    }
+
+    private static byte[] read(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            byte[] bytes = new byte[(int) in.length()];
+            in.readFully(bytes);
+            return bytes;
+        }
+    }
+
+    private FileExporter exporter(FileExporter.Destination destination, FileExporter.Listener listener) {
+        return new FileExporter(destination, new ExportManifest(manifestFile), 3, listener);
+    }
+
+    @Test
+    public void copiesEveryFileAndReportsProgress() throws IOException {
+        createFile("a_recording_1.bin", 3 * 1024 * 1024, 1);
+        createFile("a_transmitted_1.csv", 1000, 2);
+        createFile("empty.csv", 0, 3);
+        assertTrue(new File(source, "subdirectory").mkdir());
+
+        final AtomicLong lastBytes = new AtomicLong();
+        final long[] totals = new long[2];
+        FileExporter.Result result = exporter(new FileExporter.DirectoryDestination(target),
+                new FileExporter.Listener() {
+                    @Override
+                    public synchronized void onProgress(long bytesDone, long bytesTotal, int filesDone,
+                                                        int filesTotal) {
+                        assertTrue(bytesDone <= bytesTotal);
+                        lastBytes.set(Math.max(lastBytes.get(), bytesDone));
+                        totals[0] = bytesTotal;
+                        totals[1] = Math.max(totals[1], filesDone);
+                        assertEquals(3, filesTotal);
+                    }
+                }).export(source.listFiles());
+
+        assertEquals(3, result.getCopied());
+        assertEquals(0, result.getSkipped());
+        assertEquals(0, result.getFailed());
+        assertFalse(result.isCancelled());
+        assertEquals(3 * 1024 * 1024 + 1000, result.getBytesCopied());
+        assertEquals(result.getBytesCopied(), lastBytes.get());
+        assertEquals(result.getBytesCopied(), totals[0]);
+        assertEquals(3, totals[1]);
+        for (String name : new String[]{"a_recording_1.bin", "a_transmitted_1.csv", "empty.csv"}) {
+            assertArrayEquals(read(new File(source, name)), read(new File(target, name)));
+        }
+        assertFalse(new File(target, "subdirectory").exists());
+        assertEquals(3, new ExportManifest(manifestFile).size());
+    }
+
+    @Test
+    public void skipsFilesExportedUnchanged() throws IOException {
+        File unchanged = createFile("unchanged.bin", 5000, 1);
+        File modified = createFile("modified.bin", 5000, 2);
+        File removed = createFile("removed.bin", 5000, 3);
+        FileExporter.Destination destination = new FileExporter.DirectoryDestination(target);
+        assertEquals(3, exporter(destination, null).export(source.listFiles()).getCopied());
+
+        // Same size, new content and time
+        createFile("modified.bin", 5000, 4);
+        assertTrue(modified.setLastModified(modified.lastModified() + 2000));
+        // The user deleted this copy
+        assertTrue(new File(target, removed.getName()).delete());
+
+        FileExporter.Result result = exporter(destination, null).export(source.listFiles());
+        assertEquals(2, result.getCopied());
+        assertEquals(1, result.getSkipped());
+        assertEquals(10000, result.getBytesCopied());
+        assertArrayEquals(read(modified), read(new File(target, modified.getName())));
+        assertArrayEquals(read(removed), read(new File(target, removed.getName())));
+        assertArrayEquals(read(unchanged), read(new File(target, unchanged.getName())));
+
+        result = exporter(destination, null).export(source.listFiles());
+        assertEquals(0, result.getCopied());
+        assertEquals(3, result.getSkipped());
+    }
+
+    @Test
+    public void failedCopiesAreRetriedByTheNextExport() throws IOException {
+        createFile("good.csv", 100, 1);
+        createFile("bad.csv", 100, 2);
+        final FileExporter.Destination directory = new FileExporter.DirectoryDestination(target);
+        FileExporter.Destination failing = new FileExporter.Destination() {
+            @Override
+            public boolean exists(String name) throws IOException {
+                return directory.exists(name);
+            }
+
+            @Override
+            public WritableByteChannel open(String name) throws IOException {
+                if (name.equals("bad.csv")) {
+                    throw new IOException("No space left on device");
+                }
+                return directory.open(name);
+            }
+
+            @Override
+            public void delete(String name) throws IOException {
+                directory.delete(name);
+            }
+        };
+
+        FileExporter.Result result = exporter(failing, null).export(source.listFiles());
+        assertEquals(1, result.getCopied());
+        assertEquals(1, result.getFailed());
+
+        result = exporter(directory, null).export(source.listFiles());
+        assertEquals(1, result.getCopied());
+        assertEquals(1, result.getSkipped());
+        assertTrue(new File(target, "bad.csv").exists());
+    }
+
+    @Test
+    public void cancelledExportCopiesNothingMore() throws IOException {
+        File[] files = {createFile("a.bin", 1000, 1), createFile("b.bin", 1000, 2)};
+        FileExporter exporter = exporter(new FileExporter.DirectoryDestination(target), null);
+        exporter.cancel();
+        FileExporter.Result result = exporter.export(files);
+        assertTrue(result.isCancelled());
+        assertEquals(0, result.getCopied());
+        assertEquals(0, result.getFailed());
+        assertEquals(0, new ExportManifest(manifestFile).size());
+    }
+
+    @Test
+    public void unreadableManifestExportsEverythingAgain() throws IOException {
+        try (FileOutputStream out = new FileOutputStream(manifestFile)) {
+            out.write("a.bin\t12\tnot a time\n".getBytes("UTF-8"));
+        }
+        ExportManifest manifest = new ExportManifest(manifestFile);
+        assertEquals(0, manifest.size());
+
+        manifest.record("a b.bin", 12, 34);
+        manifest.save();
+        manifest = new ExportManifest(manifestFile);
+        assertTrue(manifest.isUnchanged("a b.bin", 12, 34));
+        assertFalse(manifest.isUnchanged("a b.bin", 13, 34));
+        assertFalse(manifest.isUnchanged("a b.bin", 12, 35));
+        assertFalse(Arrays.asList(root.list()).contains("export_manifest.txt.tmp"));
+    }
+}
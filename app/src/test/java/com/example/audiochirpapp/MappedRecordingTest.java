@@ -0,0 +1,149 @@
+package com.example.audiochirpapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ShortBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the recording index and windowed reads
+ */
+public class MappedRecordingTest {
+    private static final int SAMPLE_RATE = 44100;
+    private static final int BLOCK_FRAMES = 1000;
+    private static final long START_EPOCH_NANOS = 1700000000000000000L;
+    private static final ChirpParams LEFT = new ChirpParams(4000, 1000, 50);
+    private static final ChirpParams RIGHT = new ChirpParams(9000, 1000, 50);
+
+    private File recordingFile;
+    private File indexFile;
+
+    private static short sample(long frame) {
+        return (short) (frame * 7);
+    }
+
+    private static long frameEpochNanos(long frame) {
+        return START_EPOCH_NANOS + frame * 1000000000L / SAMPLE_RATE;
+    }
+
+    @Before
+    public void writeSession() throws IOException {
+        recordingFile = File.createTempFile("recording", BinarySessionFormat.FILE_EXTENSION);
+        indexFile = SessionIndexFormat.indexFileFor(recordingFile);
+
+        // Frames 0-4999, a dropped stretch, then 6000-7999, with two chirps
+        BinarySessionWriter writer = new BinarySessionWriter(recordingFile, SAMPLE_RATE, 1,
+                START_EPOCH_NANOS, indexFile);
+        short[] block = new short[BLOCK_FRAMES];
+        long[] blockStarts = {0, 1000, 2000, 3000, 4000, 6000, 7000};
+        for (long start : blockStarts) {
+            for (int i = 0; i < BLOCK_FRAMES; i++) {
+                block[i] = sample(start + i);
+            }
+            writer.writeBlock(block, 0, BLOCK_FRAMES, frameEpochNanos(start), start);
+            if (start == 1000) {
+                writer.writeChirp(frameEpochNanos(1500), 1500, LEFT, RIGHT);
+            } else if (start == 6000) {
+                writer.writeChirp(frameEpochNanos(6100), 6100, LEFT, RIGHT);
+            }
+        }
+        writer.close();
+    }
+
+    @After
+    public void deleteSession() {
+        recordingFile.delete();
+        indexFile.delete();
+    }
+
+    private static void assertFrames(ShortBuffer frames, long firstFrame, int frameCount) {
+        assertEquals(0, frames.position());
+        assertEquals(frameCount, frames.remaining());
+        for (int i = 0; i < frameCount; i++) {
+            long frame = firstFrame + i;
+            boolean recorded = frame >= 0 && (frame < 5000 || (frame >= 6000 && frame < 8000));
+            assertEquals("frame " + frame, recorded ? sample(frame) : 0, frames.get(i));
+        }
+    }
+
+    @Test
+    public void indexFileMatchesScan() throws IOException {
+        SessionIndex written = SessionIndex.read(indexFile);
+        SessionIndex scanned = SessionIndex.scan(recordingFile);
+
+        assertEquals(SAMPLE_RATE, written.getSampleRate());
+        assertEquals(START_EPOCH_NANOS, written.getStartEpochNanos());
+        assertEquals(7, written.getBlockCount());
+        assertEquals(2, written.getChirpCount());
+        assertEquals(8000, written.getEndFrame());
+
+        assertEquals(scanned.getBlockCount(), written.getBlockCount());
+        for (int i = 0; i < written.getBlockCount(); i++) {
+            assertEquals(scanned.getBlockFrame(i), written.getBlockFrame(i));
+            assertEquals(scanned.getBlockFrameCount(i), written.getBlockFrameCount(i));
+            assertEquals(scanned.getBlockOffset(i), written.getBlockOffset(i));
+            assertEquals(scanned.getBlockEpochNanos(i), written.getBlockEpochNanos(i));
+        }
+        assertEquals(scanned.getChirpCount(), written.getChirpCount());
+        for (int i = 0; i < written.getChirpCount(); i++) {
+            assertEquals(scanned.getChirpFrame(i), written.getChirpFrame(i));
+            assertEquals(scanned.getChirpOffset(i), written.getChirpOffset(i));
+        }
+        assertEquals(6100, written.getChirpFrame(1));
+    }
+
+    @Test
+    public void windowInsideBlockIsMappedView() throws IOException {
+        try (MappedRecording recording = new MappedRecording(recordingFile)) {
+            ShortBuffer frames = recording.getFrames(2100, 500);
+            assertTrue(frames.isDirect());
+            assertTrue(frames.isReadOnly());
+            assertFrames(frames, 2100, 500);
+        }
+    }
+
+    @Test
+    public void windowAcrossBlocksAndGapsIsAssembled() throws IOException {
+        try (MappedRecording recording = new MappedRecording(recordingFile)) {
+            assertFrames(recording.getFrames(900, 2500), 900, 2500);
+            assertFrames(recording.getFrames(4500, 2000), 4500, 2000);
+            assertFrames(recording.getFrames(-100, 300), -100, 300);
+            assertFrames(recording.getFrames(7900, 300), 7900, 300);
+        }
+    }
+
+    @Test
+    public void seeksByChirpAndTime() throws IOException {
+        try (MappedRecording recording = new MappedRecording(recordingFile)) {
+            assertFrames(recording.getChirpWindow(0, 100, 400), 1400, 400);
+            assertFrames(recording.getChirpWindow(1, 0, 1500), 6100, 1500);
+
+            long relativeNanos = frameEpochNanos(3210) - START_EPOCH_NANOS;
+            assertEquals(3210, recording.getIndex().frameAtTime(relativeNanos), 1);
+            assertFrames(recording.getWindowAt(frameEpochNanos(6500) - START_EPOCH_NANOS, 10),
+                    recording.getIndex().frameAtTime(frameEpochNanos(6500) - START_EPOCH_NANOS), 10);
+        }
+    }
+
+    @Test
+    public void missingOrTruncatedIndexIsRebuilt() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(indexFile, "rw")) {
+            file.setLength(file.length() - SessionIndexFormat.ENTRY_SIZE * 3 - 5);
+        }
+        SessionIndex index = SessionIndex.load(recordingFile);
+        assertEquals(7, index.getBlockCount());
+        assertEquals(2, index.getChirpCount());
+
+        assertTrue(indexFile.delete());
+        try (MappedRecording recording = new MappedRecording(recordingFile)) {
+            assertEquals(7, recording.getIndex().getBlockCount());
+            assertFrames(recording.getFrames(4990, 20), 4990, 20);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.audiochirpapp;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the overlap-save correlation
+ */
+public class MatchedFilterTest {
+
+    /**
+     * Collects the streamed output into one array indexed by frame
+     */
+    private static class Collector implements MatchedFilter.Output {
+        final double[] values;
+        long nextFrame;
+
+        Collector(int length, long firstFrame) {
+            values = new double[length];
+            nextFrame = firstFrame;
+        }
+
+        @Override
+        public void onCorrelation(double[] data, int count, long firstFrame) {
+            assertEquals("outputs must be contiguous", nextFrame, firstFrame);
+            for (int i = 0; i < count; i++) {
+                int index = (int) (firstFrame - 1000) + i;
+                if (index < values.length) {
+                    values[index] = data[i];
+                }
+            }
+            nextFrame += count;
+        }
+    }
+
+    @Test
+    public void matchesDirectCorrelation() {
+        Random random = new Random(7);
+        short[] template = new short[300];
+        for (int i = 0; i < template.length; i++) {
+            template[i] = (short) (random.nextInt(20000) - 10000);
+        }
+        short[] input = new short[5000];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (short) (random.nextInt(20000) - 10000);
+        }
+
+        double energy = 0;
+        for (short s : template) {
+            energy += (double) s * s;
+        }
+
+        MatchedFilter filter = new MatchedFilter(template, template.length);
+        filter.reset(1000);
+        Collector collector = new Collector(input.length, 1000);
+        // Odd block sizes so segments never line up with blocks
+        for (int offset = 0; offset < input.length; offset += 333) {
+            filter.process(input, offset, Math.min(333, input.length - offset), collector);
+        }
+
+        // Only whole segments of 1024 samples have been correlated so far
+        long produced = filter.getNextOutputFrame() - 1000;
+        assertTrue(produced > input.length - 1024);
+        for (int n = 0; n < produced; n++) {
+            double expected = 0;
+            for (int k = 0; k < template.length; k++) {
+                expected += (double) input[n + k] * template[k];
+            }
+            assertEquals("lag " + n, expected / energy, collector.values[n], 1e-9);
+        }
+    }
+
+    @Test
+    public void peakGivesGainOfTemplateCopy() {
+        short[] template = new short[1000];
+        ChirpGenerator generator = new ChirpGenerator(new ChirpParams(3000, 2000, 1000));
+        generator.fill(template, 0, template.length);
+
+        short[] input = new short[8192];
+        for (int i = 0; i < template.length; i++) {
+            input[2500 + i] = (short) -template[i];
+        }
+
+        MatchedFilter filter = new MatchedFilter(template, template.length);
+        filter.reset(1000);
+        Collector collector = new Collector(input.length, 1000);
+        filter.process(input, 0, input.length, collector);
+
+        int best = 0;
+        for (int i = 1; i < collector.values.length; i++) {
+            if (Math.abs(collector.values[i]) > Math.abs(collector.values[best])) {
+                best = i;
+            }
+        }
+        assertEquals(2500, best);
+        assertEquals(-1.0, collector.values[best], 1e-9);
+    }
+}
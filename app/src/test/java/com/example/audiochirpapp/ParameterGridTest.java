@@ -0,0 +1,78 @@
+package com.example.audiochirpapp;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for expanding experiment grids into trials
+ */
+public class ParameterGridTest {
+    private static final ChirpParams LEFT = new ChirpParams(1000, 500, 100);
+    private static final ChirpParams RIGHT = new ChirpParams(2000, 500, 100);
+
+    @Test
+    public void missingAxesUseDefaults() {
+        List<Trial> trials = ParameterGrid.parse("", LEFT, RIGHT).toTrials();
+
+        assertEquals(1, trials.size());
+        assertEquals(LEFT, trials.get(0).getLeftParams());
+        assertEquals(RIGHT, trials.get(0).getRightParams());
+    }
+
+    @Test
+    public void expandsRangesListsAndRepeats() {
+        ParameterGrid grid = ParameterGrid.parse(
+                "leftFreq=1000:3000:1000; rightBw = 200,400 ;duration=50;repeats=2", LEFT, RIGHT);
+        List<Trial> trials = grid.toTrials();
+
+        assertEquals(12, grid.getTrialCount());
+        assertEquals(12, trials.size());
+        for (int i = 0; i < trials.size(); i++) {
+            assertEquals(i, trials.get(i).getIndex());
+            assertEquals(50, trials.get(i).getDuration());
+        }
+
+        // The last axis varies fastest, repeats are adjacent
+        assertEquals(new ChirpParams(1000, 500, 50), trials.get(0).getLeftParams());
+        assertEquals(new ChirpParams(2000, 200, 50), trials.get(0).getRightParams());
+        assertEquals(trials.get(0).getRightParams(), trials.get(1).getRightParams());
+        assertEquals(new ChirpParams(2000, 400, 50), trials.get(2).getRightParams());
+        assertEquals(new ChirpParams(3000, 500, 50), trials.get(11).getLeftParams());
+    }
+
+    @Test
+    public void linesAreConcatenatedIntoOneList() {
+        List<Trial> trials = ParameterGrid.parseTrials(
+                "leftFreq=1000,1500\n\nrightFreq=5000; repeats=3\n", LEFT, RIGHT);
+
+        assertEquals(5, trials.size());
+        assertEquals(1500, trials.get(1).getLeftParams().getCenterFrequency());
+        assertEquals(4, trials.get(4).getIndex());
+        assertEquals(5000, trials.get(4).getRightParams().getCenterFrequency());
+        assertEquals(LEFT, trials.get(4).getLeftParams());
+    }
+
+    @Test
+    public void rejectsMalformedGrids() {
+        String[] invalid = {
+                "leftFreq",
+                "pitch=100",
+                "leftFreq=abc",
+                "leftFreq=4000:1000:100",
+                "leftFreq=1000:2000",
+                "repeats=0",
+                "leftFreq=1:100000:1; rightFreq=1,2",
+        };
+        for (String spec : invalid) {
+            try {
+                ParameterGrid.parseTrials(spec, LEFT, RIGHT);
+                fail("Accepted " + spec);
+            } catch (IllegalArgumentException expected) {
+                // Expected
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.audiochirpapp;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the lossless recording codec
+ */
+public class RiceCodecTest {
+    private static final int SAMPLE_RATE = 44100;
+
+    /**
+     * A mic-like signal: room noise, with a 50ms chirp every 500ms
+     */
+    private static short[] recording(int length, long seed) {
+        Random random = new Random(seed);
+        short[] chirp = AudioUtils.generateChirp(3000, 5000, 50);
+        short[] samples = new short[length];
+        for (int i = 0; i < length; i++) {
+            int chirpOffset = i % (SAMPLE_RATE / 2);
+            double value = random.nextGaussian() * 10
+                    + (chirpOffset < chirp.length ? chirp[chirpOffset] / 8.0 : 0);
+            samples[i] = (short) Math.round(value);
+        }
+        return samples;
+    }
+
+    private static short[] roundTrip(short[] samples) throws IOException {
+        RiceCodec codec = new RiceCodec();
+        byte[] encoded = new byte[RiceCodec.maxEncodedSize(samples.length)];
+        int bytes = codec.encode(samples, 0, samples.length, encoded, 0);
+        assertTrue(bytes <= encoded.length);
+
+        short[] decoded = new short[RiceCodec.MAX_BLOCK_SAMPLES];
+        int count = codec.decode(encoded, 0, bytes, decoded, 0);
+        assertEquals(samples.length, count);
+        return Arrays.copyOf(decoded, count);
+    }
+
+    @Test
+    public void roundTripsTypicalAndExtremeSignals() throws IOException {
+        Random random = new Random(1);
+        short[] noise = new short[RiceCodec.MAX_BLOCK_SAMPLES];
+        for (int i = 0; i < noise.length; i++) {
+            noise[i] = (short) random.nextInt();
+        }
+        // Worst case for the higher order predictors
+        short[] extremes = new short[RiceCodec.MAX_BLOCK_SAMPLES];
+        for (int i = 0; i < extremes.length; i++) {
+            extremes[i] = i % 2 == 0 ? Short.MAX_VALUE : Short.MIN_VALUE;
+        }
+        short[] steps = new short[1000];
+        for (int i = 0; i < steps.length; i++) {
+            steps[i] = (short) ((i / 100) % 2 == 0 ? 20000 : -20000);
+        }
+
+        short[][] signals = {
+                recording(1764, 2),
+                new short[RiceCodec.MAX_BLOCK_SAMPLES],
+                noise,
+                extremes,
+                steps,
+                AudioUtils.generateChirp(1000, 8000, 50),
+        };
+        for (short[] signal : signals) {
+            assertArrayEquals(signal, roundTrip(signal));
+        }
+    }
+
+    @Test
+    public void roundTripsShortBlocks() throws IOException {
+        for (int length = 0; length <= 5; length++) {
+            short[] samples = new short[length];
+            for (int i = 0; i < length; i++) {
+                samples[i] = (short) (i * 1000 - 1234);
+            }
+            assertArrayEquals(samples, roundTrip(samples));
+        }
+        short[] partitionEdge = recording(RiceCodec.PARTITION_SIZE + 3, 3);
+        assertArrayEquals(partitionEdge, roundTrip(partitionEdge));
+    }
+
+    @Test
+    public void compressesRecordingsAtLeastTwofold() {
+        RiceCodec codec = new RiceCodec();
+        short[] samples = recording(SAMPLE_RATE, 4);
+        byte[] encoded = new byte[RiceCodec.maxEncodedSize(RiceCodec.MAX_BLOCK_SAMPLES)];
+        long bytes = 0;
+        for (int offset = 0; offset < samples.length; offset += RiceCodec.MAX_BLOCK_SAMPLES) {
+            int count = Math.min(RiceCodec.MAX_BLOCK_SAMPLES, samples.length - offset);
+            bytes += codec.encode(samples, offset, count, encoded, 0);
+        }
+        assertTrue("ratio " + samples.length * 2.0 / bytes, bytes * 2 < samples.length * 2L);
+    }
+
+    @Test
+    public void blocksDecodeIndependently() throws IOException {
+        RiceCodec encoder = new RiceCodec();
+        short[] samples = recording(3000, 5);
+        byte[] stream = new byte[2 * RiceCodec.maxEncodedSize(1500)];
+        int first = encoder.encode(samples, 0, 1500, stream, 0);
+        int second = encoder.encode(samples, 1500, 1500, stream, first);
+
+        // A fresh decoder starting at the second block
+        short[] decoded = new short[RiceCodec.MAX_BLOCK_SAMPLES];
+        assertEquals(1500, new RiceCodec().decode(stream, first, second, decoded, 0));
+        assertArrayEquals(Arrays.copyOfRange(samples, 1500, 3000), Arrays.copyOf(decoded, 1500));
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedBlockFails() throws IOException {
+        RiceCodec codec = new RiceCodec();
+        short[] samples = recording(1000, 6);
+        byte[] encoded = new byte[RiceCodec.maxEncodedSize(samples.length)];
+        int bytes = codec.encode(samples, 0, samples.length, encoded, 0);
+        codec.decode(encoded, 0, bytes / 2, new short[RiceCodec.MAX_BLOCK_SAMPLES], 0);
+    }
+
+    @Test
+    public void compressedSessionReadsBackLosslessly() throws IOException {
+        File file = File.createTempFile("recording", RiceSampleSink.FILE_EXTENSION);
+        final short[] samples = recording(SAMPLE_RATE * 2, 7);
+        final int blockFrames = 10000;
+        try {
+            RiceSampleSink sink = new RiceSampleSink(file, SAMPLE_RATE, 1000);
+            for (int offset = 0; offset < samples.length; offset += blockFrames) {
+                int count = Math.min(blockFrames, samples.length - offset);
+                sink.writeBlock(samples, offset, count, 1000 + offset * 1000000000L / SAMPLE_RATE, offset);
+                if (offset == 50000) {
+                    sink.writeChirp(1234, 52000, new ChirpParams(4000, 1000, 50), new ChirpParams(9000, 1000, 50));
+                }
+            }
+            assertEquals(samples.length, sink.getFramesWritten());
+            assertTrue(sink.getCompressionRatio() > 2);
+            sink.close();
+            assertTrue(file.length() < samples.length);
+
+            final short[] decoded = new short[samples.length];
+            final int[] chirps = {0};
+            final boolean[] contiguous = {true};
+            try (BinarySessionReader reader = new BinarySessionReader(file)) {
+                assertEquals(SAMPLE_RATE, reader.getSampleRate());
+                reader.readAll(new BinarySessionReader.Listener() {
+                    private long nextFrame = 0;
+
+                    @Override
+                    public void onBlock(short[] block, int length, long blockStartEpochNanos, long frameIndex) {
+                        // Codec blocks split a written block, their times may round differently
+                        contiguous[0] &= frameIndex == nextFrame && Math.abs(blockStartEpochNanos
+                                - (1000 + frameIndex * 1000000000L / SAMPLE_RATE)) <= 1;
+                        System.arraycopy(block, 0, decoded, (int) frameIndex, length);
+                        nextFrame = frameIndex + length;
+                    }
+
+                    @Override
+                    public void onChirp(long epochNanos, long frameIndex, ChirpParams leftParams,
+                                        ChirpParams rightParams) {
+                        chirps[0]++;
+                        assertEquals(52000, frameIndex);
+                    }
+                });
+            }
+            assertTrue(contiguous[0]);
+            assertEquals(1, chirps[0]);
+            assertArrayEquals(samples, decoded);
+        } finally {
+            file.delete();
+        }
+    }
+}
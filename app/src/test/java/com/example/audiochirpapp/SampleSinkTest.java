@@ -0,0 +1,486 @@
+package com.example.audiochirpapp;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the recording sinks and group commit
+ */
+public class SampleSinkTest {
+    private static final ChirpParams LEFT = new ChirpParams(4000, 1000, 50);
+    private static final ChirpParams RIGHT = new ChirpParams(9000, 1000, 50);
+
+    private static short[] ramp(int length, int start) {
+        short[] samples = new short[length];
+        for (int i = 0; i < length; i++) {
+            samples[i] = (short) (start + i);
+        }
+        return samples;
+    }
+
+    @Test
+    public void groupCommitKeepsOrderAndCommitsOnClose() throws IOException {
+        MemorySampleSink memory = new MemorySampleSink(1);
+        GroupCommitSink sink = new GroupCommitSink(memory, 1000, 60000, 100000, DurabilityPolicy.NONE);
+
+        sink.writeBlock(ramp(100, 0), 0, 100, 10, 0);
+        sink.writeChirp(20, 50, LEFT, RIGHT);
+        short[] padded = ramp(120, 90);
+        sink.writeBlock(padded, 10, 100, 30, 100);
+        assertEquals(200, sink.getFramesWritten());
+        sink.close();
+
+        assertTrue(memory.isClosed());
+        assertEquals(2, memory.getBlocks().size());
+        assertEquals(100, memory.getBlocks().get(1).getFrameIndex());
+        assertEquals(30, memory.getBlocks().get(1).getEpochNanos());
+        assertArrayEquals(ramp(200, 0), memory.getSamples());
+        assertEquals(1, memory.getChirps().size());
+        assertEquals(50, memory.getChirps().get(0).getFrameIndex());
+        assertEquals(LEFT, memory.getChirps().get(0).getLeftParams());
+        assertEquals(RIGHT, memory.getChirps().get(0).getRightParams());
+        // Nothing asked for more than the sink's own buffering
+        assertEquals(0, memory.getFlushCount());
+        assertEquals(0, memory.getSyncCount());
+    }
+
+    @Test
+    public void commitsWhenSizeThresholdIsReached() throws IOException, InterruptedException {
+        MemorySampleSink memory = new MemorySampleSink(1);
+        GroupCommitSink sink = new GroupCommitSink(memory, 1000, 60000, 100000, DurabilityPolicy.FLUSH);
+
+        for (int i = 0; i < 10; i++) {
+            sink.writeBlock(ramp(100, i * 100), 0, 100, i, i * 100);
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sink.getCommitCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(1, sink.getCommitCount());
+        sink.close();
+
+        assertEquals(1, memory.getFlushCount());
+        assertArrayEquals(ramp(1000, 0), memory.getSamples());
+    }
+
+    @Test
+    public void commitsWhenIntervalElapses() throws IOException, InterruptedException {
+        MemorySampleSink memory = new MemorySampleSink(1);
+        GroupCommitSink sink = new GroupCommitSink(memory, 100000, 20, 1000000, DurabilityPolicy.FSYNC);
+
+        sink.writeBlock(ramp(10, 0), 0, 10, 0, 0);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sink.getCommitCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(1, sink.getCommitCount());
+        sink.close();
+
+        assertEquals(1, memory.getSyncCount());
+        assertEquals(1, memory.getBlocks().size());
+    }
+
+    @Test
+    public void flushAndSyncWaitForTheirCommit() throws IOException {
+        MemorySampleSink memory = new MemorySampleSink(1);
+        GroupCommitSink sink = new GroupCommitSink(memory, 100000, 60000, 1000000, DurabilityPolicy.NONE);
+
+        sink.writeBlock(ramp(10, 0), 0, 10, 0, 0);
+        sink.flush();
+        assertEquals(1, memory.getBlocks().size());
+        assertEquals(1, memory.getFlushCount());
+
+        sink.writeBlock(ramp(10, 10), 0, 10, 0, 10);
+        sink.sync();
+        assertEquals(2, memory.getBlocks().size());
+        assertEquals(1, memory.getSyncCount());
+        sink.close();
+    }
+
+    @Test
+    public void dropsBlocksInsteadOfWaitingForStorage() throws IOException {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch writing = new CountDownLatch(1);
+        MemorySampleSink slow = new MemorySampleSink(1) {
+            @Override
+            public void writeBlock(short[] samples, int offset, int length, long epochNanos, long frameIndex) {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.writeBlock(samples, offset, length, epochNanos, frameIndex);
+            }
+        };
+        GroupCommitSink sink = new GroupCommitSink(slow, 100, 60000, 300, DurabilityPolicy.NONE);
+
+        // The first group is stuck in storage
+        sink.writeBlock(ramp(100, 0), 0, 100, 0, 0);
+        try {
+            writing.await();
+        } catch (InterruptedException e) {
+            fail();
+        }
+        // The queue takes 3 more blocks, then drops
+        for (int i = 1; i <= 5; i++) {
+            sink.writeBlock(ramp(100, i * 100), 0, 100, 0, i * 100);
+        }
+        sink.writeChirp(0, 150, LEFT, RIGHT);
+        assertEquals(2, sink.getDroppedBlocks());
+        assertEquals(200, sink.getDroppedSamples());
+
+        release.countDown();
+        sink.close();
+        assertEquals(4, slow.getBlocks().size());
+        assertEquals(300, slow.getBlocks().get(3).getFrameIndex());
+        assertEquals(1, slow.getChirps().size());
+    }
+
+    @Test
+    public void reportsCommitErrors() {
+        GroupCommitSink sink = new GroupCommitSink(new FailingSink(), 100000, 60000, 1000000,
+                DurabilityPolicy.NONE);
+        try {
+            sink.writeBlock(ramp(10, 0), 0, 10, 0, 0);
+            sink.flush();
+            fail("Expected the write error");
+        } catch (IOException e) {
+            assertEquals("disk full", e.getMessage());
+        }
+        try {
+            sink.close();
+        } catch (IOException e) {
+            fail("Error was already reported");
+        }
+        try {
+            sink.writeBlock(ramp(10, 0), 0, 10, 0, 0);
+            fail("Expected the sink to be closed");
+        } catch (IOException e) {
+            assertEquals("Sink is closed", e.getMessage());
+        }
+    }
+
+    @Test
+    public void failedDelegateGetsNothingMoreAndWritersHearOfIt() throws IOException, InterruptedException {
+        FailingSink failing = new FailingSink();
+        GroupCommitSink sink = new GroupCommitSink(failing, 10, 60000, 1000000, DurabilityPolicy.NONE);
+
+        // Fills a group, whose commit fails in the background
+        sink.writeBlock(ramp(10, 0), 0, 10, 0, 0);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sink.getCommitCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(1, sink.getCommitCount());
+        assertEquals(1, sink.getDroppedBlocks());
+
+        try {
+            sink.writeBlock(ramp(10, 10), 0, 10, 0, 10);
+            fail("Expected the commit error");
+        } catch (IOException e) {
+            assertEquals("disk full", e.getMessage());
+        }
+        // Reported once, later blocks are only counted
+        sink.writeBlock(ramp(10, 20), 0, 10, 0, 20);
+        sink.writeChirp(0, 25, LEFT, RIGHT);
+        assertEquals(3, sink.getDroppedBlocks());
+        assertEquals(30, sink.getDroppedSamples());
+        try {
+            sink.sync();
+            fail("Expected sync to fail");
+        } catch (IOException e) {
+            assertEquals("disk full", e.getMessage());
+        }
+        sink.close();
+        assertEquals(1, failing.blockWrites);
+        assertEquals(0, failing.chirpWrites);
+        assertTrue(failing.closed);
+    }
+
+    @Test
+    public void uncheckedDelegateErrorsFailTheSink() throws IOException {
+        MemorySampleSink broken = new MemorySampleSink(1) {
+            @Override
+            public void writeBlock(short[] samples, int offset, int length, long epochNanos, long frameIndex) {
+                throw new IllegalStateException("bug in the delegate");
+            }
+        };
+        GroupCommitSink sink = new GroupCommitSink(broken, 100000, 60000, 1000000, DurabilityPolicy.NONE);
+        sink.writeBlock(ramp(10, 0), 0, 10, 0, 0);
+        try {
+            sink.flush();
+            fail("Expected the commit error");
+        } catch (IOException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        // The committer survived and still closes the delegate
+        sink.close();
+        assertTrue(broken.isClosed());
+    }
+
+    /**
+     * Fails every block write
+     */
+    private static class FailingSink implements SampleSink {
+        int blockWrites = 0;
+        int chirpWrites = 0;
+        boolean closed = false;
+
+        @Override
+        public void writeBlock(short[] samples, int offset, int length, long epochNanos, long frameIndex)
+                throws IOException {
+            blockWrites++;
+            throw new IOException("disk full");
+        }
+
+        @Override
+        public void writeChirp(long epochNanos, long frameIndex, ChirpParams leftParams, ChirpParams rightParams) {
+            chirpWrites++;
+        }
+
+        @Override
+        public int getChannelCount() {
+            return 1;
+        }
+
+        @Override
+        public long getFramesWritten() {
+            return 0;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void sync() {
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    @Test
+    public void sessionWriterFailsForGoodAfterAWriteError() throws IOException {
+        // Takes part of the first write, then fails
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        WritableByteChannel flaky = new WritableByteChannel() {
+            private int writes = 0;
+
+            @Override
+            public int write(ByteBuffer source) throws IOException {
+                if (writes++ > 0) {
+                    throw new IOException("I/O error");
+                }
+                byte[] bytes = new byte[Math.min(1000, source.remaining())];
+                source.get(bytes);
+                written.write(bytes);
+                return bytes.length;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        BinarySessionWriter writer = new BinarySessionWriter(flaky, 44100, 1, 0);
+        writer.writeBlock(ramp(1000, 0), 0, 1000, 0, 0);
+        try {
+            writer.flush();
+            fail("Expected the write error");
+        } catch (IOException e) {
+            assertEquals("I/O error", e.getMessage());
+        }
+        // Only the bytes that reached the channel count
+        assertEquals(1000, written.size());
+        assertEquals(1000, writer.getPosition());
+
+        try {
+            writer.writeBlock(ramp(100, 1000), 0, 100, 0, 1000);
+            fail("Expected the writer to stay failed");
+        } catch (IOException e) {
+            assertEquals("I/O error", e.getCause().getMessage());
+        }
+        try {
+            writer.writeChirp(0, 50, LEFT, RIGHT);
+            fail("Expected the writer to stay failed");
+        } catch (IOException e) {
+            assertEquals("Session writer failed", e.getMessage());
+        }
+        try {
+            writer.sync();
+            fail("Expected the writer to stay failed");
+        } catch (IOException e) {
+            assertEquals("Session writer failed", e.getMessage());
+        }
+        writer.close();
+        assertEquals(1000, written.size());
+    }
+
+    @Test
+    public void deflaterSinkRoundTrip() throws IOException {
+        File file = File.createTempFile("recording", DeflaterSampleSink.FILE_EXTENSION);
+        try {
+            DeflaterSampleSink sink = new DeflaterSampleSink(file, 44100, 1, 1234, 6);
+            for (int i = 0; i < 20; i++) {
+                sink.writeBlock(ramp(1764, i * 1764), 0, 1764, 1234 + i, i * 1764L);
+                if (i == 5) {
+                    sink.writeChirp(99, 9000, LEFT, RIGHT);
+                }
+            }
+            sink.sync();
+            sink.close();
+
+            final List<Long> frames = new ArrayList<>();
+            final List<Long> chirpFrames = new ArrayList<>();
+            final int[] mismatches = {0};
+            BinarySessionReader reader = DeflaterSampleSink.openReader(file);
+            try {
+                assertEquals(44100, reader.getSampleRate());
+                assertEquals(1234, reader.getStartEpochNanos());
+                reader.readAll(new BinarySessionReader.Listener() {
+                    @Override
+                    public void onBlock(short[] samples, int length, long blockStartEpochNanos, long frameIndex) {
+                        frames.add(frameIndex);
+                        for (int i = 0; i < length; i++) {
+                            if (samples[i] != (short) (frameIndex + i)) {
+                                mismatches[0]++;
+                            }
+                        }
+                    }
+
+                    @Override
+                    public void onChirp(long epochNanos, long frameIndex, ChirpParams leftParams,
+                                        ChirpParams rightParams) {
+                        chirpFrames.add(frameIndex);
+                    }
+                });
+            } finally {
+                reader.close();
+            }
+            assertEquals(20, frames.size());
+            assertEquals(0, mismatches[0]);
+            assertEquals(1, chirpFrames.size());
+            assertEquals(9000L, (long) chirpFrames.get(0));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void csvSinkWritesRecordingRows() throws IOException {
+        File file = File.createTempFile("recording", ".csv");
+        try {
+            long startMs = 1767268800000L;
+            CsvSampleSink sink = new CsvSampleSink(file, startMs);
+            short[] padded = {7, -3, 12, 99};
+            sink.writeBlock(padded, 1, 2, (startMs + 500) * 1000000L, 0);
+            sink.writeChirp(0, 0, LEFT, RIGHT);
+            assertEquals(2, sink.getFramesWritten());
+            sink.close();
+
+            List<String> lines = new ArrayList<>();
+            try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lines.add(line);
+                }
+            }
+            assertEquals(3, lines.size());
+            assertEquals(CsvSampleEncoder.RECORDED_HEADER.trim(), lines.get(0));
+            assertTrue(lines.get(1).endsWith(",500,-3"));
+            assertTrue(lines.get(2).endsWith(",500,12"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static long countSamples(BinarySessionReader reader) throws IOException {
+        final long[] count = {0};
+        try {
+            reader.readAll(new BinarySessionReader.Listener() {
+                @Override
+                public void onBlock(short[] samples, int length, long blockStartEpochNanos, long frameIndex) {
+                    for (int i = 0; i < length; i++) {
+                        assertEquals((short) (frameIndex + i), samples[i]);
+                    }
+                    count[0] += length;
+                }
+
+                @Override
+                public void onChirp(long epochNanos, long frameIndex, ChirpParams leftParams,
+                                    ChirpParams rightParams) {
+                }
+            });
+        } finally {
+            reader.close();
+        }
+        return count[0];
+    }
+
+    @Test
+    public void everyRecordingFormatWritesAReadableFile() throws IOException {
+        File directory = File.createTempFile("formats", "");
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdir());
+        try {
+            for (RecordingFormat format : RecordingFormat.values()) {
+                File file = new File(directory, "s_recording" + format.getFileExtension());
+                SampleSink sink = format.open(file, 44100, 1767268800000L * 1000000L);
+                sink.writeBlock(ramp(1000, 0), 0, 1000, 1767268800000L * 1000000L, 0);
+                sink.writeChirp(0, 500, LEFT, RIGHT);
+                sink.writeBlock(ramp(1000, 1000), 0, 1000, 1767268800023L * 1000000L, 1000);
+                assertEquals(format.name(), 2000, sink.getFramesWritten());
+                sink.close();
+
+                switch (format) {
+                    case BINARY:
+                        assertTrue(SessionIndexFormat.indexFileFor(file).exists());
+                        // Fall through
+                    case RICE:
+                        assertEquals(format.name(), 2000, countSamples(new BinarySessionReader(file)));
+                        break;
+                    case DEFLATE:
+                        assertEquals(2000, countSamples(DeflaterSampleSink.openReader(file)));
+                        break;
+                    case CSV:
+                        int rows = 0;
+                        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+                            assertEquals(CsvSampleEncoder.RECORDED_HEADER.trim(), reader.readLine());
+                            while (reader.readLine() != null) {
+                                rows++;
+                            }
+                        }
+                        assertEquals(2000, rows);
+                        break;
+                    default:
+                        fail("No check for " + format);
+                }
+            }
+        } finally {
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.audiochirpapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.Enumeration;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the parallel ZIP export
+ */
+public class SessionArchiverTest {
+    private File root;
+    private File source;
+    private File temp;
+    private File archive;
+
+    @Before
+    public void createDirectories() throws IOException {
+        root = File.createTempFile("archive", "");
+        root.delete();
+        source = new File(root, "AudioChirpData");
+        temp = new File(root, "cache");
+        archive = new File(root, "AudioChirpData" + SessionArchiver.FILE_EXTENSION);
+        assertTrue(source.mkdirs());
+        assertTrue(temp.mkdirs());
+    }
+
+    @After
+    public void deleteDirectories() {
+        delete(root);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private File createFile(String name, byte[] bytes) throws IOException {
+        File file = new File(source, name);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(bytes);
+        }
+        return file;
+    }
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * @return Rows like those of a recording CSV
+     */
+    private static byte[] csvBytes(int rows) throws IOException {
+        StringBuilder csv = new StringBuilder(CsvSampleEncoder.RECORDED_HEADER);
+        Random random = new Random(1);
+        for (int i = 0; i < rows; i++) {
+            csv.append("2026-10-17 12:00:0").append(i / 44100).append('.').append(i % 1000)
+                    .append(',').append(i / 44).append(',').append((int) (random.nextGaussian() * 10)).append('\n');
+        }
+        return csv.toString().getBytes("UTF-8");
+    }
+
+    private static byte[] read(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            byte[] bytes = new byte[(int) in.length()];
+            in.readFully(bytes);
+            return bytes;
+        }
+    }
+
+    private static byte[] read(ZipFile zip, ZipEntry entry) throws IOException {
+        byte[] bytes = new byte[(int) entry.getSize()];
+        try (InputStream in = zip.getInputStream(entry)) {
+            int offset = 0;
+            int length;
+            while (offset < bytes.length && (length = in.read(bytes, offset, bytes.length - offset)) > 0) {
+                offset += length;
+            }
+            assertEquals(-1, in.read());
+        }
+        return bytes;
+    }
+
+    private SessionArchiver write(SessionArchiver archiver) throws IOException {
+        try (FileChannel out = new FileOutputStream(archive).getChannel()) {
+            archiver.archive(source.listFiles(), out);
+        }
+        return archiver;
+    }
+
+    @Test
+    public void archivesEveryFileReadableByZipFile() throws IOException {
+        File csv = createFile("s_recording_20261017_120000.csv", csvBytes(100000));
+        File rice = createFile("s_recording_20261017_120000" + RiceSampleSink.FILE_EXTENSION,
+                randomBytes(200000, 2));
+        File noise = createFile("noise.bin", randomBytes(50000, 3));
+        File empty = createFile("empty.csv", new byte[0]);
+        File params = createFile("s_params_20261017_120000.csv", "leftFreq,rightFreq\n1000,2000\n".getBytes("UTF-8"));
+        assertTrue(csv.setLastModified(1792238406000L));
+        assertTrue(new File(source, "subdirectory").mkdir());
+
+        final long[] progress = new long[2];
+        SessionArchiver archiver = write(new SessionArchiver(temp, 3, 6, new FileExporter.Listener() {
+            @Override
+            public synchronized void onProgress(long bytesDone, long bytesTotal, int filesDone, int filesTotal) {
+                progress[0] = Math.max(progress[0], bytesDone);
+                progress[1] = Math.max(progress[1], filesDone);
+                assertEquals(5, filesTotal);
+            }
+        }));
+
+        long inputBytes = csv.length() + rice.length() + noise.length() + params.length();
+        assertEquals(5, archiver.getEntryCount());
+        assertEquals(inputBytes, archiver.getInputBytes());
+        assertEquals(archive.length(), archiver.getArchiveBytes());
+        assertEquals(inputBytes, progress[0]);
+        assertEquals(5, progress[1]);
+        // Nothing left behind in the cache
+        assertEquals(0, temp.list().length);
+
+        try (ZipFile zip = new ZipFile(archive)) {
+            assertEquals(5, zip.size());
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                assertArrayEquals(entry.getName(), read(new File(source, entry.getName())), read(zip, entry));
+            }
+            ZipEntry csvEntry = zip.getEntry(csv.getName());
+            assertEquals(ZipEntry.DEFLATED, csvEntry.getMethod());
+            assertTrue("ratio " + csvEntry.getSize() / (double) csvEntry.getCompressedSize(),
+                    csvEntry.getCompressedSize() * 3 < csvEntry.getSize());
+            // DOS times have a 2s resolution
+            assertEquals(1792238406000L, csvEntry.getTime());
+            assertEquals(ZipEntry.STORED, zip.getEntry(rice.getName()).getMethod());
+            assertEquals(ZipEntry.STORED, zip.getEntry(noise.getName()).getMethod());
+            assertEquals(0, zip.getEntry(empty.getName()).getSize());
+        }
+        // Names are flagged as UTF-8
+        byte[] bytes = read(archive);
+        assertEquals(0x08, bytes[7]);
+    }
+
+    @Test
+    public void emptyDirectoryGivesAnEmptyArchive() throws IOException {
+        SessionArchiver archiver = write(new SessionArchiver(temp, 2, 6, null));
+        assertEquals(0, archiver.getEntryCount());
+        assertEquals(22, archive.length());
+        try (ZipFile zip = new ZipFile(archive)) {
+            assertEquals(0, zip.size());
+        }
+    }
+
+    @Test
+    public void cancelledArchiveFailsAndCleansUp() throws IOException {
+        for (int i = 0; i < 4; i++) {
+            createFile("session_" + i + ".csv", csvBytes(20000));
+        }
+        SessionArchiver archiver = new SessionArchiver(temp, 2, 6, null);
+        archiver.cancel();
+        try {
+            write(archiver);
+            fail("Expected the archive to be cancelled");
+        } catch (IOException e) {
+            assertEquals("Archive cancelled", e.getMessage());
+        }
+        assertEquals(0, temp.list().length);
+    }
+
+    @Test
+    public void dosTimesBefore1980AreClamped() {
+        assertEquals((1 << 21) | (1 << 16), SessionArchiver.toDosTime(0));
+    }
+}
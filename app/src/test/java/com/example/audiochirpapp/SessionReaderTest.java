@@ -0,0 +1,159 @@
+package com.example.audiochirpapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for reading sessions back and analysing chirp windows
+ */
+public class SessionReaderTest {
+    private static final int SAMPLE_RATE = 44100;
+    private static final int BLOCK_FRAMES = 1764;
+    private static final int TOTAL_FRAMES = BLOCK_FRAMES * 40;
+    private static final ChirpParams LEFT = new ChirpParams(4000, 1000, 50);
+    private static final ChirpParams RIGHT = new ChirpParams(9000, 1000, 50);
+    private static final long[] CHIRP_FRAMES = {10000, 40000};
+    // A chirp with a 50ms tail covers 100ms
+    private static final int SIGNAL_FRAMES = SAMPLE_RATE / 10;
+    private static final short NOISE_LEVEL = 100;
+    private static final short SIGNAL_LEVEL = 8000;
+
+    private File directory;
+    private File recordingFile;
+
+    private static short sample(long frame) {
+        short level = NOISE_LEVEL;
+        for (long chirp : CHIRP_FRAMES) {
+            if (frame >= chirp && frame < chirp + SIGNAL_FRAMES) {
+                level = SIGNAL_LEVEL;
+            }
+        }
+        return (short) (frame % 2 == 0 ? level : -level);
+    }
+
+    @Before
+    public void writeSession() throws IOException {
+        directory = File.createTempFile("session", "");
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdir());
+        recordingFile = new File(directory, "test_recording_20260101_120000.bin");
+
+        BinarySessionWriter writer = new BinarySessionWriter(recordingFile, SAMPLE_RATE, 1, 0,
+                SessionIndexFormat.indexFileFor(recordingFile));
+        short[] block = new short[BLOCK_FRAMES];
+        int chirp = 0;
+        for (long start = 0; start < TOTAL_FRAMES; start += BLOCK_FRAMES) {
+            for (int i = 0; i < BLOCK_FRAMES; i++) {
+                block[i] = sample(start + i);
+            }
+            writer.writeBlock(block, 0, BLOCK_FRAMES, start * 1000000000L / SAMPLE_RATE, start);
+            if (chirp < CHIRP_FRAMES.length && CHIRP_FRAMES[chirp] < start + BLOCK_FRAMES) {
+                writer.writeChirp(CHIRP_FRAMES[chirp] * 1000000000L / SAMPLE_RATE, CHIRP_FRAMES[chirp],
+                        LEFT, RIGHT);
+                chirp++;
+            }
+        }
+        writer.close();
+
+        try (FileWriter params = new FileWriter(new File(directory, "test_params_20260101_120000.csv"))) {
+            params.write("timestamp,eventType,leftFreq,leftBw,rightFreq,rightBw,duration,frameIndex\n");
+            params.write("2026-01-01 12:00:00.500,CHIRP,4000,1000,9000,1000,50,0\n");
+            params.write("2026-01-01 12:00:01.200,CHIRP,4000,1000,9000,1000,50,30870\n");
+        }
+    }
+
+    @After
+    public void deleteSession() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void opensSessionFiles() throws IOException {
+        try (SessionReader reader = new SessionReader(recordingFile)) {
+            assertEquals(new File(directory, "test_transmitted_20260101_120000.csv"), reader.getTransmittedFile());
+            assertEquals(SAMPLE_RATE, reader.getSampleRate());
+            assertEquals(2, reader.getChirpCount());
+
+            List<SessionReader.LoggedChirp> logged = reader.getLoggedChirps();
+            assertEquals(2, logged.size());
+            assertEquals(LEFT, logged.get(1).getLeftParams());
+            assertEquals(RIGHT, logged.get(1).getRightParams());
+            assertEquals(30870, logged.get(1).getFrameIndex());
+        }
+    }
+
+    @Test
+    public void chirpWindowsHaveLevelsAndSnr() throws IOException {
+        List<ChirpWindow> windows = new ArrayList<>();
+        try (SessionReader reader = new SessionReader(recordingFile)) {
+            for (ChirpWindow window : reader.chirpWindows(100, 50)) {
+                windows.add(window);
+            }
+        }
+
+        assertEquals(2, windows.size());
+        for (int i = 0; i < windows.size(); i++) {
+            ChirpWindow window = windows.get(i);
+            assertEquals(i, window.getChirp());
+            assertEquals(CHIRP_FRAMES[i], window.getStartFrame());
+            assertEquals(LEFT, window.getLeftParams());
+            assertEquals(RIGHT, window.getRightParams());
+            assertEquals(SIGNAL_FRAMES, window.getSignal().remaining());
+            assertEquals(SAMPLE_RATE / 10, window.getNoise().remaining());
+
+            assertEquals(SIGNAL_LEVEL / 32768.0, window.getRms(), 1e-9);
+            assertEquals(SIGNAL_LEVEL / 32768.0, window.getPeak(), 1e-9);
+            assertEquals(NOISE_LEVEL / 32768.0, window.getNoiseRms(), 1e-9);
+            assertEquals(20 * Math.log10(80), window.getSnrDb(), 1e-9);
+        }
+    }
+
+    @Test
+    public void transmittedSamplesAreRegenerated() throws IOException {
+        try (SessionReader reader = new SessionReader(recordingFile)) {
+            ShortBuffer transmitted = reader.getTransmittedSamples(0);
+
+            ChirpGenerator left = new ChirpGenerator(LEFT);
+            ChirpGenerator right = new ChirpGenerator(RIGHT);
+            short[] leftSamples = new short[left.getTotalSamples()];
+            short[] rightSamples = new short[right.getTotalSamples()];
+            left.fill(leftSamples, 0, leftSamples.length);
+            right.fill(rightSamples, 0, rightSamples.length);
+
+            assertEquals(leftSamples.length * 2, transmitted.remaining());
+            for (int i = 0; i < leftSamples.length; i++) {
+                assertEquals(leftSamples[i], transmitted.get(2 * i));
+                assertEquals(rightSamples[i], transmitted.get(2 * i + 1));
+            }
+        }
+    }
+
+    @Test
+    public void statsOfEmptyAndSilentBuffers() {
+        ShortBuffer silence = ShortBuffer.allocate(100);
+        assertEquals(0, SignalStats.rms(ShortBuffer.allocate(0)), 0);
+        assertEquals(0, SignalStats.rms(silence), 0);
+        assertEquals(0, SignalStats.peak(silence), 0);
+        assertEquals(Double.POSITIVE_INFINITY, SignalStats.snrDb(0.5, 0), 0);
+
+        ShortBuffer fullScale = ShortBuffer.wrap(new short[]{Short.MIN_VALUE, Short.MAX_VALUE});
+        assertEquals(1.0, SignalStats.peak(fullScale), 0);
+        assertEquals(100, silence.remaining());
+    }
+}
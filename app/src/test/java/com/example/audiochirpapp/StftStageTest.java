@@ -0,0 +1,165 @@
+package com.example.audiochirpapp;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the chirp-band spectrogram stage and its file format
+ */
+public class StftStageTest {
+    private static final int SAMPLE_RATE = 44100;
+    private static final int WINDOW = 1024;
+    private static final int HOP = 512;
+
+    private static class Frame {
+        final long frameIndex;
+        final int firstBin;
+        final float[] magnitudes;
+
+        Frame(long frameIndex, int firstBin, float[] magnitudes, int count) {
+            this.frameIndex = frameIndex;
+            this.firstBin = firstBin;
+            this.magnitudes = new float[count];
+            System.arraycopy(magnitudes, 0, this.magnitudes, 0, count);
+        }
+    }
+
+    private static class Collector implements StftStage.Output, SpectrogramReader.Listener {
+        final List<Frame> frames = new ArrayList<>();
+
+        @Override
+        public void onFrame(long frameIndex, int firstBin, float[] magnitudes, int count) {
+            frames.add(new Frame(frameIndex, firstBin, magnitudes, count));
+        }
+    }
+
+    /**
+     * Sine in the middle of a bin, fed in blocks that do not line up with the hop
+     */
+    private static void feedSine(StftStage stage, int bin, double amplitude, int length) {
+        short[] block = new short[1764];
+        long frame = 0;
+        while (frame + block.length <= length) {
+            for (int i = 0; i < block.length; i++) {
+                block[i] = (short) Math.round(amplitude * Math.sin(2 * Math.PI * bin * (frame + i) / WINDOW));
+            }
+            stage.onBlock(block, block.length, frame);
+            frame += block.length;
+        }
+    }
+
+    @Test
+    public void reportsSineAmplitudeInItsBin() {
+        Collector collector = new Collector();
+        StftStage stage = new StftStage(WINDOW, HOP, SAMPLE_RATE, collector);
+        // 1500..2000Hz covers bins 34..47
+        stage.setBands(new ChirpParams(1750, 500, 100), new ChirpParams(1750, 500, 100));
+
+        feedSine(stage, 40, 16384, 1764 * 20);
+
+        int windows = (1764 * 20 - WINDOW) / HOP + 1;
+        assertEquals(windows, collector.frames.size());
+        for (int w = 0; w < windows; w++) {
+            Frame frame = collector.frames.get(w);
+            assertEquals((long) w * HOP, frame.frameIndex);
+            assertEquals(34, frame.firstBin);
+            assertEquals(14, frame.magnitudes.length);
+            assertEquals(0.5, frame.magnitudes[40 - 34], 0.001);
+            // Hann leakage only reaches the neighbouring bins
+            assertEquals(0.25, frame.magnitudes[39 - 34], 0.001);
+            assertEquals(0, frame.magnitudes[36 - 34], 0.001);
+        }
+    }
+
+    @Test
+    public void keepsSeparateBandsApart() {
+        Collector collector = new Collector();
+        StftStage stage = new StftStage(WINDOW, HOP, SAMPLE_RATE, collector);
+        stage.setBands(new ChirpParams(1000, 500, 100), new ChirpParams(5000, 1000, 100));
+
+        feedSine(stage, 40, 16384, 1764 * 2);
+
+        assertEquals(2 * ((1764 * 2 - WINDOW) / HOP + 1), collector.frames.size());
+        Frame low = collector.frames.get(0);
+        Frame high = collector.frames.get(1);
+        assertEquals(low.frameIndex, high.frameIndex);
+        assertEquals(17, low.firstBin);
+        assertEquals(30 - 17 + 1, low.magnitudes.length);
+        assertEquals(104, high.firstBin);
+        assertEquals(128 - 104 + 1, high.magnitudes.length);
+    }
+
+    @Test
+    public void nothingIsReportedWithoutBands() {
+        Collector collector = new Collector();
+        StftStage stage = new StftStage(WINDOW, HOP, SAMPLE_RATE, collector);
+
+        feedSine(stage, 40, 16384, 1764 * 4);
+
+        assertTrue(collector.frames.isEmpty());
+    }
+
+    @Test
+    public void restartsWindowsAfterDroppedBlocks() {
+        Collector collector = new Collector();
+        StftStage stage = new StftStage(WINDOW, HOP, SAMPLE_RATE, collector);
+        stage.setBands(new ChirpParams(1750, 500, 100), new ChirpParams(1750, 500, 100));
+
+        short[] block = new short[800];
+        stage.onBlock(block, block.length, 0);
+        stage.onBlock(block, block.length, 10000);
+        stage.onBlock(block, block.length, 10800);
+
+        assertEquals(2, collector.frames.size());
+        assertEquals(10000, collector.frames.get(0).frameIndex);
+        assertEquals(10000 + HOP, collector.frames.get(1).frameIndex);
+    }
+
+    @Test
+    public void framesSurviveFileRoundTrip() throws IOException {
+        Collector written = new Collector();
+        final File file = File.createTempFile("spectrogram", SpectrogramFormat.FILE_EXTENSION);
+        try {
+            final SpectrogramWriter writer = new SpectrogramWriter(file, SAMPLE_RATE, WINDOW, HOP, 123456789L);
+            final Collector source = written;
+            StftStage stage = new StftStage(WINDOW, HOP, SAMPLE_RATE, new StftStage.Output() {
+                @Override
+                public void onFrame(long frameIndex, int firstBin, float[] magnitudes, int count) {
+                    source.onFrame(frameIndex, firstBin, magnitudes, count);
+                    try {
+                        writer.writeFrame(frameIndex, firstBin, magnitudes, count);
+                    } catch (IOException e) {
+                        throw new AssertionError(e);
+                    }
+                }
+            });
+            stage.setBands(new ChirpParams(1000, 500, 100), new ChirpParams(5000, 1000, 100));
+            feedSine(stage, 40, 16384, 1764 * 50);
+            writer.close();
+
+            Collector read = new Collector();
+            try (SpectrogramReader reader = new SpectrogramReader(file)) {
+                assertEquals(SAMPLE_RATE, reader.getSampleRate());
+                assertEquals(WINDOW, reader.getWindowSize());
+                assertEquals(HOP, reader.getHop());
+                assertEquals(123456789L, reader.getStartEpochNanos());
+                reader.readAll(read);
+            }
+
+            assertEquals(written.frames.size(), read.frames.size());
+            for (int i = 0; i < written.frames.size(); i++) {
+                assertEquals(written.frames.get(i).frameIndex, read.frames.get(i).frameIndex);
+                assertEquals(written.frames.get(i).firstBin, read.frames.get(i).firstBin);
+                assertArrayEquals(written.frames.get(i).magnitudes, read.frames.get(i).magnitudes, 0);
+            }
+        } finally {
+            file.delete();
+        }
+    }
+}
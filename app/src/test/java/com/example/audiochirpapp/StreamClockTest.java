@@ -0,0 +1,168 @@
+package com.example.audiochirpapp;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the frame-to-time mapping, driven by a fake clock
+ */
+public class StreamClockTest {
+    private static final int SAMPLE_RATE = 44100;
+    private static final double FRAME_NS = 1e9 / SAMPLE_RATE;
+    private static final long START_EPOCH_MS = 1700000000000L;
+
+    /**
+     * Clock that only moves when the test advances it
+     */
+    private static class FakeClock implements MonotonicClock {
+        long nanos = 5000000000L;
+
+        @Override
+        public long nanoTime() {
+            return nanos;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return START_EPOCH_MS + (nanos - 5000000000L) / 1000000L;
+        }
+    }
+
+    /**
+     * Audio device whose sample clock is off by a fixed amount and whose
+     * timestamps carry some jitter
+     */
+    private static class FakeDevice implements FrameTimestampSource {
+        final FakeClock clock;
+        final long startNanos;
+        final double actualRate;
+        final long jitterNanos;
+        final Random random = new Random(42);
+        boolean available = true;
+
+        FakeDevice(FakeClock clock, long latencyNanos, double driftPpm, long jitterNanos) {
+            this.clock = clock;
+            this.startNanos = clock.nanos + latencyNanos;
+            this.actualRate = SAMPLE_RATE * (1 + driftPpm * 1e-6);
+            this.jitterNanos = jitterNanos;
+        }
+
+        /**
+         * @return Exact monotonic time at which the frame passes the device
+         */
+        long trueNanos(long frame) {
+            return startNanos + Math.round(frame * 1e9 / actualRate);
+        }
+
+        long trueFrame(long nanos) {
+            return (long) Math.floor((nanos - startNanos) * actualRate / 1e9);
+        }
+
+        @Override
+        public boolean read(FrameTimestamp out) {
+            if (!available || clock.nanos < startNanos) {
+                return false;
+            }
+            out.framePosition = trueFrame(clock.nanos);
+            long jitter = jitterNanos == 0 ? 0 : (long) ((random.nextDouble() * 2 - 1) * jitterNanos);
+            out.nanoTime = trueNanos(out.framePosition) + jitter;
+            return true;
+        }
+    }
+
+    private static void run(FakeClock clock, StreamClock streamClock, FakeDevice device,
+                            long durationNanos, long stepNanos) {
+        long end = clock.nanos + durationNanos;
+        while (clock.nanos < end) {
+            clock.nanos += stepNanos;
+            streamClock.update(Math.max(0, device.trueFrame(clock.nanos)));
+        }
+    }
+
+    @Test
+    public void tracksDriftingHardwareClock() {
+        FakeClock clock = new FakeClock();
+        SessionClock session = new SessionClock(clock);
+        FakeDevice device = new FakeDevice(clock, 30000000L, 50, 20000);
+        StreamClock streamClock = new StreamClock(session, device, SAMPLE_RATE);
+
+        run(clock, streamClock, device, 20000000000L, 20000000L);
+
+        assertTrue(streamClock.hasHardwareTimestamps());
+        assertEquals(50, streamClock.getDriftPpm(), 3);
+
+        // Frames within the observation window map to within one frame
+        long recent = device.trueFrame(clock.nanos) - SAMPLE_RATE * 5;
+        for (long frame = recent; frame < recent + SAMPLE_RATE * 5; frame += 1001) {
+            assertEquals(device.trueNanos(frame), streamClock.frameToNanos(frame), FRAME_NS);
+            assertEquals(frame, streamClock.nanosToFrame(device.trueNanos(frame)), 1);
+        }
+
+        long frame = device.trueFrame(clock.nanos);
+        assertEquals(session.getStartEpochNanos() + device.trueNanos(frame) - session.getStartNanos(),
+                streamClock.frameToEpochNanos(frame), FRAME_NS);
+    }
+
+    @Test
+    public void fallsBackToDeliveryTimeWithoutTimestamps() {
+        FakeClock clock = new FakeClock();
+        FakeDevice device = new FakeDevice(clock, 0, 0, 0);
+        device.available = false;
+        StreamClock streamClock = new StreamClock(new SessionClock(clock), device, SAMPLE_RATE);
+
+        // Before anything is delivered frame 0 is placed at the time the clock was created
+        assertEquals(clock.nanos, streamClock.frameToNanos(0));
+
+        run(clock, streamClock, device, 10000000000L, 20000000L);
+
+        assertFalse(streamClock.hasHardwareTimestamps());
+        assertEquals(0, streamClock.getDriftPpm(), 1);
+        long frame = device.trueFrame(clock.nanos);
+        // Delivery happens in 20ms steps, so the estimate is only as good as that
+        assertEquals(device.trueNanos(frame), streamClock.frameToNanos(frame), 20000000L);
+    }
+
+    @Test
+    public void hardwareTimestampsReplaceFallback() {
+        FakeClock clock = new FakeClock();
+        FakeDevice device = new FakeDevice(clock, 80000000L, -120, 0);
+        device.available = false;
+        StreamClock streamClock = new StreamClock(new SessionClock(clock), device, SAMPLE_RATE);
+
+        run(clock, streamClock, device, 2000000000L, 20000000L);
+        device.available = true;
+        run(clock, streamClock, device, 10000000000L, 20000000L);
+
+        assertTrue(streamClock.hasHardwareTimestamps());
+        assertEquals(-120, streamClock.getDriftPpm(), 1);
+        long frame = device.trueFrame(clock.nanos);
+        assertEquals(device.trueNanos(frame), streamClock.frameToNanos(frame), FRAME_NS);
+    }
+
+    @Test
+    public void alignsPlayerFramesWithRecorderFrames() {
+        FakeClock clock = new FakeClock();
+        SessionClock session = new SessionClock(clock);
+        FakeDevice microphone = new FakeDevice(clock, 15000000L, 40, 20000);
+        StreamClock recorder = new StreamClock(session, microphone, SAMPLE_RATE);
+
+        run(clock, recorder, microphone, 3000000000L, 10000000L);
+
+        // The player starts later, with its own latency and drift
+        FakeDevice speaker = new FakeDevice(clock, 45000000L, -60, 20000);
+        StreamClock player = new StreamClock(session, speaker, SAMPLE_RATE);
+        long end = clock.nanos + 2000000000L;
+        while (clock.nanos < end) {
+            clock.nanos += 10000000L;
+            recorder.update(microphone.trueFrame(clock.nanos));
+            player.update(0);
+        }
+
+        long chirpStart = player.frameToNanos(0);
+        assertEquals(speaker.trueNanos(0), chirpStart, FRAME_NS);
+        assertEquals(microphone.trueFrame(speaker.trueNanos(0)), recorder.nanosToFrame(chirpStart), 1);
+    }
+}
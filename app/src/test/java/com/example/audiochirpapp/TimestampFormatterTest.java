@@ -0,0 +1,79 @@
+package com.example.audiochirpapp;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks TimestampFormatter against SimpleDateFormat
+ */
+public class TimestampFormatterTest {
+
+    private static void assertSameAsSimpleDateFormat(TimeZone timeZone, long[] times) {
+        SimpleDateFormat reference = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+        reference.setTimeZone(timeZone);
+        TimestampFormatter formatter = new TimestampFormatter(timeZone);
+        StringBuilder sb = new StringBuilder();
+        byte[] bytes = new byte[32];
+
+        for (long time : times) {
+            String expected = reference.format(new Date(time));
+
+            sb.setLength(0);
+            formatter.append(sb, time);
+            assertEquals(expected, sb.toString());
+
+            int length = formatter.format(time, bytes, 0);
+            assertEquals(expected, new String(bytes, 0, length, StandardCharsets.US_ASCII));
+
+            assertEquals(expected, formatter.format(time));
+        }
+    }
+
+    @Test
+    public void matchesSimpleDateFormatPerSample() {
+        // Consecutive sample times of a 3 s recording starting just before a second boundary
+        long start = 1700000000997L;
+        long[] times = new long[3 * 44100];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = start + i * 1000L / 44100;
+        }
+        assertSameAsSimpleDateFormat(TimeZone.getTimeZone("UTC"), times);
+        assertSameAsSimpleDateFormat(TimeZone.getDefault(), times);
+    }
+
+    @Test
+    public void matchesSimpleDateFormatAcrossDaylightSaving() {
+        // 2023-03-12 and 2023-11-05 transitions in New York, sampled every 250 ms
+        TimeZone newYork = TimeZone.getTimeZone("America/New_York");
+        long[] springForward = new long[4 * 3600 * 4];
+        long[] fallBack = new long[4 * 3600 * 4];
+        for (int i = 0; i < springForward.length; i++) {
+            springForward[i] = 1678597200000L + i * 250L;
+            fallBack[i] = 1699153200000L + i * 250L;
+        }
+        assertSameAsSimpleDateFormat(newYork, springForward);
+        assertSameAsSimpleDateFormat(newYork, fallBack);
+    }
+
+    @Test
+    public void matchesSimpleDateFormatForRandomAndNegativeTimes() {
+        Random random = new Random(42);
+        long[] times = new long[20000];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = (random.nextLong() % 4000000000000L);
+        }
+        times[0] = -1;
+        times[1] = -1000;
+        times[2] = -1001;
+        times[3] = 0;
+        assertSameAsSimpleDateFormat(TimeZone.getTimeZone("Asia/Kolkata"), times);
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.audiochirpapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the streaming WAV writer
+ */
+public class WavWriterTest {
+    private File file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = File.createTempFile("audio", WavWriter.FILE_EXTENSION);
+    }
+
+    @After
+    public void deleteFile() {
+        file.delete();
+    }
+
+    private ByteBuffer readFile() throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            byte[] bytes = new byte[(int) in.length()];
+            in.readFully(bytes);
+            return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    @Test
+    public void writesStandardMonoFile() throws IOException, UnsupportedAudioFileException {
+        WavWriter writer = new WavWriter(file, 44100, 1);
+        short[] chirp = AudioUtils.generateChirp(1000, 2000, 100);
+        // More than the staging buffer
+        for (int i = 0; i < 10; i++) {
+            writer.writeSamples(chirp, 0, chirp.length);
+        }
+        writer.close();
+
+        ByteBuffer wav = readFile();
+        assertEquals(44 + 10 * chirp.length * 2, wav.capacity());
+        assertEquals(0x46464952, wav.getInt(0));
+        assertEquals(wav.capacity() - 8, wav.getInt(4));
+        assertEquals(10 * chirp.length * 2, wav.getInt(40));
+        for (int i = 0; i < chirp.length; i++) {
+            assertEquals(chirp[i], wav.getShort(44 + 2 * (9 * chirp.length + i)));
+        }
+
+        try (AudioInputStream stream = AudioSystem.getAudioInputStream(file)) {
+            AudioFormat format = stream.getFormat();
+            assertEquals(44100, format.getSampleRate(), 0);
+            assertEquals(1, format.getChannels());
+            assertEquals(16, format.getSampleSizeInBits());
+            assertFalse(format.isBigEndian());
+            assertEquals(10 * chirp.length, stream.getFrameLength());
+        }
+    }
+
+    @Test
+    public void stereoFramesFollowTheInterleavedLayout() throws IOException, UnsupportedAudioFileException {
+        short[] left = {1, 2, 3};
+        short[] right = {-1, -2, -3};
+        short[] stereo = new short[6];
+        AudioUtils.interleave(left, right, 3, stereo);
+        assertArrayEquals(AudioUtils.interleave(left, right), stereo);
+
+        WavWriter writer = new WavWriter(file, 44100, 2);
+        writer.writeSamples(stereo, 0, stereo.length);
+        assertEquals(3, writer.getFramesWritten());
+        writer.close();
+
+        ByteBuffer wav = readFile();
+        assertEquals(2, wav.getShort(22));
+        assertEquals(44100 * 4, wav.getInt(28));
+        assertEquals(4, wav.getShort(32));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(left[i], wav.getShort(44 + 4 * i));
+            assertEquals(right[i], wav.getShort(46 + 4 * i));
+        }
+        try (AudioInputStream stream = AudioSystem.getAudioInputStream(file)) {
+            assertEquals(2, stream.getFormat().getChannels());
+            assertEquals(3, stream.getFrameLength());
+        }
+    }
+
+    @Test
+    public void syncPatchesTheHeaderOfAnOpenFile() throws IOException {
+        WavWriter writer = new WavWriter(file, 44100, 1);
+        writer.writeSamples(new short[100], 0, 100);
+        writer.sync();
+
+        ByteBuffer wav = readFile();
+        assertEquals(244, wav.capacity());
+        assertEquals(200, wav.getInt(40));
+        assertEquals(236, wav.getInt(4));
+
+        writer.writeSamples(new short[50], 0, 50);
+        writer.close();
+        assertEquals(300, readFile().getInt(40));
+    }
+
+    @Test
+    public void lostFramesBecomeSilence() throws IOException {
+        WavWriter writer = new WavWriter(file, 44100, 1);
+        writer.writeBlock(new short[]{5, 5}, 0, 2, 0, 0);
+        // Frames 2 to 4 were dropped before they reached the writer
+        writer.writeBlock(new short[]{7, 7}, 0, 2, 0, 5);
+        writer.writeChirp(0, 3, new ChirpParams(4000, 1000, 50), new ChirpParams(9000, 1000, 50));
+        assertEquals(7, writer.getFramesWritten());
+        writer.close();
+
+        ByteBuffer wav = readFile();
+        short[] expected = {5, 5, 0, 0, 0, 7, 7};
+        assertEquals(expected.length * 2, wav.getInt(40));
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], wav.getShort(44 + 2 * i));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.audiochirpapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Offline analysis of a directory of sessions, to compare the worker counts
+ * against the cores of the machine
+ */
+@State(Scope.Benchmark)
+public class BatchAnalyzerBenchmark {
+    private static final int SAMPLE_RATE = 44100;
+    private static final int BLOCK_FRAMES = 1764;
+    private static final int SESSIONS = 4;
+    private static final int CHIRPS_PER_SESSION = 16;
+    // One chirp every 500ms
+    private static final int CHIRP_SPACING = SAMPLE_RATE / 2;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private File directory;
+    private List<File> recordings;
+    private BatchAnalyzer analyzer;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = File.createTempFile("sessions", "");
+        directory.delete();
+        directory.mkdir();
+
+        ChirpParams left = new ChirpParams(4000, 1000, 50);
+        ChirpParams right = new ChirpParams(12000, 2000, 50);
+        short[] chirp = AudioUtils.generateChirp(left.getStartFrequency(), left.getEndFrequency(), 50);
+        short[] block = new short[BLOCK_FRAMES];
+        for (int s = 0; s < SESSIONS; s++) {
+            File recording = new File(directory, "s" + s + "_recording_20260101_120000.bin");
+            BinarySessionWriter writer = new BinarySessionWriter(recording, SAMPLE_RATE, 1, 0,
+                    SessionIndexFormat.indexFileFor(recording));
+            long totalFrames = (long) (CHIRPS_PER_SESSION + 1) * CHIRP_SPACING;
+            for (long start = 0; start < totalFrames; start += BLOCK_FRAMES) {
+                for (int i = 0; i < BLOCK_FRAMES; i++) {
+                    int offset = (int) ((start + i) % CHIRP_SPACING);
+                    block[i] = offset < chirp.length ? (short) (chirp[offset] / 4) : 0;
+                }
+                writer.writeBlock(block, 0, BLOCK_FRAMES, start * 1000000000L / SAMPLE_RATE, start);
+                long nextChirp = (start / CHIRP_SPACING + 1) * CHIRP_SPACING;
+                if (nextChirp < start + BLOCK_FRAMES && nextChirp <= CHIRPS_PER_SESSION * CHIRP_SPACING) {
+                    writer.writeChirp(nextChirp * 1000000000L / SAMPLE_RATE, nextChirp, left, right);
+                }
+            }
+            writer.close();
+        }
+
+        recordings = BatchAnalyzer.findRecordings(directory);
+        analyzer = new BatchAnalyzer(threads, 200, 200);
+    }
+
+    @TearDown
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public List<ChirpAnalysis> analyzeDirectory() {
+        return analyzer.analyze(recordings);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.audiochirpapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Chirp generation: the reference AudioUtils.generateChirp against the
+ * block-based ChirpGenerator
+ */
+@State(Scope.Thread)
+public class ChirpBenchmark {
+    private static final int BLOCK_SIZE = 4096;
+
+    @Param({"10", "100", "1000", "10000", "300000"})
+    public int durationMs;
+
+    private short[] block;
+
+    @Setup
+    public void setup() {
+        block = new short[BLOCK_SIZE];
+    }
+
+    @Benchmark
+    public short[] generateChirp() {
+        return AudioUtils.generateChirp(1000, 5000, durationMs);
+    }
+
+    @Benchmark
+    public short[] chirpGenerator() {
+        ChirpGenerator generator = new ChirpGenerator(1000, 5000, durationMs);
+        while (generator.fill(block, 0, BLOCK_SIZE) > 0) {
+            // Output is consumed block by block, as in streaming playback
+        }
+        return block;
+    }
+}
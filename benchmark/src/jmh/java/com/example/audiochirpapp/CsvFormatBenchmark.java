@@ -0,0 +1,97 @@
+package com.example.audiochirpapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * CSV row encoding used for the recording and transmitted files.
+ * legacyRecordedRows keeps the original SimpleDateFormat-per-sample loop as a
+ * baseline; 300 s is left out because that single CSV string does not fit the heap.
+ */
+@State(Scope.Thread)
+public class CsvFormatBenchmark {
+    private static final long START_TIME_MS = 1700000000000L;
+
+    @Param({"10", "100", "1000", "10000"})
+    public int durationMs;
+
+    private short[] left;
+    private short[] right;
+    private SimpleDateFormat timestampFormat;
+    private NullChannel sink;
+    private CsvSampleEncoder encoder;
+
+    @Setup
+    public void setup() {
+        left = AudioUtils.generateChirp(750, 1250, durationMs);
+        right = AudioUtils.generateChirp(1750, 2250, durationMs);
+        timestampFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+        sink = new NullChannel();
+        encoder = new CsvSampleEncoder(sink, new TimestampFormatter(), CsvSampleEncoder.DEFAULT_BUFFER_SIZE);
+    }
+
+    @Benchmark
+    public StringBuilder legacyRecordedRows() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < left.length; i++) {
+            long offsetMs = i * 1000L / 44100;
+            String absoluteTime = timestampFormat.format(new Date(START_TIME_MS + 500 + offsetMs));
+
+            sb.append(absoluteTime)
+                    .append(",")
+                    .append(500 + offsetMs)
+                    .append(",")
+                    .append(left[i])
+                    .append("\n");
+        }
+        return sb;
+    }
+
+    @Benchmark
+    public long recordedRows() throws IOException {
+        encoder.writeRecordedRows(left, left.length, START_TIME_MS + 500, 500);
+        encoder.flush();
+        return sink.bytes;
+    }
+
+    @Benchmark
+    public long transmittedRows() throws IOException {
+        encoder.writeTransmittedRows(left, right, left.length, 0, START_TIME_MS + 500, 500);
+        encoder.flush();
+        return sink.bytes;
+    }
+
+    /**
+     * Channel that discards everything, so only encoding is measured
+     */
+    private static class NullChannel implements WritableByteChannel {
+        long bytes = 0;
+
+        @Override
+        public int write(ByteBuffer src) {
+            int n = src.remaining();
+            src.position(src.limit());
+            bytes += n;
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
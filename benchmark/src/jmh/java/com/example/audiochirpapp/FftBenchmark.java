@@ -0,0 +1,57 @@
+package com.example.audiochirpapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Fft transforms across the sizes used for per-block processing. At 44.1kHz
+ * a transform of N real samples has N / 44.1 ms of audio time to finish.
+ */
+@State(Scope.Thread)
+public class FftBenchmark {
+
+    @Param({"256", "1024", "4096", "16384", "65536"})
+    public int size;
+
+    private Fft fft;
+    private double[] signal;
+    private double[] data;
+
+    @Setup
+    public void setup() {
+        fft = new Fft(size);
+        Random random = new Random(1);
+        signal = new double[2 * size];
+        for (int i = 0; i < signal.length; i++) {
+            signal[i] = random.nextGaussian();
+        }
+        data = new double[2 * size];
+    }
+
+    @Benchmark
+    public double[] realForward() {
+        System.arraycopy(signal, 0, data, 0, size);
+        fft.realForward(data);
+        return data;
+    }
+
+    @Benchmark
+    public double[] realRoundTrip() {
+        System.arraycopy(signal, 0, data, 0, size);
+        fft.realForward(data);
+        fft.realInverse(data);
+        return data;
+    }
+
+    @Benchmark
+    public double[] complexForward() {
+        System.arraycopy(signal, 0, data, 0, 2 * size);
+        fft.complexForward(data);
+        return data;
+    }
+}
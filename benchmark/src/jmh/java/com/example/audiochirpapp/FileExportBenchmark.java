@@ -0,0 +1,97 @@
+package com.example.audiochirpapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Exporting a session directory of six 16MB files, through the former 1KB
+ * copy loop or through FileExporter's transferTo on a pool of threads
+ */
+@State(Scope.Thread)
+public class FileExportBenchmark {
+    private static final int FILE_COUNT = 6;
+    private static final int FILE_BYTES = 16 * 1024 * 1024;
+
+    // 0 is the former byte[1024] loop, one file after the other
+    @Param({"0", "1", "3"})
+    public int parallelism;
+
+    private File root;
+    private File source;
+    private File target;
+    private File manifestFile;
+
+    @Setup
+    public void setup() throws IOException {
+        root = File.createTempFile("export", "");
+        root.delete();
+        source = new File(root, "AudioChirpData");
+        target = new File(root, "Downloads");
+        manifestFile = new File(root, "export_manifest.txt");
+        source.mkdirs();
+        target.mkdirs();
+
+        byte[] bytes = new byte[FILE_BYTES];
+        new Random(1).nextBytes(bytes);
+        for (int i = 0; i < FILE_COUNT; i++) {
+            try (FileOutputStream out = new FileOutputStream(new File(source, "session_" + i + ".csv"))) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (File directory : new File[]{source, target}) {
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+        manifestFile.delete();
+        root.delete();
+    }
+
+    @Benchmark
+    public long exportDirectory() throws IOException {
+        if (parallelism == 0) {
+            long bytes = 0;
+            for (File file : source.listFiles()) {
+                try (FileInputStream in = new FileInputStream(file);
+                     FileOutputStream out = new FileOutputStream(new File(target, file.getName()))) {
+                    byte[] buffer = new byte[1024];
+                    int length;
+                    while ((length = in.read(buffer)) > 0) {
+                        out.write(buffer, 0, length);
+                        bytes += length;
+                    }
+                }
+            }
+            return bytes;
+        }
+        // A fresh manifest, so every file is copied
+        manifestFile.delete();
+        FileExporter exporter = new FileExporter(new FileExporter.DirectoryDestination(target),
+                new ExportManifest(manifestFile), parallelism, null);
+        return exporter.export(source.listFiles()).getBytesCopied();
+    }
+
+    @Benchmark
+    public long reexportUnchanged() {
+        // Only the manifest check, after a first export in the same directory
+        FileExporter exporter = new FileExporter(new FileExporter.DirectoryDestination(target),
+                new ExportManifest(manifestFile), Math.max(1, parallelism), null);
+        exporter.export(source.listFiles());
+        return exporter.export(source.listFiles()).getSkipped();
+    }
+}
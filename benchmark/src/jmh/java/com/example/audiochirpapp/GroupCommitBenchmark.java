@@ -0,0 +1,73 @@
+package com.example.audiochirpapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Persisting one second of audio as 25 mic buffers, each committed with the
+ * given durability, or all of them in one group commit
+ */
+@State(Scope.Thread)
+public class GroupCommitBenchmark {
+    private static final int BLOCK_SAMPLES = 1764;
+    private static final int BLOCKS_PER_SECOND = 25;
+
+    @Param({"FLUSH", "FSYNC"})
+    public DurabilityPolicy policy;
+
+    @Param({"false", "true"})
+    public boolean groupCommit;
+
+    private short[] block;
+    private File file;
+    private SampleSink sink;
+    private long frameIndex;
+
+    @Setup
+    public void setup() throws IOException {
+        block = AudioUtils.generateChirp(750, 1250, 50);
+        file = File.createTempFile("recording", BinarySessionFormat.FILE_EXTENSION);
+        BinarySessionWriter writer = new BinarySessionWriter(file, 44100, 1, 0);
+        // Thresholds above one second, so the explicit commit below is the only one
+        sink = groupCommit
+                ? new GroupCommitSink(writer, 44100 * 2, 60000, 44100 * 4, DurabilityPolicy.NONE)
+                : writer;
+        frameIndex = 0;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        sink.close();
+        file.delete();
+    }
+
+    @Benchmark
+    public long writeSecond() throws IOException {
+        for (int i = 0; i < BLOCKS_PER_SECOND; i++) {
+            sink.writeBlock(block, 0, BLOCK_SAMPLES, frameIndex * 22676L, frameIndex);
+            frameIndex += BLOCK_SAMPLES;
+            if (!groupCommit) {
+                commit();
+            }
+        }
+        if (groupCommit) {
+            commit();
+        }
+        return frameIndex;
+    }
+
+    private void commit() throws IOException {
+        if (policy == DurabilityPolicy.FSYNC) {
+            sink.sync();
+        } else {
+            sink.flush();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.audiochirpapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Stereo interleaving and PCM byte conversion in AudioUtils
+ */
+@State(Scope.Thread)
+public class PcmConversionBenchmark {
+
+    @Param({"10", "100", "1000", "10000", "300000"})
+    public int durationMs;
+
+    private short[] left;
+    private short[] right;
+    private short[] stereo;
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        left = AudioUtils.generateChirp(750, 1250, durationMs);
+        right = AudioUtils.generateChirp(1750, 2250, durationMs);
+        stereo = AudioUtils.interleave(left, right);
+        bytes = AudioUtils.shortsToBytes(stereo);
+    }
+
+    @Benchmark
+    public short[] interleave() {
+        return AudioUtils.interleave(left, right);
+    }
+
+    @Benchmark
+    public byte[] shortsToBytes() {
+        return AudioUtils.shortsToBytes(stereo);
+    }
+
+    @Benchmark
+    public short[] bytesToShorts() {
+        return AudioUtils.bytesToShorts(bytes);
+    }
+}
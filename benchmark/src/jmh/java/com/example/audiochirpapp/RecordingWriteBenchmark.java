@@ -0,0 +1,64 @@
+package com.example.audiochirpapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+
+/**
+ * Persisting recorded audio in the binary session format, one mic buffer per call
+ *
+ * The writer runs far faster than real time, so the file is rewound once it
+ * holds {@link #MAX_FILE_BYTES}. This keeps the disk usage bounded, and the
+ * writes keep landing in the page cache instead of running into a full disk.
+ */
+@State(Scope.Thread)
+public class RecordingWriteBenchmark {
+    private static final long MAX_FILE_BYTES = 64L * 1024 * 1024;
+
+    // Samples per AudioRecord read, 40ms to 1s of audio
+    @Param({"1764", "3528", "44100"})
+    public int blockSamples;
+
+    private short[] block;
+    private File file;
+    private FileChannel channel;
+    private BinarySessionWriter writer;
+    private long blockTimeNs;
+
+    @Setup
+    public void setup() throws IOException {
+        block = AudioUtils.generateChirp(750, 1250, 1000);
+        if (block.length < blockSamples) {
+            throw new IllegalStateException("block too large");
+        }
+        file = File.createTempFile("recording", BinarySessionFormat.FILE_EXTENSION);
+        channel = new RandomAccessFile(file, "rw").getChannel();
+        // The writer appends at the channel's position, which rewinding moves back
+        writer = new BinarySessionWriter(channel, 44100, 1, System.currentTimeMillis() * 1000000L);
+        blockTimeNs = System.currentTimeMillis() * 1000000L;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        writer.close();
+        file.delete();
+    }
+
+    @Benchmark
+    public long writeBlock() throws IOException {
+        blockTimeNs += 40000000L;
+        writer.writeBlock(block, 0, blockSamples, blockTimeNs, writer.getFramesWritten());
+        if (channel.position() >= MAX_FILE_BYTES) {
+            channel.position(0);
+        }
+        return writer.getFramesWritten();
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.audiochirpapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Lossless coding of one second of recording, room noise with a 50ms chirp
+ * every 500ms, in codec blocks of the maximum size
+ */
+@State(Scope.Thread)
+public class RiceCodecBenchmark {
+    private static final int SAMPLE_RATE = 44100;
+
+    private short[] samples;
+    private short[] decoded;
+    private byte[] encoded;
+    private int[] blockBytes;
+    private RiceCodec codec;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        short[] chirp = AudioUtils.generateChirp(3000, 5000, 50);
+        samples = new short[SAMPLE_RATE];
+        for (int i = 0; i < samples.length; i++) {
+            int chirpOffset = i % (SAMPLE_RATE / 2);
+            samples[i] = (short) Math.round(random.nextGaussian() * 10
+                    + (chirpOffset < chirp.length ? chirp[chirpOffset] / 8.0 : 0));
+        }
+        codec = new RiceCodec();
+        decoded = new short[RiceCodec.MAX_BLOCK_SAMPLES];
+        int blocks = (samples.length + RiceCodec.MAX_BLOCK_SAMPLES - 1) / RiceCodec.MAX_BLOCK_SAMPLES;
+        encoded = new byte[blocks * RiceCodec.maxEncodedSize(RiceCodec.MAX_BLOCK_SAMPLES)];
+        blockBytes = new int[blocks];
+        encodeSecond();
+    }
+
+    @Benchmark
+    public int encodeSecond() {
+        int position = 0;
+        for (int block = 0; block < blockBytes.length; block++) {
+            int offset = block * RiceCodec.MAX_BLOCK_SAMPLES;
+            int count = Math.min(RiceCodec.MAX_BLOCK_SAMPLES, samples.length - offset);
+            blockBytes[block] = codec.encode(samples, offset, count, encoded, position);
+            position += blockBytes[block];
+        }
+        return position;
+    }
+
+    @Benchmark
+    public int decodeSecond() throws IOException {
+        int position = 0;
+        int total = 0;
+        for (int block = 0; block < blockBytes.length; block++) {
+            total += codec.decode(encoded, position, blockBytes[block], decoded, 0);
+            position += blockBytes[block];
+        }
+        return total;
+    }
+}
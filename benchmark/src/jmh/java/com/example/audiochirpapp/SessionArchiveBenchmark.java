@@ -0,0 +1,86 @@
+package com.example.audiochirpapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+
+/**
+ * Packing a session directory of six 8MB recording CSVs into one ZIP archive
+ */
+@State(Scope.Thread)
+public class SessionArchiveBenchmark {
+    private static final int FILE_COUNT = 6;
+    private static final int FILE_BYTES = 8 * 1024 * 1024;
+
+    @Param({"1", "3"})
+    public int parallelism;
+
+    @Param({"1", "6", "9"})
+    public int level;
+
+    private File root;
+    private File source;
+    private File temp;
+    private File archive;
+
+    @Setup
+    public void setup() throws IOException {
+        root = File.createTempFile("archive", "");
+        root.delete();
+        source = new File(root, "AudioChirpData");
+        temp = new File(root, "cache");
+        archive = new File(root, "AudioChirpData" + SessionArchiver.FILE_EXTENSION);
+        source.mkdirs();
+        temp.mkdirs();
+
+        Random random = new Random(1);
+        long epochMs = 1792238400000L;
+        TimestampFormatter formatter = new TimestampFormatter();
+        for (int i = 0; i < FILE_COUNT; i++) {
+            File file = new File(source, "session_recording_" + i + ".csv");
+            try (Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8")) {
+                out.write(CsvSampleEncoder.RECORDED_HEADER);
+                for (int frame = 0; file.length() < FILE_BYTES; frame++) {
+                    long timeMs = frame * 1000L / 44100;
+                    out.write(formatter.format(epochMs + timeMs) + "," + timeMs + ","
+                            + (int) (random.nextGaussian() * 10) + "\n");
+                    if (frame % 44100 == 0) {
+                        out.flush();
+                    }
+                }
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (File directory : new File[]{source, temp}) {
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+        archive.delete();
+        root.delete();
+    }
+
+    @Benchmark
+    public long archiveDirectory() throws IOException {
+        SessionArchiver archiver = new SessionArchiver(temp, parallelism, level, null);
+        try (FileChannel out = new FileOutputStream(archive).getChannel()) {
+            archiver.archive(source.listFiles(), out);
+        }
+        return archiver.getArchiveBytes();
+    }
+}